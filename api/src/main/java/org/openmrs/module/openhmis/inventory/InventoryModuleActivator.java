@@ -16,11 +16,17 @@ package org.openmrs.module.openhmis.inventory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.module.BaseModuleActivator;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.DaemonTokenAware;
+import org.openmrs.module.openhmis.inventory.api.ItemCodeCache;
+import org.openmrs.module.openhmis.inventory.api.impl.OperationNumberPool;
+import org.openmrs.module.openhmis.inventory.api.impl.StockChangeEventDispatcher;
+import org.openmrs.module.openhmis.inventory.api.impl.StockOperationSubmissionQueue;
 
 /**
  * This class contains the logic that is run every time this module is either started or stopped.
  */
-public class InventoryModuleActivator extends BaseModuleActivator {
+public class InventoryModuleActivator extends BaseModuleActivator implements DaemonTokenAware {
 	private static final Log LOG = LogFactory.getLog(InventoryModuleActivator.class);
 		
 	/**
@@ -36,6 +42,12 @@ public class InventoryModuleActivator extends BaseModuleActivator {
 	 */
 	@Override
 	public void started() {
+		// Process any operations that were queued but not submitted before the module was last stopped
+		StockOperationSubmissionQueue.requeueOperations();
+
+		// Load the item codes now so that the first item scanned does not have to wait for them to be loaded
+		ItemCodeCache.warm();
+
 		LOG.info("OpenHMIS Inventory Module started");
 	}
 	
@@ -44,6 +56,21 @@ public class InventoryModuleActivator extends BaseModuleActivator {
 	 */
 	@Override
 	public void stopped() {
+		StockOperationSubmissionQueue.shutdown();
+		OperationNumberPool.clear();
+		StockChangeEventDispatcher.setDaemonToken(null);
+
 		LOG.info("OpenHMIS Inventory Module stopped");
 	}
+
+	/**
+	 * @see DaemonTokenAware#setDaemonToken(DaemonToken)
+	 */
+	@Override
+	public void setDaemonToken(DaemonToken token) {
+		StockOperationSubmissionQueue.setDaemonToken(token);
+		OperationNumberPool.setDaemonToken(token);
+		ItemCodeCache.setDaemonToken(token);
+		StockChangeEventDispatcher.setDaemonToken(token);
+	}
 }
@@ -1,29 +1,169 @@
 package org.openmrs.module.openhmis.inventory;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.openmrs.api.AdministrationService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.idgen.IdentifierSource;
-import org.openmrs.module.openhmis.commons.api.util.IdgenUtil;
+import org.openmrs.module.idgen.service.IdentifierSourceService;
 import org.openmrs.module.openhmis.inventory.api.model.Settings;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+/**
+ * Provides access to the module global properties. The property values are cached once they are loaded; the cache is
+ * cleared by the {@link ModuleSettingsListener} when any module global property is changed.
+ */
 public class ModuleSettings {
+	private static final Log LOG = LogFactory.getLog(ModuleSettings.class);
+	private static final AtomicLong VERSION = new AtomicLong();
+	private static volatile CachedSettings cache;
+
+	public static final String PROPERTY_PREFIX = "openhmis.inventory.";
+
 	public static final String AUTO_GENERATE_OPERATION_NUMBER_PROPERTY = "openhmis.inventory.autoGenerateOperationNumber";
 	public static final String OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY =
 			"openhmis.inventory.operationNumberIdentifierSourceId";
+	public static final String SUBMIT_OPERATIONS_ASYNCHRONOUSLY_PROPERTY =
+			"openhmis.inventory.submitOperationsAsynchronously";
+	public static final String OPERATION_BATCH_SIZE_PROPERTY = "openhmis.inventory.operationBatchSize";
+	public static final int DEFAULT_OPERATION_BATCH_SIZE = 50;
+	public static final String TRANSACTION_COMPACTION_MONTHS_PROPERTY = "openhmis.inventory.transactionCompactionMonths";
+	public static final int DEFAULT_TRANSACTION_COMPACTION_MONTHS = 12;
+	public static final String IMPORT_BATCH_SIZE_PROPERTY = "openhmis.inventory.importBatchSize";
+	public static final int DEFAULT_IMPORT_BATCH_SIZE = 500;
+	public static final String OPERATION_NUMBER_BLOCK_SIZE_PROPERTY = "openhmis.inventory.operationNumberBlockSize";
+	public static final int DEFAULT_OPERATION_NUMBER_BLOCK_SIZE = 20;
+	public static final String CACHE_ITEM_CODES_PROPERTY = "openhmis.inventory.cacheItemCodes";
 
 	public static boolean generateOperationNumber() {
-		AdministrationService adminService = Context.getAdministrationService();
-		String property = adminService.getGlobalProperty(AUTO_GENERATE_OPERATION_NUMBER_PROPERTY);
+		String property = getProperty(AUTO_GENERATE_OPERATION_NUMBER_PROPERTY);
 
 		return Boolean.parseBoolean(property);
 	}
 
+	public static boolean submitOperationsAsynchronously() {
+		String property = getProperty(SUBMIT_OPERATIONS_ASYNCHRONOUSLY_PROPERTY);
+
+		return Boolean.parseBoolean(property);
+	}
+
+	public static boolean cacheItemCodes() {
+		String property = getProperty(CACHE_ITEM_CODES_PROPERTY);
+
+		return Boolean.parseBoolean(property);
+	}
+
+	public static int getOperationBatchSize() {
+		String property = getProperty(OPERATION_BATCH_SIZE_PROPERTY);
+
+		int size = DEFAULT_OPERATION_BATCH_SIZE;
+		if (!StringUtils.isEmpty(property)) {
+			try {
+				size = Integer.parseInt(property.trim());
+			} catch (NumberFormatException nfe) {
+				LOG.warn("The operation batch size '" + property + "' is not a valid number. The default will be used.");
+			}
+		}
+
+		return size > 0 ? size : DEFAULT_OPERATION_BATCH_SIZE;
+	}
+
+	public static int getTransactionCompactionMonths() {
+		String property = getProperty(TRANSACTION_COMPACTION_MONTHS_PROPERTY);
+
+		int months = DEFAULT_TRANSACTION_COMPACTION_MONTHS;
+		if (!StringUtils.isEmpty(property)) {
+			try {
+				months = Integer.parseInt(property.trim());
+			} catch (NumberFormatException nfe) {
+				LOG.warn("The transaction compaction months '" + property + "' is not a valid number. The default will be "
+						+ "used.");
+			}
+		}
+
+		return months > 0 ? months : DEFAULT_TRANSACTION_COMPACTION_MONTHS;
+	}
+
+	public static int getImportBatchSize() {
+		String property = getProperty(IMPORT_BATCH_SIZE_PROPERTY);
+
+		int size = DEFAULT_IMPORT_BATCH_SIZE;
+		if (!StringUtils.isEmpty(property)) {
+			try {
+				size = Integer.parseInt(property.trim());
+			} catch (NumberFormatException nfe) {
+				LOG.warn("The import batch size '" + property + "' is not a valid number. The default will be used.");
+			}
+		}
+
+		return size > 0 ? size : DEFAULT_IMPORT_BATCH_SIZE;
+	}
+
+	public static int getOperationNumberBlockSize() {
+		String property = getProperty(OPERATION_NUMBER_BLOCK_SIZE_PROPERTY);
+
+		int size = DEFAULT_OPERATION_NUMBER_BLOCK_SIZE;
+		if (!StringUtils.isEmpty(property)) {
+			try {
+				size = Integer.parseInt(property.trim());
+			} catch (NumberFormatException nfe) {
+				LOG.warn("The operation number block size '" + property + "' is not a valid number. The default will be "
+						+ "used.");
+			}
+		}
+
+		return size > 0 ? size : DEFAULT_OPERATION_NUMBER_BLOCK_SIZE;
+	}
+
+	/**
+	 * Gets the id of the identifier source used to generate operation numbers.
+	 * @return The identifier source id or {@code null} if operation numbers are not generated or no source is defined.
+	 */
+	public static Integer getOperationNumberIdentifierSourceId() {
+		if (!generateOperationNumber()) {
+			return null;
+		}
+
+		String property = getProperty(OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY);
+
+		Integer sourceId = null;
+		if (!StringUtils.isEmpty(property)) {
+			try {
+				sourceId = Integer.parseInt(property.trim());
+			} catch (NumberFormatException nfe) {
+				LOG.warn("The operation number identifier source id '" + property + "' is not a valid number.");
+			}
+		}
+
+		return sourceId;
+	}
+
+	/**
+	 * Gets the identifier source used to generate operation numbers. Only the source id is cached; the source is loaded
+	 * in the current session so that it can be used by the identifier source service.
+	 * @return The identifier source or {@code null} if operation numbers are not generated or no source is defined.
+	 */
+	public static IdentifierSource getOperationNumberIdentifierSource() {
+		Integer sourceId = getOperationNumberIdentifierSourceId();
+		if (sourceId == null) {
+			return null;
+		}
+
+		return Context.getService(IdentifierSourceService.class).getIdentifierSource(sourceId);
+	}
+
 	public static Settings loadSettings() {
 		Settings settings = new Settings();
 
 		settings.setAutoGenerateOperationNumber(generateOperationNumber());
 		if (settings.getAutoGenerateOperationNumber()) {
-			IdentifierSource source = IdgenUtil.getIdentifierSource(OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY);
+			IdentifierSource source = getOperationNumberIdentifierSource();
 			if (source != null) {
 				settings.setOperationNumberGeneratorSourceId(source.getId());
 			}
@@ -51,6 +191,60 @@ public class ModuleSettings {
 		} else {
 			adminService.setGlobalProperty(OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY, "");
 		}
+
+		invalidate();
+	}
+
+	/**
+	 * Clears the cached settings so that they will be reloaded the next time they are used. If there is an active
+	 * transaction the cache is cleared again when the transaction completes, as settings loaded during the transaction
+	 * can contain changes that are not visible to other sessions or that are rolled back.
+	 */
+	public static void invalidate() {
+		VERSION.incrementAndGet();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					VERSION.incrementAndGet();
+				}
+			});
+		}
+	}
+
+	private static String getProperty(String propertyName) {
+		CachedSettings cached = getCache();
+
+		String value = cached.properties.get(propertyName);
+		if (value == null) {
+			AdministrationService adminService = Context.getAdministrationService();
+			value = StringUtils.defaultString(adminService.getGlobalProperty(propertyName));
+
+			cached.properties.putIfAbsent(propertyName, value);
+		}
+
+		return value;
+	}
+
+	private static CachedSettings getCache() {
+		CachedSettings current = cache;
+		if (current == null || current.version != VERSION.get()) {
+			current = new CachedSettings(VERSION.get());
+			cache = current;
+		}
+
+		return current;
+	}
+
+	private static final class CachedSettings {
+		private final long version;
+		// Properties that are not defined are cached as an empty string
+		private final ConcurrentMap<String, String> properties = new ConcurrentHashMap<String, String>();
+
+		private CachedSettings(long version) {
+			this.version = version;
+		}
 	}
 
 	protected ModuleSettings() {}
@@ -0,0 +1,37 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory;
+
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.GlobalPropertyListener;
+
+/**
+ * Clears the cached {@link ModuleSettings} when any of the module global properties are changed or deleted.
+ */
+public class ModuleSettingsListener implements GlobalPropertyListener {
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return propertyName != null && propertyName.startsWith(ModuleSettings.PROPERTY_PREFIX);
+	}
+
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		ModuleSettings.invalidate();
+	}
+
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		ModuleSettings.invalidate();
+	}
+}
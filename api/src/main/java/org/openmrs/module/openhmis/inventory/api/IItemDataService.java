@@ -13,38 +13,60 @@
  */
 package org.openmrs.module.openhmis.inventory.api;
 
+import java.io.Reader;
 import java.util.List;
+import java.util.Map;
 
 import org.openmrs.Concept;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.IMetadataDataService;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
 import org.openmrs.module.openhmis.inventory.api.model.Category;
 import org.openmrs.module.openhmis.inventory.api.model.Department;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 
 @Transactional
 public interface IItemDataService extends IMetadataDataService<Item> {
 	/**
-	 * Gets the {@link Item} with the specified code or {@code null} if not found.
+	 * Gets the {@link Item} with the specified code or {@code null} if not found. Codes are compared using their
+	 * normalized form so the case and any surrounding whitespace are ignored.
 	 * @param itemCode The item code to find.
 	 * @return The {@link Item} or with the specified item code or {@code null}.
 	 * @should throw IllegalArgumentException if the item code is null
 	 * @should throw IllegalArgumentException if the item code is longer than 255 characters
 	 * @should return the item with the specified item code
 	 * @should return null if the item code is not found
+	 * @should ignore the case and surrounding whitespace of the item code
+	 * @should return the item from the item code cache when it is enabled
+	 * @should find the item by a code that was changed after the cache was loaded
 	 */
 	@Transactional(readOnly =  true)
 	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
 	Item getItemByCode(String itemCode);
 
+	/**
+	 * Gets the id of the item for each normalized item code. Codes that are used by more than one item are not
+	 * included. This is used to load the {@link ItemCodeCache}.
+	 * @return The item ids by normalized item code.
+	 * @should return the item id for each normalized item code
+	 * @should not include codes that are used by more than one item
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
+	Map<String, Integer> getItemIdsByCode();
+
 	/**
 	 * Gets all items with the specified code or {@code null} if not found.
 	 * This is needed as long as it is not mandatory for codes to be unique
+	 * The code is compared in its normalized form so the case and any surrounding whitespace are ignored.
 	 * @param itemCode The item code to find.
 	 * @return All items with the specified item code or {@code null}.
 	 * @param includeRetired Whether retired items should be included in the results.
@@ -52,6 +74,7 @@ public interface IItemDataService extends IMetadataDataService<Item> {
 	 * @should throw IllegalArgumentException if the item code is longer than 255 characters
 	 * @should return the item with the specified item code
 	 * @should return null if the item code is not found
+	 * @should ignore the case and surrounding whitespace of the item code
 	 */
 	@Transactional(readOnly =  true)
 	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
@@ -69,6 +92,25 @@ public interface IItemDataService extends IMetadataDataService<Item> {
 	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
 	List<Item> getItemsByCode(String itemCode, boolean includeRetired, PagingInfo pagingInfo);
 
+	/**
+	 * Gets all the items that have the specified code or whose name starts with the specified text using a single
+	 * query. Items with a matching code are returned before the items that only match by name so that this can be used
+	 * to search as the user types without first searching by code and then by name.
+	 * @param query The item code or name fragment.
+	 * @param includeRetired Whether retired items should be included in the results.
+	 * @param pagingInfo The paging information.
+	 * @return All items with the specified code or a name that starts with the specified text.
+	 * @should throw IllegalArgumentException if the query is null
+	 * @should throw IllegalArgumentException if the query is longer than 255 characters
+	 * @should return the items with a matching code before the items with a matching name
+	 * @should return the items with a name that starts with the query
+	 * @should not return retired items unless specified
+	 * @should return paged items if paging is specified
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
+	List<Item> getItemsByCodeOrName(String query, boolean includeRetired, PagingInfo pagingInfo);
+
 	/**
 	 * Gets all the items for the specified {@link Department}.
 	 * @param department The department.
@@ -267,6 +309,9 @@ public interface IItemDataService extends IMetadataDataService<Item> {
 	 * @should return all items if paging is null
 	 * @should return paged items if paging is specified
 	 * @should not return retired items from search unless specified
+	 * @should not count the items when the probe count mode is specified
+	 * @should set no more results on the last page when the probe count mode is specified
+	 * @should reuse the cached count when the cached count mode is specified
 	 */
 	@Transactional(readOnly = true)
 	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
@@ -296,6 +341,28 @@ public interface IItemDataService extends IMetadataDataService<Item> {
 	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
     List<Item> getItemsWithoutConcept(List<Integer> excludedItemsIds, Integer resultLimit);
 
-
+	/**
+	 * Imports new items into the item catalog. The rows are read as they are imported so that large catalogs do not
+	 * need to be held in memory. The rows are saved in chunks
+	 * (see {@link org.openmrs.module.openhmis.inventory.ModuleSettings#getImportBatchSize()}) and each chunk is committed
+	 * in a separate transaction; if a chunk cannot be saved the import stops and the previous chunks remain imported.
+	 *
+	 * The columns are name, code, department, category, price, and description. The department and category can be
+	 * specified by name or uuid. Rows with an unknown department or category or with a code that is already used are
+	 * reported as errors and are not imported.
+	 * @param reader The reader for the items to import.
+	 * @param format The import format.
+	 * @param progress An optional action that is called after each chunk is committed.
+	 * @return The import result.
+	 * @should throw IllegalArgumentException if the reader is null
+	 * @should throw IllegalArgumentException if the format is null
+	 * @should create the imported items with their code and default price
+	 * @should report rows with missing or invalid values
+	 * @should report rows with a code that already exists
+	 * @should commit the rows in chunks
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	@Authorized( {PrivilegeConstants.MANAGE_ITEMS})
+	ImportResult importItems(Reader reader, ImportFormat format, Action1<ImportResult> progress);
 }
 
@@ -1,10 +1,23 @@
 package org.openmrs.module.openhmis.inventory.api;
 
+import org.openmrs.annotation.Authorized;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetailBase;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collection;
 import java.util.List;
 
 public interface IItemStockDataService extends IObjectDataService<ItemStock> {
@@ -19,4 +32,132 @@ public interface IItemStockDataService extends IObjectDataService<ItemStock> {
 	 * @should throw IllegalArgumentException if item is null
 	 */
 	List<ItemStock> getItemStockByItem(Item item, PagingInfo pagingInfo);
+
+	/**
+	 * Returns the {@link ItemStock} for any of the specified {@link Item}'s in any of the specified {@link Stockroom}'s
+	 * using a single query. The item stock details are loaded in the same query.
+	 * @param stockrooms The stockrooms to search.
+	 * @param items The items to find the item stock of.
+	 * @return The item stock found or an empty list if none was found.
+	 * @should return the item stock for the specified items and stockrooms
+	 * @should not return item stock for other stockrooms
+	 * @should return an empty list if stockrooms or items is empty
+	 * @should throw IllegalArgumentException if stockrooms is null
+	 * @should throw IllegalArgumentException if items is null
+	 */
+	List<ItemStock> getItemStock(Collection<Stockroom> stockrooms, Collection<Item> items);
+
+	/**
+	 * Returns the specified {@link ItemStock} that has been changed or deleted in the database since it was loaded. The
+	 * versions are checked with a single query without reloading the item stock. Item stock that has not been saved is
+	 * ignored.
+	 * @param stock The item stock to check.
+	 * @return The stale item stock or an empty list if all the item stock is current.
+	 * @should return item stock with a different version than the database
+	 * @should return item stock that no longer exists in the database
+	 * @should not return current item stock
+	 * @should ignore item stock that has not been saved
+	 * @should throw IllegalArgumentException if stock is null
+	 */
+	List<ItemStock> getStaleItemStock(Collection<ItemStock> stock);
+
+	/**
+	 * Imports the initial item stock for a {@link Stockroom} from the specified reader. The rows are read one at a time
+	 * and the item codes are resolved from a lookup that is loaded once for the import. The valid rows are added to the
+	 * stockroom item stock in chunks (see {@link org.openmrs.module.openhmis.inventory.ModuleSettings#getImportBatchSize()})
+	 * and each chunk is committed on its own when there is no surrounding transaction. Rows that cannot be imported are
+	 * reported in the result and do not stop the import; a chunk that cannot be saved stops the import.
+	 *
+	 * Each chunk is recorded as a completed receipt {@link org.openmrs.module.openhmis.inventory.api.model.StockOperation}
+	 * into the stockroom whose transactions are applied like any other operation, so the imported stock is its own
+	 * batch and is included in the stockroom transaction history and the stock change events. The user must therefore
+	 * also be allowed to manage stock operations.
+	 * @param stockroom The stockroom to add the stock to.
+	 * @param reader The reader for the rows to import.
+	 * @param format The format of the rows.
+	 * @param progress An optional callback that is called after each chunk has been saved.
+	 * @return The import result.
+	 * @should add the imported stock to the stockroom
+	 * @should add the rows with the same item and expiration to a single detail
+	 * @should record each chunk as a completed receipt operation with transactions
+	 * @should import ndjson rows
+	 * @should report rows with an unknown item code or invalid values
+	 * @should report rows with an item code that is used by more than one item
+	 * @should report rows without an expiration for an item that expires
+	 * @should write a stock change event for each changed item stock
+	 * @should update the item stock level status
+	 * @should not clear the session of a surrounding transaction
+	 * @should save the rows in chunks and report progress
+	 * @should update the item stock totals
+	 * @should throw IllegalArgumentException if the stockroom is null
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	@Authorized( {PrivilegeConstants.MANAGE_STOCKROOMS})
+	ImportResult importStock(Stockroom stockroom, Reader reader, ImportFormat format,
+			Action1<ImportResult> progress);
+
+	/**
+	 * Imports the specified item stock entries into a {@link Stockroom}. The item for each entry must be defined.
+	 * @param stockroom The stockroom to add the stock to.
+	 * @param entries The entries to import.
+	 * @return The import result. The line numbers in the result are the one-based entry positions.
+	 * @should add the entries to the stockroom item stock
+	 * @should report entries without an item or quantity
+	 * @should report entries without an expiration for an item that expires
+	 * @should throw IllegalArgumentException if the entries are null
+	 */
+	@Transactional(propagation = Propagation.SUPPORTS)
+	@Authorized( {PrivilegeConstants.MANAGE_STOCKROOMS})
+	ImportResult importStock(Stockroom stockroom, List<? extends ItemStockDetailBase> entries);
+
+	/**
+	 * Writes the item stock details for the specified stockrooms to the writer. The details are read with a single
+	 * forward-only query that returns the column values rather than entities so that the export does not load the item
+	 * stock into the session and memory use does not grow with the number of rows.
+	 *
+	 * The columns are stockroom, itemCode, itemName, quantity, expiration, and batch. The rows are ordered by stockroom,
+	 * item name, and expiration. Exported CSV or NDJSON can be imported with
+	 * {@link #importStock(Stockroom, Reader, ImportFormat, Action1)}.
+	 * @param stockrooms The stockrooms to export.
+	 * @param writer The writer for the export.
+	 * @param format The export format.
+	 * @return The number of rows that were exported.
+	 * @should write the item stock details for the stockrooms
+	 * @should write ndjson rows
+	 * @should write only the header when the stockrooms have no stock
+	 * @should throw IllegalArgumentException if the stockrooms are null or empty
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	int exportStock(Collection<Stockroom> stockrooms, Writer writer, ImportFormat format);
+
+	/**
+	 * Returns the {@link ItemStockTotal} for the specified {@link Item}. The total is loaded with a single row lookup so
+	 * it can be used to show the facility-wide stock of an item without loading the item stock of each stockroom.
+	 * @param item The item to find the total of.
+	 * @return The item stock total or {@code null} if the item does not have a total.
+	 * @should return the total for the item
+	 * @should return null if the item has no total
+	 * @should throw IllegalArgumentException if item is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_ITEMS})
+	ItemStockTotal getItemStockTotal(Item item);
+
+	/**
+	 * Adds the specified changes to the {@link ItemStockTotal} for the specified {@link Item}. The changes are applied
+	 * with a single update statement so that concurrent changes to the stock of the same item in different stockrooms
+	 * are not lost. The total is created when the item is saved; a total is only created here for an item that does
+	 * not have one.
+	 * @param item The item to update the total of.
+	 * @param quantityChange The change in the on-hand quantity.
+	 * @param reservedChange The change in the reserved quantity.
+	 * @param stockroomCountChange The change in the number of stockrooms with stock of the item.
+	 * @should add the changes to the existing total
+	 * @should create the total if the item does not have one
+	 * @should throw IllegalArgumentException if item is null
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	void updateItemStockTotal(Item item, int quantityChange, int reservedChange, int stockroomCountChange);
 }
@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.openmrs.annotation.Authorized;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevelStatus;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Data service for the {@link ItemStockLevel}'s. When a level is saved the status is calculated from the current item
+ * stock quantity; after that the status is updated as the stock operation transactions are applied.
+ */
+public interface IItemStockLevelDataService extends IObjectDataService<ItemStockLevel> {
+	/**
+	 * Returns the {@link ItemStockLevel} for the specified {@link Item} in the specified {@link Stockroom}.
+	 * @param stockroom The stockroom.
+	 * @param item The item.
+	 * @return The item stock level or {@code null} if no levels are defined for the item in the stockroom.
+	 * @should return the level for the stockroom and item
+	 * @should return null if there is no level for the stockroom and item
+	 * @should throw IllegalArgumentException if stockroom is null
+	 * @should throw IllegalArgumentException if item is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	ItemStockLevel getLevel(Stockroom stockroom, Item item);
+
+	/**
+	 * Returns the {@link ItemStockLevel}'s for any of the specified {@link Item}'s in any of the specified
+	 * {@link Stockroom}'s using a single query.
+	 * @param stockrooms The stockrooms to search.
+	 * @param items The items to find the levels of.
+	 * @return The levels found or an empty list if none were found.
+	 * @should return the levels for the specified items and stockrooms
+	 * @should return an empty list if stockrooms or items is empty
+	 * @should throw IllegalArgumentException if stockrooms is null
+	 * @should throw IllegalArgumentException if items is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	List<ItemStockLevel> getLevels(Collection<Stockroom> stockrooms, Collection<Item> items);
+
+	/**
+	 * Returns the {@link ItemStockLevel}'s that are at or below the reorder or minimum levels, ordered by the date the
+	 * level was breached (oldest first).
+	 * @param stockroom The stockroom to return the alerts for or {@code null} to return the alerts for all stockrooms.
+	 * @param status The status to return or {@code null} to return both {@link ItemStockLevelStatus#REORDER} and
+	 *               {@link ItemStockLevelStatus#BELOW_MINIMUM} levels.
+	 * @param paging The paging information.
+	 * @return The breached levels or an empty list if there are none.
+	 * @should return the breached levels for the stockroom
+	 * @should return the breached levels for all stockrooms if stockroom is null
+	 * @should return only the levels with the specified status
+	 * @should not return levels with the normal status
+	 * @should return paged levels if paging is specified
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	List<ItemStockLevel> getAlerts(Stockroom stockroom, ItemStockLevelStatus status, PagingInfo paging);
+}
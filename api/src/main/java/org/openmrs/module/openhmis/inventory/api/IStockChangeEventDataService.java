@@ -0,0 +1,86 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.List;
+
+import org.openmrs.annotation.Authorized;
+import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEventConsumer;
+import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface IStockChangeEventDataService extends IObjectDataService<StockChangeEvent> {
+	/**
+	 * Returns the {@link StockChangeEvent}'s written after the specified event, in the order they were written.
+	 * @param lastEventId The id of the last event that was read or zero to read from the first event.
+	 * @param maxResults The maximum number of events to return.
+	 * @return The events after the specified event or an empty list if there are no later events.
+	 * @should return the events after the specified event ordered by id
+	 * @should return the events from the first event if the last event id is zero
+	 * @should return no more than the maximum number of events
+	 * @should throw IllegalArgumentException if max results is not positive
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_OPERATIONS})
+	List<StockChangeEvent> getEventsAfter(int lastEventId, int maxResults);
+
+	/**
+	 * Gets the position of the specified event consumer, registering the consumer if it does not exist. A new consumer
+	 * starts after the last event that has been written so it only reads the events written after it was registered.
+	 * @param name The unique consumer name.
+	 * @return The consumer position.
+	 * @should return the existing consumer
+	 * @should register a new consumer after the last event
+	 * @should throw IllegalArgumentException if the name is empty
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	StockChangeEventConsumer registerConsumer(String name);
+
+	/**
+	 * Records that the specified consumer has processed the events up to and including the specified event. The
+	 * consumer position is never moved backwards.
+	 * @param name The consumer name.
+	 * @param lastEventId The id of the last event the consumer processed.
+	 * @should update the last event id of the consumer
+	 * @should not move the consumer position backwards
+	 * @should throw IllegalArgumentException if the consumer is not registered
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	void advanceConsumer(String name, int lastEventId);
+
+	/**
+	 * Removes a consumer that no longer reads the events so that its position does not stop the events from being purged.
+	 * @param name The consumer name.
+	 * @should remove the consumer
+	 * @should do nothing if the consumer is not registered
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	void removeConsumer(String name);
+
+	/**
+	 * Deletes the {@link StockChangeEvent}'s that every registered consumer has processed. If there are no registered
+	 * consumers then all the events are deleted.
+	 * @return The number of events that were deleted.
+	 * @should delete the events that every consumer has processed
+	 * @should delete all the events if there are no consumers
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	int purgeConsumedEvents();
+}
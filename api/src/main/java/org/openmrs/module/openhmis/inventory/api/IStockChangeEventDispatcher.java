@@ -0,0 +1,52 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.List;
+
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+
+/**
+ * Delivers the {@link StockChangeEvent}'s written by the stock operation service to the registered
+ * {@link IStockChangeEventListener}'s. Each listener reads the events from the outbox from its own stored position, so
+ * a listener receives every event at least once even if the server is stopped before the events are delivered.
+ */
+public interface IStockChangeEventDispatcher {
+	void addListener(IStockChangeEventListener listener);
+
+	/**
+	 * Removes the specified listener so that it is not sent any further events.
+	 * @param listener The listener to remove.
+	 * @should not deliver the events to removed listeners
+	 */
+	void removeListener(IStockChangeEventListener listener);
+
+	/**
+	 * Notifies the dispatcher that the specified events have been written so that they are delivered once the current
+	 * transaction has been committed. The events are not delivered if the transaction is rolled back.
+	 * @param events The events that were written.
+	 */
+	void dispatch(List<StockChangeEvent> events);
+
+	/**
+	 * Delivers the events in the outbox that each listener has not yet processed, in event id order. The position of a
+	 * listener is only advanced once the listener has processed the events, so events that a listener fails to process
+	 * are delivered to it again by the next poll.
+	 * @should deliver the events to the listeners in id order
+	 * @should not deliver the events that a listener has already processed
+	 * @should deliver the events again to a listener that failed
+	 * @should deliver the events to the other listeners when a listener fails
+	 */
+	void poll();
+}
@@ -0,0 +1,32 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.List;
+
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+
+/**
+ * Receives the {@link StockChangeEvent}'s written when item stock is changed. Listeners are notified after the
+ * transaction that changed the stock has been committed. The position of each listener in the events is stored under the
+ * listener class name, and events are delivered again if the listener throws, so a listener must tolerate receiving an
+ * event more than once.
+ */
+public interface IStockChangeEventListener {
+	/**
+	 * Called with the next committed events, in the order they were written.
+	 * @param events The stock change events.
+	 */
+	void onStockChanged(List<StockChangeEvent> events);
+}
@@ -30,6 +30,34 @@ public interface IStockOperationDataService extends IMetadataDataService<StockOp
 	@Authorized( {PrivilegeConstants.VIEW_OPERATIONS})
 	StockOperation getOperationByNumber(String operationNumber);
 
+	/**
+	 * Gets the {@link StockOperation} for the submission that was saved with the specified idempotency key.
+	 * @param idempotencyKey The idempotency key.
+	 * @return The {@link StockOperation} or {@code null} if there is no submission with the specified key.
+	 * @should return null if key is not found
+	 * @should return operation with the specified key
+	 * @should not return operations with unsaved submissions with the specified key
+	 * @should throw IllegalArgumentException if key is null
+	 * @should throw IllegalArgumentException if key is empty
+	 * @should throw IllegalArgumentException if key is longer than 64 characters
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_OPERATIONS})
+	StockOperation getOperationByIdempotencyKey(String idempotencyKey);
+
+	/**
+	 * Gets the status of the specified {@link StockOperation} as it is saved in the database. Any change to the status
+	 * that has not been saved is ignored.
+	 * @param operation The operation.
+	 * @return The saved status or {@code null} if the operation has not been saved.
+	 * @should return the saved status rather than the changed status
+	 * @should return null if the operation has not been saved
+	 * @should throw IllegalArgumentException if the operation is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_OPERATIONS})
+	StockOperationStatus getSavedStatus(StockOperation operation);
+
 	/**
 	 * Returns the {@link StockOperation}s for the specified {@link Stockroom}.
 	 * @param stockroom The {@link Stockroom} that the transactions occurred in.
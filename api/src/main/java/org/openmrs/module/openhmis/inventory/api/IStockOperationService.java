@@ -2,10 +2,12 @@ package org.openmrs.module.openhmis.inventory.api;
 
 
 import java.util.Collection;
+import java.util.List;
 
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.OpenmrsService;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationSubmissionResult;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
 import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
 import org.springframework.transaction.annotation.Transactional;
@@ -17,6 +19,9 @@ public interface IStockOperationService extends OpenmrsService {
 	 * completed if all the required attributes have been defined, otherwise the status will be PENDING.  If the
 	 * operation is completed the completion action, as defined by the
 	 * {@link org.openmrs.module.openhmis.inventory.api.model.IStockOperationType} will be executed.
+	 *
+	 * If the operation has a submission idempotency key that was already used by an earlier submission, the submission is
+	 * a retry and the operation processed by the earlier submission is returned without being processed again.
 	 * @param operation The operation to submit.
 	 * @return The submitted and saved stock operation.
 	 * @should update the source stockroom item stock quantities
@@ -30,6 +35,13 @@ public interface IStockOperationService extends OpenmrsService {
 	 * @should create new reservations from the operation items
 	 * @should not recreate existing reservations if submitted multiple times
 	 * @should properly process operation as submitted for each state change
+	 * @should recalculate the reservations if the source stock was changed since it was loaded
+	 * @should return the already submitted operation when retried with the same idempotency key
+	 * @should not apply the transactions again when retried with the same idempotency key
+	 * @should save the idempotency key with the operation
+	 * @should not process a status change again when retried with the same idempotency key
+	 * @should only update the reserved totals when the operation status changes
+	 * @should clear the submission error of a new operation
 	 * @should throw APIException if the operation type is receipt and expiration is not defined for expirable items
 	 * @should throw an IllegalArgumentException if the operation is null
 	 * @should throw an APIException if the operation type is null
@@ -43,7 +55,52 @@ public interface IStockOperationService extends OpenmrsService {
 	StockOperation submitOperation(StockOperation operation);
 
 	/**
-	 * Applies the specified transactions against the referenced objects.
+	 * Validates and saves the specified new {@link org.openmrs.module.openhmis.inventory.api.model.StockOperation} with the
+	 * {@link org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus#QUEUED} status and then queues it to be
+	 * submitted asynchronously by the worker for its stockroom. The operation status can be polled to find out when the
+	 * operation has been processed. If the submission queue is not available the operation is submitted immediately.
+	 * @param operation The new operation to queue.
+	 * @return The saved stock operation.
+	 * @should set the operation status to queued
+	 * @should clear the submission error
+	 * @should not create the operation reservations
+	 * @should submit the operation immediately if the queue is not available
+	 * @should return the already queued operation when retried with the same idempotency key
+	 * @should throw an APIException if the operation status is not new
+	 * @should throw an APIException if the operation has no operation items
+	 * @should throw an IllegalArgumentException if the operation is null
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	StockOperation queueOperation(StockOperation operation);
+
+	/**
+	 * Submits the specified {@link org.openmrs.module.openhmis.inventory.api.model.StockOperation}'s as a batch. The
+	 * operations are processed in chunks (see {@link org.openmrs.module.openhmis.inventory.ModuleSettings#getOperationBatchSize()}).
+	 * For each chunk the source stock is loaded once, the reservations are calculated against that shared stock, and the
+	 * resulting transactions are applied in a single pass. Each chunk is committed in its own transaction unless this
+	 * method is called within an existing transaction, in which case the chunks are part of that transaction.
+	 *
+	 * Operations that are not valid are reported as failures and are not submitted. If a chunk fails, the operations in
+	 * that chunk and in any later chunks are reported as failures.
+	 * @param operations The operations to submit.
+	 * @return The result of the batch submission.
+	 * @should submit all the operations
+	 * @should report operations that are not valid without submitting them
+	 * @should return the already submitted operation for operations with a used idempotency key
+	 * @should calculate the reservations for operations with the same source from the shared stock
+	 * @should not take the stock reserved by an operation that fails from the later operations
+	 * @should apply the transactions for all the operations
+	 * @should throw an IllegalArgumentException if operations is null
+	 */
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	StockOperationSubmissionResult submitOperations(List<StockOperation> operations);
+
+	/**
+	 * Applies the specified transactions against the referenced objects. A {@link
+	 * org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent} is written in the same transaction for each
+	 * operation that changed an item stock and the events are dispatched to the registered listeners after the
+	 * transaction is committed.
 	 * @param transactions The transactions to apply.
 	 * @should not throw exception if transactions is null
 	 * @should not throw exception if transactions is empty
@@ -54,6 +111,12 @@ public interface IStockOperationService extends OpenmrsService {
 	 * @should add item stock detail with no expiration or batch when item stock quantity is negative
 	 * @should remove item stock if quantity is zero
 	 * @should remove item stock detail if quantity is zero
+	 * @should apply the transactions to the current item stock if it was changed since it was loaded
+	 * @should write a stock change event for each operation that changed the item stock
+	 * @should write the resulting quantity of each change to the stock change event
+	 * @should throw APIException if an operation has not been saved
+	 * @should update the item stock level status when the quantity crosses a level
+	 * @should update the item stock totals
 	 */
 	@Transactional
 	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
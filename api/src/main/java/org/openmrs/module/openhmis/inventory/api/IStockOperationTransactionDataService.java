@@ -13,9 +13,28 @@
  */
 package org.openmrs.module.openhmis.inventory.api;
 
+import java.util.Date;
+
+import org.openmrs.annotation.Authorized;
 import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface IStockOperationTransactionDataService extends IObjectDataService<StockOperationTransaction> {
-
+	/**
+	 * Compacts the {@link StockOperationTransaction}'s created before the specified horizon. The transactions are added
+	 * to monthly {@link org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup}'s for each
+	 * stockroom, item, and batch, and are then moved to the transaction archive table.
+	 * @param horizon The date before which transactions are compacted.
+	 * @return The number of transactions that were compacted.
+	 * @should add the transactions before the horizon to monthly rollups
+	 * @should add to existing rollups for the same month
+	 * @should move the compacted transactions to the archive
+	 * @should not compact transactions on or after the horizon
+	 * @should throw IllegalArgumentException if the horizon is null
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_OPERATIONS})
+	int compactTransactions(Date horizon);
 }
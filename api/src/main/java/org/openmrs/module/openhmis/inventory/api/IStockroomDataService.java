@@ -13,6 +13,7 @@
  */
 package org.openmrs.module.openhmis.inventory.api;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -25,9 +26,11 @@ import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.api.search.StockOperationSearch;
+import org.openmrs.module.openhmis.inventory.api.util.KeysetPagingInfo;
 import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -48,19 +51,55 @@ public interface IStockroomDataService extends IMetadataDataService<Stockroom> {
 	List<ItemStock> getItemsByRoom(Stockroom stockroom, PagingInfo paging);
 
 	/**
-	 * Gets all {@link StockOperationTransaction}'s in the specified {@link Stockroom}.
+	 * Gets all {@link StockOperationTransaction}'s in the specified {@link Stockroom}. Transactions that have been compacted
+	 * are not returned; use {@link #getTransactionRollupsByRoom(Stockroom, PagingInfo)} to get their monthly totals.
 	 * @param stockroom The {@link Stockroom}.
 	 * @param paging The paging information.
 	 * @return A list containing all of the stockroom transactions.
 	 * @should return all the transactions in the stockroom ordered by the transaction date
 	 * @should return an empty list if there are no transactions
 	 * @should return paged items if paging is specified
+	 * @should not return the compacted transactions
 	 * @should throw IllegalArgumentException if the stockroom is null
 	 */
 	@Transactional(readOnly = true)
 	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
 	List<StockOperationTransaction> getTransactionsByRoom(Stockroom stockroom, PagingInfo paging);
 
+	/**
+	 * Gets the monthly {@link StockOperationTransactionRollup}'s of the compacted transactions in the specified
+	 * {@link Stockroom}, with the most recent month first.
+	 * @param stockroom The {@link Stockroom}.
+	 * @param paging The paging information.
+	 * @return A list containing the stockroom transaction rollups.
+	 * @should return the rollups in the stockroom ordered by month
+	 * @should return an empty list if no transactions have been compacted
+	 * @should return paged rollups if paging is specified
+	 * @should throw IllegalArgumentException if the stockroom is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	List<StockOperationTransactionRollup> getTransactionRollupsByRoom(Stockroom stockroom, PagingInfo paging);
+
+	/**
+	 * Gets a page of the {@link StockOperationTransaction}'s in the specified {@link Stockroom} using keyset paging. The
+	 * transactions are in the same order as {@link #getTransactionsByRoom(Stockroom, PagingInfo)} but each page continues
+	 * from the last transaction of the previous page instead of skipping the earlier pages so deep pages are as cheap as
+	 * the first page.
+	 * @param stockroom The {@link Stockroom}.
+	 * @param paging The keyset paging information. The next page continuation is set on this object.
+	 * @return The page of stockroom transactions.
+	 * @should return the transactions in the same order as the offset paged transactions
+	 * @should continue from the last transaction of the previous page
+	 * @should not return the compacted transactions
+	 * @should not set the next continuation on the last page
+	 * @should throw IllegalArgumentException if the continuation is not valid
+	 * @should throw IllegalArgumentException if the stockroom is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	List<StockOperationTransaction> seekTransactionsByRoom(Stockroom stockroom, KeysetPagingInfo paging);
+
 	/**
 	 * Gets all the items in the stockroom that match the {@link ItemSearch} settings.
  	 * @param stockroom The {@link Stockroom} items to search within.
@@ -111,6 +150,25 @@ public interface IStockroomDataService extends IMetadataDataService<Stockroom> {
 	@Authorized({PrivilegeConstants.VIEW_STOCKROOMS})
 	ItemStock getItem(Stockroom stockroom, Item item);
 
+	/**
+	 * Gets the {@link ItemStock} for all the specified {@link Item}'s in a single query. The item stock details are
+	 * loaded with the item stock so that no further queries are needed to access them.
+	 * @param stockroom The {@link Stockroom} items to search.
+	 * @param items The {@link Item}'s to find.
+	 * @return The {@link ItemStock} found or an empty list if none were found. Items that have no stock in the
+	 * stockroom are not included.
+	 * @should return the stockroom item stock for all the specified items
+	 * @should not return items from other stockrooms
+	 * @should not return item stock for items that are not specified
+	 * @should return an empty list when items is empty
+	 * @should load the item stock details
+	 * @should throw IllegalArgumentException when stockroom is null
+	 * @should throw IllegalArgumentException when items is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized({PrivilegeConstants.VIEW_STOCKROOMS})
+	List<ItemStock> getItems(Stockroom stockroom, Collection<Item> items);
+
 	/**
 	 * Gets the {@link ItemStockDetail} for the specified {@link Item} and qualifiers.
 	 * @param stockroom The stockroom item details to search.
@@ -131,6 +189,25 @@ public interface IStockroomDataService extends IMetadataDataService<Stockroom> {
 	@Authorized({PrivilegeConstants.VIEW_STOCKROOMS})
 	ItemStockDetail getStockroomItemDetail(Stockroom stockroom, Item item, Date expiration, StockOperation batchOperation);
 
+	/**
+	 * Gets the {@link ItemStockDetail}'s that expire before the specified date, ordered by expiration. Details without an
+	 * expiration are never returned.
+	 * @param before The date the details must expire before.
+	 * @param stockrooms The optional stockrooms to search. If {@code null} or empty the details for all stockrooms are
+	 *                      returned.
+	 * @param paging The paging information.
+	 * @return The expiring item stock details or an empty list if none were found.
+	 * @should return the details that expire before the date ordered by expiration
+	 * @should not return details that expire on or after the date
+	 * @should only return details for the specified stockrooms
+	 * @should return details for all stockrooms when stockrooms is empty
+	 * @should return paged details if paging is specified
+	 * @should throw IllegalArgumentException when before is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized({PrivilegeConstants.VIEW_STOCKROOMS})
+	List<ItemStockDetail> getExpiringDetails(Date before, Collection<Stockroom> stockrooms, PagingInfo paging);
+
     /**
     * Gets all the stockrooms for the specified {@link Location}.
     * @param location The location.
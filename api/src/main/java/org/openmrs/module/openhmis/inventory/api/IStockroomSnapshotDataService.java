@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.Date;
+
+import org.openmrs.annotation.Authorized;
+import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.model.StockroomSnapshot;
+import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface IStockroomSnapshotDataService extends IObjectDataService<StockroomSnapshot> {
+	/**
+	 * Creates and saves a {@link StockroomSnapshot} of the current item stock detail quantities in the specified
+	 * {@link Stockroom}. Stock changes are blocked while the snapshot is taken so that every transaction created before
+	 * the snapshot date is included in the snapshot quantities and every later transaction is not.
+	 * @param stockroom The stockroom to snapshot.
+	 * @return The saved snapshot.
+	 * @should create a snapshot of the current item stock details
+	 * @should create an empty snapshot if the stockroom has no item stock
+	 * @should throw IllegalArgumentException if the stockroom is null
+	 */
+	@Transactional
+	@Authorized( {PrivilegeConstants.MANAGE_STOCKROOMS})
+	StockroomSnapshot createSnapshot(Stockroom stockroom);
+
+	/**
+	 * Gets the most recent {@link StockroomSnapshot} for the specified {@link Stockroom} that was taken at or before the
+	 * specified date.
+	 * @param stockroom The stockroom.
+	 * @param date The date.
+	 * @return The snapshot or {@code null} if no snapshot was taken at or before the date.
+	 * @should return the most recent snapshot at or before the date
+	 * @should return null if there is no snapshot at or before the date
+	 * @should throw IllegalArgumentException if the stockroom is null
+	 * @should throw IllegalArgumentException if the date is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	StockroomSnapshot getSnapshot(Stockroom stockroom, Date date);
+
+	/**
+	 * Gets the quantity of the specified {@link Item} that was in the specified {@link Stockroom} at the specified
+	 * date. The quantity is calculated from the most recent snapshot taken at or before the date plus the transactions
+	 * created after that snapshot up to the date. If there is no such snapshot the transactions created after the date
+	 * are instead reversed from the current item stock quantity. Every stock change, including imported stock, is
+	 * recorded as a transaction. Compacted transactions are included from their monthly rollups when the whole month is
+	 * included and from the transaction archive otherwise.
+	 * @param stockroom The stockroom.
+	 * @param item The item.
+	 * @param date The date.
+	 * @return The item quantity at the date.
+	 * @should replay the transactions after the snapshot up to the date
+	 * @should not include transactions created after the date
+	 * @should reverse the transactions after the date from the current stock if there is no snapshot
+	 * @should not include stock imported after the date
+	 * @should include the part of a compacted month up to the date
+	 * @should return zero if the item was not in the stockroom
+	 * @should throw IllegalArgumentException if the stockroom is null
+	 * @should throw IllegalArgumentException if the item is null
+	 * @should throw IllegalArgumentException if the date is null
+	 */
+	@Transactional(readOnly = true)
+	@Authorized( {PrivilegeConstants.VIEW_STOCKROOMS})
+	int getItemQuantity(Stockroom stockroom, Item item, Date date);
+}
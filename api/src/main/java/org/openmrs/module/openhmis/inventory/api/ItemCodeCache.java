@@ -0,0 +1,131 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
+import org.openmrs.module.openhmis.inventory.api.model.ItemCode;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches the id of the item for each normalized item code so that items can be found by code (for example, when a
+ * barcode is scanned) without querying the database for the code. The cache is only used when the
+ * {@link ModuleSettings#CACHE_ITEM_CODES_PROPERTY} setting is enabled. It is loaded when the module is started and is
+ * reloaded after the codes of an item are changed or an item with codes is purged.
+ */
+public final class ItemCodeCache {
+	private static final Log LOG = LogFactory.getLog(ItemCodeCache.class);
+
+	private static final AtomicLong VERSION = new AtomicLong();
+	private static volatile Snapshot snapshot;
+	private static volatile DaemonToken daemonToken;
+
+	// Make this class static
+	private ItemCodeCache() {}
+
+	/**
+	 * Sets the daemon token used to load the cache when the module is started.
+	 * @param token The module daemon token.
+	 */
+	public static void setDaemonToken(DaemonToken token) {
+		daemonToken = token;
+	}
+
+	/**
+	 * Gets the id of the item with the specified code.
+	 * @param code The item code.
+	 * @return The item id or {@code null} if the cache is not enabled, the code is not found, or the code is used by
+	 * more than one item.
+	 */
+	public static Integer getItemId(String code) {
+		if (StringUtils.isEmpty(code) || !ModuleSettings.cacheItemCodes()) {
+			return null;
+		}
+
+		Snapshot current = snapshot;
+		if (current == null || current.version != VERSION.get()) {
+			current = load();
+		}
+
+		return current.itemIds.get(ItemCode.normalize(code));
+	}
+
+	/**
+	 * Loads the cache in a daemon thread so that the first item code lookup does not need to load it.
+	 */
+	public static void warm() {
+		if (daemonToken == null) {
+			LOG.warn("The item code cache cannot be loaded because the daemon token has not been set.");
+
+			return;
+		}
+
+		Daemon.runInDaemonThread(new Runnable() {
+			@Override
+			public void run() {
+				if (ModuleSettings.cacheItemCodes()) {
+					load();
+				}
+			}
+		}, daemonToken);
+	}
+
+	/**
+	 * Marks the cache as out of date so that it will be reloaded the next time it is used. If there is an active
+	 * transaction the cache is marked out of date again when the transaction completes, as codes loaded during the
+	 * transaction can contain changes that are not visible to other sessions or that are rolled back.
+	 */
+	public static void invalidate() {
+		VERSION.incrementAndGet();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCompletion(int status) {
+					VERSION.incrementAndGet();
+				}
+			});
+		}
+	}
+
+	private static Snapshot load() {
+		long version = VERSION.get();
+		Map<String, Integer> itemIds = Context.getService(IItemDataService.class).getItemIdsByCode();
+
+		Snapshot loaded = new Snapshot(version, itemIds);
+		snapshot = loaded;
+
+		return loaded;
+	}
+
+	private static final class Snapshot {
+		private final long version;
+		private final Map<String, Integer> itemIds;
+
+		Snapshot(long version, Map<String, Integer> itemIds) {
+			this.version = version;
+			this.itemIds = Collections.unmodifiableMap(itemIds);
+		}
+	}
+}
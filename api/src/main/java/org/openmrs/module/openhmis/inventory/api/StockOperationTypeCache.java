@@ -0,0 +1,271 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.Hibernate;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Caches an immutable snapshot of the identifying information and the process restrictions of all the
+ * {@link IStockOperationType}'s so that operation types can be resolved without searching for them in the database.
+ * The snapshot is loaded when it is first used and is reloaded after an operation type is saved, retired, or purged.
+ *
+ * The snapshot does not hold any entities; operation types are always returned from the current session so that they
+ * can be safely associated with other entities and lazily loaded.
+ */
+public final class StockOperationTypeCache {
+	private static final String DISCRIMINATOR_SUFFIX = "OperationType";
+
+	private static final AtomicLong VERSION = new AtomicLong();
+	private static volatile Snapshot snapshot;
+
+	// Make this class static
+	private StockOperationTypeCache() {}
+
+	/**
+	 * Gets the current operation type snapshot, loading it if it has not been loaded or is out of date.
+	 * @return The current snapshot.
+	 */
+	public static Snapshot getSnapshot() {
+		return getSnapshot(getService());
+	}
+
+	/**
+	 * Gets the operation type with the specified uuid from the current session.
+	 * @param uuid The operation type uuid.
+	 * @return The operation type or {@code null} if not found.
+	 */
+	public static IStockOperationType getByUuid(String uuid) {
+		if (StringUtils.isEmpty(uuid)) {
+			return null;
+		}
+
+		IStockOperationTypeDataService service = getService();
+		TypeInfo info = getSnapshot(service).getByUuid(uuid);
+		if (info != null) {
+			// Loading by id is served by the second level cache when the type has already been loaded
+			IStockOperationType type = service.getById(info.getId());
+			if (type != null) {
+				return type;
+			}
+		}
+
+		// The type was changed without going through the data service so look up only this type rather than reloading
+		//  the snapshot for what is most likely an invalid uuid
+		IStockOperationType type = service.getByUuid(uuid);
+		if (type != null || info != null) {
+			VERSION.incrementAndGet();
+		}
+
+		return type;
+	}
+
+	/**
+	 * Marks the current snapshot as out of date so that it will be reloaded the next time it is used. If there is an
+	 * active transaction the snapshot is marked out of date again after the transaction is committed, as another thread
+	 * can reload the snapshot from the data before the commit, and again after it is rolled back, as a snapshot loaded
+	 * during the transaction can contain the changes that were rolled back.
+	 * @should reload the snapshot when a type is saved
+	 * @should reload the snapshot after the transaction is committed
+	 * @should reload the snapshot after the transaction is rolled back
+	 */
+	public static void invalidate() {
+		VERSION.incrementAndGet();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					VERSION.incrementAndGet();
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					if (status != STATUS_COMMITTED) {
+						VERSION.incrementAndGet();
+					}
+				}
+			});
+		}
+	}
+
+	private static IStockOperationTypeDataService getService() {
+		return Context.getService(IStockOperationTypeDataService.class);
+	}
+
+	private static Snapshot getSnapshot(IStockOperationTypeDataService service) {
+		Snapshot current = snapshot;
+
+		// A different service means that the application context was refreshed (such as between tests) so the snapshot
+		//  could describe types from another database
+		if (current == null || current.getVersion() != VERSION.get() || current.service != service) {
+			long version = VERSION.get();
+			current = new Snapshot(version, service, service.getAll(true));
+			snapshot = current;
+		}
+
+		return current;
+	}
+
+	/**
+	 * Gets the discriminator for the operation type, which is the lower case class name without the operation type
+	 * suffix (for example, "transfer" for the TransferOperationType).
+	 * @param type The operation type.
+	 * @return The operation type discriminator.
+	 */
+	static String getDiscriminator(IStockOperationType type) {
+		String name = Hibernate.getClass(type).getSimpleName();
+		if (name.endsWith(DISCRIMINATOR_SUFFIX)) {
+			name = name.substring(0, name.length() - DISCRIMINATOR_SUFFIX.length());
+		}
+
+		return name.toLowerCase();
+	}
+
+	/**
+	 * The immutable information about an operation type that is held by the snapshot.
+	 */
+	public static final class TypeInfo {
+		private final Integer id;
+		private final String uuid;
+		private final String name;
+		private final String discriminator;
+		private final String roleName;
+		private final Integer userId;
+
+		TypeInfo(IStockOperationType type) {
+			this.id = type.getId();
+			this.uuid = type.getUuid();
+			this.name = type.getName();
+			this.discriminator = getDiscriminator(type);
+			this.roleName = type.getRole() == null ? null : type.getRole().getRole();
+			this.userId = type.getUser() == null ? null : type.getUser().getUserId();
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		public String getUuid() {
+			return uuid;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public String getDiscriminator() {
+			return discriminator;
+		}
+
+		/**
+		 * Gets the name of the role that is required to process operations of this type.
+		 * @return The role name or {@code null} if the type has no role restriction.
+		 */
+		public String getRoleName() {
+			return roleName;
+		}
+
+		/**
+		 * Gets the id of the user that can process operations of this type.
+		 * @return The user id or {@code null} if the type has no user restriction.
+		 */
+		public Integer getUserId() {
+			return userId;
+		}
+	}
+
+	/**
+	 * An immutable, versioned set of operation type information indexed by uuid, id, and discriminator.
+	 */
+	public static final class Snapshot {
+		private final long version;
+		private final IStockOperationTypeDataService service;
+		private final List<TypeInfo> types;
+		private final Map<String, TypeInfo> typesByUuid;
+		private final Map<Integer, TypeInfo> typesById;
+		private final Map<String, List<TypeInfo>> typesByDiscriminator;
+
+		Snapshot(long version, IStockOperationTypeDataService service, List<IStockOperationType> operationTypes) {
+			this.version = version;
+			this.service = service;
+
+			List<TypeInfo> infos = new ArrayList<TypeInfo>(operationTypes.size());
+			Map<String, TypeInfo> byUuid = new HashMap<String, TypeInfo>();
+			Map<Integer, TypeInfo> byId = new HashMap<Integer, TypeInfo>();
+			Map<String, List<TypeInfo>> byDiscriminator = new HashMap<String, List<TypeInfo>>();
+
+			for (IStockOperationType type : operationTypes) {
+				TypeInfo info = new TypeInfo(type);
+				infos.add(info);
+				byUuid.put(info.getUuid(), info);
+				byId.put(info.getId(), info);
+
+				List<TypeInfo> discriminatorTypes = byDiscriminator.get(info.getDiscriminator());
+				if (discriminatorTypes == null) {
+					discriminatorTypes = new ArrayList<TypeInfo>();
+					byDiscriminator.put(info.getDiscriminator(), discriminatorTypes);
+				}
+				discriminatorTypes.add(info);
+			}
+
+			for (Map.Entry<String, List<TypeInfo>> entry : byDiscriminator.entrySet()) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+
+			this.types = Collections.unmodifiableList(infos);
+			this.typesByUuid = Collections.unmodifiableMap(byUuid);
+			this.typesById = Collections.unmodifiableMap(byId);
+			this.typesByDiscriminator = Collections.unmodifiableMap(byDiscriminator);
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public List<TypeInfo> getTypes() {
+			return types;
+		}
+
+		public TypeInfo getByUuid(String uuid) {
+			return typesByUuid.get(uuid);
+		}
+
+		public TypeInfo getById(Integer id) {
+			return typesById.get(id);
+		}
+
+		/**
+		 * Gets the operation types with the specified discriminator, such as "transfer" or "adjustment".
+		 * @param discriminator The operation type discriminator.
+		 * @return The operation types or an empty list if none were found.
+		 */
+		public List<TypeInfo> getByDiscriminator(String discriminator) {
+			List<TypeInfo> result = discriminator == null ? null : typesByDiscriminator.get(discriminator.toLowerCase());
+
+			return result == null ? Collections.<TypeInfo>emptyList() : result;
+		}
+	}
+}
@@ -13,7 +13,6 @@
  */
 package org.openmrs.module.openhmis.inventory.api;
 
-import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
 
 public final class WellKnownOperationTypes {
@@ -52,8 +51,6 @@ public final class WellKnownOperationTypes {
 	}
 
 	private static IStockOperationType getOperationType(String uuid) {
-		IStockOperationTypeDataService service = Context.getService(IStockOperationTypeDataService.class);
-
-		return service.getByUuid(uuid);
+		return StockOperationTypeCache.getByUuid(uuid);
 	}
 }
@@ -13,39 +13,146 @@
  */
 package org.openmrs.module.openhmis.inventory.api.impl;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
+import org.hibernate.Query;
+import org.hibernate.criterion.CriteriaQuery;
+import org.hibernate.criterion.CriteriaSpecification;
 import org.hibernate.criterion.MatchMode;
+import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.openmrs.Concept;
+import org.openmrs.OpenmrsMetadata;
 import org.openmrs.OpenmrsObject;
 import org.openmrs.annotation.Authorized;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.impl.BaseMetadataDataServiceImpl;
 import org.openmrs.module.openhmis.commons.api.entity.security.IMetadataAuthorizationPrivileges;
 import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
 import org.openmrs.module.openhmis.inventory.api.IItemDataService;
+import org.openmrs.module.openhmis.inventory.api.ItemCodeCache;
 import org.openmrs.module.openhmis.inventory.api.model.Category;
 import org.openmrs.module.openhmis.inventory.api.model.Department;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemCode;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
+import org.openmrs.module.openhmis.inventory.api.util.ImportReader;
 import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Transactional
 public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 		implements IItemDataService, IMetadataAuthorizationPrivileges {
 	
 	private static final int MAX_ITEM_CODE_LENGTH = 255;
+	private static final String[] IMPORT_COLUMNS = { "name", "code", "department", "category", "price", "description" };
+	private static final String IMPORT_NAME = "default";
+
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired(required = false)
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+	}
 
 	@Override
 	protected void validate(Item entity) {
-		return;
+		if (entity.getCodes() == null) {
+			return;
+		}
+
+		// The code search joins the codes that match the normalized query so an item can only have one code for each
+		//  normalized code, otherwise the item would be returned once for each of the codes
+		Set<String> codes = new HashSet<String>();
+		for (ItemCode code : entity.getCodes()) {
+			String normalizedCode = ItemCode.normalize(code.getCode());
+			if (normalizedCode != null && !codes.add(normalizedCode)) {
+				throw new APIException("The item code '" + code.getCode() + "' is the same as another code of the item "
+						+ "when the case and surrounding whitespace are ignored.");
+			}
+		}
+	}
+
+	@Override
+	public Item save(Item entity) {
+		boolean isNew = entity != null && entity.getId() == null;
+		boolean codesChanged = entity != null && haveCodesChanged(entity);
+
+		Item result = super.save(entity);
+		if (codesChanged) {
+			ItemCodeCache.invalidate();
+		}
+
+		// Create the stock total with the item so that stock changes only ever update an existing total. Creating the
+		//  total with the first stock change would race with the first change to the item stock in another stockroom.
+		if (isNew) {
+			getRepository().save(new ItemStockTotal(result, 0, 0, 0));
+		}
+
+		return result;
+	}
+
+	@Override
+	public void purge(Item entity) {
+		if (entity != null && entity.getId() != null) {
+			Query query = getRepository().createQuery("delete from " + ItemStockTotal.class.getName()
+					+ " t where t.item.id = :itemId");
+			query.setParameter("itemId", entity.getId());
+			query.executeUpdate();
+		}
+
+		super.purge(entity);
+		if (entity != null && entity.getCodes() != null && entity.getCodes().size() > 0) {
+			ItemCodeCache.invalidate();
+		}
+	}
+
+	private boolean haveCodesChanged(Item item) {
+		Set<String> codes = new HashSet<String>();
+		if (item.getCodes() != null) {
+			for (ItemCode code : item.getCodes()) {
+				codes.add(code.getNormalizedCode());
+			}
+		}
+
+		if (item.getId() == null) {
+			return codes.size() > 0;
+		}
+
+		// Compare with the saved codes without flushing the pending changes to the item
+		Query query = getRepository().createQuery("select c.normalizedCode from " + ItemCode.class.getName()
+				+ " c where c.item.id = :itemId");
+		query.setParameter("itemId", item.getId());
+		query.setFlushMode(FlushMode.MANUAL);
+
+		Set<Object> savedCodes = new HashSet<Object>(query.list());
+
+		return !savedCodes.equals(codes);
 	}
 
 	@Override
@@ -71,13 +178,48 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 					"The item code must be less than 256 characters.");
 		}
 
+		Integer itemId = ItemCodeCache.getItemId(itemCode);
+		if (itemId != null) {
+			Item item = getById(itemId);
+			if (item != null) {
+				return item;
+			}
+		}
+
 		Criteria criteria = getRepository().createCriteria(getEntityClass());
 		criteria.createAlias("codes", "c").add(
-				Restrictions.ilike("c.code", itemCode));
+				Restrictions.eq("c.normalizedCode", ItemCode.normalize(itemCode)));
 
 		return getRepository().selectSingle(getEntityClass(), criteria);
 	}
 
+	@Override
+	@Authorized( { PrivilegeConstants.VIEW_ITEMS } )
+	@Transactional(readOnly = true)
+	public Map<String, Integer> getItemIdsByCode() {
+		Query query = getRepository().createQuery("select c.normalizedCode, c.item.id from " + ItemCode.class.getName()
+				+ " c");
+
+		Map<String, Integer> results = new HashMap<String, Integer>();
+		Set<String> duplicateCodes = new HashSet<String>();
+		for (Object row : query.list()) {
+			Object[] values = (Object[])row;
+			String code = (String)values[0];
+			Integer itemId = (Integer)values[1];
+
+			Integer existing = results.get(code);
+			if ((existing != null && !existing.equals(itemId)) || duplicateCodes.contains(code)) {
+				// A code that is used by more than one item must be looked up in the database
+				results.remove(code);
+				duplicateCodes.add(code);
+			} else {
+				results.put(code, itemId);
+			}
+		}
+
+		return results;
+	}
+
 	@Override
 	@Transactional(readOnly = true)
 	@Authorized({ PrivilegeConstants.VIEW_ITEMS })
@@ -94,11 +236,11 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 			throw new NullPointerException("The item code must be defined");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.createAlias("codes", "c").add(
-						Restrictions.eq("c.code", itemCode));
+						Restrictions.eq("c.normalizedCode", ItemCode.normalize(itemCode)));
 				if (!includeRetired) {
 					criteria.add(Restrictions.eq(HibernateCriteriaConstants.RETIRED, false));
 				}
@@ -106,6 +248,34 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 		}, getDefaultSort());
 	}
 
+	@Override
+	@Authorized({ PrivilegeConstants.VIEW_ITEMS })
+	@Transactional(readOnly = true)
+	public List<Item> getItemsByCodeOrName(final String query, final boolean includeRetired, PagingInfo pagingInfo) {
+		if (StringUtils.isEmpty(query)) {
+			throw new IllegalArgumentException("The query must be defined.");
+		}
+		if (query.length() > MAX_ITEM_CODE_LENGTH) {
+			throw new IllegalArgumentException("The query must be less than 256 characters.");
+		}
+
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				// Only the matching codes are joined so the code alias is null for the items that only match by name
+				//  and, as an item has at most one code for each normalized code, each item is only returned once
+				criteria.createAlias("codes", "c", CriteriaSpecification.LEFT_JOIN,
+						Restrictions.eq("c.normalizedCode", ItemCode.normalize(query)));
+				criteria.add(Restrictions.or(
+						Restrictions.isNotNull("c.id"),
+						Restrictions.ilike(HibernateCriteriaConstants.NAME, query, MatchMode.START)));
+				if (!includeRetired) {
+					criteria.add(Restrictions.eq(HibernateCriteriaConstants.RETIRED, false));
+				}
+			}
+		}, new MatchedCodeFirstOrder(), Order.asc(HibernateCriteriaConstants.NAME), Order.asc(HibernateCriteriaConstants.ID));
+	}
+
 	@Override
 	@Authorized({ PrivilegeConstants.VIEW_ITEMS })
 	@Transactional(readOnly = true)
@@ -121,7 +291,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 			throw new NullPointerException("The department must be defined");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.DEPARTMENT, department));
@@ -147,7 +317,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 			throw new NullPointerException("The category must be defined");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.CATEGORY, category));
@@ -175,7 +345,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 			throw new NullPointerException("The category must be defined");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.DEPARTMENT, department));
@@ -206,7 +376,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 					"The item code must be less than 256 characters.");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.CATEGORY, category)).add(
@@ -243,7 +413,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 					"The item code must be less than 256 characters.");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.DEPARTMENT, department))
@@ -279,7 +449,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 					"The item code must be less than 256 characters.");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.DEPARTMENT, department)).add(
@@ -308,7 +478,7 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 					"The item search template must be defined.");
 		}
 
-		return executeCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
+		return executePagedCriteria(Item.class, pagingInfo, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				itemSearch.updateCriteria(criteria);
@@ -344,6 +514,237 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 		}, getDefaultSort());
 	}
 
+	@Override
+	@Authorized({ PrivilegeConstants.MANAGE_ITEMS })
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public ImportResult importItems(Reader reader, ImportFormat format, Action1<ImportResult> progress) {
+		if (reader == null) {
+			throw new IllegalArgumentException("The reader must be defined.");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("The import format must be defined.");
+		}
+
+		// Resolve the departments, categories, and existing codes from memory rather than querying for each row
+		Map<String, Department> departments = loadByNameAndUuid(Department.class);
+		Map<String, Category> categories = loadByNameAndUuid(Category.class);
+		Set<String> codes = loadItemCodes();
+
+		ImportReader rows = new ImportReader(reader, format, IMPORT_COLUMNS);
+		ImportResult result = new ImportResult();
+		int batchSize = ModuleSettings.getImportBatchSize();
+
+		List<ImportRow> chunk = new ArrayList<ImportRow>(batchSize);
+		try {
+			ImportReader.Row row;
+			while ((row = rows.next()) != null) {
+				result.addProcessed(1);
+
+				ImportRow importRow = parseRow(row, departments, categories, codes, result);
+				if (importRow != null) {
+					chunk.add(importRow);
+				}
+
+				if (chunk.size() >= batchSize) {
+					if (!importChunk(chunk, result, progress)) {
+						return result;
+					}
+
+					chunk.clear();
+				}
+			}
+		} catch (IOException ex) {
+			throw new APIException("Could not read the items to import.", ex);
+		}
+
+		if (importChunk(chunk, result, progress)) {
+			result.setComplete(true);
+		}
+
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends OpenmrsMetadata> Map<String, T> loadByNameAndUuid(Class<T> cls) {
+		Query query = getRepository().createQuery("from " + cls.getName() + " where retired = false");
+
+		Map<String, T> results = new HashMap<String, T>();
+		Set<String> duplicateNames = new HashSet<String>();
+		for (Object entity : query.list()) {
+			T metadata = (T)entity;
+			results.put(metadata.getUuid(), metadata);
+
+			String name = metadata.getName().toLowerCase();
+			if (results.containsKey(name) || duplicateNames.contains(name)) {
+				// A name that is not unique must be referenced by uuid
+				results.remove(name);
+				duplicateNames.add(name);
+			} else {
+				results.put(name, metadata);
+			}
+		}
+
+		return results;
+	}
+
+	private Set<String> loadItemCodes() {
+		Query query = getRepository().createQuery("select c.normalizedCode from " + ItemCode.class.getName() + " c");
+
+		Set<String> results = new HashSet<String>();
+		for (Object code : query.list()) {
+			results.add((String)code);
+		}
+
+		return results;
+	}
+
+	private ImportRow parseRow(ImportReader.Row row, Map<String, Department> departments,
+			Map<String, Category> categories, Set<String> codes, ImportResult result) {
+		if (row.getError() != null) {
+			result.addError(row.getLine(), row.getError());
+			return null;
+		}
+
+		ImportRow importRow = new ImportRow(row.getLine());
+		importRow.name = row.get("name");
+		if (importRow.name == null) {
+			result.addError(row.getLine(), "The item name must be defined.");
+			return null;
+		}
+		if (importRow.name.length() > MAX_ITEM_CODE_LENGTH) {
+			result.addError(row.getLine(), "The item name must be less than 256 characters.");
+			return null;
+		}
+		importRow.description = row.get("description");
+
+		String department = row.get("department");
+		if (department == null) {
+			result.addError(row.getLine(), "The department must be defined.");
+			return null;
+		}
+		importRow.department = departments.get(department.toLowerCase());
+		if (importRow.department == null) {
+			importRow.department = departments.get(department);
+		}
+		if (importRow.department == null) {
+			result.addError(row.getLine(), "Could not find a department with the name or uuid '" + department + "'.");
+			return null;
+		}
+
+		String category = row.get("category");
+		if (category != null) {
+			importRow.category = categories.get(category.toLowerCase());
+			if (importRow.category == null) {
+				importRow.category = categories.get(category);
+			}
+			if (importRow.category == null) {
+				result.addError(row.getLine(), "Could not find a category with the name or uuid '" + category + "'.");
+				return null;
+			}
+		}
+
+		importRow.code = row.get("code");
+		if (importRow.code != null) {
+			if (importRow.code.length() > MAX_ITEM_CODE_LENGTH) {
+				result.addError(row.getLine(), "The item code must be less than 256 characters.");
+				return null;
+			}
+			if (codes.contains(ItemCode.normalize(importRow.code))) {
+				result.addError(row.getLine(), "The item code '" + importRow.code + "' is already used.");
+				return null;
+			}
+		}
+
+		String price = row.get("price");
+		if (price != null) {
+			try {
+				importRow.price = new BigDecimal(price);
+			} catch (NumberFormatException nfe) {
+				result.addError(row.getLine(), "The price '" + price + "' is not a valid number.");
+				return null;
+			}
+			if (importRow.price.signum() < 0) {
+				result.addError(row.getLine(), "The price must not be negative.");
+				return null;
+			}
+		}
+
+		if (importRow.code != null) {
+			// Codes that are repeated later in the import are reported as already used
+			codes.add(ItemCode.normalize(importRow.code));
+		}
+
+		return importRow;
+	}
+
+	private boolean importChunk(final List<ImportRow> rows, ImportResult result, Action1<ImportResult> progress) {
+		if (rows.size() == 0) {
+			return true;
+		}
+
+		try {
+			if (transactionTemplate == null) {
+				saveChunk(rows);
+			} else {
+				transactionTemplate.execute(new TransactionCallback<Object>() {
+					@Override
+					public Object doInTransaction(TransactionStatus status) {
+						saveChunk(rows);
+
+						return null;
+					}
+				});
+			}
+		} catch (RuntimeException ex) {
+			// The chunk was rolled back so the import cannot continue with the current session
+			for (ImportRow row : rows) {
+				result.addError(row.line, "The row could not be saved: " + ex.getMessage());
+			}
+
+			return false;
+		}
+
+		result.addImported(rows.size());
+		if (progress != null) {
+			progress.apply(result);
+		}
+
+		return true;
+	}
+
+	private void saveChunk(List<ImportRow> rows) {
+		for (ImportRow row : rows) {
+			Item item = new Item();
+			item.setName(row.name);
+			item.setDescription(row.description);
+			item.setDepartment(row.department);
+			item.setCategory(row.category);
+			item.setHasPhysicalInventory(false);
+			item.setHasExpiration(false);
+			item.setConceptAccepted(false);
+
+			if (row.code != null) {
+				item.addCode(IMPORT_NAME, row.code);
+			}
+			if (row.price != null) {
+				item.setDefaultPrice(item.addPrice(IMPORT_NAME, row.price));
+			}
+
+			save(item);
+		}
+
+		// Keep the session small so that memory use does not grow with the size of the import
+		Context.flushSession();
+		Context.clearSession();
+	}
+
+	private <E extends OpenmrsObject> List<E> executePagedCriteria(Class<E> cls, PagingInfo paging,
+			Action1<Criteria> action, Order... orders) {
+		PagedCriteria paged = new PagedCriteria(cls, paging, action);
+
+		return paged.complete(executeCriteria(cls, paged.getPaging(), paged.getAction(), orders));
+	}
+
 	@Override
 	protected IMetadataAuthorizationPrivileges getPrivileges() {
 		return this;
@@ -369,4 +770,35 @@ public class ItemDataServiceImpl extends BaseMetadataDataServiceImpl<Item>
 		return PrivilegeConstants.MANAGE_ITEMS;
 	}
 
+	/**
+	 * Orders the items that were joined to a matching code before the items that were not.
+	 */
+	private static final class MatchedCodeFirstOrder extends Order {
+		public static final long serialVersionUID = 0L;
+
+		private MatchedCodeFirstOrder() {
+			super("c.id", true);
+		}
+
+		@Override
+		public String toSqlString(Criteria criteria, CriteriaQuery criteriaQuery) {
+			String column = criteriaQuery.getColumnsUsingProjection(criteria, "c.id")[0];
+
+			return "case when " + column + " is null then 1 else 0 end";
+		}
+	}
+
+	private static class ImportRow {
+		private final int line;
+		private String name;
+		private String description;
+		private String code;
+		private BigDecimal price;
+		private Department department;
+		private Category category;
+
+		public ImportRow(int line) {
+			this.line = line;
+		}
+	}
 }
@@ -1,21 +1,88 @@
 package org.openmrs.module.openhmis.inventory.api.impl;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.commons.lang.ObjectUtils;
+
+import org.hibernate.CacheMode;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.impl.BaseObjectDataServiceImpl;
 import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
 import org.openmrs.module.openhmis.inventory.api.IItemStockDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockOperationDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockOperationService;
+import org.openmrs.module.openhmis.inventory.api.WellKnownOperationTypes;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemCode;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetailBase;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.security.BasicObjectAuthorizationPrivileges;
+import org.openmrs.module.openhmis.inventory.api.util.ExportWriter;
+import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
+import org.openmrs.module.openhmis.inventory.api.util.ImportReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 public class ItemStockDataServiceImpl
 		extends BaseObjectDataServiceImpl<ItemStock, BasicObjectAuthorizationPrivileges>
 		implements IItemStockDataService {
+	private static final String[] IMPORT_COLUMNS = { "itemCode", "quantity", "expiration" };
+	private static final String[] EXPORT_COLUMNS =
+			{ "stockroom", "itemCode", "itemName", "quantity", "expiration", "batch" };
+	private static final int EXPORT_FETCH_SIZE = 500;
+	private static final String EXPIRATION_FORMAT = "yyyy-MM-dd";
+	private static final String IMPORT_NUMBER_DATE_FORMAT = "yyyyMMddHHmmssSSS";
+
+	private TransactionTemplate transactionTemplate;
+	private SessionFactory sessionFactory;
+
+	@Autowired(required = false)
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+	}
+
+	@Autowired(required = false)
+	public void setSessionFactory(SessionFactory sessionFactory) {
+		this.sessionFactory = sessionFactory;
+	}
 
 	@Override
 	protected BasicObjectAuthorizationPrivileges getPrivileges() {
@@ -39,4 +106,462 @@ public class ItemStockDataServiceImpl
 			}
 		}, Order.asc("s.name"));
 	}
+
+	@Override
+	public List<ItemStock> getItemStock(final Collection<Stockroom> stockrooms, final Collection<Item> items) {
+		if (stockrooms == null) {
+			throw new IllegalArgumentException("The stockrooms must be defined.");
+		}
+		if (items == null) {
+			throw new IllegalArgumentException("The items must be defined.");
+		}
+
+		if (stockrooms.size() == 0 || items.size() == 0) {
+			return new ArrayList<ItemStock>();
+		}
+
+		return executeCriteria(ItemStock.class, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.in(HibernateCriteriaConstants.STOCKROOM, stockrooms));
+				criteria.add(Restrictions.in(HibernateCriteriaConstants.ITEM, items));
+
+				criteria.setFetchMode(HibernateCriteriaConstants.DETAILS, FetchMode.JOIN);
+				criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+			}
+		});
+	}
+
+	@Override
+	public List<ItemStock> getStaleItemStock(Collection<ItemStock> stock) {
+		if (stock == null) {
+			throw new IllegalArgumentException("The item stock must be defined.");
+		}
+
+		Map<Integer, ItemStock> persisted = new HashMap<Integer, ItemStock>(stock.size());
+		for (ItemStock itemStock : stock) {
+			if (itemStock != null && itemStock.getId() != null) {
+				persisted.put(itemStock.getId(), itemStock);
+			}
+		}
+
+		List<ItemStock> results = new ArrayList<ItemStock>();
+		if (persisted.size() == 0) {
+			return results;
+		}
+
+		// Only select the versions so that the item stock already in the session is not touched
+		Query query = getRepository().createQuery(
+				"select s.id, s.version from " + ItemStock.class.getName() + " s where s.id in (:ids)");
+		query.setParameterList("ids", persisted.keySet());
+
+		for (Object row : query.list()) {
+			Object[] values = (Object[])row;
+			ItemStock itemStock = persisted.remove(values[0]);
+			if (itemStock != null && !ObjectUtils.equals(itemStock.getVersion(), values[1])) {
+				results.add(itemStock);
+			}
+		}
+
+		// Any item stock that was not found has been deleted
+		results.addAll(persisted.values());
+
+		return results;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public ImportResult importStock(Stockroom stockroom, Reader reader, ImportFormat format,
+			Action1<ImportResult> progress) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+		if (reader == null) {
+			throw new IllegalArgumentException("The reader must be defined.");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("The import format must be defined.");
+		}
+
+		// Resolve the item codes from memory rather than querying for each row
+		ItemCodes itemCodes = loadItemCodes();
+		ImportReader rows = new ImportReader(reader, format, IMPORT_COLUMNS);
+		ImportResult result = new ImportResult();
+		int batchSize = ModuleSettings.getImportBatchSize();
+
+		List<ImportRow> chunk = new ArrayList<ImportRow>(batchSize);
+		try {
+			ImportReader.Row row;
+			while ((row = rows.next()) != null) {
+				result.addProcessed(1);
+
+				ImportRow importRow = parseRow(row, itemCodes, result);
+				if (importRow != null) {
+					chunk.add(importRow);
+				}
+
+				if (chunk.size() >= batchSize) {
+					if (!importChunk(stockroom, chunk, result, progress)) {
+						return result;
+					}
+
+					chunk.clear();
+				}
+			}
+		} catch (IOException ex) {
+			throw new APIException("Could not read the item stock to import.", ex);
+		}
+
+		if (importChunk(stockroom, chunk, result, progress)) {
+			result.setComplete(true);
+		}
+
+		return result;
+	}
+
+	@Override
+	@Transactional(propagation = Propagation.SUPPORTS)
+	public ImportResult importStock(Stockroom stockroom, List<? extends ItemStockDetailBase> entries) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+		if (entries == null) {
+			throw new IllegalArgumentException("The entries to import must be defined.");
+		}
+
+		ImportResult result = new ImportResult();
+		List<ImportRow> rows = new ArrayList<ImportRow>(entries.size());
+		int line = 0;
+		for (ItemStockDetailBase entry : entries) {
+			line++;
+			result.addProcessed(1);
+
+			if (entry == null || entry.getItem() == null) {
+				result.addError(line, "The item must be defined.");
+			} else if (entry.getQuantity() == null || entry.getQuantity() <= 0) {
+				result.addError(line, "The quantity must be greater than zero.");
+			} else if (entry.getItem().hasExpiration() && entry.getExpiration() == null) {
+				result.addError(line, "The expiration must be defined because the item expires.");
+			} else {
+				rows.add(new ImportRow(line, entry.getItem().getId(), entry.getQuantity(), entry.getExpiration()));
+			}
+		}
+
+		if (importChunk(stockroom, rows, result, null)) {
+			result.setComplete(true);
+		}
+
+		return result;
+	}
+
+	@Override
+	@Transactional(readOnly = true)
+	public int exportStock(Collection<Stockroom> stockrooms, Writer writer, ImportFormat format) {
+		if (stockrooms == null || stockrooms.size() == 0) {
+			throw new IllegalArgumentException("The stockrooms must be defined.");
+		}
+
+		ExportWriter export = new ExportWriter(writer, format, EXPORT_COLUMNS);
+
+		// Select the values rather than the entities so that nothing is added to the session as the rows are read
+		Query query = getRepository().createQuery("select r.name, "
+				+ "(select min(c.code) from " + ItemCode.class.getName() + " c where c.item = i and c.retired = false), "
+				+ "i.name, d.quantity, d.expiration, b.operationNumber "
+				+ "from " + ItemStockDetail.class.getName() + " d join d.stockroom r join d.item i "
+				+ "left join d.batchOperation b "
+				+ "where r in (:stockrooms) "
+				+ "order by r.name, r.id, i.name, i.id, d.expiration, d.id");
+		query.setParameterList("stockrooms", stockrooms);
+		query.setReadOnly(true);
+		query.setCacheMode(CacheMode.IGNORE);
+		query.setFetchSize(getExportFetchSize());
+
+		SimpleDateFormat dateFormat = new SimpleDateFormat(EXPIRATION_FORMAT);
+		ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+		try {
+			while (results.next()) {
+				Object[] row = results.get();
+				Date expiration = (Date)row[4];
+
+				export.write(row[0], row[1], row[2], row[3], expiration == null ? null : dateFormat.format(expiration),
+						row[5]);
+				if (export.getRows() % EXPORT_FETCH_SIZE == 0) {
+					export.flush();
+				}
+			}
+
+			export.flush();
+		} catch (IOException ex) {
+			throw new APIException("Could not write the item stock export.", ex);
+		} finally {
+			results.close();
+		}
+
+		return export.getRows();
+	}
+
+	private int getExportFetchSize() {
+		// MySQL Connector/J reads the entire result set into memory for any other fetch size, so the rows are only
+		// streamed when the fetch size is Integer.MIN_VALUE
+		if (sessionFactory instanceof SessionFactoryImplementor
+				&& ((SessionFactoryImplementor)sessionFactory).getDialect() instanceof MySQLDialect) {
+			return Integer.MIN_VALUE;
+		}
+
+		return EXPORT_FETCH_SIZE;
+	}
+
+	private ItemCodes loadItemCodes() {
+		Query query = getRepository().createQuery("select c.code, c.item.id, c.item.hasExpiration from "
+				+ ItemCode.class.getName() + " c where c.retired = false and c.item.retired = false");
+
+		ItemCodes results = new ItemCodes();
+		for (Object row : query.list()) {
+			Object[] values = (Object[])row;
+			String code = (String)values[0];
+			Integer itemId = (Integer)values[1];
+
+			// A code that is used by more than one item cannot be resolved so it is reported rather than guessed
+			Integer existing = results.itemIds.put(code, itemId);
+			if (existing != null && !existing.equals(itemId)) {
+				results.duplicateCodes.add(code);
+			}
+			if (Boolean.TRUE.equals(values[2])) {
+				results.expirableItemIds.add(itemId);
+			}
+		}
+
+		return results;
+	}
+
+	private ImportRow parseRow(ImportReader.Row row, ItemCodes itemCodes, ImportResult result) {
+		if (row.getError() != null) {
+			result.addError(row.getLine(), row.getError());
+			return null;
+		}
+		String itemCode = row.get("itemCode");
+		if (itemCode == null) {
+			itemCode = row.get("code");
+		}
+		if (itemCode == null) {
+			result.addError(row.getLine(), "The item code must be defined.");
+			return null;
+		}
+
+		Integer itemId = itemCodes.itemIds.get(itemCode);
+		if (itemId == null) {
+			result.addError(row.getLine(), "Could not find an item with the code '" + itemCode + "'.");
+			return null;
+		}
+		if (itemCodes.duplicateCodes.contains(itemCode)) {
+			result.addError(row.getLine(), "The item code '" + itemCode + "' is used by more than one item.");
+			return null;
+		}
+
+		int quantity;
+		try {
+			quantity = Integer.parseInt(row.get("quantity"));
+		} catch (NumberFormatException nfe) {
+			result.addError(row.getLine(), "The quantity '" + row.get("quantity") + "' is not a valid number.");
+			return null;
+		}
+		if (quantity <= 0) {
+			result.addError(row.getLine(), "The quantity must be greater than zero.");
+			return null;
+		}
+
+		Date expiration = null;
+		String expirationText = row.get("expiration");
+		if (expirationText != null) {
+			SimpleDateFormat dateFormat = new SimpleDateFormat(EXPIRATION_FORMAT);
+			dateFormat.setLenient(false);
+			try {
+				expiration = dateFormat.parse(expirationText);
+			} catch (ParseException pe) {
+				result.addError(row.getLine(), "The expiration '" + expirationText + "' is not a valid date ("
+						+ EXPIRATION_FORMAT + ").");
+				return null;
+			}
+		} else if (itemCodes.expirableItemIds.contains(itemId)) {
+			result.addError(row.getLine(), "The expiration must be defined because the item '" + itemCode
+					+ "' expires.");
+			return null;
+		}
+
+		return new ImportRow(row.getLine(), itemId, quantity, expiration);
+	}
+
+	private boolean importChunk(final Stockroom stockroom, final List<ImportRow> rows, ImportResult result,
+			Action1<ImportResult> progress) {
+		if (rows.size() == 0) {
+			return true;
+		}
+
+		try {
+			if (transactionTemplate == null) {
+				saveChunk(stockroom, rows, false);
+			} else {
+				transactionTemplate.execute(new TransactionCallback<Object>() {
+					@Override
+					public Object doInTransaction(TransactionStatus status) {
+						// Only clear the session when the chunk has its own transaction; clearing a surrounding
+						//  transaction's session would detach the caller's objects and drop their unflushed changes
+						saveChunk(stockroom, rows, status.isNewTransaction());
+
+						return null;
+					}
+				});
+			}
+		} catch (RuntimeException ex) {
+			// The chunk was rolled back so the import cannot continue with the current session
+			for (ImportRow row : rows) {
+				result.addError(row.line, "The row could not be saved: " + ex.getMessage());
+			}
+
+			return false;
+		}
+
+		result.addImported(rows.size());
+		if (progress != null) {
+			progress.apply(result);
+		}
+
+		return true;
+	}
+
+	@Override
+	public ItemStockTotal getItemStockTotal(Item item) {
+		if (item == null) {
+			throw new IllegalArgumentException("The item must be defined.");
+		}
+
+		// The totals are changed with update statements so load the values rather than an entity that could be stale
+		Query query = getRepository().createQuery("select t.id, t.uuid, t.quantity, t.reservedQuantity, t.stockroomCount "
+				+ "from " + ItemStockTotal.class.getName() + " t where t.item.id = :itemId");
+		query.setParameter("itemId", item.getId());
+
+		Object[] row = (Object[])query.uniqueResult();
+		if (row == null) {
+			return null;
+		}
+
+		ItemStockTotal total = new ItemStockTotal(item, ((Number)row[2]).intValue(), ((Number)row[3]).intValue(),
+				((Number)row[4]).intValue());
+		total.setId((Integer)row[0]);
+		total.setUuid((String)row[1]);
+
+		return total;
+	}
+
+	@Override
+	public void updateItemStockTotal(Item item, int quantityChange, int reservedChange, int stockroomCountChange) {
+		if (item == null) {
+			throw new IllegalArgumentException("The item must be defined.");
+		}
+
+		if (quantityChange == 0 && reservedChange == 0 && stockroomCountChange == 0) {
+			return;
+		}
+
+		// Add the changes in the database rather than reading and writing the total because the stock locks do not
+		//  stop the same item being changed in a different stockroom at the same time
+		Query query = getRepository().createQuery("update " + ItemStockTotal.class.getName()
+				+ " set quantity = quantity + :quantity, reservedQuantity = reservedQuantity + :reserved, "
+				+ "stockroomCount = stockroomCount + :stockrooms where item.id = :itemId");
+		query.setParameter("quantity", quantityChange);
+		query.setParameter("reserved", reservedChange);
+		query.setParameter("stockrooms", stockroomCountChange);
+		query.setParameter("itemId", item.getId());
+
+		// Items are created with a total so this only creates the totals for items that were added some other way
+		if (query.executeUpdate() == 0) {
+			getRepository().save(new ItemStockTotal(item, quantityChange, reservedChange, stockroomCountChange));
+		}
+	}
+
+	private void saveChunk(Stockroom stockroom, List<ImportRow> rows, boolean clearSession) {
+		Set<Integer> itemIds = new HashSet<Integer>();
+		for (ImportRow row : rows) {
+			itemIds.add(row.itemId);
+		}
+
+		Query query = getRepository().createQuery("from " + Item.class.getName() + " i where i.id in (:ids)");
+		query.setParameterList("ids", itemIds);
+		Map<Integer, Item> items = new HashMap<Integer, Item>();
+		for (Object item : query.list()) {
+			items.put(((Item)item).getId(), (Item)item);
+		}
+
+		// Record the chunk as a completed receipt into the stockroom so that the imported stock has transactions and is
+		//  its own batch, the same as any other stock received into the stockroom
+		StockOperation operation = new StockOperation();
+		operation.setInstanceType(WellKnownOperationTypes.getReceipt());
+		operation.setStatus(StockOperationStatus.COMPLETED);
+		operation.setDestination(stockroom);
+		operation.setOperationNumber(getImportOperationNumber(stockroom, rows.get(0).line));
+		operation.setOperationDate(new Date());
+		operation.setDescription("Imported item stock");
+
+		List<StockOperationTransaction> transactions = new ArrayList<StockOperationTransaction>(rows.size());
+		for (ImportRow row : rows) {
+			Item item = items.get(row.itemId);
+			if (item == null) {
+				throw new APIException("Could not find the item '" + row.itemId + "'.");
+			}
+
+			operation.addItem(item, row.quantity, row.expiration, operation);
+
+			StockOperationTransaction tx = new StockOperationTransaction();
+			tx.setItem(item);
+			tx.setStockroom(stockroom);
+			tx.setQuantity(row.quantity);
+			tx.setExpiration(row.expiration);
+			tx.setCalculatedExpiration(false);
+			tx.setBatchOperation(operation);
+			tx.setCalculatedBatch(false);
+			tx.setCreator(Context.getAuthenticatedUser());
+
+			transactions.add(operation.addTransaction(tx));
+		}
+
+		// Applying the transactions updates the item stock, totals, and levels and writes the stock change events
+		Context.getService(IStockOperationDataService.class).save(operation);
+		Context.getService(IStockOperationService.class).applyTransactions(transactions);
+		Context.flushSession();
+
+		// Keep the session small so that memory use does not grow with the size of the import
+		if (clearSession) {
+			Context.clearSession();
+		}
+	}
+
+	private String getImportOperationNumber(Stockroom stockroom, int firstLine) {
+		if (ModuleSettings.generateOperationNumber()) {
+			return OperationNumberPool.next();
+		}
+
+		// Each chunk of an import starts at a different line so the chunks of the same import have different numbers
+		return "IMPORT-" + stockroom.getId() + "-" + new SimpleDateFormat(IMPORT_NUMBER_DATE_FORMAT).format(new Date())
+				+ "-" + firstLine;
+	}
+
+	private static class ItemCodes {
+		private final Map<String, Integer> itemIds = new HashMap<String, Integer>();
+		private final Set<String> duplicateCodes = new HashSet<String>();
+		private final Set<Integer> expirableItemIds = new HashSet<Integer>();
+	}
+
+	private static class ImportRow {
+		private final int line;
+		private final Integer itemId;
+		private final int quantity;
+		private final Date expiration;
+
+		public ImportRow(int line, Integer itemId, int quantity, Date expiration) {
+			this.line = line;
+			this.itemId = itemId;
+			this.quantity = quantity;
+			this.expiration = expiration;
+		}
+	}
 }
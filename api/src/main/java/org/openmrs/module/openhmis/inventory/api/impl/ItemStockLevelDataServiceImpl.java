@@ -0,0 +1,149 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.openmrs.api.APIException;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.commons.api.entity.impl.BaseObjectDataServiceImpl;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.api.IItemStockLevelDataService;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevelStatus;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.security.BasicObjectAuthorizationPrivileges;
+import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
+
+public class ItemStockLevelDataServiceImpl
+		extends BaseObjectDataServiceImpl<ItemStockLevel, BasicObjectAuthorizationPrivileges>
+		implements IItemStockLevelDataService {
+	private static final String STATUS = "status";
+	private static final String STATUS_DATE = "statusDate";
+
+	@Override
+	protected BasicObjectAuthorizationPrivileges getPrivileges() {
+		return new BasicObjectAuthorizationPrivileges();
+	}
+
+	@Override
+	protected void validate(ItemStockLevel level) {
+		if (level.getStockroom() == null || level.getItem() == null) {
+			throw new APIException("The stockroom and item must be defined.");
+		}
+
+		Integer minimum = level.getMinimumQuantity();
+		Integer reorder = level.getReorderQuantity();
+		if ((minimum != null && minimum < 0) || (reorder != null && reorder < 0)) {
+			throw new APIException("The minimum and reorder quantities cannot be negative.");
+		}
+		if (minimum != null && reorder != null && reorder < minimum) {
+			throw new APIException("The reorder quantity cannot be less than the minimum quantity.");
+		}
+
+		// The levels may have changed so recalculate the status from the current item stock
+		level.updateStatus(getStockQuantity(level.getStockroom(), level.getItem()));
+	}
+
+	@Override
+	protected Order[] getDefaultSort() {
+		return new Order[] { Order.asc(HibernateCriteriaConstants.ID) };
+	}
+
+	@Override
+	public ItemStockLevel getLevel(final Stockroom stockroom, final Item item) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+		if (item == null) {
+			throw new IllegalArgumentException("The item must be defined.");
+		}
+
+		List<ItemStockLevel> results = executeCriteria(ItemStockLevel.class, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+				criteria.add(Restrictions.eq(HibernateCriteriaConstants.ITEM, item));
+			}
+		});
+
+		return results.size() == 0 ? null : results.get(0);
+	}
+
+	@Override
+	public List<ItemStockLevel> getLevels(final Collection<Stockroom> stockrooms, final Collection<Item> items) {
+		if (stockrooms == null) {
+			throw new IllegalArgumentException("The stockrooms must be defined.");
+		}
+		if (items == null) {
+			throw new IllegalArgumentException("The items must be defined.");
+		}
+
+		if (stockrooms.size() == 0 || items.size() == 0) {
+			return new ArrayList<ItemStockLevel>();
+		}
+
+		return executeCriteria(ItemStockLevel.class, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.in(HibernateCriteriaConstants.STOCKROOM, stockrooms));
+				criteria.add(Restrictions.in(HibernateCriteriaConstants.ITEM, items));
+			}
+		});
+	}
+
+	@Override
+	public List<ItemStockLevel> getAlerts(final Stockroom stockroom, final ItemStockLevelStatus status,
+			PagingInfo paging) {
+		return executeCriteria(ItemStockLevel.class, paging, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				// Only the breached levels are read through the status index
+				if (status == null) {
+					criteria.add(Restrictions.in(STATUS,
+							new ItemStockLevelStatus[] { ItemStockLevelStatus.REORDER, ItemStockLevelStatus.BELOW_MINIMUM }));
+				} else {
+					criteria.add(Restrictions.eq(STATUS, status));
+				}
+
+				if (stockroom != null) {
+					criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+				}
+			}
+		}, Order.asc(STATUS_DATE), Order.asc(HibernateCriteriaConstants.ID));
+	}
+
+	private int getStockQuantity(final Stockroom stockroom, final Item item) {
+		if (stockroom.getId() == null || item.getId() == null) {
+			return 0;
+		}
+
+		Criteria criteria = getRepository().createCriteria(ItemStock.class);
+		criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+		criteria.add(Restrictions.eq(HibernateCriteriaConstants.ITEM, item));
+		criteria.setProjection(Projections.property("quantity"));
+
+		Number quantity = (Number)criteria.uniqueResult();
+
+		return quantity == null ? 0 : quantity.intValue();
+	}
+}
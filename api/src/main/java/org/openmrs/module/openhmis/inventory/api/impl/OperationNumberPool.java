@@ -0,0 +1,212 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.idgen.IdentifierSource;
+import org.openmrs.module.idgen.service.IdentifierSourceService;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out generated operation numbers from blocks of numbers that are reserved from the operation number identifier
+ * source. Most operations can then be numbered without calling the idgen module, which locks the identifier source
+ * while numbers are generated. Numbers are taken from the pool without locking.
+ *
+ * When the pool is empty a block is reserved in the calling session; the caller gets the first number and the rest
+ * are added to the pool once the calling transaction commits, so numbers from a block that is rolled back are never
+ * handed out. If the module daemon token has been set, a new block is reserved in a background daemon thread once the
+ * pool falls below a quarter of the block size. Reserved numbers that have not been used when the module is stopped
+ * are skipped.
+ */
+public class OperationNumberPool {
+	private static final Log LOG = LogFactory.getLog(OperationNumberPool.class);
+
+	private static final String COMMENT = "Stock operation number";
+
+	private static final ConcurrentLinkedQueue<String> NUMBERS = new ConcurrentLinkedQueue<String>();
+	private static final AtomicInteger AVAILABLE = new AtomicInteger();
+	private static final AtomicBoolean RESERVING = new AtomicBoolean(false);
+	private static final Object RESERVE_LOCK = new Object();
+
+	private static volatile Integer poolSourceId;
+	private static volatile DaemonToken daemonToken;
+
+	protected OperationNumberPool() {}
+
+	/**
+	 * Sets the daemon token used to reserve the blocks of operation numbers in the background.
+	 * @param token The module daemon token.
+	 */
+	public static void setDaemonToken(DaemonToken token) {
+		daemonToken = token;
+	}
+
+	/**
+	 * Gets the next operation number.
+	 * @return The generated operation number.
+	 * @throws IllegalStateException if the operation number identifier source is not defined.
+	 */
+	public static String next() {
+		IdentifierSource source = ModuleSettings.getOperationNumberIdentifierSource();
+		if (source == null) {
+			throw new IllegalStateException("The operation number identifier source is not defined.");
+		}
+
+		int blockSize = ModuleSettings.getOperationNumberBlockSize();
+		if (blockSize <= 1) {
+			return generate(source, 1).get(0);
+		}
+
+		if (!source.getId().equals(poolSourceId)) {
+			// The identifier source has been changed so the reserved numbers can no longer be used
+			reset(source.getId());
+		}
+
+		String number = take();
+		if (number == null) {
+			number = reserve(source, blockSize);
+		}
+
+		if (daemonToken != null && AVAILABLE.get() < getWatermark(blockSize)) {
+			reserveInBackground(source.getId(), blockSize);
+		}
+
+		return number;
+	}
+
+	/**
+	 * Removes all the reserved operation numbers from the pool.
+	 */
+	public static void clear() {
+		reset(null);
+	}
+
+	private static String take() {
+		String number = NUMBERS.poll();
+		if (number != null) {
+			AVAILABLE.decrementAndGet();
+		}
+
+		return number;
+	}
+
+	private static void reset(Integer sourceId) {
+		synchronized (RESERVE_LOCK) {
+			NUMBERS.clear();
+			AVAILABLE.set(0);
+			poolSourceId = sourceId;
+		}
+	}
+
+	private static int getWatermark(int blockSize) {
+		return Math.max(1, blockSize / 4);
+	}
+
+	private static String reserve(IdentifierSource source, int blockSize) {
+		// The block is generated without holding the reserve lock as the identifier source stays locked until the
+		//  calling transaction completes
+		List<String> numbers = generate(source, blockSize);
+		final Integer sourceId = source.getId();
+		final List<String> remaining = numbers.subList(1, numbers.size());
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					offer(sourceId, remaining);
+				}
+			});
+		} else {
+			offer(sourceId, remaining);
+		}
+
+		return numbers.get(0);
+	}
+
+	private static void offer(Integer sourceId, List<String> numbers) {
+		synchronized (RESERVE_LOCK) {
+			// The pool could have been reset for another source while the numbers were generated
+			if (!sourceId.equals(poolSourceId)) {
+				return;
+			}
+
+			for (String number : numbers) {
+				NUMBERS.offer(number);
+				AVAILABLE.incrementAndGet();
+			}
+		}
+	}
+
+	private static void reserveInBackground(final Integer sourceId, final int blockSize) {
+		// Only start a reservation if one is not already running
+		if (!RESERVING.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			Daemon.runInDaemonThread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						refill(sourceId, blockSize);
+					} finally {
+						RESERVING.set(false);
+					}
+				}
+			}, daemonToken);
+		} catch (Exception ex) {
+			RESERVING.set(false);
+
+			LOG.error("Could not start the operation number reservation.", ex);
+		}
+	}
+
+	private static void refill(Integer sourceId, int blockSize) {
+		synchronized (RESERVE_LOCK) {
+			// Another reservation could have refilled the pool while this one was waiting for the lock
+			if (AVAILABLE.get() >= getWatermark(blockSize) || !sourceId.equals(poolSourceId)) {
+				return;
+			}
+
+			try {
+				// Load the source in the daemon session rather than using the source from the calling session
+				IdentifierSource source = Context.getService(IdentifierSourceService.class).getIdentifierSource(sourceId);
+				if (source == null) {
+					LOG.error("Could not find the operation number identifier source '" + sourceId + "'.");
+
+					return;
+				}
+
+				offer(sourceId, generate(source, blockSize));
+			} catch (Exception ex) {
+				LOG.error("Could not reserve a block of operation numbers.", ex);
+			}
+		}
+	}
+
+	private static List<String> generate(IdentifierSource source, int count) {
+		return Context.getService(IdentifierSourceService.class).generateIdentifiers(source, count, COMMENT);
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.hibernate.Criteria;
+import org.hibernate.criterion.Projections;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.api.util.InventoryPagingInfo;
+
+/**
+ * Applies the {@link InventoryPagingInfo.CountMode} of a paged search. For the exact count mode the paging and criteria
+ * action are passed through unchanged so that the record count is loaded as usual. For the other modes the paging is
+ * applied to the criteria here and the exact count is skipped; one more record than the page size is loaded so that
+ * the result shows whether there is another page.
+ *
+ * Usage:
+ * <pre>
+ * PagedCriteria paged = new PagedCriteria(Item.class, paging, action);
+ * return paged.complete(executeCriteria(Item.class, paged.getPaging(), paged.getAction(), orders));
+ * </pre>
+ */
+class PagedCriteria {
+	private static final long CACHED_COUNT_MILLISECONDS = 60 * 1000;
+	private static final int MAX_CACHED_COUNTS = 1000;
+	private static final ConcurrentMap<String, CachedCount> COUNTS = new ConcurrentHashMap<String, CachedCount>();
+
+	private final Class<?> cls;
+	private final PagingInfo paging;
+	private final Action1<Criteria> action;
+	private final InventoryPagingInfo.CountMode countMode;
+	private Long cachedCount;
+
+	public PagedCriteria(Class<?> cls, PagingInfo paging, Action1<Criteria> action) {
+		this.cls = cls;
+		this.paging = paging;
+		this.action = action;
+
+		if (paging == null || paging.getPage() <= 0 || paging.getPageSize() <= 0) {
+			countMode = InventoryPagingInfo.CountMode.EXACT;
+		} else {
+			countMode = InventoryPagingInfo.getCountMode(paging);
+		}
+	}
+
+	/**
+	 * Gets the paging to execute the criteria with.
+	 * @return The paging or {@code null} if the paging is applied by the criteria action.
+	 */
+	public PagingInfo getPaging() {
+		return countMode == InventoryPagingInfo.CountMode.EXACT ? paging : null;
+	}
+
+	/**
+	 * Gets the criteria action to execute the criteria with.
+	 * @return The criteria action.
+	 */
+	public Action1<Criteria> getAction() {
+		if (countMode == InventoryPagingInfo.CountMode.EXACT) {
+			return action;
+		}
+
+		return new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				if (action != null) {
+					action.apply(criteria);
+				}
+
+				if (countMode == InventoryPagingInfo.CountMode.CACHED) {
+					cachedCount = getCachedCount(criteria);
+				}
+
+				criteria.setFirstResult((paging.getPage() - 1) * paging.getPageSize());
+				criteria.setMaxResults(paging.getPageSize() + 1);
+			}
+		};
+	}
+
+	/**
+	 * Removes the extra probe record from the results and sets the paging total record count.
+	 * @param results The criteria results.
+	 * @return The page of results.
+	 */
+	public <E> List<E> complete(List<E> results) {
+		if (countMode == InventoryPagingInfo.CountMode.EXACT) {
+			return results;
+		}
+
+		boolean hasMore = results.size() > paging.getPageSize();
+		if (hasMore) {
+			results = results.subList(0, paging.getPageSize());
+		}
+
+		// The records up to the end of this page plus the probe record, if it was found
+		long known = (long)(paging.getPage() - 1) * paging.getPageSize() + results.size() + (hasMore ? 1 : 0);
+		long total = known;
+		if (cachedCount != null && hasMore) {
+			// The cached count may be out of date but it cannot be less than the records that are known to exist
+			total = Math.max(cachedCount, known);
+		}
+
+		paging.setTotalRecordCount(total);
+		if (paging instanceof InventoryPagingInfo) {
+			((InventoryPagingInfo)paging).setCountEstimated(hasMore);
+		}
+
+		return results;
+	}
+
+	private Long getCachedCount(Criteria criteria) {
+		String key = cls.getName() + ":" + criteria.toString();
+		long now = System.currentTimeMillis();
+
+		CachedCount count = COUNTS.get(key);
+		if (count == null || now - count.time > CACHED_COUNT_MILLISECONDS) {
+			criteria.setProjection(Projections.rowCount());
+			count = new CachedCount(((Number)criteria.uniqueResult()).longValue(), now);
+			criteria.setProjection(null);
+			criteria.setResultTransformer(Criteria.ROOT_ENTITY);
+
+			if (COUNTS.size() >= MAX_CACHED_COUNTS) {
+				COUNTS.clear();
+			}
+			COUNTS.put(key, count);
+		}
+
+		return count.count;
+	}
+
+	private static class CachedCount {
+		private final long count;
+		private final long time;
+
+		public CachedCount(long count, long time) {
+			this.count = count;
+			this.time = time;
+		}
+	}
+}
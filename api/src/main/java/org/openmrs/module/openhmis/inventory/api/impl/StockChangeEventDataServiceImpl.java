@@ -0,0 +1,140 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.Criteria;
+import org.hibernate.Query;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Restrictions;
+import org.openmrs.module.openhmis.commons.api.entity.impl.BaseObjectDataServiceImpl;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDataService;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEventConsumer;
+import org.openmrs.module.openhmis.inventory.api.security.BasicObjectAuthorizationPrivileges;
+import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
+
+public class StockChangeEventDataServiceImpl
+		extends BaseObjectDataServiceImpl<StockChangeEvent, BasicObjectAuthorizationPrivileges>
+		implements IStockChangeEventDataService {
+	private static final int MAX_CONSUMER_NAME_LENGTH = 255;
+
+	@Override
+	protected BasicObjectAuthorizationPrivileges getPrivileges() {
+		return new BasicObjectAuthorizationPrivileges();
+	}
+
+	@Override
+	protected void validate(StockChangeEvent object) {
+	}
+
+	@Override
+	protected Order[] getDefaultSort() {
+		return new Order[] { Order.asc(HibernateCriteriaConstants.ID) };
+	}
+
+	@Override
+	public List<StockChangeEvent> getEventsAfter(final int lastEventId, final int maxResults) {
+		if (maxResults <= 0) {
+			throw new IllegalArgumentException("The maximum number of events must be greater than zero.");
+		}
+
+		return executeCriteria(StockChangeEvent.class, null, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.gt(HibernateCriteriaConstants.ID, lastEventId));
+				criteria.setMaxResults(maxResults);
+			}
+		}, getDefaultSort());
+	}
+
+	@Override
+	public StockChangeEventConsumer registerConsumer(String name) {
+		if (StringUtils.isEmpty(name)) {
+			throw new IllegalArgumentException("The consumer name must be defined.");
+		}
+		if (name.length() > MAX_CONSUMER_NAME_LENGTH) {
+			throw new IllegalArgumentException("The consumer name must be less than 256 characters.");
+		}
+
+		StockChangeEventConsumer consumer = getConsumer(name);
+		if (consumer == null) {
+			Query query = getRepository().createQuery("select max(e.id) from " + StockChangeEvent.class.getName() + " e");
+			Number lastEventId = (Number)query.uniqueResult();
+
+			consumer = new StockChangeEventConsumer(name, lastEventId == null ? 0 : lastEventId.intValue());
+			getRepository().save(consumer);
+		}
+
+		return consumer;
+	}
+
+	@Override
+	public void advanceConsumer(String name, int lastEventId) {
+		StockChangeEventConsumer consumer = getConsumer(name);
+		if (consumer == null) {
+			throw new IllegalArgumentException("The stock change event consumer '" + name + "' is not registered.");
+		}
+
+		if (lastEventId > consumer.getLastEventId()) {
+			consumer.setLastEventId(lastEventId);
+			consumer.setDateChanged(new Date());
+
+			getRepository().save(consumer);
+		}
+	}
+
+	@Override
+	public void removeConsumer(String name) {
+		StockChangeEventConsumer consumer = getConsumer(name);
+		if (consumer != null) {
+			getRepository().delete(consumer);
+		}
+	}
+
+	@Override
+	public int purgeConsumedEvents() {
+		Query query = getRepository().createQuery("select min(c.lastEventId) from "
+				+ StockChangeEventConsumer.class.getName() + " c");
+		Number lastEventId = (Number)query.uniqueResult();
+		if (lastEventId == null) {
+			// Nothing reads the events so none of them need to be kept
+			query = getRepository().createQuery("select max(e.id) from " + StockChangeEvent.class.getName() + " e");
+			lastEventId = (Number)query.uniqueResult();
+		}
+		if (lastEventId == null || lastEventId.intValue() <= 0) {
+			return 0;
+		}
+
+		query = getRepository().createQuery("delete from " + StockChangeEvent.class.getName() + " where id <= :id");
+		query.setParameter("id", lastEventId.intValue());
+
+		return query.executeUpdate();
+	}
+
+	private StockChangeEventConsumer getConsumer(String name) {
+		if (StringUtils.isEmpty(name)) {
+			throw new IllegalArgumentException("The consumer name must be defined.");
+		}
+
+		Criteria criteria = getRepository().createCriteria(StockChangeEventConsumer.class);
+		criteria.add(Restrictions.eq("name", name));
+
+		return getRepository().selectSingle(StockChangeEventConsumer.class, criteria);
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDispatcher;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventListener;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link IStockChangeEventDispatcher} that delivers the events in the outbox to each listener from the listener's stored
+ * {@link org.openmrs.module.openhmis.inventory.api.model.StockChangeEventConsumer} position. A poll is started on an
+ * OpenMRS daemon thread when a transaction that wrote events is committed, and the
+ * {@link org.openmrs.module.openhmis.inventory.api.task.StockChangeEventTask} polls periodically so that events written
+ * before a restart, or while the daemon token was not set, are still delivered.
+ *
+ * Event ids are allocated when an event is written but the event is only visible once its transaction commits, so a gap
+ * in the ids may be an event that has not been committed yet. Events after a gap are only delivered once the gap is
+ * older than the longest expected stock transaction; until then the listener position is held at the gap.
+ */
+public class StockChangeEventDispatcher implements IStockChangeEventDispatcher {
+	private static final Log LOG = LogFactory.getLog(StockChangeEventDispatcher.class);
+
+	// The number of events read from the outbox for a listener at a time
+	private static final int BATCH_SIZE = 100;
+	private static final long GAP_TIMEOUT_MILLIS = 60 * 1000L;
+
+	private static volatile DaemonToken daemonToken;
+
+	private final List<IStockChangeEventListener> listeners = new CopyOnWriteArrayList<IStockChangeEventListener>();
+	private final ReentrantLock pollLock = new ReentrantLock();
+	private final AtomicBoolean pollRequested = new AtomicBoolean();
+
+	private IStockChangeEventDataService eventService;
+
+	/**
+	 * Sets the daemon token used to poll for events when a transaction that wrote events is committed.
+	 * @param token The module daemon token.
+	 */
+	public static void setDaemonToken(DaemonToken token) {
+		daemonToken = token;
+	}
+
+	@Autowired(required = false)
+	public void setStockChangeEventService(IStockChangeEventDataService eventService) {
+		this.eventService = eventService;
+	}
+
+	/**
+	 * Registers any listeners defined as beans in the application context.
+	 * @param listeners The listener beans.
+	 */
+	@Autowired(required = false)
+	public void setListeners(List<IStockChangeEventListener> listeners) {
+		if (listeners != null) {
+			this.listeners.addAll(listeners);
+		}
+	}
+
+	@Override
+	public void addListener(IStockChangeEventListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("The listener to add must be defined.");
+		}
+
+		listeners.add(listener);
+	}
+
+	@Override
+	public void removeListener(IStockChangeEventListener listener) {
+		listeners.remove(listener);
+	}
+
+	@Override
+	public void dispatch(List<StockChangeEvent> events) {
+		if (events == null || events.size() == 0 || listeners.isEmpty()) {
+			return;
+		}
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					startPoll();
+				}
+			});
+		} else {
+			startPoll();
+		}
+	}
+
+	@Override
+	public void poll() {
+		if (eventService == null) {
+			return;
+		}
+
+		// A poll requested while another poll is running is run by that thread once it has finished
+		pollRequested.set(true);
+		while (pollRequested.get() && pollLock.tryLock()) {
+			try {
+				pollRequested.set(false);
+
+				for (IStockChangeEventListener listener : listeners) {
+					deliver(listener);
+				}
+			} finally {
+				pollLock.unlock();
+			}
+		}
+	}
+
+	private void startPoll() {
+		final DaemonToken token = daemonToken;
+		if (token == null) {
+			// The events remain in the outbox and are delivered by the next scheduled poll
+			return;
+		}
+
+		pollRequested.set(true);
+		if (pollLock.isLocked()) {
+			return;
+		}
+
+		try {
+			Daemon.runInDaemonThread(new Runnable() {
+				@Override
+				public void run() {
+					poll();
+				}
+			}, token);
+		} catch (Exception ex) {
+			LOG.error("Could not start the stock change event poll.", ex);
+		}
+	}
+
+	private void deliver(IStockChangeEventListener listener) {
+		String name = listener.getClass().getName();
+
+		try {
+			int lastEventId = eventService.registerConsumer(name).getLastEventId();
+
+			List<StockChangeEvent> events;
+			while ((events = getDeliverableEvents(lastEventId)).size() > 0) {
+				listener.onStockChanged(Collections.unmodifiableList(events));
+
+				lastEventId = events.get(events.size() - 1).getId();
+				eventService.advanceConsumer(name, lastEventId);
+
+				for (StockChangeEvent event : events) {
+					Context.evictFromSession(event);
+				}
+			}
+		} catch (Exception ex) {
+			// The listener position was not advanced past the failed events so they are delivered again by the next poll
+			LOG.error("The stock change event listener '" + name + "' failed.", ex);
+		}
+	}
+
+	private List<StockChangeEvent> getDeliverableEvents(int lastEventId) {
+		List<StockChangeEvent> events = eventService.getEventsAfter(lastEventId, BATCH_SIZE);
+
+		long gapHorizon = System.currentTimeMillis() - GAP_TIMEOUT_MILLIS;
+		int previousId = lastEventId;
+		for (int i = 0; i < events.size(); i++) {
+			StockChangeEvent event = events.get(i);
+
+			// A consumer that has not processed any events has no previous id to find a gap from
+			boolean gap = previousId > 0 && event.getId() != previousId + 1;
+			if (gap && event.getDateCreated().getTime() > gapHorizon) {
+				return new ArrayList<StockChangeEvent>(events.subList(0, i));
+			}
+
+			previousId = event.getId();
+		}
+
+		return events;
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.javatuples.Pair;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+
+/**
+ * Provides striped locks for the {@link Stockroom} and {@link Item} pairs that are touched by a stock operation. Each
+ * pair is hashed to one of a fixed number of reentrant locks so that operations on disjoint stock can be processed in
+ * parallel while operations that touch the same item stock are serialized.
+ *
+ * The locks for a set of pairs are always acquired in ascending stripe order so that two callers locking overlapping
+ * sets cannot deadlock.
+ */
+public class StockLockManager {
+	public static final int DEFAULT_STRIPES = 256;
+
+	private final ReentrantLock[] locks;
+
+	public StockLockManager() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a new lock manager with the specified number of stripes.
+	 * @param stripes The number of stripes, rounded up to the next power of two.
+	 */
+	public StockLockManager(int stripes) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("The number of lock stripes must be greater than zero.");
+		}
+
+		int size = Integer.highestOneBit(stripes);
+		if (size < stripes) {
+			size <<= 1;
+		}
+
+		locks = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	/**
+	 * Gets the number of lock stripes.
+	 * @return The number of stripes.
+	 */
+	public int getStripeCount() {
+		return locks.length;
+	}
+
+	/**
+	 * Acquires the locks for all the specified stockroom and item pairs. Pairs that map to the same stripe are only
+	 * locked once. The returned {@link StockLock} must be released by the caller, typically in a finally block.
+	 * @param keys The stockroom and item pairs to lock.
+	 * @return The acquired lock.
+	 */
+	public StockLock lock(Collection<Pair<Stockroom, Item>> keys) {
+		if (keys == null) {
+			throw new IllegalArgumentException("The keys to lock must be defined.");
+		}
+
+		SortedSet<Integer> stripes = new TreeSet<Integer>();
+		for (Pair<Stockroom, Item> key : keys) {
+			if (key != null) {
+				stripes.add(getStripe(key.getValue0(), key.getValue1()));
+			}
+		}
+
+		return lock(stripes);
+	}
+
+	/**
+	 * Acquires every stripe lock so that no stock can be changed until the returned {@link StockLock} is released. This
+	 * waits for the callers that currently hold any of the locks, so it should only be used for infrequent work that
+	 * needs a consistent view of all the stock.
+	 * @return The acquired lock.
+	 */
+	public StockLock lockAll() {
+		SortedSet<Integer> stripes = new TreeSet<Integer>();
+		for (int i = 0; i < locks.length; i++) {
+			stripes.add(i);
+		}
+
+		return lock(stripes);
+	}
+
+	/**
+	 * Gets the stripe index for the specified stockroom and item.
+	 * @param stockroom The stockroom.
+	 * @param item The item.
+	 * @return The stripe index.
+	 */
+	public int getStripe(Stockroom stockroom, Item item) {
+		int hash = 17;
+		hash = 31 * hash + getKeyHash(stockroom == null ? null : stockroom.getId(),
+				stockroom == null ? null : stockroom.getUuid());
+		hash = 31 * hash + getKeyHash(item == null ? null : item.getId(), item == null ? null : item.getUuid());
+
+		// Spread the higher bits down so that sequential identifiers do not cluster
+		hash ^= (hash >>> 16);
+
+		return hash & (locks.length - 1);
+	}
+
+	private StockLock lock(SortedSet<Integer> stripes) {
+		int[] acquired = new int[stripes.size()];
+		int count = 0;
+		try {
+			for (Integer stripe : stripes) {
+				locks[stripe].lock();
+				acquired[count++] = stripe;
+			}
+		} catch (RuntimeException ex) {
+			release(acquired, count);
+
+			throw ex;
+		}
+
+		return new StockLock(acquired);
+	}
+
+	private int getKeyHash(Integer id, String uuid) {
+		if (id != null) {
+			return id;
+		}
+
+		return uuid == null ? 0 : uuid.hashCode();
+	}
+
+	private void release(int[] stripes, int count) {
+		// Release in the reverse order of acquisition
+		for (int i = count - 1; i >= 0; i--) {
+			locks[stripes[i]].unlock();
+		}
+	}
+
+	/**
+	 * Represents a set of acquired stock locks.
+	 */
+	public final class StockLock {
+		private int[] stripes;
+
+		private StockLock(int[] stripes) {
+			this.stripes = stripes;
+		}
+
+		/**
+		 * Releases the locks. Calling this method more than once has no effect.
+		 */
+		public void release() {
+			if (stripes != null) {
+				StockLockManager.this.release(stripes, stripes.length);
+				stripes = null;
+			}
+		}
+	}
+}
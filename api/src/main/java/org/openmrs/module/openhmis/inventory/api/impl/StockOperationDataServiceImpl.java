@@ -18,10 +18,13 @@ import java.util.Set;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FlushMode;
 import org.hibernate.criterion.DetachedCriteria;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.Restrictions;
+import org.openmrs.OpenmrsObject;
 import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.APIException;
@@ -33,6 +36,7 @@ import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationItem;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationSubmission;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.search.StockOperationSearch;
 import org.openmrs.module.openhmis.inventory.api.security.BasicMetadataAuthorizationPrivileges;
@@ -41,6 +45,7 @@ public class StockOperationDataServiceImpl
 		extends BaseCustomizableMetadataDataServiceImpl<StockOperation>
 		implements IStockOperationDataService {
 	private static final int MAX_OPERATION_NUMBER_LENGTH = 255;
+	private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
 
 	@Override
 	protected BasicMetadataAuthorizationPrivileges getPrivileges() {
@@ -73,13 +78,51 @@ public class StockOperationDataServiceImpl
 		return getRepository().selectSingle(getEntityClass(), criteria);
 	}
 
+	@Override
+	public StockOperation getOperationByIdempotencyKey(String idempotencyKey) {
+		if (StringUtils.isEmpty(idempotencyKey)) {
+			throw new IllegalArgumentException("The idempotency key to find must be defined.");
+		}
+		if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+			throw new IllegalArgumentException("The idempotency key must be less than 65 characters.");
+		}
+
+		Criteria criteria = getRepository().createCriteria(StockOperationSubmission.class);
+		criteria.add(Restrictions.eq("idempotencyKey", idempotencyKey));
+		criteria.setProjection(Projections.property("operation"));
+
+		// Do not flush the session first, otherwise a pending submission that was just given this key would find itself
+		criteria.setFlushMode(FlushMode.MANUAL);
+
+		return (StockOperation)criteria.uniqueResult();
+	}
+
+	@Override
+	public StockOperationStatus getSavedStatus(StockOperation operation) {
+		if (operation == null) {
+			throw new IllegalArgumentException("The operation must be defined.");
+		}
+		if (operation.getId() == null) {
+			return null;
+		}
+
+		Criteria criteria = getRepository().createCriteria(StockOperation.class);
+		criteria.add(Restrictions.idEq(operation.getId()));
+		criteria.setProjection(Projections.property("status"));
+
+		// Do not flush the session first, otherwise an unsaved status change would be returned
+		criteria.setFlushMode(FlushMode.MANUAL);
+
+		return (StockOperationStatus)criteria.uniqueResult();
+	}
+
 	@Override
 	public List<StockOperation> getOperationsByRoom(final Stockroom stockroom, PagingInfo paging) {
 		if (stockroom == null) {
 			throw new IllegalArgumentException("The stockroom must be defined.");
 		}
 
-		return executeCriteria(StockOperation.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(StockOperation.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.or(
@@ -96,7 +139,7 @@ public class StockOperationDataServiceImpl
 			throw new IllegalArgumentException("The operation must be defined.");
 		}
 
-		return executeCriteria(StockOperationItem.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(StockOperationItem.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq("operation", operation));
@@ -119,7 +162,7 @@ public class StockOperationDataServiceImpl
 		// Get all the roles for this user (this traverses the role relationships to get any parent roles)
 		final Set<Role> roles = user.getAllRoles();
 
-		return executeCriteria(StockOperation.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(StockOperation.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				DetachedCriteria subQuery = DetachedCriteria.forClass(IStockOperationType.class);
@@ -173,7 +216,7 @@ public class StockOperationDataServiceImpl
 			throw new IllegalArgumentException("The operation search template must be defined.");
 		}
 
-		return executeCriteria(StockOperation.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(StockOperation.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				search.updateCriteria(criteria);
@@ -191,5 +234,11 @@ public class StockOperationDataServiceImpl
 
 		super.purge(operation);
 	}
-}
 
+	private <E extends OpenmrsObject> List<E> executePagedCriteria(Class<E> cls, PagingInfo paging,
+			Action1<Criteria> action, Order... orders) {
+		PagedCriteria paged = new PagedCriteria(cls, paging, action);
+
+		return paged.complete(executeCriteria(cls, paged.getPaging(), paged.getAction(), orders));
+	}
+}
@@ -6,19 +6,25 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
 
 import org.apache.commons.lang.ObjectUtils;
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.StaleStateException;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
 import org.javatuples.Pair;
 import org.javatuples.Triplet;
-import org.joda.time.DateTime;
-import org.joda.time.Seconds;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.openhmis.inventory.api.IItemStockDataService;
+import org.openmrs.module.openhmis.inventory.api.IItemStockLevelDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDispatcher;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationDataService;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationService;
 import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
@@ -26,26 +32,44 @@ import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
 import org.openmrs.module.openhmis.inventory.api.model.ReservedTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationItem;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationSubmissionResult;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.model.TransactionBase;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Iterators;
 
 public class StockOperationServiceImpl
 		extends BaseOpenmrsService
 		implements IStockOperationService {
-	// This is the object that will provide synchronization
-	private static final UUID OPERATION_LOCK = UUID.randomUUID();
+	// Provides the striped locks for the item stock touched by an operation. The stock import shares these locks.
+	static final StockLockManager LOCK_MANAGER = new StockLockManager();
+
+	// The number of times the reservations are calculated before giving up when the source stock keeps changing
+	private static final int MAX_RESERVATION_ATTEMPTS = 3;
+
+	// When set, the transactions passed to applyTransactions are collected here so that a batch can apply them together
+	private static final ThreadLocal<List<StockOperationTransaction>> DEFERRED_TRANSACTIONS =
+			new ThreadLocal<List<StockOperationTransaction>>();
 
 	private IStockroomDataService stockroomService;
 	private IItemStockDataService itemStockService;
 	private IStockOperationDataService operationService;
+	private TransactionTemplate transactionTemplate;
+	private IStockChangeEventDataService eventService;
+	private IStockChangeEventDispatcher eventDispatcher;
+	private IItemStockLevelDataService levelService;
 
 	@Autowired
 	public StockOperationServiceImpl(IStockOperationDataService operationService,
@@ -56,6 +80,26 @@ public class StockOperationServiceImpl
 		this.itemStockService = itemStockService;
 	}
 
+	@Autowired(required = false)
+	public void setTransactionManager(PlatformTransactionManager transactionManager) {
+		this.transactionTemplate = transactionManager == null ? null : new TransactionTemplate(transactionManager);
+	}
+
+	@Autowired(required = false)
+	public void setStockChangeEventService(IStockChangeEventDataService eventService) {
+		this.eventService = eventService;
+	}
+
+	@Autowired(required = false)
+	public void setStockChangeEventDispatcher(IStockChangeEventDispatcher eventDispatcher) {
+		this.eventDispatcher = eventDispatcher;
+	}
+
+	@Autowired(required = false)
+	public void setItemStockLevelService(IItemStockLevelDataService levelService) {
+		this.levelService = levelService;
+	}
+
 	/**
 	 * Validates the stock operation.
 	 * @param operation The stock operation to validate.
@@ -97,48 +141,322 @@ public class StockOperationServiceImpl
 			process those reservations based on the operation state.
 		 */
 
+		// A retried submission returns the operation that was already saved for the key without taking the stock locks
+		StockOperation processed = findProcessedOperation(operation);
+		if (processed != null) {
+			return processed;
+		}
+
 		validateOperation(operation);
 
 		if (operation.getItems() == null || operation.getItems().size() <= 0) {
 			throw new APIException("The operation must have at least one operation item defined.");
 		}
 
-		// Only allow access to a single caller at a time so that the reservation calculation does not gets messed up
-		synchronized (OPERATION_LOCK) {
-			if (operation.getStatus() == StockOperationStatus.NEW) {
-				for (StockOperationItem item : operation.getItems()) {
-					ReservedTransaction tx = new ReservedTransaction(item);
-					tx.setCreator(Context.getAuthenticatedUser());
-					tx.setDateCreated(new Date());
-
-					operation.addReserved(tx);
-				}
+		// Only allow access to a single caller at a time for the item stock touched by this operation so that the
+		//  reservation calculation does not gets messed up
+		StockLockManager.StockLock lock = LOCK_MANAGER.lock(getLockKeys(operation));
+		try {
+			// Read the saved status before anything is changed so that the reserved totals are only updated when the
+			//  status actually changes
+			StockOperationStatus savedStatus = operationService.getSavedStatus(operation);
 
-				// Perform any required calculations to make the reservations valid
-				calculateReservations(operation);
+			if (operation.getStatus() == StockOperationStatus.NEW) {
+				createReservations(operation);
 
 				operation.setStatus(StockOperationStatus.PENDING);
+				operation.setSubmissionError(null);
+			}
+
+			// Save a new operation before any transactions are applied so that the stock change events can reference it
+			if (operation.getId() == null) {
+				operationService.save(operation);
 			}
 
 			// Triggers the appropriate status-based event so that the operation type can do what needs doing
 			//  Note: applyTransactions will be called as part of the event, if needed
-			switch (operation.getStatus()) {
-				case PENDING:
-					operation.getInstanceType().onPending(operation);
-					break;
-				case CANCELLED:
-					operation.getInstanceType().onCancelled(operation);
-					break;
-				case COMPLETED:
-					operation.getInstanceType().onCompleted(operation);
-					break;
-			}
+			fireStatusEvent(operation, savedStatus);
+
+			addSubmission(operation);
 
 			// Save the operation and all sub-objects
 			return operationService.save(operation);
+		} finally {
+			lock.release();
 		}
 	}
 
+	@Override
+	public StockOperationSubmissionResult submitOperations(List<StockOperation> operations) {
+		if (operations == null) {
+			throw new IllegalArgumentException("The operations to submit must be defined.");
+		}
+
+		StockOperationSubmissionResult result = new StockOperationSubmissionResult();
+		int batchSize = ModuleSettings.getOperationBatchSize();
+		Set<String> keys = new HashSet<String>();
+
+		for (int start = 0; start < operations.size(); start += batchSize) {
+			int end = Math.min(start + batchSize, operations.size());
+
+			// Report the invalid operations up front so that they do not affect the rest of the chunk
+			final List<StockOperation> chunk = new ArrayList<StockOperation>(end - start);
+			for (StockOperation operation : operations.subList(start, end)) {
+				try {
+					StockOperation processed = findProcessedOperation(operation);
+					if (processed != null) {
+						result.addSubmitted(processed);
+
+						continue;
+					}
+					if (!StringUtils.isEmpty(operation.getIdempotencyKey()) && !keys.add(operation.getIdempotencyKey())) {
+						throw new APIException("The idempotency key '" + operation.getIdempotencyKey() + "' was used by " +
+								"another operation in the batch.");
+					}
+
+					validateOperation(operation);
+
+					if (operation.getItems() == null || operation.getItems().size() <= 0) {
+						throw new APIException("The operation must have at least one operation item defined.");
+					}
+
+					chunk.add(operation);
+				} catch (RuntimeException ex) {
+					result.addFailure(operation, ex);
+				}
+			}
+
+			try {
+				for (StockOperation operation : submitChunk(chunk, result)) {
+					result.addSubmitted(operation);
+				}
+			} catch (RuntimeException ex) {
+				// The chunk was rolled back so none of its operations were submitted. The session is cleared by the
+				//  rollback, so the remaining operations are not processed.
+				for (StockOperation operation : chunk) {
+					if (!result.isFailed(operation)) {
+						result.addFailure(operation, ex);
+					}
+				}
+				for (StockOperation operation : operations.subList(end, operations.size())) {
+					result.addFailure(operation, new APIException("The operation was not submitted because an " +
+							"earlier operation in the batch could not be submitted.", ex));
+				}
+
+				break;
+			}
+		}
+
+		return result;
+	}
+
+	private List<StockOperation> submitChunk(final List<StockOperation> chunk,
+			final StockOperationSubmissionResult result) {
+		if (chunk.size() == 0) {
+			return chunk;
+		}
+
+		if (transactionTemplate == null) {
+			return processChunk(chunk, result);
+		}
+
+		return transactionTemplate.execute(new TransactionCallback<List<StockOperation>>() {
+			@Override
+			public List<StockOperation> doInTransaction(TransactionStatus status) {
+				return processChunk(chunk, result);
+			}
+		});
+	}
+
+	private List<StockOperation> processChunk(List<StockOperation> chunk, StockOperationSubmissionResult result) {
+		Set<Pair<Stockroom, Item>> keys = new HashSet<Pair<Stockroom, Item>>();
+		for (StockOperation operation : chunk) {
+			keys.addAll(getLockKeys(operation));
+		}
+
+		StockLockManager.StockLock lock = LOCK_MANAGER.lock(keys);
+		try {
+			// Load the source stock for all the new operations at once so that the reservations for operations with the
+			//  same source are calculated against the same (updated) stock
+			Map<Pair<Stockroom, Item>, ItemStock> workingStock = prefetchBatchStock(chunk);
+
+			List<StockOperation> processed = new ArrayList<StockOperation>(chunk.size());
+			Map<StockOperation, StockOperationStatus> savedStatuses = new HashMap<StockOperation, StockOperationStatus>();
+			for (StockOperation operation : chunk) {
+				savedStatuses.put(operation, operationService.getSavedStatus(operation));
+
+				if (operation.getStatus() == StockOperationStatus.NEW) {
+					Set<ReservedTransaction> existing = getReserved(operation);
+
+					// Calculate the reservations against a copy of the working stock so that the stock taken by an
+					//  operation that fails part way through is not taken from the later operations
+					Map<Pair<Stockroom, Item>, ItemStock> operationStock = copyWorkingStock(operation, workingStock);
+					try {
+						addReservations(operation);
+						calculateReservations(operation, operationStock, new ArrayList<ItemStock>());
+					} catch (APIException ex) {
+						removeReservations(operation, existing);
+						result.addFailure(operation, ex);
+
+						continue;
+					}
+
+					workingStock.putAll(operationStock);
+
+					operation.setStatus(StockOperationStatus.PENDING);
+					operation.setSubmissionError(null);
+				}
+
+				// Save the new operations before any transactions are applied so that the stock change events can
+				//  reference them
+				if (operation.getId() == null) {
+					operationService.save(operation);
+				}
+
+				processed.add(operation);
+			}
+
+			// Collect the transactions created by the operation events so that they can be applied in a single pass
+			List<StockOperationTransaction> transactions = new ArrayList<StockOperationTransaction>();
+			DEFERRED_TRANSACTIONS.set(transactions);
+			try {
+				for (StockOperation operation : processed) {
+					fireStatusEvent(operation, savedStatuses.get(operation));
+				}
+			} finally {
+				DEFERRED_TRANSACTIONS.remove();
+			}
+
+			applyTransactions(transactions.toArray(new StockOperationTransaction[transactions.size()]));
+
+			List<StockOperation> saved = new ArrayList<StockOperation>(processed.size());
+			for (StockOperation operation : processed) {
+				addSubmission(operation);
+
+				saved.add(operationService.save(operation));
+			}
+
+			return saved;
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * Finds the operation that was already processed for the submission idempotency key of the specified operation. Each
+	 * submission of an operation is keyed separately so this finds retries of both new operations and of status changes
+	 * to existing operations.
+	 * @param operation The operation being submitted.
+	 * @return The operation processed with the same key or {@code null} if the operation is not keyed or the key has not
+	 * been used.
+	 */
+	private StockOperation findProcessedOperation(StockOperation operation) {
+		if (operation == null || StringUtils.isEmpty(operation.getIdempotencyKey())) {
+			return null;
+		}
+
+		return operationService.getOperationByIdempotencyKey(operation.getIdempotencyKey());
+	}
+
+	/**
+	 * Records the submission idempotency key, if any, with the operation so that it is saved with the operation.
+	 * @param operation The operation being submitted.
+	 */
+	private void addSubmission(StockOperation operation) {
+		if (!StringUtils.isEmpty(operation.getIdempotencyKey())) {
+			operation.addSubmission(operation.getIdempotencyKey());
+
+			// The key only identifies this submission
+			operation.setIdempotencyKey(null);
+		}
+	}
+
+	private void fireStatusEvent(StockOperation operation, StockOperationStatus savedStatus) {
+		updateReservedTotals(operation, savedStatus);
+
+		switch (operation.getStatus()) {
+			case PENDING:
+				operation.getInstanceType().onPending(operation);
+				break;
+			case CANCELLED:
+				operation.getInstanceType().onCancelled(operation);
+				break;
+			case COMPLETED:
+				operation.getInstanceType().onCompleted(operation);
+				break;
+		}
+	}
+
+	private void updateReservedTotals(StockOperation operation, StockOperationStatus savedStatus) {
+		// The stock reserved by an operation is removed from the source stockroom while the operation is pending. The
+		//  reservations are still set when the completed and cancelled events are fired so they can be released here.
+		if (operation.getSource() == null || operation.getReserved() == null || operation.getReserved().size() == 0) {
+			return;
+		}
+
+		// The events are fired every time an operation is submitted so the totals are only changed when the operation
+		//  becomes pending or stops being pending
+		int sign;
+		switch (operation.getStatus()) {
+			case PENDING:
+				if (savedStatus == StockOperationStatus.PENDING) {
+					return;
+				}
+				sign = 1;
+				break;
+			case CANCELLED:
+			case COMPLETED:
+				if (savedStatus != StockOperationStatus.PENDING) {
+					return;
+				}
+				sign = -1;
+				break;
+			default:
+				return;
+		}
+
+		Map<Item, Integer> reserved = new HashMap<Item, Integer>();
+		for (ReservedTransaction tx : operation.getReserved()) {
+			Integer qty = reserved.get(tx.getItem());
+			reserved.put(tx.getItem(), (qty == null ? 0 : qty) + tx.getQuantity());
+		}
+
+		for (Map.Entry<Item, Integer> entry : reserved.entrySet()) {
+			itemStockService.updateItemStockTotal(entry.getKey(), 0, sign * entry.getValue(), 0);
+		}
+	}
+
+	@Override
+	public StockOperation queueOperation(StockOperation operation) {
+		StockOperation processed = findProcessedOperation(operation);
+		if (processed != null) {
+			return processed;
+		}
+
+		validateOperation(operation);
+
+		if (operation.getStatus() != StockOperationStatus.NEW) {
+			throw new APIException("Only new operations can be queued.");
+		}
+		if (operation.getItems() == null || operation.getItems().size() <= 0) {
+			throw new APIException("The operation must have at least one operation item defined.");
+		}
+
+		if (!StockOperationSubmissionQueue.isAvailable()) {
+			return submitOperation(operation);
+		}
+
+		// The reservations are calculated by the stockroom worker when the operation is submitted
+		operation.setStatus(StockOperationStatus.QUEUED);
+		operation.setSubmissionError(null);
+		addSubmission(operation);
+		StockOperation result = operationService.save(operation);
+
+		StockOperationSubmissionQueue.enqueue(result);
+
+		return result;
+	}
+
 	@Override
 	public void applyTransactions(Collection<StockOperationTransaction> transactions) {
 		if (transactions != null && transactions.size() > 0) {
@@ -160,30 +478,73 @@ public class StockOperationServiceImpl
 			return;
 		}
 
-		// Lock on the operation lock in case this method is called directly. If called via submitOperation this lock
-		//  will already be acquired and simply reenter.
-		synchronized (OPERATION_LOCK) {
+		List<StockOperationTransaction> deferred = DEFERRED_TRANSACTIONS.get();
+		if (deferred != null) {
+			// A batch is being submitted so the transactions will be applied with the rest of the batch
+			for (StockOperationTransaction tx : transactions) {
+				if (tx != null) {
+					deferred.add(tx);
+				}
+			}
+
+			return;
+		}
+
+		// Lock the affected item stock in case this method is called directly. If called via submitOperation these
+		//  locks will already be acquired and simply reenter.
+		StockLockManager.StockLock lock = LOCK_MANAGER.lock(getLockKeys(transactions));
+		try {
 			// Note that we don't touch the stockroom operations, transactions, or item stock because that could result
 			//  in loading a large number of records from the database that we don't need for this. This means that
 			//  any existing stockroom objects must be refreshed before the data updated below will be seen.
 
+			// The change events reference the operations so the operations must already have been saved
+			if (eventService != null) {
+				for (StockOperationTransaction tx : transactions) {
+					if (tx != null && tx.getOperation() != null && tx.getOperation().getId() == null) {
+						throw new APIException("The operation must be saved before its transactions are applied.");
+					}
+				}
+			}
+
 			// Create a map to store the tx grouped by item and stockroom
 			Map<Pair<Item, Stockroom>, List<StockOperationTransaction>> grouped = createGroupedTransactions(transactions);
 
+			// Load all the affected item stock with a single query so that the changes below can be applied in memory
+			//  without any further database round-trips (or the auto-flushes that each query would trigger)
+			Map<Pair<Item, Stockroom>, ItemStock> stockMap = findItemStock(grouped.keySet());
+
+			// The query returns any item stock that is already in the session as-is so reload the stock if it has been
+			//  changed since it was loaded (for example, by another server)
+			if (evictStaleStock(stockMap.values())) {
+				stockMap = findItemStock(grouped.keySet());
+			}
+
+			// Load the levels for the affected item stock before anything is changed so that the query does not flush
+			Map<Pair<Item, Stockroom>, ItemStockLevel> levelMap = findStockLevels(grouped.keySet());
+
+			List<ItemStock> updatedStock = new ArrayList<ItemStock>(grouped.size());
+			List<ItemStock> removedStock = new ArrayList<ItemStock>();
+			List<StockChangeEvent> events = new ArrayList<StockChangeEvent>();
+			Map<Item, int[]> totals = new HashMap<Item, int[]>();
 			for (Pair<Item, Stockroom> key : grouped.keySet()) {
-				Item item = key.getValue0();
-				Stockroom stockroom = key.getValue1();
 				List<StockOperationTransaction> itemTxs = grouped.get(key);
 
 				// Get the item stock from the stockroom
-				ItemStock stock = stockroomService.getItem(stockroom, item);
+				ItemStock stock = stockMap.get(key);
+				int initialQty = stock == null ? 0 : stock.getQuantity();
+				boolean stockExisted = stock != null;
 
 				// For each item transaction
 				int totalQty = 0;
+				Map<StockOperation, Integer> operationQty = new LinkedHashMap<StockOperation, Integer>();
 				for (StockOperationTransaction tx : itemTxs) {
 					// Sum the total quantity for the item
 					totalQty += tx.getQuantity();
 
+					Integer qty = operationQty.get(tx.getOperation());
+					operationQty.put(tx.getOperation(), (qty == null ? 0 : qty) + tx.getQuantity());
+
 					ItemStockDetail detail = null;
 					if (stock == null) {
 						// Item stock does not exist so create it and then create detail
@@ -210,13 +571,28 @@ public class StockOperationServiceImpl
 					// If the detail quantity is zero then remove the record. Note, details with quantities less than zero
 					//      still need to be tracked.
 					if(detail.getQuantity() == 0) {
-						stock.getDetails().remove(detail);
+						stock.removeDetail(detail);
 					}
 				}
 
 				// Update the item quantity
 				stock.setQuantity(stock.getQuantity() + totalQty);
 
+				// Update the level status if the quantity crossed a level. The level is only changed (and therefore
+				//  written by the flush below) when the status changes.
+				ItemStockLevel level = levelMap.get(key);
+				if (level != null) {
+					level.updateStatus(stock.getQuantity());
+				}
+
+				// Record a single change event for each operation that changed this item stock
+				int resultingQty = initialQty;
+				for (Map.Entry<StockOperation, Integer> entry : operationQty.entrySet()) {
+					resultingQty += entry.getValue();
+					events.add(new StockChangeEvent(key.getValue1(), key.getValue0(), entry.getKey(), entry.getValue(),
+							resultingQty));
+				}
+
 				// Handle the special-case where the stock quantity is negative and ensure that there is only a single
 				//  detail with no qualifiers and the negative quantity
 				if (stock.getQuantity() < 0) {
@@ -224,13 +600,60 @@ public class StockOperationServiceImpl
 				}
 
 				if (stock.getQuantity() == 0) {
-					// Remove the stock if the quantity is zero
-					itemStockService.purge(stock);
+					// Remove the stock if the quantity is zero. Stock that was never saved does not need to be removed.
+					if (stock.getId() != null) {
+						removedStock.add(stock);
+					}
 				} else {
 					// Save the stock if the quantity is something other than zero (positive or negative)
-					itemStockService.save(stock);
+					updatedStock.add(stock);
 				}
+
+				// Sum the changes to the item totals across the stockrooms
+				int[] total = totals.get(key.getValue0());
+				if (total == null) {
+					total = new int[2];
+					totals.put(key.getValue0(), total);
+				}
+				total[0] += totalQty;
+				if (stockExisted && stock.getQuantity() == 0) {
+					total[1]--;
+				} else if (!stockExisted && stock.getQuantity() != 0) {
+					total[1]++;
+				}
+			}
+
+			// Write all the changes and then flush them together so that the statements can be batched
+			for (ItemStock stock : removedStock) {
+				itemStockService.purge(stock);
+			}
+			for (ItemStock stock : updatedStock) {
+				itemStockService.save(stock);
+			}
+			for (Map.Entry<Item, int[]> total : totals.entrySet()) {
+				itemStockService.updateItemStockTotal(total.getKey(), total.getValue()[0], 0, total.getValue()[1]);
+			}
+
+			// Write the change events to the outbox in the same transaction as the stock changes
+			if (eventService != null) {
+				for (StockChangeEvent event : events) {
+					eventService.save(event);
+				}
+			}
+
+			try {
+				Context.flushSession();
+			} catch (StaleStateException ex) {
+				// The stock was updated by someone else between the version check above and this flush
+				throw new APIException("The item stock was changed by another user while the operation transactions " +
+						"were being applied. Please try again.", ex);
 			}
+
+			if (eventService != null && eventDispatcher != null) {
+				eventDispatcher.dispatch(events);
+			}
+		} finally {
+			lock.release();
 		}
 	}
 
@@ -255,11 +678,129 @@ public class StockOperationServiceImpl
 	 * @should set the transaction source calculated flags if the source was calculated
 	 * @should process non-calculated transactions before calculated transactions
 	 * @should set batch operation to past operations before future operations
+	 * @should use details without a batch operation after details with a batch operation
 	 * @should throw APIException if source stockroom is null and the expiration are not specified for an expirable item
 	 * @should throw APIException if calculate expiration is false and expiration is null for an expirable item
 	 * @should throw IllegalArgumentException if operation is null
 	 */
 	public void calculateReservations(StockOperation operation) {
+		calculateReservations(operation, null, new ArrayList<ItemStock>());
+	}
+
+	private void createReservations(StockOperation operation) {
+		Set<ReservedTransaction> existing = getReserved(operation);
+
+		/*
+			The reservations are calculated from the source stock that is loaded into this session. If that stock is changed
+			by someone else (for example, another server) after it was loaded, the reservations could be based on details
+			that no longer exist. To handle this, the stock versions are checked after the calculation and, if any are out
+			of date, the stale stock is reloaded and the reservations are calculated again.
+		 */
+		for (int attempt = 1; ; attempt++) {
+			addReservations(operation);
+
+			// Perform any required calculations to make the reservations valid
+			List<ItemStock> sourceStock = new ArrayList<ItemStock>();
+			calculateReservations(operation, null, sourceStock);
+
+			if (!evictStaleStock(sourceStock)) {
+				return;
+			}
+
+			if (attempt >= MAX_RESERVATION_ATTEMPTS) {
+				throw new APIException("The source stock for the operation was changed by another user while the " +
+						"reservations were being calculated. Please try again.");
+			}
+
+			// Discard the calculated reservations so that they can be recalculated from the current stock
+			removeReservations(operation, existing);
+		}
+	}
+
+	private Set<ReservedTransaction> getReserved(StockOperation operation) {
+		Set<ReservedTransaction> reserved = new HashSet<ReservedTransaction>();
+		if (operation.getReserved() != null) {
+			reserved.addAll(operation.getReserved());
+		}
+
+		return reserved;
+	}
+
+	private void addReservations(StockOperation operation) {
+		for (StockOperationItem item : operation.getItems()) {
+			ReservedTransaction tx = new ReservedTransaction(item);
+			tx.setCreator(Context.getAuthenticatedUser());
+			tx.setDateCreated(new Date());
+
+			operation.addReserved(tx);
+		}
+	}
+
+	private void removeReservations(StockOperation operation, Set<ReservedTransaction> keep) {
+		if (operation.getReserved() == null) {
+			return;
+		}
+
+		for (ReservedTransaction tx : new ArrayList<ReservedTransaction>(operation.getReserved())) {
+			if (!keep.contains(tx)) {
+				operation.removeReserved(tx);
+			}
+		}
+	}
+
+	private Map<Pair<Stockroom, Item>, ItemStock> prefetchBatchStock(List<StockOperation> operations) {
+		// Group the items for the new operations by source stockroom
+		Map<Stockroom, Set<Item>> sourceItems = new HashMap<Stockroom, Set<Item>>();
+		for (StockOperation operation : operations) {
+			if (operation.getStatus() != StockOperationStatus.NEW || operation.getSource() == null) {
+				continue;
+			}
+
+			Set<Item> items = sourceItems.get(operation.getSource());
+			if (items == null) {
+				items = new HashSet<Item>();
+				sourceItems.put(operation.getSource(), items);
+			}
+			for (StockOperationItem item : operation.getItems()) {
+				items.add(item.getItem());
+			}
+		}
+
+		Map<Pair<Stockroom, Item>, ItemStock> workingStock = new HashMap<Pair<Stockroom, Item>, ItemStock>();
+		for (Map.Entry<Stockroom, Set<Item>> entry : sourceItems.entrySet()) {
+			List<ItemStock> loadedStock = new ArrayList<ItemStock>();
+			prefetchAndCloneStock(entry.getKey(), entry.getValue(), workingStock, loadedStock);
+
+			// Reload the stock if any of it has been changed since it was loaded into this session
+			if (evictStaleStock(loadedStock)) {
+				prefetchAndCloneStock(entry.getKey(), entry.getValue(), workingStock, new ArrayList<ItemStock>());
+			}
+		}
+
+		return workingStock;
+	}
+
+	private Map<Pair<Stockroom, Item>, ItemStock> copyWorkingStock(StockOperation operation,
+			Map<Pair<Stockroom, Item>, ItemStock> workingStock) {
+		Map<Pair<Stockroom, Item>, ItemStock> copy = new HashMap<Pair<Stockroom, Item>, ItemStock>();
+		if (operation.getSource() == null) {
+			return copy;
+		}
+
+		for (StockOperationItem item : operation.getItems()) {
+			Pair<Stockroom, Item> key = Pair.with(operation.getSource(), item.getItem());
+			if (workingStock.containsKey(key) && !copy.containsKey(key)) {
+				// Items without stock are stored as null so that they are not queried for again
+				ItemStock stock = workingStock.get(key);
+				copy.put(key, stock == null ? null : new ItemStock(stock));
+			}
+		}
+
+		return copy;
+	}
+
+	private void calculateReservations(StockOperation operation, Map<Pair<Stockroom, Item>, ItemStock> workingStock,
+			List<ItemStock> sourceStock) {
 		if (operation == null) {
 			throw new IllegalArgumentException("The operation must be defined");
 		}
@@ -288,10 +829,25 @@ public class StockOperationServiceImpl
 			store copies of the item stock detail and then these copies are then updated so that a running tally can be kept
 			of what is actually available when processing a specific transaction without modifying the actual detail records.
 		 */
-		Map<Pair<Stockroom, Item>, ItemStock> stockMap = new HashMap<Pair<Stockroom, Item>, ItemStock>();
 		List<ReservedTransaction> newTransactions = new ArrayList<ReservedTransaction>();
 		boolean hasSource = operation.getSource() != null;
 
+		// Load the source item stock for all the transaction items at once rather than querying for each item. When a
+		//  batch is being submitted the stock has already been loaded and is shared by all the batch operations.
+		Map<Pair<Stockroom, Item>, ItemStock> stockMap = workingStock;
+		if (stockMap == null) {
+			stockMap = new HashMap<Pair<Stockroom, Item>, ItemStock>();
+
+			if (hasSource) {
+				Set<Item> items = new HashSet<Item>();
+				for (ReservedTransaction tx : transactions) {
+					items.add(tx.getItem());
+				}
+
+				prefetchAndCloneStock(operation.getSource(), items, stockMap, sourceStock);
+			}
+		}
+
 		for (ReservedTransaction tx : transactions) {
 			if (!hasSource) {
 				if (tx.getItem().hasExpiration() && tx.getExpiration() == null) {
@@ -340,9 +896,9 @@ public class StockOperationServiceImpl
 			tx.setBatchOperation(detail.getBatchOperation());
 
 			if (detail.getQuantity() == 0) {
-				stock.getDetails().remove(detail);
+				stock.removeDetail(detail);
 			} else if (detail.getQuantity() < 0) {
-				stock.getDetails().remove(detail);
+				stock.removeDetail(detail);
 
 				// Set the tx quantity to the number actually deduced from the detail
 				tx.setQuantity(tx.getQuantity() + detail.getQuantity());
@@ -418,20 +974,10 @@ public class StockOperationServiceImpl
 		ItemStockDetail detail = null;
 
 		if (stock.getItem().hasExpiration() && tx.isCalculatedExpiration()) {
-			List<ItemStockDetail> results = null;
-			if (tx.isCalculatedExpiration()) {
-				results = findClosestExpiration(stock, new DateTime(operation.getOperationDate()));
-			} else {
-				results =  findDetailByExpiration(stock, tx.getExpiration());
-			}
-
-			if (results.size() == 1) {
-				detail = results.get(0);
-			} else if (results.size() > 1) {
-				detail = findOldestBatch(operation, results);
-			}
+			// Find the detail with the closest expiration, using the oldest batch when the expirations are the same
+			detail = stock.getFirstExpiringDetail();
 		} else if (tx.isCalculatedBatch()) {
-			detail = findOldestBatch(operation, stock);
+			detail = findOldestBatch(stock.getDetails());
 		} else {
 			detail = findDetail(stock, tx);
 		}
@@ -455,84 +1001,116 @@ public class StockOperationServiceImpl
 		return null;
 	}
 
-	private List<ItemStockDetail> findDetailByExpiration(ItemStock stock, Date date) {
-		if (stock == null || stock.getDetails() == null || stock.getDetails().size() == 0) {
-			return null;
+	private void prefetchAndCloneStock(Stockroom stockroom, Collection<Item> items,
+			Map<Pair<Stockroom, Item>, ItemStock> workingMap, List<ItemStock> loadedStock) {
+		// Items without stock are stored as null so that they are not queried for again
+		for (Item item : items) {
+			workingMap.put(Pair.with(stockroom, item), null);
 		}
 
-		if (date == null) {
-			throw new IllegalArgumentException("The expiration date to find must be defined.");
+		for (ItemStock stock : stockroomService.getItems(stockroom, items)) {
+			loadedStock.add(stock);
+			workingMap.put(Pair.with(stockroom, stock.getItem()), new ItemStock(stock));
 		}
+	}
 
-		List<ItemStockDetail> results = new ArrayList<ItemStockDetail>();
+	private ItemStock findAndCloneStock(Map<Pair<Stockroom, Item>, ItemStock> workingMap, Stockroom stockroom, Item item) {
+		Pair<Stockroom, Item> pair = Pair.with(stockroom, item);
 
-		// Loop through each detail record and find the first detail with the same expiration and batch operation
-		for (ItemStockDetail detail : stock.getDetails()) {
-			if (detail.getExpiration() != null && detail.getExpiration().equals(date)) {
-				results.add(detail);
+		if (workingMap.containsKey(pair)) {
+			return workingMap.get(pair);
+		}
+
+		ItemStock stock = stockroomService.getItem(stockroom, item);
+		if (stock != null) {
+			stock = new ItemStock(stock);
+		}
+		workingMap.put(pair, stock);
+
+		return stock;
+	}
+
+	private ItemStockDetail findOldestBatch(Collection<ItemStockDetail> details) {
+		if (details == null) {
+			return null;
+		}
+
+		// Compare the batch operation dates as epoch milliseconds so that no objects are allocated per detail. Details
+		//  without a batch operation date are only used if no other detail is found.
+		ItemStockDetail oldest = null;
+		long oldestTime = Long.MAX_VALUE;
+		for (ItemStockDetail detail : details) {
+			long time = getBatchTime(detail);
+			if (oldest == null || time < oldestTime) {
+				oldest = detail;
+				oldestTime = time;
 			}
 		}
 
-		return results;
+		return oldest;
 	}
 
-	private ItemStock findAndCloneStock(Map<Pair<Stockroom, Item>, ItemStock> workingMap, Stockroom stockroom, Item item) {
-		Pair<Stockroom, Item> pair = Pair.with(stockroom, item);
+	private long getBatchTime(ItemStockDetail detail) {
+		StockOperation batch = detail.getBatchOperation();
+		if (batch == null || batch.getOperationDate() == null) {
+			return Long.MAX_VALUE;
+		}
 
-		ItemStock stock = workingMap.get(pair);
-		if(stock == null) {
-			stock = stockroomService.getItem(stockroom, item);
-			if (stock != null) {
-				stock = new ItemStock(stock);
+		return batch.getOperationDate().getTime();
+	}
 
-				workingMap.put(pair, stock);
-			}
+	private boolean evictStaleStock(Collection<ItemStock> stock) {
+		List<ItemStock> staleStock = itemStockService.getStaleItemStock(stock);
+
+		// Evict the stale stock (and the cascaded details) so that the next query loads the current state
+		for (ItemStock itemStock : staleStock) {
+			Context.evictFromSession(itemStock);
 		}
 
-		return stock;
+		return staleStock.size() > 0;
 	}
 
-	private List<ItemStockDetail> findClosestExpiration(ItemStock stock, DateTime date) {
-		List<ItemStockDetail> results = new ArrayList<ItemStockDetail>();
-		int closest = 0;
+	private Map<Pair<Item, Stockroom>, ItemStock> findItemStock(Collection<Pair<Item, Stockroom>> keys) {
+		Set<Item> items = new HashSet<Item>();
+		Set<Stockroom> stockrooms = new HashSet<Stockroom>();
+		for (Pair<Item, Stockroom> key : keys) {
+			items.add(key.getValue0());
+			stockrooms.add(key.getValue1());
+		}
 
-		for (ItemStockDetail detail : stock.getDetails()) {
-			if (results.size() == 0) {
-				results.add(detail);
-				closest = Seconds.secondsBetween(date, new DateTime(detail.getExpiration())).getSeconds();
-			} else {
-				int temp = Seconds.secondsBetween(date, new DateTime(detail.getExpiration())).getSeconds();
-				if (temp == closest) {
-					results.add(detail);
-				} else if (temp < closest) {
-					results.clear();
-					results.add(detail);
-
-					closest = temp;
-				}
+		// The query returns the stock for every combination of the items and stockrooms so only keep the requested pairs
+		Map<Pair<Item, Stockroom>, ItemStock> results = new HashMap<Pair<Item, Stockroom>, ItemStock>(keys.size());
+		for (ItemStock stock : itemStockService.getItemStock(stockrooms, items)) {
+			Pair<Item, Stockroom> key = Pair.with(stock.getItem(), stock.getStockroom());
+			if (keys.contains(key)) {
+				results.put(key, stock);
 			}
 		}
 
 		return results;
 	}
 
-	private ItemStockDetail findOldestBatch(StockOperation operation, ItemStock stock) {
-		return findOldestBatch(operation, stock.getDetails());
-	}
-
-	private ItemStockDetail findOldestBatch(StockOperation operation, Collection<ItemStockDetail> details) {
-		final DateTime operationTime = new DateTime(operation.getOperationDate());
+	private Map<Pair<Item, Stockroom>, ItemStockLevel> findStockLevels(Collection<Pair<Item, Stockroom>> keys) {
+		Map<Pair<Item, Stockroom>, ItemStockLevel> results = new HashMap<Pair<Item, Stockroom>, ItemStockLevel>();
+		if (levelService == null) {
+			return results;
+		}
 
-		return Collections.min(details, new Comparator<ItemStockDetail>() {
-			@Override
-			public int compare(ItemStockDetail o1, ItemStockDetail o2) {
-				DateTime o1Time = new DateTime(o1.getBatchOperation().getOperationDate());
-				DateTime o2Time = new DateTime(o2.getBatchOperation().getOperationDate());
+		Set<Item> items = new HashSet<Item>();
+		Set<Stockroom> stockrooms = new HashSet<Stockroom>();
+		for (Pair<Item, Stockroom> key : keys) {
+			items.add(key.getValue0());
+			stockrooms.add(key.getValue1());
+		}
 
-				return ((Integer) Seconds.secondsBetween(operationTime, o1Time).getSeconds()).compareTo(
-						Seconds.secondsBetween(operationTime, o2Time).getSeconds());
+		for (ItemStockLevel level : levelService.getLevels(stockrooms, items)) {
+			Pair<Item, Stockroom> key = Pair.with(level.getItem(), level.getStockroom());
+			if (keys.contains(key)) {
+				results.put(key, level);
 			}
-		});
+		}
+
+		return results;
 	}
 
 	private Map<Pair<Item, Stockroom>, List<StockOperationTransaction>> createGroupedTransactions(StockOperationTransaction[] transactions) {
@@ -552,12 +1130,52 @@ public class StockOperationServiceImpl
 		return grouped;
 	}
 
+	private Set<Pair<Stockroom, Item>> getLockKeys(StockOperation operation) {
+		Set<Pair<Stockroom, Item>> keys = new HashSet<Pair<Stockroom, Item>>();
+
+		// Lock both the source and destination stock for every item so that the transactions applied by the operation
+		//  type events are already covered by this lock
+		Set<Item> items = new HashSet<Item>();
+		for (StockOperationItem item : operation.getItems()) {
+			items.add(item.getItem());
+		}
+		if (operation.getReserved() != null) {
+			for (ReservedTransaction tx : operation.getReserved()) {
+				items.add(tx.getItem());
+			}
+		}
+
+		for (Item item : items) {
+			if (operation.getSource() != null) {
+				keys.add(Pair.with(operation.getSource(), item));
+			}
+			if (operation.getDestination() != null) {
+				keys.add(Pair.with(operation.getDestination(), item));
+			}
+		}
+
+		return keys;
+	}
+
+	private Set<Pair<Stockroom, Item>> getLockKeys(StockOperationTransaction[] transactions) {
+		Set<Pair<Stockroom, Item>> keys = new HashSet<Pair<Stockroom, Item>>();
+		for (StockOperationTransaction tx : transactions) {
+			if (tx != null) {
+				keys.add(Pair.with(tx.getStockroom(), tx.getItem()));
+			}
+		}
+
+		return keys;
+	}
+
 	private void createNegativeStockDetail(ItemStock stock) {
 		ItemStockDetail detail = null;
 		if (stock.getDetails().size() > 1) {
 			// Other detail records exist that should not be around anymore.  Clear them and create a single
 			//  detail record for the unknown stock that has been removed from the stockroom.
-			stock.getDetails().clear();
+			for (ItemStockDetail oldDetail : new ArrayList<ItemStockDetail>(stock.getDetails())) {
+				stock.removeDetail(oldDetail);
+			}
 
 			detail = new ItemStockDetail();
 			stock.addDetail(detail);
@@ -0,0 +1,290 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.openhmis.inventory.api.IStockOperationDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockOperationService;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.search.StockOperationSearch;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Submits {@link StockOperationStatus#QUEUED} stock operations asynchronously. Each stockroom has its own queue that is
+ * drained by at most one worker at a time, so the operations for a stockroom are submitted in the order that they were
+ * queued and do not contend with each other for the stock locks. The number of workers that run at the same time is
+ * limited; stockroom queues that are waiting for a worker are drained in the order that they were scheduled.
+ *
+ * Each worker is an OpenMRS daemon thread that submits the operations for a single drain of a stockroom queue, so the
+ * module daemon token must be set before any operations can be processed. A submission that fails returns the operation
+ * to the {@link StockOperationStatus#NEW} status with the failure recorded as the operation submission error.
+ */
+public class StockOperationSubmissionQueue {
+	private static final Log LOG = LogFactory.getLog(StockOperationSubmissionQueue.class);
+
+	private static final int MAX_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	// The number of operations a worker submits for a stockroom before letting the other stockrooms have a turn
+	private static final int OPERATIONS_PER_TURN = 10;
+
+	private static final int MAX_ERROR_LENGTH = 1024;
+
+	private static final ConcurrentMap<Integer, StockroomQueue> QUEUES = new ConcurrentHashMap<Integer, StockroomQueue>();
+	// The stockroom queues that are waiting for a worker
+	private static final Queue<StockroomQueue> SCHEDULED = new ConcurrentLinkedQueue<StockroomQueue>();
+	private static final AtomicInteger ACTIVE_WORKERS = new AtomicInteger();
+	private static volatile DaemonToken daemonToken;
+
+	protected StockOperationSubmissionQueue() {}
+
+	/**
+	 * Sets the daemon token used to run the queued operation submissions.
+	 * @param token The module daemon token.
+	 */
+	public static void setDaemonToken(DaemonToken token) {
+		daemonToken = token;
+	}
+
+	/**
+	 * Gets whether operations can be queued, that is, whether the daemon token has been set.
+	 * @return {@code true} if operations can be queued; otherwise, {@code false}.
+	 */
+	public static boolean isAvailable() {
+		return daemonToken != null;
+	}
+
+	/**
+	 * Queues the specified saved operation to be submitted by the worker for its stockroom. If there is an active
+	 * transaction the operation is only queued after the transaction has been committed so that the worker will be able
+	 * to load it.
+	 * @param operation The operation to queue.
+	 */
+	public static void enqueue(StockOperation operation) {
+		if (operation == null) {
+			throw new IllegalArgumentException("The operation to queue must be defined.");
+		}
+		if (operation.getId() == null) {
+			throw new IllegalArgumentException("The operation must be saved before it can be queued.");
+		}
+
+		final Integer operationId = operation.getId();
+		final Integer stockroomId = getWorkerStockroomId(operation);
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				@Override
+				public void afterCommit() {
+					execute(stockroomId, operationId);
+				}
+			});
+		} else {
+			execute(stockroomId, operationId);
+		}
+	}
+
+	/**
+	 * Queues any operations that were left in the {@link StockOperationStatus#QUEUED} status, for example, because the
+	 * server was stopped before they were processed.
+	 */
+	public static void requeueOperations() {
+		if (!isAvailable()) {
+			LOG.warn("Queued stock operations cannot be processed because the daemon token has not been set.");
+
+			return;
+		}
+
+		Daemon.runInDaemonThread(new Runnable() {
+			@Override
+			public void run() {
+				StockOperationSearch search = new StockOperationSearch();
+				search.getTemplate().setStatus(StockOperationStatus.QUEUED);
+
+				List<StockOperation> operations = Context.getService(IStockOperationDataService.class).getOperations(search);
+				for (StockOperation operation : operations) {
+					enqueue(operation);
+				}
+
+				if (operations.size() > 0) {
+					LOG.info("Requeued " + operations.size() + " stock operation(s).");
+				}
+			}
+		}, daemonToken);
+	}
+
+	/**
+	 * Stops all the stockroom workers once they have submitted their current operation. Operations that have not been
+	 * processed will remain queued. The daemon token must be set again before operations can be queued.
+	 */
+	public static void shutdown() {
+		daemonToken = null;
+
+		SCHEDULED.clear();
+		QUEUES.clear();
+	}
+
+	private static Integer getWorkerStockroomId(StockOperation operation) {
+		// Operations without a source (such as receipts) are processed by the worker for the destination stockroom
+		if (operation.getSource() != null) {
+			return operation.getSource().getId();
+		} else if (operation.getDestination() != null) {
+			return operation.getDestination().getId();
+		} else {
+			return 0;
+		}
+	}
+
+	private static void execute(Integer stockroomId, Integer operationId) {
+		StockroomQueue queue = QUEUES.get(stockroomId);
+		if (queue == null) {
+			StockroomQueue newQueue = new StockroomQueue();
+			queue = QUEUES.putIfAbsent(stockroomId, newQueue);
+			if (queue == null) {
+				queue = newQueue;
+			}
+		}
+
+		queue.operations.add(operationId);
+		schedule(queue);
+	}
+
+	private static void schedule(StockroomQueue queue) {
+		// Only one worker drains a stockroom queue at a time so that the operations are submitted in order
+		if (queue.scheduled.compareAndSet(false, true)) {
+			SCHEDULED.add(queue);
+			startWorkers();
+		}
+	}
+
+	private static void startWorkers() {
+		// A worker that finishes releases its slot before calling this, so a queue that was scheduled while all the
+		//  workers were busy is always picked up
+		while (!SCHEDULED.isEmpty()) {
+			int active = ACTIVE_WORKERS.get();
+			if (active >= MAX_WORKERS) {
+				return;
+			}
+			if (!ACTIVE_WORKERS.compareAndSet(active, active + 1)) {
+				continue;
+			}
+
+			StockroomQueue queue = SCHEDULED.poll();
+			if (queue == null) {
+				ACTIVE_WORKERS.decrementAndGet();
+			} else {
+				startWorker(queue);
+			}
+		}
+	}
+
+	private static void startWorker(final StockroomQueue queue) {
+		final DaemonToken token = daemonToken;
+
+		try {
+			Daemon.runInDaemonThread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						drain(queue, token);
+					} finally {
+						ACTIVE_WORKERS.decrementAndGet();
+						startWorkers();
+					}
+				}
+			}, token);
+		} catch (Exception ex) {
+			ACTIVE_WORKERS.decrementAndGet();
+			queue.scheduled.set(false);
+
+			LOG.error("Could not start the stock operation submission worker.", ex);
+		}
+	}
+
+	private static void drain(StockroomQueue queue, DaemonToken token) {
+		try {
+			Integer operationId;
+			int count = 0;
+			while (count++ < OPERATIONS_PER_TURN && daemonToken == token
+					&& (operationId = queue.operations.poll()) != null) {
+				process(operationId);
+
+				// Each operation is submitted in its own transaction so the session does not need to keep them
+				Context.clearSession();
+			}
+		} finally {
+			queue.scheduled.set(false);
+		}
+
+		// Reschedule the queue if operations remain or were queued after the last operation was taken. The remaining
+		//  operations are left queued if the queue has been shut down.
+		if (daemonToken == token && !queue.operations.isEmpty()) {
+			schedule(queue);
+		}
+	}
+
+	private static void process(Integer operationId) {
+		String error = null;
+
+		try {
+			StockOperation operation = Context.getService(IStockOperationDataService.class).getById(operationId);
+			if (operation == null || operation.getStatus() != StockOperationStatus.QUEUED) {
+				// The operation was deleted or has already been processed
+				return;
+			}
+
+			operation.setStatus(StockOperationStatus.NEW);
+			Context.getService(IStockOperationService.class).submitOperation(operation);
+		} catch (Exception ex) {
+			LOG.error("Could not submit the queued stock operation '" + operationId + "'.", ex);
+
+			error = ex.getMessage() == null ? ex.getClass().getName() : ex.getMessage();
+		}
+
+		if (error != null) {
+			// The failed submission rolled back, so return the operation to the new status with the reason that it failed
+			//  so that it can be corrected and resubmitted
+			try {
+				Context.clearSession();
+
+				IStockOperationDataService service = Context.getService(IStockOperationDataService.class);
+				StockOperation operation = service.getById(operationId);
+				if (operation != null && operation.getStatus() == StockOperationStatus.QUEUED) {
+					operation.setStatus(StockOperationStatus.NEW);
+					operation.setSubmissionError(StringUtils.abbreviate(error, MAX_ERROR_LENGTH));
+					service.save(operation);
+				}
+			} catch (Exception ex) {
+				LOG.error("Could not record the failed submission of the stock operation '" + operationId + "'.", ex);
+			}
+		}
+	}
+
+	private static final class StockroomQueue {
+		private final Queue<Integer> operations = new ConcurrentLinkedQueue<Integer>();
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+	}
+}
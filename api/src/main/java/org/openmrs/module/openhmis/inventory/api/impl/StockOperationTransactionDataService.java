@@ -13,16 +13,38 @@
  */
 package org.openmrs.module.openhmis.inventory.api.impl;
 
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.Query;
 import org.hibernate.criterion.Order;
+import org.javatuples.Quartet;
+import org.openmrs.OpenmrsObject;
 import org.openmrs.module.openhmis.commons.api.entity.impl.BaseObjectDataServiceImpl;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationTransactionDataService;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.security.BasicObjectAuthorizationPrivileges;
 import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
 
 public class StockOperationTransactionDataService
 	extends BaseObjectDataServiceImpl<StockOperationTransaction, BasicObjectAuthorizationPrivileges>
 	implements IStockOperationTransactionDataService {
+	// The entity name of the transaction archive table mapping
+	public static final String ARCHIVE_ENTITY = "ArchivedStockOperationTransaction";
+
+	private static final String TRANSACTION_PROPERTIES = "id, operation, item, quantity, expiration, batchOperation, "
+			+ "calculatedExpiration, sourceCalculatedExpiration, calculatedBatch, sourceCalculatedBatch, stockroom, "
+			+ "patient, institution, creator, dateCreated, uuid";
 
 	@Override
 	protected BasicObjectAuthorizationPrivileges getPrivileges() {
@@ -37,4 +59,126 @@ public class StockOperationTransactionDataService
 	protected Order[] getDefaultSort() {
 		return new Order[] { Order.desc(HibernateCriteriaConstants.DATE_CREATED), Order.desc(HibernateCriteriaConstants.ID) };
 	}
+
+	@Override
+	public int compactTransactions(Date horizon) {
+		if (horizon == null) {
+			throw new IllegalArgumentException("The compaction horizon must be defined.");
+		}
+
+		// Total the transactions by stockroom, item, batch, and month in the database
+		Query query = getRepository().createQuery("select t.stockroom.id, t.item.id, t.batchOperation.id, "
+				+ "year(t.dateCreated), month(t.dateCreated), sum(t.quantity), count(t.id) from "
+				+ StockOperationTransaction.class.getName() + " t where t.dateCreated < :horizon "
+				+ "group by t.stockroom.id, t.item.id, t.batchOperation.id, year(t.dateCreated), month(t.dateCreated)");
+		query.setTimestamp("horizon", horizon);
+
+		List<?> rows = query.list();
+		if (rows.size() == 0) {
+			return 0;
+		}
+
+		Set<Integer> stockroomIds = new HashSet<Integer>();
+		Set<Integer> itemIds = new HashSet<Integer>();
+		Set<Integer> batchIds = new HashSet<Integer>();
+		Set<Date> months = new HashSet<Date>();
+		for (Object row : rows) {
+			Object[] values = (Object[])row;
+			stockroomIds.add((Integer)values[0]);
+			itemIds.add((Integer)values[1]);
+			if (values[2] != null) {
+				batchIds.add((Integer)values[2]);
+			}
+			months.add(getMonth(values[3], values[4]));
+		}
+
+		Map<Integer, Stockroom> stockrooms = loadById(Stockroom.class, stockroomIds);
+		Map<Integer, Item> items = loadById(Item.class, itemIds);
+		Map<Integer, StockOperation> batches = loadById(StockOperation.class, batchIds);
+		Map<Quartet<Integer, Integer, Integer, Date>, StockOperationTransactionRollup> rollups = loadRollups(months);
+
+		int compacted = 0;
+		for (Object row : rows) {
+			Object[] values = (Object[])row;
+			Date month = getMonth(values[3], values[4]);
+			int quantity = ((Number)values[5]).intValue();
+			int count = ((Number)values[6]).intValue();
+
+			// A month that straddled the previous horizon will already have a rollup
+			Quartet<Integer, Integer, Integer, Date> key =
+					Quartet.with((Integer)values[0], (Integer)values[1], (Integer)values[2], month);
+			StockOperationTransactionRollup rollup = rollups.get(key);
+			if (rollup == null) {
+				rollup = new StockOperationTransactionRollup();
+				rollup.setStockroom(stockrooms.get(key.getValue0()));
+				rollup.setItem(items.get(key.getValue1()));
+				rollup.setBatchOperation(key.getValue2() == null ? null : batches.get(key.getValue2()));
+				rollup.setMonth(month);
+				rollup.setQuantity(quantity);
+				rollup.setTransactionCount(count);
+			} else {
+				rollup.setQuantity(rollup.getQuantity() + quantity);
+				rollup.setTransactionCount(rollup.getTransactionCount() + count);
+			}
+
+			getRepository().save(rollup);
+			compacted += count;
+		}
+
+		// Move the compacted transactions to the archive table. The bulk statements also evict the cached transactions.
+		Query archive = getRepository().createQuery("insert into " + ARCHIVE_ENTITY + " (" + TRANSACTION_PROPERTIES
+				+ ") select " + TRANSACTION_PROPERTIES.replaceAll("(\\w+)", "t.$1") + " from "
+				+ StockOperationTransaction.class.getName() + " t where t.dateCreated < :horizon");
+		archive.setTimestamp("horizon", horizon);
+		archive.executeUpdate();
+
+		Query delete = getRepository().createQuery("delete from " + StockOperationTransaction.class.getName()
+				+ " where dateCreated < :horizon");
+		delete.setTimestamp("horizon", horizon);
+		delete.executeUpdate();
+
+		return compacted;
+	}
+
+	private Map<Quartet<Integer, Integer, Integer, Date>, StockOperationTransactionRollup> loadRollups(
+			Collection<Date> months) {
+		Query query = getRepository().createQuery("from " + StockOperationTransactionRollup.class.getName()
+				+ " r where r.month in (:months)");
+		query.setParameterList("months", months);
+
+		Map<Quartet<Integer, Integer, Integer, Date>, StockOperationTransactionRollup> results =
+				new HashMap<Quartet<Integer, Integer, Integer, Date>, StockOperationTransactionRollup>();
+		for (Object result : query.list()) {
+			StockOperationTransactionRollup rollup = (StockOperationTransactionRollup)result;
+			results.put(Quartet.with(rollup.getStockroom().getId(), rollup.getItem().getId(),
+					rollup.getBatchOperation() == null ? null : rollup.getBatchOperation().getId(),
+					new Date(rollup.getMonth().getTime())), rollup);
+		}
+
+		return results;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends OpenmrsObject> Map<Integer, T> loadById(Class<T> cls, Collection<Integer> ids) {
+		Map<Integer, T> results = new HashMap<Integer, T>();
+		if (ids.size() == 0) {
+			return results;
+		}
+
+		Query query = getRepository().createQuery("from " + cls.getName() + " e where e.id in (:ids)");
+		query.setParameterList("ids", ids);
+		for (Object entity : query.list()) {
+			results.put(((T)entity).getId(), (T)entity);
+		}
+
+		return results;
+	}
+
+	private Date getMonth(Object year, Object month) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(((Number)year).intValue(), ((Number)month).intValue() - 1, 1);
+
+		return calendar.getTime();
+	}
 }
@@ -16,6 +16,7 @@ package org.openmrs.module.openhmis.inventory.api.impl;
 import org.openmrs.module.openhmis.commons.api.entity.impl.BaseMetadataDataServiceImpl;
 import org.openmrs.module.openhmis.commons.api.entity.security.IMetadataAuthorizationPrivileges;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationTypeDataService;
+import org.openmrs.module.openhmis.inventory.api.StockOperationTypeCache;
 import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
 import org.openmrs.module.openhmis.inventory.api.security.BasicMetadataAuthorizationPrivileges;
 
@@ -40,7 +41,32 @@ public class StockOperationTypeDataServiceImpl
 		}
 
 		// Update the existing entity
-		return super.save(type);
+		IStockOperationType result = super.save(type);
+		StockOperationTypeCache.invalidate();
+
+		return result;
+	}
+
+	@Override
+	public IStockOperationType retire(IStockOperationType type, String reason) {
+		IStockOperationType result = super.retire(type, reason);
+		StockOperationTypeCache.invalidate();
+
+		return result;
+	}
+
+	@Override
+	public IStockOperationType unretire(IStockOperationType type) {
+		IStockOperationType result = super.unretire(type);
+		StockOperationTypeCache.invalidate();
+
+		return result;
+	}
+
+	@Override
+	public void purge(IStockOperationType type) {
+		super.purge(type);
+		StockOperationTypeCache.invalidate();
 	}
 }
 
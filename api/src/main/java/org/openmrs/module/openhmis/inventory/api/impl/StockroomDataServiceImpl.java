@@ -20,6 +20,8 @@ import java.util.List;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.FetchMode;
+import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
@@ -35,10 +37,12 @@ import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.api.search.StockOperationSearch;
 import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
+import org.openmrs.module.openhmis.inventory.api.util.KeysetPagingInfo;
 import org.openmrs.module.openhmis.inventory.api.util.PrivilegeConstants;
 
 public class StockroomDataServiceImpl
@@ -70,7 +74,7 @@ public class StockroomDataServiceImpl
 			throw new IllegalArgumentException("The stockroom must be defined");
 		}
 
-		return executeCriteria(ItemStock.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(ItemStock.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.createAlias("item", "i");
@@ -94,13 +98,77 @@ public class StockroomDataServiceImpl
 		}, Order.desc(HibernateCriteriaConstants.DATE_CREATED), Order.desc(HibernateCriteriaConstants.ID));
 	}
 
+	@Override
+	public List<StockOperationTransactionRollup> getTransactionRollupsByRoom(final Stockroom stockroom,
+			PagingInfo paging) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined");
+		}
+
+		return executeCriteria(StockOperationTransactionRollup.class, paging, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+			}
+		}, Order.desc("month"), Order.desc(HibernateCriteriaConstants.ID));
+	}
+
+	@Override
+	public List<StockOperationTransaction> seekTransactionsByRoom(Stockroom stockroom, KeysetPagingInfo paging) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined");
+		}
+		if (paging == null || paging.getPageSize() <= 0) {
+			throw new IllegalArgumentException("The paging page size must be greater than zero.");
+		}
+
+		SeekKey key = SeekKey.parse(paging.getContinuation());
+		paging.setNextContinuation(null);
+
+		// Fetch one more transaction than the page size to find out if there is another page without counting
+		Criteria criteria = getRepository().createCriteria(StockOperationTransaction.class);
+		criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+		if (key != null) {
+			criteria.add(seekRestriction(HibernateCriteriaConstants.DATE_CREATED, key));
+		}
+		criteria.addOrder(Order.desc(HibernateCriteriaConstants.DATE_CREATED));
+		criteria.addOrder(Order.desc(HibernateCriteriaConstants.ID));
+		criteria.setMaxResults(paging.getPageSize() + 1);
+
+		List<StockOperationTransaction> results = new ArrayList<StockOperationTransaction>();
+		for (Object tx : criteria.list()) {
+			results.add((StockOperationTransaction)tx);
+		}
+
+		if (results.size() > paging.getPageSize()) {
+			results = results.subList(0, paging.getPageSize());
+
+			StockOperationTransaction last = results.get(results.size() - 1);
+			paging.setNextContinuation(new SeekKey(last.getDateCreated(), last.getId()).toString());
+		}
+
+		return results;
+	}
+
+	private Criterion seekRestriction(String dateProperty, SeekKey key) {
+		return Restrictions.or(Restrictions.lt(dateProperty, key.date), Restrictions.and(
+				Restrictions.eq(dateProperty, key.date), Restrictions.lt(HibernateCriteriaConstants.ID, key.id)));
+	}
+
+	private <E extends OpenmrsObject> List<E> executePagedCriteria(Class<E> cls, PagingInfo paging,
+			Action1<Criteria> action, Order... orders) {
+		PagedCriteria paged = new PagedCriteria(cls, paging, action);
+
+		return paged.complete(executeCriteria(cls, paged.getPaging(), paged.getAction(), orders));
+	}
+
 	@Override
 	public List<StockOperation> getOperations(final Stockroom stockroom, final StockOperationSearch search, PagingInfo paging) {
 		if (stockroom == null) {
 			throw new IllegalArgumentException("The stockroom must be defined");
 		}
 
-		return executeCriteria(StockOperation.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(StockOperation.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				if (search != null) {
@@ -130,7 +198,7 @@ public class StockroomDataServiceImpl
 			itemSearch.setIncludeRetired(true);
 		}
 
-		return executeCriteria(ItemStock.class, paging, new Action1<Criteria>() {
+		return executePagedCriteria(ItemStock.class, paging, new Action1<Criteria>() {
 			@Override
 			public void apply(Criteria criteria) {
 				criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
@@ -155,6 +223,32 @@ public class StockroomDataServiceImpl
 		return getRepository().selectSingle(ItemStock.class, criteria);
 	}
 
+	@Override
+	public List<ItemStock> getItems(final Stockroom stockroom, final Collection<Item> items) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+		if (items == null) {
+			throw new IllegalArgumentException("The items must be defined.");
+		}
+
+		if (items.size() == 0) {
+			return new ArrayList<ItemStock>();
+		}
+
+		return executeCriteria(ItemStock.class, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+				criteria.add(Restrictions.in(HibernateCriteriaConstants.ITEM, items));
+
+				// Load the details in the same query and only return each item stock once
+				criteria.setFetchMode(HibernateCriteriaConstants.DETAILS, FetchMode.JOIN);
+				criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
+			}
+		});
+	}
+
 	@Override
 	public ItemStockDetail getStockroomItemDetail(Stockroom stockroom, Item item, Date expiration, StockOperation batchOperation) {
 		if (stockroom == null) {
@@ -183,6 +277,29 @@ public class StockroomDataServiceImpl
 		return getRepository().selectSingle(ItemStockDetail.class, criteria);
 	}
 
+	@Override
+	public List<ItemStockDetail> getExpiringDetails(final Date before, final Collection<Stockroom> stockrooms,
+			PagingInfo paging) {
+		if (before == null) {
+			throw new IllegalArgumentException("The expiration date must be defined.");
+		}
+
+		// The expiration restriction is a single range over the leading column of the expiration index so the stockroom
+		//  restriction is checked from the index entries rather than requiring a scan for each stockroom
+		return executePagedCriteria(ItemStockDetail.class, paging, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.isNotNull(HibernateCriteriaConstants.EXPIRATION));
+				criteria.add(Restrictions.lt(HibernateCriteriaConstants.EXPIRATION, before));
+				if (stockrooms != null && stockrooms.size() > 0) {
+					criteria.add(Restrictions.in(HibernateCriteriaConstants.STOCKROOM, stockrooms));
+				}
+
+				criteria.setFetchMode(HibernateCriteriaConstants.ITEM, FetchMode.JOIN);
+			}
+		}, Order.asc(HibernateCriteriaConstants.EXPIRATION), Order.asc(HibernateCriteriaConstants.ID));
+	}
+
     @Override
     public List<Stockroom> getStockroomsByLocation(Location location, boolean includeRetired) {
         return getStockroomsByLocation(location, includeRetired, null);
@@ -194,7 +311,7 @@ public class StockroomDataServiceImpl
             throw new NullPointerException("The location must be defined");
         }
 
-        return executeCriteria(Stockroom.class, pagingInfo, new Action1<Criteria>() {
+        return executePagedCriteria(Stockroom.class, pagingInfo, new Action1<Criteria>() {
             @Override
             public void apply(Criteria criteria) {
                 criteria.add(Restrictions.eq(HibernateCriteriaConstants.LOCATION, location));
@@ -222,7 +339,7 @@ public class StockroomDataServiceImpl
             throw new IllegalArgumentException("The stockroom code must be less than 256 characters.");
         }
 
-        return executeCriteria(Stockroom.class, pagingInfo, new Action1<Criteria>() {
+        return executePagedCriteria(Stockroom.class, pagingInfo, new Action1<Criteria>() {
             @Override
             public void apply(Criteria criteria) {
                 criteria.add(Restrictions.eq(HibernateCriteriaConstants.LOCATION, location))
@@ -254,5 +371,40 @@ public class StockroomDataServiceImpl
 	public String getGetPrivilege() {
 		return PrivilegeConstants.VIEW_STOCKROOMS;
 	}
-}
 
+	/**
+	 * The position of the last transaction in a keyset page. The continuation is formatted as the transaction date in
+	 * milliseconds followed by the transaction id.
+	 */
+	private static class SeekKey {
+		private final Date date;
+		private final Integer id;
+
+		public SeekKey(Date date, Integer id) {
+			this.date = date;
+			this.id = id;
+		}
+
+		public static SeekKey parse(String continuation) {
+			if (StringUtils.isEmpty(continuation)) {
+				return null;
+			}
+
+			String[] parts = continuation.split("\\.");
+			if (parts.length != 2) {
+				throw new IllegalArgumentException("The continuation '" + continuation + "' is not valid.");
+			}
+
+			try {
+				return new SeekKey(new Date(Long.parseLong(parts[0])), Integer.valueOf(parts[1]));
+			} catch (NumberFormatException nfe) {
+				throw new IllegalArgumentException("The continuation '" + continuation + "' is not valid.");
+			}
+		}
+
+		@Override
+		public String toString() {
+			return date.getTime() + "." + id;
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.Criteria;
+import org.hibernate.LockMode;
+import org.hibernate.Query;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+import org.openmrs.module.openhmis.commons.api.entity.impl.BaseObjectDataServiceImpl;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.api.IStockroomSnapshotDataService;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockSnapshot;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.model.StockroomSnapshot;
+import org.openmrs.module.openhmis.inventory.api.security.BasicObjectAuthorizationPrivileges;
+import org.openmrs.module.openhmis.inventory.api.util.HibernateCriteriaConstants;
+
+public class StockroomSnapshotDataServiceImpl
+		extends BaseObjectDataServiceImpl<StockroomSnapshot, BasicObjectAuthorizationPrivileges>
+		implements IStockroomSnapshotDataService {
+	private static final String SNAPSHOT_DATE = "snapshotDate";
+
+	@Override
+	protected BasicObjectAuthorizationPrivileges getPrivileges() {
+		return new BasicObjectAuthorizationPrivileges();
+	}
+
+	@Override
+	protected void validate(StockroomSnapshot object) {
+	}
+
+	@Override
+	protected Order[] getDefaultSort() {
+		return new Order[] { Order.desc(SNAPSHOT_DATE), Order.desc(HibernateCriteriaConstants.ID) };
+	}
+
+	@Override
+	public StockroomSnapshot createSnapshot(Stockroom stockroom) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+
+		// Block any stock changes while the snapshot is taken so that the snapshot date separates the transactions that
+		// are included in the detail quantities from the transactions that are not. Transactions are created while the
+		// stock locks are held so any transaction created after the locks are released is dated after the snapshot.
+		StockLockManager.StockLock lock = StockOperationServiceImpl.LOCK_MANAGER.lockAll();
+		try {
+			// The stock locks are released before the changes are committed so also wait for the database row locks of
+			// any changes that are written but not yet committed
+			lockItemStock(stockroom);
+
+			StockroomSnapshot snapshot = new StockroomSnapshot();
+			snapshot.setStockroom(stockroom);
+			snapshot.setSnapshotDate(new Date());
+
+			// Only select the detail values so that the item stock does not need to be loaded into the session
+			Query query = getRepository().createQuery("select d.item, d.expiration, d.batchOperation, d.quantity from "
+					+ ItemStockDetail.class.getName() + " d where d.stockroom = :stockroom");
+			query.setParameter("stockroom", stockroom);
+
+			for (Object row : query.list()) {
+				Object[] values = (Object[])row;
+
+				ItemStockSnapshot item = new ItemStockSnapshot();
+				item.setItem((Item)values[0]);
+				item.setExpiration((Date)values[1]);
+				item.setBatchOperation((StockOperation)values[2]);
+				item.setQuantity((Integer)values[3]);
+
+				snapshot.addItem(item);
+			}
+
+			return save(snapshot);
+		} finally {
+			lock.release();
+		}
+	}
+
+	private void lockItemStock(Stockroom stockroom) {
+		Criteria criteria = getRepository().createCriteria(ItemStock.class);
+		criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+		criteria.setProjection(Projections.id());
+		criteria.setLockMode(LockMode.PESSIMISTIC_WRITE);
+
+		criteria.list();
+	}
+
+	@Override
+	public StockroomSnapshot getSnapshot(final Stockroom stockroom, final Date date) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+		if (date == null) {
+			throw new IllegalArgumentException("The date must be defined.");
+		}
+
+		List<StockroomSnapshot> results = executeCriteria(StockroomSnapshot.class, null, new Action1<Criteria>() {
+			@Override
+			public void apply(Criteria criteria) {
+				criteria.add(Restrictions.eq(HibernateCriteriaConstants.STOCKROOM, stockroom));
+				criteria.add(Restrictions.le(SNAPSHOT_DATE, date));
+				criteria.setMaxResults(1);
+			}
+		}, getDefaultSort());
+
+		return results.size() == 0 ? null : results.get(0);
+	}
+
+	@Override
+	public int getItemQuantity(Stockroom stockroom, Item item, Date date) {
+		if (stockroom == null) {
+			throw new IllegalArgumentException("The stockroom must be defined.");
+		}
+		if (item == null) {
+			throw new IllegalArgumentException("The item must be defined.");
+		}
+		if (date == null) {
+			throw new IllegalArgumentException("The date must be defined.");
+		}
+
+		StockroomSnapshot snapshot = getSnapshot(stockroom, date);
+		if (snapshot != null) {
+			// Start from the snapshot and replay only the transactions created between the snapshot and the date
+			Query query = getRepository().createQuery("select sum(i.quantity) from " + ItemStockSnapshot.class.getName()
+					+ " i where i.snapshot = :snapshot and i.item = :item");
+			query.setParameter("snapshot", snapshot);
+			query.setParameter("item", item);
+
+			return toInt(query.uniqueResult()) + sumTransactions(stockroom, item, snapshot.getSnapshotDate(), date);
+		} else {
+			// There is no earlier snapshot so start from the current stock and reverse the transactions since the date
+			Query query = getRepository().createQuery("select s.quantity from " + ItemStock.class.getName()
+					+ " s where s.stockroom = :stockroom and s.item = :item");
+			query.setParameter("stockroom", stockroom);
+			query.setParameter("item", item);
+
+			return toInt(query.uniqueResult()) - sumTransactions(stockroom, item, date, null);
+		}
+	}
+
+	/**
+	 * Sums the quantities of the transactions for the item in the stockroom that were created after the from date and up
+	 * to and including the to date.
+	 */
+	private int sumTransactions(Stockroom stockroom, Item item, Date from, Date to) {
+		int total = sumQuantity(stockroom, item, from, to);
+
+		// Compacted transactions are totalled by month so the rollups can only be used for the months that are entirely
+		// within the range. The months that contain the from or to date are instead summed from the archived
+		// transactions so that a partly covered month is not counted entirely or dropped.
+		Date firstMonth = getNextMonth(getMonth(from));
+		Date lastMonth = to == null ? null : getMonth(to);
+		if (lastMonth == null || firstMonth.before(lastMonth)) {
+			Query query = getRepository().createQuery("select sum(r.quantity) from "
+					+ StockOperationTransactionRollup.class.getName() + " r where r.stockroom = :stockroom "
+					+ "and r.item = :item and r.month >= :firstMonth"
+					+ (lastMonth == null ? "" : " and r.month < :lastMonth"));
+			query.setParameter("stockroom", stockroom);
+			query.setParameter("item", item);
+			query.setTimestamp("firstMonth", firstMonth);
+			if (lastMonth != null) {
+				query.setTimestamp("lastMonth", lastMonth);
+			}
+
+			total += toInt(query.uniqueResult());
+		}
+
+		StringBuilder hql = new StringBuilder("select sum(t.quantity) from ");
+		hql.append(StockOperationTransactionDataService.ARCHIVE_ENTITY);
+		hql.append(" t where t.stockroom = :stockroom and t.item = :item and t.dateCreated > :from");
+		if (lastMonth == null) {
+			hql.append(" and t.dateCreated < :firstMonth");
+		} else {
+			hql.append(" and t.dateCreated <= :to and (t.dateCreated < :firstMonth or t.dateCreated >= :lastMonth)");
+		}
+
+		Query query = getRepository().createQuery(hql.toString());
+		query.setParameter("stockroom", stockroom);
+		query.setParameter("item", item);
+		query.setTimestamp("from", from);
+		query.setTimestamp("firstMonth", firstMonth);
+		if (lastMonth != null) {
+			query.setTimestamp("to", to);
+			query.setTimestamp("lastMonth", lastMonth);
+		}
+
+		return total + toInt(query.uniqueResult());
+	}
+
+	private int sumQuantity(Stockroom stockroom, Item item, Date from, Date to) {
+		StringBuilder hql = new StringBuilder("select sum(t.quantity) from ");
+		hql.append(StockOperationTransaction.class.getName());
+		hql.append(" t where t.stockroom = :stockroom and t.item = :item and t.dateCreated > :from");
+		if (to != null) {
+			hql.append(" and t.dateCreated <= :to");
+		}
+
+		Query query = getRepository().createQuery(hql.toString());
+		query.setParameter("stockroom", stockroom);
+		query.setParameter("item", item);
+		query.setTimestamp("from", from);
+		if (to != null) {
+			query.setTimestamp("to", to);
+		}
+
+		return toInt(query.uniqueResult());
+	}
+
+	private Date getMonth(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		calendar.set(Calendar.DAY_OF_MONTH, 1);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+
+		return calendar.getTime();
+	}
+
+	private Date getNextMonth(Date month) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(month);
+		calendar.add(Calendar.MONTH, 1);
+
+		return calendar.getTime();
+	}
+
+	private int toInt(Object value) {
+		return value == null ? 0 : ((Number)value).intValue();
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+/**
+ * The formats that item stock and items can be imported from and that item stock can be exported to.
+ */
+public enum ImportFormat {
+	/**
+	 * Comma separated values with one row on each line. The first line can be a header naming the columns; otherwise the
+	 * columns are expected in the default order for the import.
+	 */
+	CSV(),
+	/**
+	 * Newline delimited JSON with an object on each line whose properties are the column values.
+	 */
+	NDJSON();
+
+	private ImportFormat() { }
+}
@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Model class that represents the progress and result of an import. The rows that could not be imported are recorded
+ * by line number along with the reason that they were rejected.
+ */
+public class ImportResult {
+	private int processed;
+	private int imported;
+	private boolean complete;
+	private Map<Integer, String> errors = new TreeMap<Integer, String>();
+
+	/**
+	 * Gets the number of rows that have been read so far.
+	 * @return The number of rows processed.
+	 */
+	public int getProcessed() {
+		return processed;
+	}
+
+	public void addProcessed(int count) {
+		processed += count;
+	}
+
+	/**
+	 * Gets the number of rows that have been committed so far.
+	 * @return The number of rows imported.
+	 */
+	public int getImported() {
+		return imported;
+	}
+
+	public void addImported(int count) {
+		imported += count;
+	}
+
+	/**
+	 * Gets whether all the rows have been processed. An import that was stopped because a chunk could not be saved is
+	 * not complete.
+	 * @return {@code true} if the import is complete; otherwise, {@code false}.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	public void setComplete(boolean complete) {
+		this.complete = complete;
+	}
+
+	public void addError(int line, String message) {
+		errors.put(line, message);
+	}
+
+	/**
+	 * Gets the rows that could not be imported, ordered by line number.
+	 * @return The errors for each rejected line.
+	 */
+	public Map<Integer, String> getErrors() {
+		return Collections.unmodifiableMap(errors);
+	}
+
+	public boolean hasErrors() {
+		return errors.size() > 0;
+	}
+}
@@ -41,6 +41,9 @@ public class Item extends BaseCustomizableMetadata<ItemAttribute> implements Cus
 	private Boolean hasPhysicalInventory;
 	private Boolean conceptAccepted;
 
+	// The total is mapped as a lazy collection so that the totals of the items in the session are loaded in batches
+	private Set<ItemStockTotal> stockTotals;
+
 	public Item() {
 	}
 
@@ -210,6 +213,21 @@ public class Item extends BaseCustomizableMetadata<ItemAttribute> implements Cus
 		this.conceptAccepted = conceptAccepted;
 	}
 
+	/**
+	 * Gets the facility-wide stock total for this item. The totals are loaded as they were when first read in the
+	 * session so use {@link org.openmrs.module.openhmis.inventory.api.IItemStockDataService#getItemStockTotal(Item)} to
+	 * read the total after the stock has been changed.
+	 * @return The stock total or {@code null} if the item does not have a total.
+	 */
+	@JsonIgnore
+	public ItemStockTotal getStockTotal() {
+		if (stockTotals == null || stockTotals.size() == 0) {
+			return null;
+		}
+
+		return stockTotals.iterator().next();
+	}
+
 	@Override
 	@JsonIgnore
 	public Boolean getRetired() {
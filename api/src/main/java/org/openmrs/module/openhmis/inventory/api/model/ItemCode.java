@@ -13,6 +13,8 @@
  */
 package org.openmrs.module.openhmis.inventory.api.model;
 
+import java.util.Locale;
+
 import org.openmrs.module.openhmis.commons.api.entity.model.BaseSerializableOpenmrsMetadata;
 
 /**
@@ -23,6 +25,7 @@ public class ItemCode extends BaseSerializableOpenmrsMetadata {
 
 	private Integer itemCodeId;
 	private String code;
+	private String normalizedCode;
 	private Item item;
 
 	public ItemCode() {
@@ -32,7 +35,7 @@ public class ItemCode extends BaseSerializableOpenmrsMetadata {
 	public ItemCode(String code, String name) {
 		super();
 
-		this.code = code;
+		setCode(code);
 		setName(name);
 	}
 
@@ -60,5 +63,27 @@ public class ItemCode extends BaseSerializableOpenmrsMetadata {
 
 	public void setCode(String code) {
 		this.code = code;
+		this.normalizedCode = normalize(code);
+	}
+
+	/**
+	 * Gets the trimmed, upper case form of the code that is used to look up items by code.
+	 * @return The normalized code.
+	 */
+	public String getNormalizedCode() {
+		return normalizedCode;
+	}
+
+	protected void setNormalizedCode(String normalizedCode) {
+		this.normalizedCode = normalizedCode;
+	}
+
+	/**
+	 * Normalizes the specified code so that codes that differ only by case or surrounding whitespace are the same.
+	 * @param code The code to normalize.
+	 * @return The normalized code or {@code null} if the code is {@code null}.
+	 */
+	public static String normalize(String code) {
+		return code == null ? null : code.trim().toUpperCase(Locale.ENGLISH);
 	}
 }
@@ -15,8 +15,14 @@ package org.openmrs.module.openhmis.inventory.api.model;
 
 import org.openmrs.BaseOpenmrsObject;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Model class that represents item stock in a stockroom.  The item stock quantity is the overall item quantity in the
@@ -27,11 +33,73 @@ public class ItemStock extends BaseOpenmrsObject
 	implements Comparable<ItemStock> {
 	public static final long serialVersionUID = 1L;
 
+	/**
+	 * Orders the details in the expiration indexes by expiration (earliest first, details without an expiration last),
+	 * then by the batch operation date (oldest first, details without a batch last), and finally by uuid so that the
+	 * order is total.
+	 */
+	private static final Comparator<ItemStockDetail> INDEX_ORDER = new Comparator<ItemStockDetail>() {
+		@Override
+		public int compare(ItemStockDetail o1, ItemStockDetail o2) {
+			return compareDetails(o1, o2, Long.MAX_VALUE);
+		}
+	};
+
+	/**
+	 * Creates a comparator that orders item stock details by expiration (earliest first), then by the batch operation
+	 * date (oldest first, details without a batch last), and finally by uuid so that the order is total. Details without
+	 * an expiration are ordered as if they expire at the specified time.
+	 * @param now The time used for details without an expiration.
+	 * @return The expiration comparator.
+	 */
+	public static Comparator<ItemStockDetail> createExpirationOrder(final Date now) {
+		return new Comparator<ItemStockDetail>() {
+			@Override
+			public int compare(ItemStockDetail o1, ItemStockDetail o2) {
+				return compareDetails(o1, o2, now.getTime());
+			}
+		};
+	}
+
+	private static int compareDetails(ItemStockDetail o1, ItemStockDetail o2, long now) {
+		int result = compareTimes(getExpirationTime(o1, now), getExpirationTime(o2, now));
+
+		if (result == 0) {
+			result = compareTimes(getBatchTime(o1), getBatchTime(o2));
+		}
+
+		if (result == 0) {
+			result = o1.getUuid().compareTo(o2.getUuid());
+		}
+
+		return result;
+	}
+
+	private static long getExpirationTime(ItemStockDetail detail, long now) {
+		return detail.getExpiration() == null ? now : detail.getExpiration().getTime();
+	}
+
+	private static long getBatchTime(ItemStockDetail detail) {
+		// Details without a batch are ordered after the details with a batch
+		return detail.getBatchOperation() == null || detail.getBatchOperation().getOperationDate() == null ?
+				Long.MAX_VALUE : detail.getBatchOperation().getOperationDate().getTime();
+	}
+
+	private static int compareTimes(long t1, long t2) {
+		return t1 < t2 ? -1 : (t1 == t2 ? 0 : 1);
+	}
+
 	private Integer stockroomItemId;
 	private Stockroom stockroom;
 	private Item item;
 	private int quantity;
 	private Set<ItemStockDetail> details;
+	private Integer version;
+
+	// Indexes of the details in expiration order, split by whether the detail has an expiration so that details without
+	//  an expiration can be treated as expiring now. They are not persisted and are built when first used.
+	private transient TreeSet<ItemStockDetail> expiringDetails;
+	private transient TreeSet<ItemStockDetail> nonExpiringDetails;
 
 	public ItemStock() {}
 
@@ -83,6 +151,14 @@ public class ItemStock extends BaseOpenmrsObject
 		this.quantity = quantity;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	public ItemStockDetail addDetail(ItemStockDetail detail) {
 		if (detail == null) {
 			throw new IllegalArgumentException("The detail record to add must be defined");
@@ -94,6 +170,7 @@ public class ItemStock extends BaseOpenmrsObject
 
 		detail.setItemStock(this);
 		details.add(detail);
+		indexDetail(detail);
 
 		return detail;
 	}
@@ -104,17 +181,130 @@ public class ItemStock extends BaseOpenmrsObject
 				return;
 			}
 
+			unindexDetail(detail);
 			detail.setItemStock(null);
 			details.remove(detail);
 		}
 	}
 
+	/**
+	 * Gets the item stock details. Details should be added and removed via {@link #addDetail(ItemStockDetail)} and
+	 * {@link #removeDetail(ItemStockDetail)} so that the expiration index stays in sync.
+	 * @return The item stock details.
+	 */
 	public Set<ItemStockDetail> getDetails() {
 		return details;
 	}
 
 	public void setDetails(Set<ItemStockDetail> details) {
 		this.details = details;
+		this.expiringDetails = null;
+		this.nonExpiringDetails = null;
+	}
+
+	/**
+	 * Gets the item stock details in expiration order. The first detail is the one that should be used first when
+	 * allocating stock (first-expiry-first-out). Details without an expiration are ordered as if they expire now.
+	 * @return A new list containing the details in expiration order.
+	 */
+	public List<ItemStockDetail> getDetailsByExpiration() {
+		List<ItemStockDetail> results = new ArrayList<ItemStockDetail>(details == null ? 0 : details.size());
+		if (details == null || details.size() == 0) {
+			return results;
+		}
+
+		buildIndex();
+
+		// Merge the two indexes, placing the details without an expiration at the current time
+		long now = System.currentTimeMillis();
+		Iterator<ItemStockDetail> expiring = expiringDetails.iterator();
+		Iterator<ItemStockDetail> nonExpiring = nonExpiringDetails.iterator();
+		ItemStockDetail nextExpiring = expiring.hasNext() ? expiring.next() : null;
+		ItemStockDetail nextNonExpiring = nonExpiring.hasNext() ? nonExpiring.next() : null;
+		while (nextExpiring != null || nextNonExpiring != null) {
+			if (nextNonExpiring == null
+					|| (nextExpiring != null && compareDetails(nextExpiring, nextNonExpiring, now) < 0)) {
+				results.add(nextExpiring);
+				nextExpiring = expiring.hasNext() ? expiring.next() : null;
+			} else {
+				results.add(nextNonExpiring);
+				nextNonExpiring = nonExpiring.hasNext() ? nonExpiring.next() : null;
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Gets the detail with the closest expiration, using the oldest batch when more than one detail has the same
+	 * expiration. Details without an expiration are treated as expiring now.
+	 * @return The first expiring detail or {@code null} if there are no details.
+	 */
+	public ItemStockDetail getFirstExpiringDetail() {
+		if (details == null || details.size() == 0) {
+			return null;
+		}
+
+		buildIndex();
+		ItemStockDetail first = findFirstExpiringDetail();
+		if (first != null && !details.contains(first)) {
+			// The details were changed without going through this class so the index must be rebuilt
+			expiringDetails = null;
+			buildIndex();
+			first = findFirstExpiringDetail();
+		}
+
+		return first;
+	}
+
+	private ItemStockDetail findFirstExpiringDetail() {
+		ItemStockDetail expiring = expiringDetails.isEmpty() ? null : expiringDetails.first();
+		ItemStockDetail nonExpiring = nonExpiringDetails.isEmpty() ? null : nonExpiringDetails.first();
+		if (expiring == null || nonExpiring == null) {
+			return expiring == null ? nonExpiring : expiring;
+		}
+
+		return compareDetails(expiring, nonExpiring, System.currentTimeMillis()) <= 0 ? expiring : nonExpiring;
+	}
+
+	private void buildIndex() {
+		// Rebuild the index if it has not been created or the number of details was changed outside of this class
+		int size = details == null ? 0 : details.size();
+		if (expiringDetails == null || expiringDetails.size() + nonExpiringDetails.size() != size) {
+			expiringDetails = new TreeSet<ItemStockDetail>(INDEX_ORDER);
+			nonExpiringDetails = new TreeSet<ItemStockDetail>(INDEX_ORDER);
+
+			if (details != null) {
+				for (ItemStockDetail detail : details) {
+					getIndex(detail).add(detail);
+				}
+			}
+		}
+	}
+
+	private TreeSet<ItemStockDetail> getIndex(ItemStockDetail detail) {
+		return detail.getExpiration() == null ? nonExpiringDetails : expiringDetails;
+	}
+
+	/**
+	 * Adds the detail to the expiration index, if the index has been built. This is called by the detail after its
+	 * expiration or batch has been changed.
+	 * @param detail The detail to index.
+	 */
+	void indexDetail(ItemStockDetail detail) {
+		if (expiringDetails != null && details != null && details.contains(detail)) {
+			getIndex(detail).add(detail);
+		}
+	}
+
+	/**
+	 * Removes the detail from the expiration index. This is called by the detail before its expiration or batch is
+	 * changed, as the index can only find the detail by its current expiration and batch.
+	 * @param detail The detail to remove from the index.
+	 * @return {@code true} if the detail was in the index; otherwise, {@code false}.
+	 */
+	boolean unindexDetail(ItemStockDetail detail) {
+		return expiringDetails != null && getIndex(detail).remove(detail);
 	}
 
 	@Override
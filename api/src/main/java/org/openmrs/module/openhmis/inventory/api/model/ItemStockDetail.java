@@ -23,6 +23,7 @@ public class ItemStockDetail extends ItemStockDetailBase {
 
 	private ItemStock itemStock;
 	private Stockroom stockroom;
+	private Integer version;
 
 	/**
 	 * Creates a new empty {@link ItemStockDetail} object.
@@ -92,6 +93,32 @@ public class ItemStockDetail extends ItemStockDetailBase {
 		this.itemStock = itemStock;
 	}
 
+	/**
+	 * Sets the item expiration date, keeping the expiration index of the parent {@link ItemStock} in sync.
+	 * @param expiration The item expiration date or {@code null} if there is no expiration.
+	 */
+	@Override
+	public void setExpiration(Date expiration) {
+		boolean indexed = itemStock != null && itemStock.unindexDetail(this);
+		super.setExpiration(expiration);
+		if (indexed) {
+			itemStock.indexDetail(this);
+		}
+	}
+
+	/**
+	 * Sets the batch operation, keeping the expiration index of the parent {@link ItemStock} in sync.
+	 * @param batchOperation The batch operation or {@code null} if it is unknown.
+	 */
+	@Override
+	public void setBatchOperation(StockOperation batchOperation) {
+		boolean indexed = itemStock != null && itemStock.unindexDetail(this);
+		super.setBatchOperation(batchOperation);
+		if (indexed) {
+			itemStock.indexDetail(this);
+		}
+	}
+
 	/**
 	 * Gets the stockroom.
 	 * @return The stockroom.
@@ -107,5 +134,21 @@ public class ItemStockDetail extends ItemStockDetailBase {
 	public void setStockroom(Stockroom stockroom) {
 		this.stockroom = stockroom;
 	}
-}
 
+	/**
+	 * Gets the optimistic locking version of this detail. The version is incremented by Hibernate each time the detail
+	 * is updated.
+	 * @return The version or {@code null} if the detail has not been saved.
+	 */
+	public Integer getVersion() {
+		return version;
+	}
+
+	/**
+	 * Sets the optimistic locking version of this detail.
+	 * @param version The version.
+	 */
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+}
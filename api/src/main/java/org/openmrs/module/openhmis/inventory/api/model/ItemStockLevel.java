@@ -0,0 +1,164 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+import org.openmrs.BaseOpenmrsObject;
+
+/**
+ * Model class that represents the minimum and reorder levels for an item in a stockroom. The levels are stored
+ * separately from the {@link ItemStock} because the item stock is removed when the quantity reaches zero.
+ *
+ * The status is updated whenever the item stock quantity changes so that the items that are low on stock can be found
+ * without checking the quantity of every item stock.
+ */
+public class ItemStockLevel extends BaseOpenmrsObject {
+	public static final long serialVersionUID = 0L;
+
+	private Integer id;
+	private Stockroom stockroom;
+	private Item item;
+	private Integer minimumQuantity;
+	private Integer reorderQuantity;
+	private ItemStockLevelStatus status = ItemStockLevelStatus.NORMAL;
+	private Date statusDate = new Date();
+	private Integer version;
+
+	public ItemStockLevel() { }
+
+	public ItemStockLevel(Stockroom stockroom, Item item, Integer minimumQuantity, Integer reorderQuantity) {
+		this.stockroom = stockroom;
+		this.item = item;
+		this.minimumQuantity = minimumQuantity;
+		this.reorderQuantity = reorderQuantity;
+	}
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Stockroom getStockroom() {
+		return stockroom;
+	}
+
+	public void setStockroom(Stockroom stockroom) {
+		this.stockroom = stockroom;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	/**
+	 * Gets the minimum quantity that should be kept in the stockroom.
+	 * @return The minimum quantity or {@code null} if there is no minimum.
+	 */
+	public Integer getMinimumQuantity() {
+		return minimumQuantity;
+	}
+
+	public void setMinimumQuantity(Integer minimumQuantity) {
+		this.minimumQuantity = minimumQuantity;
+	}
+
+	/**
+	 * Gets the quantity at or below which the item should be reordered.
+	 * @return The reorder quantity or {@code null} if there is no reorder level.
+	 */
+	public Integer getReorderQuantity() {
+		return reorderQuantity;
+	}
+
+	public void setReorderQuantity(Integer reorderQuantity) {
+		this.reorderQuantity = reorderQuantity;
+	}
+
+	public ItemStockLevelStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(ItemStockLevelStatus status) {
+		this.status = status;
+	}
+
+	/**
+	 * Gets the date that the status last changed.
+	 * @return The status date.
+	 */
+	public Date getStatusDate() {
+		return statusDate;
+	}
+
+	public void setStatusDate(Date statusDate) {
+		this.statusDate = statusDate;
+	}
+
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
+	/**
+	 * Gets the status for the specified item stock quantity.
+	 * @param quantity The item stock quantity.
+	 * @return The status for the quantity.
+	 * @should return below minimum if the quantity is less than the minimum quantity
+	 * @should return reorder if the quantity is at or below the reorder quantity
+	 * @should return normal if the quantity is above the levels
+	 * @should ignore levels that are not defined
+	 */
+	public ItemStockLevelStatus calculateStatus(int quantity) {
+		if (minimumQuantity != null && quantity < minimumQuantity) {
+			return ItemStockLevelStatus.BELOW_MINIMUM;
+		} else if (reorderQuantity != null && quantity <= reorderQuantity) {
+			return ItemStockLevelStatus.REORDER;
+		} else {
+			return ItemStockLevelStatus.NORMAL;
+		}
+	}
+
+	/**
+	 * Recalculates the status for the specified item stock quantity. The level is only changed when a level is crossed
+	 * so that a level that is already loaded does not need to be written when the status stays the same.
+	 * @param quantity The item stock quantity.
+	 * @return {@code true} if the status was changed; otherwise, {@code false}.
+	 * @should change the status and status date when a level is crossed
+	 * @should not change the status date when no level is crossed
+	 */
+	public boolean updateStatus(int quantity) {
+		ItemStockLevelStatus newStatus = calculateStatus(quantity);
+		if (newStatus == status) {
+			return false;
+		}
+
+		status = newStatus;
+		statusDate = new Date();
+
+		return true;
+	}
+}
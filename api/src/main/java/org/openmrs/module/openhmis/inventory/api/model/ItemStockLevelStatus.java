@@ -0,0 +1,34 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+/**
+ * The stock level of an item in a stockroom relative to the levels defined by the {@link ItemStockLevel}.
+ */
+public enum ItemStockLevelStatus {
+	/**
+	 * The quantity is above the reorder level.
+	 */
+	NORMAL(),
+	/**
+	 * The quantity is at or below the reorder level and the item should be reordered.
+	 */
+	REORDER(),
+	/**
+	 * The quantity is below the minimum level.
+	 */
+	BELOW_MINIMUM();
+
+	private ItemStockLevelStatus() { }
+}
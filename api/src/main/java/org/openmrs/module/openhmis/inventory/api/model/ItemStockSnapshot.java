@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+import org.openmrs.BaseOpenmrsObject;
+
+/**
+ * Model class that represents the quantity of an item stock detail in a {@link StockroomSnapshot}.
+ */
+public class ItemStockSnapshot extends BaseOpenmrsObject {
+	public static final long serialVersionUID = 0L;
+
+	private Integer id;
+	private StockroomSnapshot snapshot;
+	private Item item;
+	private Date expiration;
+	private StockOperation batchOperation;
+	private Integer quantity;
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public StockroomSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(StockroomSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public Date getExpiration() {
+		return expiration;
+	}
+
+	public void setExpiration(Date expiration) {
+		this.expiration = expiration;
+	}
+
+	public StockOperation getBatchOperation() {
+		return batchOperation;
+	}
+
+	public void setBatchOperation(StockOperation batchOperation) {
+		this.batchOperation = batchOperation;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+}
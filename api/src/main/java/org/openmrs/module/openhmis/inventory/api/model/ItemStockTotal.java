@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import org.openmrs.BaseOpenmrsObject;
+
+/**
+ * Model class that represents the total stock of an item across all the stockrooms. The totals are maintained as the
+ * stock operation transactions are applied so that the facility-wide stock of an item can be shown without loading
+ * the item stock for every stockroom.
+ */
+public class ItemStockTotal extends BaseOpenmrsObject {
+	public static final long serialVersionUID = 0L;
+
+	private Integer id;
+	private Item item;
+	private int quantity;
+	private int reservedQuantity;
+	private int stockroomCount;
+
+	public ItemStockTotal() { }
+
+	public ItemStockTotal(Item item, int quantity, int reservedQuantity, int stockroomCount) {
+		this.item = item;
+		this.quantity = quantity;
+		this.reservedQuantity = reservedQuantity;
+		this.stockroomCount = stockroomCount;
+	}
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	/**
+	 * Gets the total quantity of the item in all the stockrooms.
+	 * @return The total on-hand quantity.
+	 */
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	/**
+	 * Gets the quantity of the item that has been reserved from a source stockroom by operations that are still
+	 * pending. This stock has already been removed from the source stockroom quantity.
+	 * @return The reserved quantity.
+	 */
+	public int getReservedQuantity() {
+		return reservedQuantity;
+	}
+
+	public void setReservedQuantity(int reservedQuantity) {
+		this.reservedQuantity = reservedQuantity;
+	}
+
+	/**
+	 * Gets the number of stockrooms that have stock of the item.
+	 * @return The stockroom count.
+	 */
+	public int getStockroomCount() {
+		return stockroomCount;
+	}
+
+	public void setStockroomCount(int stockroomCount) {
+		this.stockroomCount = stockroomCount;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+import org.openmrs.BaseOpenmrsObject;
+
+/**
+ * Model class that represents a change to the item stock in a stockroom. The events are written to an outbox table in
+ * the same transaction as the stock change so that downstream consumers can read the changes in event id order from
+ * their own {@link StockChangeEventConsumer} position, rather than re-reading the stock operation transactions.
+ */
+public class StockChangeEvent extends BaseOpenmrsObject {
+	public static final long serialVersionUID = 0L;
+
+	private Integer id;
+	private Stockroom stockroom;
+	private Item item;
+	private StockOperation operation;
+	private Integer quantity;
+	private Integer resultingQuantity;
+	private Date dateCreated = new Date();
+
+	public StockChangeEvent() { }
+
+	public StockChangeEvent(Stockroom stockroom, Item item, StockOperation operation, int quantity,
+			int resultingQuantity) {
+		this.stockroom = stockroom;
+		this.item = item;
+		this.operation = operation;
+		this.quantity = quantity;
+		this.resultingQuantity = resultingQuantity;
+	}
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Stockroom getStockroom() {
+		return stockroom;
+	}
+
+	public void setStockroom(Stockroom stockroom) {
+		this.stockroom = stockroom;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public StockOperation getOperation() {
+		return operation;
+	}
+
+	public void setOperation(StockOperation operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * Gets the change in the item stock quantity. This is negative when stock was removed from the stockroom.
+	 * @return The quantity change.
+	 */
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+
+	/**
+	 * Gets the item stock quantity in the stockroom after the change was applied.
+	 * @return The resulting item stock quantity.
+	 */
+	public Integer getResultingQuantity() {
+		return resultingQuantity;
+	}
+
+	public void setResultingQuantity(Integer resultingQuantity) {
+		this.resultingQuantity = resultingQuantity;
+	}
+
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+
+	public void setDateCreated(Date dateCreated) {
+		this.dateCreated = dateCreated;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+/**
+ * Model class that records how far a consumer has read the {@link StockChangeEvent} outbox. Each consumer has its own
+ * position so that consumers read the events independently and an event can be purged once every consumer has read it.
+ */
+public class StockChangeEventConsumer {
+	private Integer id;
+	private String name;
+	private Integer lastEventId = 0;
+	private Date dateChanged = new Date();
+
+	public StockChangeEventConsumer() { }
+
+	public StockChangeEventConsumer(String name, int lastEventId) {
+		this.name = name;
+		this.lastEventId = lastEventId;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Gets the id of the last event that the consumer has processed. Zero means that the consumer has not processed any
+	 * events.
+	 * @return The last processed event id.
+	 */
+	public Integer getLastEventId() {
+		return lastEventId;
+	}
+
+	public void setLastEventId(Integer lastEventId) {
+		this.lastEventId = lastEventId;
+	}
+
+	public Date getDateChanged() {
+		return dateChanged;
+	}
+
+	public void setDateChanged(Date dateChanged) {
+		this.dateChanged = dateChanged;
+	}
+}
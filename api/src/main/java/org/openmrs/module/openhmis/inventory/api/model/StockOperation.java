@@ -1,5 +1,6 @@
 package org.openmrs.module.openhmis.inventory.api.model;
 
+import org.apache.commons.lang.StringUtils;
 import org.openmrs.Patient;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.entity.model.BaseCustomizableInstanceMetadata;
@@ -31,9 +32,12 @@ public class StockOperation
 	private Set<StockOperationItem> items;
 	private Set<ReservedTransaction> reserved;
 	private Set<StockOperationTransaction> transactions;
+	private Set<StockOperationSubmission> submissions;
 
 	private String operationNumber;
 	private Date operationDate;
+	private String idempotencyKey;
+	private String submissionError;
 	protected Stockroom source;
 	protected Stockroom destination;
 	protected Patient patient;
@@ -73,6 +77,34 @@ public class StockOperation
 		this.operationDate = operationDate;
 	}
 
+	/**
+	 * Gets the client supplied key that identifies the current submission of this operation. The key is not stored with
+	 * the operation; it is recorded as a {@link StockOperationSubmission} when the submission is processed so that a
+	 * submission that is retried with the same key returns the operation rather than processing it again.
+	 * @return The idempotency key or {@code null} if the submission is not keyed.
+	 */
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
+
+	/**
+	 * Gets the reason that the last asynchronous submission of this operation failed. The operation is returned to the
+	 * {@link StockOperationStatus#NEW} status when the submission fails so this is used to tell a failed submission
+	 * from an operation that has not yet been queued.
+	 * @return The submission error or {@code null} if the last submission did not fail.
+	 */
+	public String getSubmissionError() {
+		return submissionError;
+	}
+
+	public void setSubmissionError(String submissionError) {
+		this.submissionError = submissionError;
+	}
+
 	public Stockroom getSource() {
 		return source;
 	}
@@ -299,6 +331,34 @@ public class StockOperation
 		this.transactions = transactions;
 	}
 	
+	/**
+	 * Records the processing of the current submission of this operation with the specified idempotency key.
+	 * @param idempotencyKey The submission idempotency key.
+	 * @return The new submission record.
+	 */
+	public StockOperationSubmission addSubmission(String idempotencyKey) {
+		if (StringUtils.isEmpty(idempotencyKey)) {
+			throw new IllegalArgumentException("The submission idempotency key must be defined.");
+		}
+
+		if (submissions == null) {
+			submissions = new HashSet<StockOperationSubmission>();
+		}
+
+		StockOperationSubmission submission = new StockOperationSubmission(this, idempotencyKey);
+		submissions.add(submission);
+
+		return submission;
+	}
+
+	public Set<StockOperationSubmission> getSubmissions() {
+		return submissions;
+	}
+
+	public void setSubmissions(Set<StockOperationSubmission> submissions) {
+		this.submissions = submissions;
+	}
+
 	public boolean hasReservedTransactions() {
 		return (getReserved() != null && getReserved().size() > 0);
 	}
@@ -8,6 +8,10 @@ public enum StockOperationStatus {
 	 * The operation is being created but has not yet been submitted.
 	 */
 	NEW(),
+	/**
+	 * The operation has been queued to be submitted asynchronously by the worker for its stockroom.
+	 */
+	QUEUED(),
 	/**
 	 * The operation has been requested but not yet started.
 	 */
@@ -0,0 +1,81 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+/**
+ * Model class that records a keyed submission of a {@link StockOperation}. Each submission of an operation (for example,
+ * creating it and later completing it) is sent with its own idempotency key so that a retried submission can be
+ * recognised and the operation returned without being processed again.
+ */
+public class StockOperationSubmission {
+	private Integer id;
+	private StockOperation operation;
+	private String idempotencyKey;
+	private StockOperationStatus status;
+	private Date dateCreated = new Date();
+
+	public StockOperationSubmission() { }
+
+	public StockOperationSubmission(StockOperation operation, String idempotencyKey) {
+		this.operation = operation;
+		this.idempotencyKey = idempotencyKey;
+		this.status = operation.getStatus();
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public StockOperation getOperation() {
+		return operation;
+	}
+
+	public void setOperation(StockOperation operation) {
+		this.operation = operation;
+	}
+
+	public String getIdempotencyKey() {
+		return idempotencyKey;
+	}
+
+	public void setIdempotencyKey(String idempotencyKey) {
+		this.idempotencyKey = idempotencyKey;
+	}
+
+	/**
+	 * Gets the status of the operation after the submission was processed.
+	 * @return The operation status.
+	 */
+	public StockOperationStatus getStatus() {
+		return status;
+	}
+
+	public void setStatus(StockOperationStatus status) {
+		this.status = status;
+	}
+
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+
+	public void setDateCreated(Date dateCreated) {
+		this.dateCreated = dateCreated;
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Model class that represents the result of submitting a batch of {@link StockOperation}'s. Each operation is either
+ * submitted or failed, in which case the exception that caused the failure is recorded.
+ */
+public class StockOperationSubmissionResult {
+	private List<StockOperation> submitted = new ArrayList<StockOperation>();
+	private Map<StockOperation, Exception> failures = new LinkedHashMap<StockOperation, Exception>();
+
+	public void addSubmitted(StockOperation operation) {
+		submitted.add(operation);
+	}
+
+	public void addFailure(StockOperation operation, Exception ex) {
+		failures.put(operation, ex);
+	}
+
+	/**
+	 * Gets the operations that were successfully submitted, in the order they were submitted.
+	 * @return The submitted operations.
+	 */
+	public List<StockOperation> getSubmitted() {
+		return Collections.unmodifiableList(submitted);
+	}
+
+	/**
+	 * Gets the operations that could not be submitted along with the exception that caused each failure.
+	 * @return The failed operations.
+	 */
+	public Map<StockOperation, Exception> getFailures() {
+		return Collections.unmodifiableMap(failures);
+	}
+
+	public boolean hasFailures() {
+		return failures.size() > 0;
+	}
+
+	public boolean isFailed(StockOperation operation) {
+		return failures.containsKey(operation);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+import org.openmrs.BaseOpenmrsObject;
+
+/**
+ * Model class that represents the total of the compacted {@link StockOperationTransaction}'s for an item and batch in a
+ * stockroom during a month. The original transactions are moved to the transaction archive when they are compacted.
+ */
+public class StockOperationTransactionRollup extends BaseOpenmrsObject {
+	public static final long serialVersionUID = 0L;
+
+	private Integer id;
+	private Stockroom stockroom;
+	private Item item;
+	private StockOperation batchOperation;
+	private Date month;
+	private Integer quantity;
+	private Integer transactionCount;
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Stockroom getStockroom() {
+		return stockroom;
+	}
+
+	public void setStockroom(Stockroom stockroom) {
+		this.stockroom = stockroom;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public StockOperation getBatchOperation() {
+		return batchOperation;
+	}
+
+	public void setBatchOperation(StockOperation batchOperation) {
+		this.batchOperation = batchOperation;
+	}
+
+	/**
+	 * Gets the first day of the month that the transactions were created in.
+	 * @return The rollup month.
+	 */
+	public Date getMonth() {
+		return month;
+	}
+
+	public void setMonth(Date month) {
+		this.month = month;
+	}
+
+	public Integer getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(Integer quantity) {
+		this.quantity = quantity;
+	}
+
+	public Integer getTransactionCount() {
+		return transactionCount;
+	}
+
+	public void setTransactionCount(Integer transactionCount) {
+		this.transactionCount = transactionCount;
+	}
+}
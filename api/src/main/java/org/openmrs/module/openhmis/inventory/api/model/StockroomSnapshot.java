@@ -0,0 +1,82 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openmrs.BaseOpenmrsObject;
+
+/**
+ * Model class that represents the item stock quantities in a stockroom at a point in time. The stock in the stockroom at
+ * any later time can be calculated from the snapshot and the transactions that were created after it.
+ */
+public class StockroomSnapshot extends BaseOpenmrsObject {
+	public static final long serialVersionUID = 0L;
+
+	private Integer id;
+	private Stockroom stockroom;
+	private Date snapshotDate;
+	private Set<ItemStockSnapshot> items;
+
+	@Override
+	public Integer getId() {
+		return id;
+	}
+
+	@Override
+	public void setId(Integer id) {
+		this.id = id;
+	}
+
+	public Stockroom getStockroom() {
+		return stockroom;
+	}
+
+	public void setStockroom(Stockroom stockroom) {
+		this.stockroom = stockroom;
+	}
+
+	public Date getSnapshotDate() {
+		return snapshotDate;
+	}
+
+	public void setSnapshotDate(Date snapshotDate) {
+		this.snapshotDate = snapshotDate;
+	}
+
+	public Set<ItemStockSnapshot> getItems() {
+		return items;
+	}
+
+	public void setItems(Set<ItemStockSnapshot> items) {
+		this.items = items;
+	}
+
+	public ItemStockSnapshot addItem(ItemStockSnapshot item) {
+		if (item == null) {
+			throw new NullPointerException("The item snapshot must be defined.");
+		}
+
+		if (items == null) {
+			items = new HashSet<ItemStockSnapshot>();
+		}
+
+		item.setSnapshot(this);
+		items.add(item);
+
+		return item;
+	}
+}
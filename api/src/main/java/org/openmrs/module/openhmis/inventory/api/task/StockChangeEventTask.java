@@ -0,0 +1,53 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.task;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDispatcher;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+/**
+ * Scheduled task that delivers any stock change events that the listeners have not yet processed and then purges the
+ * events that every consumer has processed. The dispatcher normally delivers the events as soon as they are committed;
+ * this task delivers the events that were missed, for example, because the server was restarted.
+ */
+public class StockChangeEventTask extends AbstractTask {
+	private static final Log LOG = LogFactory.getLog(StockChangeEventTask.class);
+
+	@Override
+	public void execute() {
+		if (isExecuting) {
+			return;
+		}
+
+		startExecuting();
+		try {
+			for (IStockChangeEventDispatcher dispatcher : Context.getRegisteredComponents(IStockChangeEventDispatcher.class)) {
+				dispatcher.poll();
+			}
+
+			int purged = Context.getService(IStockChangeEventDataService.class).purgeConsumedEvents();
+			if (purged > 0) {
+				LOG.info("Purged " + purged + " processed stock change event(s).");
+			}
+		} catch (Exception ex) {
+			LOG.error("Could not deliver the stock change events.", ex);
+		} finally {
+			stopExecuting();
+		}
+	}
+}
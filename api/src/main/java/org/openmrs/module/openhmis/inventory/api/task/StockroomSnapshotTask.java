@@ -0,0 +1,51 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.task;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockroomSnapshotDataService;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+/**
+ * Scheduled task that takes a snapshot of the item stock in each stockroom. Historical stock quantities are calculated
+ * from the most recent snapshot so the task interval bounds the number of transactions that must be replayed.
+ */
+public class StockroomSnapshotTask extends AbstractTask {
+	private static final Log LOG = LogFactory.getLog(StockroomSnapshotTask.class);
+
+	@Override
+	public void execute() {
+		if (isExecuting) {
+			return;
+		}
+
+		startExecuting();
+		try {
+			IStockroomSnapshotDataService snapshotService = Context.getService(IStockroomSnapshotDataService.class);
+			for (Stockroom stockroom : Context.getService(IStockroomDataService.class).getAll()) {
+				try {
+					snapshotService.createSnapshot(stockroom);
+				} catch (Exception ex) {
+					LOG.error("Could not create the snapshot for stockroom '" + stockroom.getName() + "'.", ex);
+				}
+			}
+		} finally {
+			stopExecuting();
+		}
+	}
+}
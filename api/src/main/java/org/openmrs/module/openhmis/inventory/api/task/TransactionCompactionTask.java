@@ -0,0 +1,63 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.task;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
+import org.openmrs.module.openhmis.inventory.api.IStockOperationTransactionDataService;
+import org.openmrs.scheduler.tasks.AbstractTask;
+
+/**
+ * Scheduled task that compacts the stock transactions older than the configured number of months into monthly rollups.
+ * The horizon is always the start of a month so that a month is never split between the rollups and the transactions.
+ */
+public class TransactionCompactionTask extends AbstractTask {
+	private static final Log LOG = LogFactory.getLog(TransactionCompactionTask.class);
+
+	@Override
+	public void execute() {
+		if (isExecuting) {
+			return;
+		}
+
+		startExecuting();
+		try {
+			Date horizon = getHorizon(ModuleSettings.getTransactionCompactionMonths());
+			int compacted = Context.getService(IStockOperationTransactionDataService.class).compactTransactions(horizon);
+
+			LOG.info("Compacted " + compacted + " stock transaction(s) created before " + horizon + ".");
+		} catch (Exception ex) {
+			LOG.error("Could not compact the stock transactions.", ex);
+		} finally {
+			stopExecuting();
+		}
+	}
+
+	protected static Date getHorizon(int months) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.DAY_OF_MONTH, 1);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.add(Calendar.MONTH, -months);
+
+		return calendar.getTime();
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+
+/**
+ * Writes export rows one at a time in the same formats that are read by {@link ImportReader}. CSV exports start with a
+ * header line with the column names.
+ */
+public class ExportWriter {
+	private final Writer writer;
+	private final ImportFormat format;
+	private final String[] columns;
+	private final ObjectMapper mapper;
+	private boolean header;
+	private int rows;
+
+	/**
+	 * Creates a new writer.
+	 * @param writer The writer for the export.
+	 * @param format The export format.
+	 * @param columns The export columns, in order.
+	 */
+	public ExportWriter(Writer writer, ImportFormat format, String... columns) {
+		if (writer == null) {
+			throw new IllegalArgumentException("The writer must be defined.");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("The export format must be defined.");
+		}
+
+		this.writer = writer;
+		this.format = format;
+		this.columns = columns;
+		this.mapper = format == ImportFormat.NDJSON ? new ObjectMapper() : null;
+	}
+
+	/**
+	 * Writes a row. The values must be in the same order as the columns; {@code null} values are written as empty CSV
+	 * values or JSON nulls.
+	 * @param values The row values.
+	 * @throws IOException
+	 * @should write the csv header before the first row
+	 * @should quote csv values that contain separators or quotes
+	 * @should write ndjson rows
+	 */
+	public void write(Object... values) throws IOException {
+		if (values.length != columns.length) {
+			throw new IllegalArgumentException("There must be a value for each of the " + columns.length + " columns.");
+		}
+
+		if (format == ImportFormat.CSV) {
+			writeHeader();
+			writeCsv(values);
+		} else {
+			Map<String, Object> row = new LinkedHashMap<String, Object>();
+			for (int i = 0; i < columns.length; i++) {
+				row.put(columns[i], values[i]);
+			}
+
+			writer.write(mapper.writeValueAsString(row));
+			writer.write('\n');
+		}
+
+		rows++;
+	}
+
+	/**
+	 * Gets the number of rows that have been written, not including the CSV header.
+	 * @return The number of rows.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Flushes the rows that have been written. The CSV header is written if no rows have been written so that an empty
+	 * CSV export still names the columns.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		if (format == ImportFormat.CSV) {
+			writeHeader();
+		}
+
+		writer.flush();
+	}
+
+	private void writeHeader() throws IOException {
+		if (!header) {
+			writeCsv(columns);
+			header = true;
+		}
+	}
+
+	private void writeCsv(Object[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write(',');
+			}
+
+			if (values[i] != null) {
+				String value = values[i].toString();
+				if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+						|| value.indexOf('\r') >= 0) {
+					writer.write('"');
+					writer.write(value.replace("\"", "\"\""));
+					writer.write('"');
+				} else {
+					writer.write(value);
+				}
+			}
+		}
+
+		writer.write('\n');
+	}
+}
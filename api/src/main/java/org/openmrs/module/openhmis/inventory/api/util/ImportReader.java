@@ -0,0 +1,230 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+
+/**
+ * Reads import rows one line at a time so that an import does not need to hold the whole file in memory. The row
+ * values are returned as they were read; it is up to the caller to validate them.
+ *
+ * Column names are matched without regard to case, spaces, or underscores so "itemCode", "Item Code", and "item_code"
+ * are the same column.
+ */
+public class ImportReader {
+	private final BufferedReader reader;
+	private final ImportFormat format;
+	private final List<String> defaultColumns;
+	private final ObjectMapper mapper;
+	private List<String> columns;
+	private int line;
+
+	/**
+	 * Creates a new reader.
+	 * @param reader The reader for the import.
+	 * @param format The import format.
+	 * @param defaultColumns The CSV columns, in order, used when the CSV does not have a header. A first line that
+	 * contains any of these column names is read as the header.
+	 */
+	public ImportReader(Reader reader, ImportFormat format, String... defaultColumns) {
+		if (reader == null) {
+			throw new IllegalArgumentException("The reader must be defined.");
+		}
+		if (format == null) {
+			throw new IllegalArgumentException("The import format must be defined.");
+		}
+
+		this.reader = reader instanceof BufferedReader ? (BufferedReader)reader : new BufferedReader(reader);
+		this.format = format;
+		this.mapper = format == ImportFormat.NDJSON ? new ObjectMapper() : null;
+
+		this.defaultColumns = new ArrayList<String>(defaultColumns.length);
+		for (String column : defaultColumns) {
+			this.defaultColumns.add(normalize(column));
+		}
+	}
+
+	/**
+	 * Reads the next row. Blank lines and the CSV header are skipped.
+	 * @return The next row or {@code null} if there are no more rows.
+	 * @throws IOException
+	 * @should read csv rows using the default columns
+	 * @should read csv rows using the header columns
+	 * @should skip blank lines
+	 * @should read quoted csv values
+	 * @should read ndjson rows
+	 * @should return a row with an error for malformed ndjson
+	 */
+	public Row next() throws IOException {
+		String text;
+		while ((text = reader.readLine()) != null) {
+			line++;
+			if (StringUtils.isBlank(text)) {
+				continue;
+			}
+
+			if (format == ImportFormat.CSV) {
+				List<String> values = splitCsv(text);
+				if (columns == null) {
+					if (isHeader(values)) {
+						columns = new ArrayList<String>(values.size());
+						for (String value : values) {
+							columns.add(normalize(value));
+						}
+
+						continue;
+					}
+
+					columns = defaultColumns;
+				}
+
+				Row row = new Row(line);
+				for (int i = 0; i < values.size() && i < columns.size(); i++) {
+					row.values.put(columns.get(i), StringUtils.trimToNull(values.get(i)));
+				}
+
+				return row;
+			} else {
+				return readJson(text);
+			}
+		}
+
+		return null;
+	}
+
+	private Row readJson(String text) {
+		JsonNode node;
+		try {
+			node = mapper.readTree(text);
+		} catch (IOException ex) {
+			node = null;
+		}
+
+		Row row = new Row(line);
+		if (node == null || !node.isObject()) {
+			row.error = "The line is not a valid JSON object.";
+
+			return row;
+		}
+
+		Iterator<Map.Entry<String, JsonNode>> fields = node.getFields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			row.values.put(normalize(field.getKey()), getText(field.getValue()));
+		}
+
+		return row;
+	}
+
+	private String getText(JsonNode node) {
+		if (node == null || node.isNull() || !node.isValueNode()) {
+			return null;
+		}
+
+		return StringUtils.trimToNull(node.isTextual() ? node.getTextValue() : node.toString());
+	}
+
+	private boolean isHeader(List<String> values) {
+		for (String value : values) {
+			if (defaultColumns.contains(normalize(value))) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private List<String> splitCsv(String text) {
+		List<String> values = new ArrayList<String>();
+		StringBuilder value = new StringBuilder();
+		boolean quoted = false;
+
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+						// An escaped quote
+						value.append(c);
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					value.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				values.add(value.toString());
+				value.setLength(0);
+			} else {
+				value.append(c);
+			}
+		}
+		values.add(value.toString());
+
+		return values;
+	}
+
+	private static String normalize(String column) {
+		return column == null ? "" : column.replace("_", "").replace(" ", "").trim().toLowerCase();
+	}
+
+	/**
+	 * A single row read from the import.
+	 */
+	public static class Row {
+		private final int line;
+		private final Map<String, String> values = new HashMap<String, String>();
+		private String error;
+
+		protected Row(int line) {
+			this.line = line;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		/**
+		 * Gets the value of the specified column.
+		 * @param column The column name.
+		 * @return The trimmed column value or {@code null} if the column is not defined or is empty.
+		 */
+		public String get(String column) {
+			return values.get(normalize(column));
+		}
+
+		/**
+		 * Gets the reason that the line could not be read, if any.
+		 * @return The error or {@code null} if the line was read.
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.util;
+
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+
+/**
+ * Paging information that controls how the total record count is loaded. Counting every matching row can cost more than
+ * loading the page itself so searches that only need to know if there is another page can skip the exact count.
+ */
+public class InventoryPagingInfo extends PagingInfo {
+	/**
+	 * The ways that the total record count can be loaded.
+	 */
+	public enum CountMode {
+		/**
+		 * Counts all the matching records.
+		 */
+		EXACT,
+		/**
+		 * Does not count the records. One more record than the page size is loaded to find out if there is another page
+		 * and the total record count is set to the number of records up to and including that record.
+		 */
+		PROBE,
+		/**
+		 * Uses a recently cached count for the same search if there is one; otherwise the records are counted and the
+		 * count is cached.
+		 */
+		CACHED
+	}
+
+	private CountMode countMode = CountMode.EXACT;
+	private boolean countEstimated;
+
+	public InventoryPagingInfo(int page, int pageSize) {
+		super(page, pageSize);
+	}
+
+	public InventoryPagingInfo(int page, int pageSize, CountMode countMode) {
+		super(page, pageSize);
+
+		setCountMode(countMode);
+	}
+
+	/**
+	 * Gets the count mode for the specified paging.
+	 * @param paging The paging information.
+	 * @return The paging count mode or {@link CountMode#EXACT} if the paging is not an {@link InventoryPagingInfo}.
+	 */
+	public static CountMode getCountMode(PagingInfo paging) {
+		return paging instanceof InventoryPagingInfo ? ((InventoryPagingInfo)paging).getCountMode() : CountMode.EXACT;
+	}
+
+	public CountMode getCountMode() {
+		return countMode;
+	}
+
+	public void setCountMode(CountMode countMode) {
+		this.countMode = countMode == null ? CountMode.EXACT : countMode;
+	}
+
+	/**
+	 * Gets whether the total record count is an estimate rather than an exact count.
+	 * @return {@code true} if the total record count is an estimate; otherwise, {@code false}.
+	 */
+	public boolean isCountEstimated() {
+		return countEstimated;
+	}
+
+	public void setCountEstimated(boolean countEstimated) {
+		this.countEstimated = countEstimated;
+	}
+}
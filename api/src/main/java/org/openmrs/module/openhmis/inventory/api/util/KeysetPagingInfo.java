@@ -0,0 +1,70 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.openhmis.inventory.api.util;
+
+/**
+ * Paging information for keyset (seek) paging. Rather than skipping a number of rows, each page continues from the last
+ * row of the previous page, so a deep page costs the same to load as the first page. The continuation for the next page
+ * is set when a page is loaded and is {@code null} when there are no more results.
+ */
+public class KeysetPagingInfo {
+	private int pageSize;
+	private String continuation;
+	private String nextContinuation;
+
+	public KeysetPagingInfo() {
+	}
+
+	/**
+	 * Creates a new keyset paging info.
+	 * @param pageSize The maximum number of results in the page.
+	 * @param continuation The continuation returned with the previous page or {@code null} for the first page.
+	 */
+	public KeysetPagingInfo(int pageSize, String continuation) {
+		this.pageSize = pageSize;
+		this.continuation = continuation;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	public String getContinuation() {
+		return continuation;
+	}
+
+	public void setContinuation(String continuation) {
+		this.continuation = continuation;
+	}
+
+	/**
+	 * Gets the continuation to request the next page with.
+	 * @return The next page continuation or {@code null} if there are no more results.
+	 */
+	public String getNextContinuation() {
+		return nextContinuation;
+	}
+
+	public void setNextContinuation(String nextContinuation) {
+		this.nextContinuation = nextContinuation;
+	}
+
+	public boolean hasMoreResults() {
+		return nextContinuation != null;
+	}
+}
@@ -0,0 +1,104 @@
+package org.openmrs.module.openhmis.inventory;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+public class ModuleSettingsTest extends BaseModuleContextSensitiveTest {
+	private AdministrationService adminService;
+
+	@Before
+	public void before() throws Exception {
+		adminService = Context.getAdministrationService();
+
+		ModuleSettings.invalidate();
+	}
+
+	/**
+	 * @verifies return the default when the property is not defined
+	 * @see ModuleSettings#getOperationBatchSize()
+	 */
+	@Test
+	public void getOperationBatchSize_shouldReturnTheDefaultWhenThePropertyIsNotDefined() throws Exception {
+		Assert.assertEquals(ModuleSettings.DEFAULT_OPERATION_BATCH_SIZE, ModuleSettings.getOperationBatchSize());
+	}
+
+	/**
+	 * @verifies return the updated value when the property is changed
+	 * @see ModuleSettings#getOperationBatchSize()
+	 */
+	@Test
+	public void getOperationBatchSize_shouldReturnTheUpdatedValueWhenThePropertyIsChanged() throws Exception {
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_BATCH_SIZE_PROPERTY, "10"));
+		Assert.assertEquals(10, ModuleSettings.getOperationBatchSize());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_BATCH_SIZE_PROPERTY, "20"));
+		Assert.assertEquals(20, ModuleSettings.getOperationBatchSize());
+	}
+
+	/**
+	 * @verifies return the default when the property is not a positive number
+	 * @see ModuleSettings#getOperationNumberBlockSize()
+	 */
+	@Test
+	public void getOperationNumberBlockSize_shouldReturnTheDefaultWhenThePropertyIsNotAPositiveNumber() throws Exception {
+		Assert.assertEquals(ModuleSettings.DEFAULT_OPERATION_NUMBER_BLOCK_SIZE, ModuleSettings.getOperationNumberBlockSize());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_NUMBER_BLOCK_SIZE_PROPERTY, "abc"));
+		Assert.assertEquals(ModuleSettings.DEFAULT_OPERATION_NUMBER_BLOCK_SIZE, ModuleSettings.getOperationNumberBlockSize());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_NUMBER_BLOCK_SIZE_PROPERTY, "0"));
+		Assert.assertEquals(ModuleSettings.DEFAULT_OPERATION_NUMBER_BLOCK_SIZE, ModuleSettings.getOperationNumberBlockSize());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_NUMBER_BLOCK_SIZE_PROPERTY, "100"));
+		Assert.assertEquals(100, ModuleSettings.getOperationNumberBlockSize());
+	}
+
+	/**
+	 * @verifies return null when operation numbers are not generated or the source is not a number
+	 * @see ModuleSettings#getOperationNumberIdentifierSourceId()
+	 */
+	@Test
+	public void getOperationNumberIdentifierSourceId_shouldReturnNullWhenOperationNumbersAreNotGeneratedOrTheSourceIsNotANumber()
+			throws Exception {
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY, "5"));
+		Assert.assertNull(ModuleSettings.getOperationNumberIdentifierSourceId());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.AUTO_GENERATE_OPERATION_NUMBER_PROPERTY, "true"));
+		Assert.assertEquals((Integer)5, ModuleSettings.getOperationNumberIdentifierSourceId());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY, "abc"));
+		Assert.assertNull(ModuleSettings.getOperationNumberIdentifierSourceId());
+	}
+
+	/**
+	 * @verifies clear the cached settings when a module property is changed
+	 * @see ModuleSettingsListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Test
+	public void globalPropertyChanged_shouldClearTheCachedSettingsWhenAModulePropertyIsChanged() throws Exception {
+		Assert.assertFalse(ModuleSettings.submitOperationsAsynchronously());
+
+		adminService.saveGlobalProperty(new GlobalProperty(ModuleSettings.SUBMIT_OPERATIONS_ASYNCHRONOUSLY_PROPERTY,
+				Boolean.TRUE.toString()));
+
+		Assert.assertTrue(ModuleSettings.submitOperationsAsynchronously());
+	}
+
+	/**
+	 * @verifies only support the module properties
+	 * @see ModuleSettingsListener#supportsPropertyName(String)
+	 */
+	@Test
+	public void supportsPropertyName_shouldOnlySupportTheModuleProperties() throws Exception {
+		ModuleSettingsListener listener = new ModuleSettingsListener();
+
+		Assert.assertTrue(listener.supportsPropertyName(ModuleSettings.IMPORT_BATCH_SIZE_PROPERTY));
+		Assert.assertFalse(listener.supportsPropertyName("locale.allowed.list"));
+		Assert.assertFalse(listener.supportsPropertyName(null));
+	}
+}
@@ -13,10 +13,13 @@
  */
 package org.openmrs.module.openhmis.inventory.api;
 
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import liquibase.util.StringUtils;
@@ -24,17 +27,26 @@ import liquibase.util.StringUtils;
 import org.junit.Assert;
 import org.junit.Test;
 import org.openmrs.Concept;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.IMetadataDataServiceTest;
 import org.openmrs.module.openhmis.commons.api.entity.search.BaseObjectTemplateSearch;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
 import org.openmrs.module.openhmis.commons.api.f.Action2;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
+import org.openmrs.module.openhmis.inventory.api.impl.ItemDataServiceImpl;
 import org.openmrs.module.openhmis.inventory.api.model.Category;
 import org.openmrs.module.openhmis.inventory.api.model.Department;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.ItemCode;
 import org.openmrs.module.openhmis.inventory.api.model.ItemPrice;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
+import org.openmrs.module.openhmis.inventory.api.util.InventoryPagingInfo;
 
 import com.google.common.collect.Iterators;
 
@@ -252,6 +264,53 @@ public class IItemDataServiceTest extends IMetadataDataServiceTest<IItemDataServ
 		Assert.assertEquals(lastItem.getId(), Iterators.getOnlyElement(results.iterator()).getId());
 	}
 	
+	/**
+	 * @verifies create an empty stock total for a new item
+	 * @see ItemDataServiceImpl#save(Item)
+	 */
+	@Test
+	public void save_shouldCreateAnEmptyStockTotalForANewItem() throws Exception {
+		Item item = service.save(createEntity(true));
+		Context.flushSession();
+
+		ItemStockTotal total = Context.getService(IItemStockDataService.class).getItemStockTotal(item);
+		Assert.assertNotNull(total);
+		Assert.assertEquals(0, total.getQuantity());
+		Assert.assertEquals(0, total.getReservedQuantity());
+		Assert.assertEquals(0, total.getStockroomCount());
+
+		// The total is also loaded with the item
+		Context.clearSession();
+		Assert.assertEquals(total.getId(), service.getById(item.getId()).getStockTotal().getId());
+	}
+
+	/**
+	 * @verifies throw APIException if the item has codes that only differ by case
+	 * @see ItemDataServiceImpl#save(Item)
+	 */
+	@Test(expected = APIException.class)
+	public void save_shouldThrowAPIExceptionIfTheItemHasCodesThatOnlyDifferByCase() throws Exception {
+		Item item = service.getById(0);
+		item.addCode("Same Code", " Item 1 Code");
+
+		service.save(item);
+	}
+
+	/**
+	 * @verifies purge the stock total of the item
+	 * @see ItemDataServiceImpl#purge(Item)
+	 */
+	@Test
+	public void purge_shouldPurgeTheStockTotalOfTheItem() throws Exception {
+		Item item = service.save(createEntity(true));
+		Context.flushSession();
+
+		service.purge(item);
+		Context.flushSession();
+
+		Assert.assertNull(Context.getService(IItemStockDataService.class).getItemStockTotal(item));
+	}
+
 	/**
 	 * @verifies throw IllegalArgumentException if the item code is null
 	 * @see IItemDataService#getItemByCode(String)
@@ -294,6 +353,227 @@ public class IItemDataServiceTest extends IMetadataDataServiceTest<IItemDataServ
 		Assert.assertNull(item);
 	}
 	
+	/**
+	 * @verifies ignore the case and surrounding whitespace of the item code
+	 * @see IItemDataService#getItemByCode(String)
+	 */
+	@Test
+	public void getItemByCode_shouldIgnoreTheCaseAndSurroundingWhitespaceOfTheItemCode() throws Exception {
+		Item item = service.getItemByCode(" ITEM 1 Code ");
+		Assert.assertNotNull(item);
+		
+		Assert.assertEquals(0, (int)item.getId());
+	}
+	
+	/**
+	 * @verifies return the item from the item code cache when it is enabled
+	 * @see IItemDataService#getItemByCode(String)
+	 */
+	@Test
+	public void getItemByCode_shouldReturnTheItemFromTheItemCodeCacheWhenItIsEnabled() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+				new GlobalProperty(ModuleSettings.CACHE_ITEM_CODES_PROPERTY, Boolean.TRUE.toString()));
+		ItemCodeCache.invalidate();
+		
+		Assert.assertEquals(1, (int)ItemCodeCache.getItemId("Item 2 Code"));
+		Assert.assertNull(ItemCodeCache.getItemId("not a valid code"));
+		
+		Item item = service.getItemByCode("item 2 code");
+		Assert.assertNotNull(item);
+		Assert.assertEquals(1, (int)item.getId());
+		Assert.assertNull(service.getItemByCode("not a valid code"));
+	}
+	
+	/**
+	 * @verifies find the item by a code that was changed after the cache was loaded
+	 * @see IItemDataService#getItemByCode(String)
+	 */
+	@Test
+	public void getItemByCode_shouldFindTheItemByACodeThatWasChangedAfterTheCacheWasLoaded() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+				new GlobalProperty(ModuleSettings.CACHE_ITEM_CODES_PROPERTY, Boolean.TRUE.toString()));
+		ItemCodeCache.invalidate();
+		Assert.assertEquals(1, (int)service.getItemByCode("item 2 code").getId());
+		
+		Item item = service.getById(1);
+		ItemCode code = Iterators.getOnlyElement(item.getCodes().iterator());
+		code.setCode("Scanned Code");
+		service.save(item);
+		Context.flushSession();
+		
+		Assert.assertEquals("SCANNED CODE", code.getNormalizedCode());
+		Assert.assertEquals(1, (int)service.getItemByCode("scanned code").getId());
+		Assert.assertNull(service.getItemByCode("item 2 code"));
+	}
+	
+	/**
+	 * @verifies not reload the item code cache when the item codes have not changed
+	 * @see ItemDataServiceImpl#save(Item)
+	 */
+	@Test
+	public void save_shouldNotReloadTheItemCodeCacheWhenTheItemCodesHaveNotChanged() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+				new GlobalProperty(ModuleSettings.CACHE_ITEM_CODES_PROPERTY, Boolean.TRUE.toString()));
+		ItemCodeCache.invalidate();
+		Assert.assertEquals(1, (int)ItemCodeCache.getItemId("item 2 code"));
+		
+		// Change the code without going through the service so that a reload of the cache would not find it
+		Context.getAdministrationService().executeSQL(
+				"update inv_item_code set normalized_code = 'CHANGED' where item_code_id = 1", false);
+		
+		Item item = service.getById(0);
+		item.setName("Updated Name");
+		service.save(item);
+		Context.flushSession();
+		Assert.assertEquals(1, (int)ItemCodeCache.getItemId("item 2 code"));
+		
+		item.addCode("new code", "New Code");
+		service.save(item);
+		Context.flushSession();
+		Assert.assertNull(ItemCodeCache.getItemId("item 2 code"));
+		Assert.assertEquals(0, (int)ItemCodeCache.getItemId("new code"));
+	}
+	
+	/**
+	 * @verifies ignore the case and surrounding whitespace of the item code
+	 * @see IItemDataService#getItemsByCode(String, boolean)
+	 */
+	@Test
+	public void getItemsByCode_shouldIgnoreTheCaseAndSurroundingWhitespaceOfTheItemCode() throws Exception {
+		List<Item> items = service.getItemsByCode(" ITEM 2 Code ", false);
+		
+		Assert.assertNotNull(items);
+		Assert.assertEquals(1, items.size());
+		Assert.assertEquals(1, (int)items.get(0).getId());
+		
+		Assert.assertEquals(0, service.getItemsByCode("item 2", false).size());
+	}
+	
+	/**
+	 * @verifies return the item id for each normalized item code
+	 * @see IItemDataService#getItemIdsByCode()
+	 */
+	@Test
+	public void getItemIdsByCode_shouldReturnTheItemIdForEachNormalizedItemCode() throws Exception {
+		Map<String, Integer> itemIds = service.getItemIdsByCode();
+		
+		Assert.assertEquals(3, itemIds.size());
+		Assert.assertEquals(0, (int)itemIds.get("ITEM 1 CODE"));
+		Assert.assertEquals(1, (int)itemIds.get("ITEM 2 CODE"));
+		Assert.assertEquals(2, (int)itemIds.get("ITEM 3 CODE"));
+	}
+	
+	/**
+	 * @verifies not include codes that are used by more than one item
+	 * @see IItemDataService#getItemIdsByCode()
+	 */
+	@Test
+	public void getItemIdsByCode_shouldNotIncludeCodesThatAreUsedByMoreThanOneItem() throws Exception {
+		Item item = service.getById(1);
+		item.addCode("duplicate", "Item 1 Code");
+		service.save(item);
+		Context.flushSession();
+		
+		Map<String, Integer> itemIds = service.getItemIdsByCode();
+		
+		Assert.assertFalse(itemIds.containsKey("ITEM 1 CODE"));
+		Assert.assertEquals(1, (int)itemIds.get("ITEM 2 CODE"));
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if the query is null
+	 * @see IItemDataService#getItemsByCodeOrName(String, boolean, PagingInfo)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemsByCodeOrName_shouldThrowIllegalArgumentExceptionIfTheQueryIsNull() throws Exception {
+		service.getItemsByCodeOrName(null, false, null);
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if the query is longer than 255 characters
+	 * @see IItemDataService#getItemsByCodeOrName(String, boolean, PagingInfo)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemsByCodeOrName_shouldThrowIllegalArgumentExceptionIfTheQueryIsLongerThan255Characters()
+			throws Exception {
+		service.getItemsByCodeOrName(StringUtils.repeat("A", 256), false, null);
+	}
+	
+	/**
+	 * @verifies return the items with a matching code before the items with a matching name
+	 * @see IItemDataService#getItemsByCodeOrName(String, boolean, PagingInfo)
+	 */
+	@Test
+	public void getItemsByCodeOrName_shouldReturnTheItemsWithAMatchingCodeBeforeTheItemsWithAMatchingName()
+			throws Exception {
+		Item item = service.getById(4);
+		item.addCode("short", "TEST");
+		service.save(item);
+		Context.flushSession();
+		
+		List<Item> results = service.getItemsByCodeOrName("test", false, null);
+		
+		Assert.assertEquals(service.getAll(false).size(), results.size());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+		Assert.assertEquals(0, (int)results.get(1).getId());
+		Assert.assertEquals(1, (int)results.get(2).getId());
+		
+		results = service.getItemsByCodeOrName("Item 2 Code", false, null);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(1, (int)results.get(0).getId());
+	}
+	
+	/**
+	 * @verifies return the items with a name that starts with the query
+	 * @see IItemDataService#getItemsByCodeOrName(String, boolean, PagingInfo)
+	 */
+	@Test
+	public void getItemsByCodeOrName_shouldReturnTheItemsWithANameThatStartsWithTheQuery() throws Exception {
+		List<Item> results = service.getItemsByCodeOrName("TEST 2", false, null);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(1, (int)results.get(0).getId());
+		
+		// Neither a code nor the start of a name
+		results = service.getItemsByCodeOrName("item", false, null);
+		Assert.assertEquals(0, results.size());
+	}
+	
+	/**
+	 * @verifies not return retired items unless specified
+	 * @see IItemDataService#getItemsByCodeOrName(String, boolean, PagingInfo)
+	 */
+	@Test
+	public void getItemsByCodeOrName_shouldNotReturnRetiredItemsUnlessSpecified() throws Exception {
+		Item item = service.getById(1);
+		service.retire(item, "test");
+		Context.flushSession();
+		
+		Assert.assertEquals(0, service.getItemsByCodeOrName("test 2", false, null).size());
+		Assert.assertEquals(0, service.getItemsByCodeOrName("item 2 code", false, null).size());
+		Assert.assertEquals(1, service.getItemsByCodeOrName("test 2", true, null).size());
+		Assert.assertEquals(1, service.getItemsByCodeOrName("item 2 code", true, null).size());
+	}
+	
+	/**
+	 * @verifies return paged items if paging is specified
+	 * @see IItemDataService#getItemsByCodeOrName(String, boolean, PagingInfo)
+	 */
+	@Test
+	public void getItemsByCodeOrName_shouldReturnPagedItemsIfPagingIsSpecified() throws Exception {
+		PagingInfo paging = new PagingInfo(1, 2);
+		List<Item> results = service.getItemsByCodeOrName("test", false, paging);
+		
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(service.getAll(false).size(), (long)paging.getTotalRecordCount());
+		Assert.assertEquals(0, (int)results.get(0).getId());
+		Assert.assertEquals(1, (int)results.get(1).getId());
+		
+		paging.setPage(2);
+		results = service.getItemsByCodeOrName("test", false, paging);
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(2, (int)results.get(0).getId());
+	}
+	
 	/**
 	 * @verifies throw NullPointerException if the department is null
 	 * @see IItemDataService#getItems(Department, String, boolean)
@@ -764,6 +1044,72 @@ public class IItemDataServiceTest extends IMetadataDataServiceTest<IItemDataServ
 		Assert.assertEquals(3, (long)pagingInfo.getTotalRecordCount());
 	}
 	
+	/**
+	 * @verifies not count the items when the probe count mode is specified
+	 * @see IItemDataService#getItemsByItemSearch(ItemSearch, PagingInfo)
+	 */
+	@Test
+	public void getItemsByItemSearch_shouldNotCountTheItemsWhenTheProbeCountModeIsSpecified() throws Exception {
+		InventoryPagingInfo pagingInfo = new InventoryPagingInfo(1, 1, InventoryPagingInfo.CountMode.PROBE);
+		
+		ItemSearch search = new ItemSearch(new Item());
+		search.getTemplate().setDepartment(departmentService.getById(0));
+		
+		List<Item> results = service.getItemsByItemSearch(search, pagingInfo);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(2, (long)pagingInfo.getTotalRecordCount());
+		Assert.assertTrue(pagingInfo.hasMoreResults());
+		Assert.assertTrue(pagingInfo.isCountEstimated());
+	}
+	
+	/**
+	 * @verifies set no more results on the last page when the probe count mode is specified
+	 * @see IItemDataService#getItemsByItemSearch(ItemSearch, PagingInfo)
+	 */
+	@Test
+	public void getItemsByItemSearch_shouldSetNoMoreResultsOnTheLastPageWhenTheProbeCountModeIsSpecified()
+			throws Exception {
+		InventoryPagingInfo pagingInfo = new InventoryPagingInfo(2, 2, InventoryPagingInfo.CountMode.PROBE);
+		
+		ItemSearch search = new ItemSearch(new Item());
+		search.getTemplate().setDepartment(departmentService.getById(0));
+		
+		List<Item> results = service.getItemsByItemSearch(search, pagingInfo);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(3, (long)pagingInfo.getTotalRecordCount());
+		Assert.assertFalse(pagingInfo.hasMoreResults());
+		Assert.assertFalse(pagingInfo.isCountEstimated());
+	}
+	
+	/**
+	 * @verifies reuse the cached count when the cached count mode is specified
+	 * @see IItemDataService#getItemsByItemSearch(ItemSearch, PagingInfo)
+	 */
+	@Test
+	public void getItemsByItemSearch_shouldReuseTheCachedCountWhenTheCachedCountModeIsSpecified() throws Exception {
+		ItemSearch search = new ItemSearch(new Item());
+		search.getTemplate().setDepartment(departmentService.getById(0));
+		
+		InventoryPagingInfo pagingInfo = new InventoryPagingInfo(1, 1, InventoryPagingInfo.CountMode.CACHED);
+		List<Item> results = service.getItemsByItemSearch(search, pagingInfo);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(3, (long)pagingInfo.getTotalRecordCount());
+		
+		// Retire an item; the cached count is still used for the next page
+		Item item = results.get(0);
+		service.retire(item, "test");
+		Context.flushSession();
+		
+		pagingInfo = new InventoryPagingInfo(1, 1, InventoryPagingInfo.CountMode.CACHED);
+		results = service.getItemsByItemSearch(search, pagingInfo);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(3, (long)pagingInfo.getTotalRecordCount());
+	}
+	
 	/**
 	 * @verifies not return retired items from search unless specified
 	 * @see IItemDataService#getItemsByItemSearch(ItemSearch, PagingInfo)
@@ -940,4 +1286,122 @@ public class IItemDataServiceTest extends IMetadataDataServiceTest<IItemDataServ
 		Assert.assertEquals(3, items.size());
 		
 	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the reader is null
+	 * @see IItemDataService#importItems(java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void importItems_shouldThrowIllegalArgumentExceptionIfTheReaderIsNull() throws Exception {
+		service.importItems(null, ImportFormat.CSV, null);
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the format is null
+	 * @see IItemDataService#importItems(java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void importItems_shouldThrowIllegalArgumentExceptionIfTheFormatIsNull() throws Exception {
+		service.importItems(new StringReader(""), null, null);
+	}
+
+	/**
+	 * @verifies create the imported items with their code and default price
+	 * @see IItemDataService#importItems(java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importItems_shouldCreateTheImportedItemsWithTheirCodeAndDefaultPrice() throws Exception {
+		String csv = "name,code,department,category,price,description\n"
+				+ "Imported 1,IMP-1,test one,Test Parent Category 1,12.50,\"First, imported\"\n"
+				+ "Imported 2,,4028814B399565AA0139958D48660007,,,\n";
+
+		ImportResult result = service.importItems(new StringReader(csv), ImportFormat.CSV, null);
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertFalse(result.hasErrors());
+		Assert.assertEquals(2, result.getImported());
+
+		Item item = service.getItemByCode("IMP-1");
+		Assert.assertNotNull(item);
+		Assert.assertEquals("Imported 1", item.getName());
+		Assert.assertEquals("First, imported", item.getDescription());
+		Assert.assertEquals(departmentService.getById(0), item.getDepartment());
+		Assert.assertEquals(categoryService.getById(0), item.getCategory());
+		Assert.assertEquals(1, item.getPrices().size());
+		Assert.assertEquals(0, new BigDecimal("12.50").compareTo(item.getDefaultPrice().getPrice()));
+
+		List<Item> items = service.getItems(departmentService.getById(1), "Imported 2", false);
+		Assert.assertEquals(1, items.size());
+		Assert.assertNull(items.get(0).getCategory());
+		Assert.assertEquals(0, items.get(0).getCodes().size());
+		Assert.assertNull(items.get(0).getDefaultPrice());
+	}
+
+	/**
+	 * @verifies report rows with missing or invalid values
+	 * @see IItemDataService#importItems(java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importItems_shouldReportRowsWithMissingOrInvalidValues() throws Exception {
+		String json = "{\"code\": \"A\", \"department\": \"Test One\"}\n"
+				+ "{\"name\": \"B\"}\n"
+				+ "{\"name\": \"C\", \"department\": \"Not a department\"}\n"
+				+ "{\"name\": \"D\", \"department\": \"Test One\", \"category\": \"Child Cat 1\"}\n"
+				+ "{\"name\": \"E\", \"department\": \"Test One\", \"price\": \"abc\"}\n"
+				+ "{\"name\": \"F\", \"department\": \"Test One\", \"price\": 3}\n";
+
+		ImportResult result = service.importItems(new StringReader(json), ImportFormat.NDJSON, null);
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertEquals(6, result.getProcessed());
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(5, result.getErrors().size());
+		// The category name is used by more than one category so it must be referenced by uuid
+		Assert.assertTrue(result.getErrors().containsKey(4));
+		Assert.assertFalse(result.getErrors().containsKey(6));
+		Assert.assertEquals(1, service.getItems(departmentService.getById(0), "F", false).size());
+	}
+
+	/**
+	 * @verifies report rows with a code that already exists
+	 * @see IItemDataService#importItems(java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importItems_shouldReportRowsWithACodeThatAlreadyExists() throws Exception {
+		String csv = "One,ITEM 1 CODE,Test One\n"
+				+ "Two,new code,Test One\n"
+				+ "Three,New Code,Test One\n";
+
+		ImportResult result = service.importItems(new StringReader(csv), ImportFormat.CSV, null);
+
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(2, result.getErrors().size());
+		Assert.assertTrue(result.getErrors().containsKey(1));
+		Assert.assertTrue(result.getErrors().containsKey(3));
+		Assert.assertEquals("Two", service.getItemByCode("new code").getName());
+	}
+
+	/**
+	 * @verifies commit the rows in chunks
+	 * @see IItemDataService#importItems(java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importItems_shouldCommitTheRowsInChunks() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+				new GlobalProperty(ModuleSettings.IMPORT_BATCH_SIZE_PROPERTY, "2"));
+
+		String csv = "A,,Test One\nB,,Test One\nC,,Test One\n";
+		final List<Integer> progress = new ArrayList<Integer>();
+		ImportResult result = service.importItems(new StringReader(csv), ImportFormat.CSV, new Action1<ImportResult>() {
+			@Override
+			public void apply(ImportResult result) {
+				progress.add(result.getImported());
+			}
+		});
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertEquals(3, result.getImported());
+		Assert.assertEquals(Arrays.asList(2, 3), progress);
+		Assert.assertEquals(getTestEntityCount() + 3, service.getAll().size());
+	}
 }
@@ -1,16 +1,34 @@
 package org.openmrs.module.openhmis.inventory.api;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.openmrs.GlobalProperty;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.IObjectDataServiceTest;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.ModuleSettings;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevelStatus;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 
 import com.google.common.collect.Iterators;
@@ -174,4 +192,677 @@ public class IItemStockDataServiceTest extends IObjectDataServiceTest<IItemStock
 	public void getItemStockByItem_shouldThrowIllegalArgumentExceptionIfItemIsNull() throws Exception {
 		service.getItemStockByItem(null, null);
 	}
+
+	/**
+	 * @verifies return the item stock for the specified items and stockrooms
+	 * @see IItemStockDataService#getItemStock(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getItemStock_shouldReturnTheItemStockForTheSpecifiedItemsAndStockrooms() throws Exception {
+		List<Stockroom> stockrooms = Arrays.asList(stockroomDataService.getById(0), stockroomDataService.getById(1));
+		List<Item> items = Arrays.asList(itemDataService.getById(0), itemDataService.getById(2));
+
+		List<ItemStock> results = service.getItemStock(stockrooms, items);
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(4, results.size());
+		for (ItemStock stock : results) {
+			Assert.assertTrue(stockrooms.contains(stock.getStockroom()));
+			Assert.assertTrue(items.contains(stock.getItem()));
+			Assert.assertNotNull(stock.getDetails());
+		}
+	}
+
+	/**
+	 * @verifies not return item stock for other stockrooms
+	 * @see IItemStockDataService#getItemStock(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getItemStock_shouldNotReturnItemStockForOtherStockrooms() throws Exception {
+		Stockroom stockroom = stockroomDataService.getById(1);
+
+		List<ItemStock> results = service.getItemStock(Arrays.asList(stockroom), Arrays.asList(itemDataService.getById(2)));
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(stockroom, results.get(0).getStockroom());
+	}
+
+	/**
+	 * @verifies return an empty list if stockrooms or items is empty
+	 * @see IItemStockDataService#getItemStock(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getItemStock_shouldReturnAnEmptyListIfStockroomsOrItemsIsEmpty() throws Exception {
+		List<ItemStock> results = service.getItemStock(new ArrayList<Stockroom>(), Arrays.asList(itemDataService.getById(0)));
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+
+		results = service.getItemStock(Arrays.asList(stockroomDataService.getById(0)), new ArrayList<Item>());
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if stockrooms is null
+	 * @see IItemStockDataService#getItemStock(java.util.Collection, java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemStock_shouldThrowIllegalArgumentExceptionIfStockroomsIsNull() throws Exception {
+		service.getItemStock(null, Arrays.asList(itemDataService.getById(0)));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if items is null
+	 * @see IItemStockDataService#getItemStock(java.util.Collection, java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemStock_shouldThrowIllegalArgumentExceptionIfItemsIsNull() throws Exception {
+		service.getItemStock(Arrays.asList(stockroomDataService.getById(0)), null);
+	}
+
+	/**
+	 * @verifies return item stock with a different version than the database
+	 * @see IItemStockDataService#getStaleItemStock(java.util.Collection)
+	 */
+	@Test
+	public void getStaleItemStock_shouldReturnItemStockWithADifferentVersionThanTheDatabase() throws Exception {
+		ItemStock current = service.getById(0);
+		ItemStock stale = service.getById(1);
+
+		// Simulate a stale instance by detaching it and changing the version
+		Context.evictFromSession(stale);
+		stale.setVersion(stale.getVersion() - 1);
+
+		List<ItemStock> results = service.getStaleItemStock(Arrays.asList(current, stale));
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertSame(stale, results.get(0));
+	}
+
+	/**
+	 * @verifies return item stock that no longer exists in the database
+	 * @see IItemStockDataService#getStaleItemStock(java.util.Collection)
+	 */
+	@Test
+	public void getStaleItemStock_shouldReturnItemStockThatNoLongerExistsInTheDatabase() throws Exception {
+		ItemStock deleted = new ItemStock();
+		deleted.setId(9999);
+		deleted.setVersion(0);
+
+		List<ItemStock> results = service.getStaleItemStock(Arrays.asList(service.getById(0), deleted));
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertSame(deleted, results.get(0));
+	}
+
+	/**
+	 * @verifies not return current item stock
+	 * @see IItemStockDataService#getStaleItemStock(java.util.Collection)
+	 */
+	@Test
+	public void getStaleItemStock_shouldNotReturnCurrentItemStock() throws Exception {
+		ItemStock stock = service.getById(0);
+		stock.setQuantity(stock.getQuantity() + 10);
+		service.save(stock);
+		Context.flushSession();
+
+		List<ItemStock> results = service.getStaleItemStock(Arrays.asList(stock, service.getById(1)));
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+	}
+
+	/**
+	 * @verifies ignore item stock that has not been saved
+	 * @see IItemStockDataService#getStaleItemStock(java.util.Collection)
+	 */
+	@Test
+	public void getStaleItemStock_shouldIgnoreItemStockThatHasNotBeenSaved() throws Exception {
+		List<ItemStock> results = service.getStaleItemStock(Arrays.asList(createEntity(true)));
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if stock is null
+	 * @see IItemStockDataService#getStaleItemStock(java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getStaleItemStock_shouldThrowIllegalArgumentExceptionIfStockIsNull() throws Exception {
+		service.getStaleItemStock(null);
+	}
+
+	/**
+	 * @verifies add the imported stock to the stockroom
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldAddTheImportedStockToTheStockroom() throws Exception {
+		String csv = "code,quantity,expiration\n"
+				+ "item 1 code,10,2030-01-01\n"
+				+ "item 2 code,5\n";
+
+		ImportResult result =
+				service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertFalse(result.hasErrors());
+		Assert.assertEquals(2, result.getProcessed());
+		Assert.assertEquals(2, result.getImported());
+
+		ItemStock stock = getStock(4, 0);
+		Assert.assertNotNull(stock);
+		Assert.assertEquals(10, stock.getQuantity());
+		Assert.assertEquals(1, stock.getDetails().size());
+
+		ItemStockDetail detail = Iterators.get(stock.getDetails().iterator(), 0);
+		Assert.assertEquals(10, (int)detail.getQuantity());
+		Assert.assertEquals(createDate(2030, Calendar.JANUARY, 1).getTime(), detail.getExpiration().getTime());
+		Assert.assertNotNull(detail.getBatchOperation());
+		Assert.assertFalse(detail.isCalculatedExpiration());
+		Assert.assertFalse(detail.isCalculatedBatch());
+
+		stock = getStock(4, 1);
+		Assert.assertNotNull(stock);
+		Assert.assertEquals(5, stock.getQuantity());
+		Assert.assertNull(Iterators.get(stock.getDetails().iterator(), 0).getExpiration());
+	}
+
+	/**
+	 * @verifies add the rows with the same item and expiration to a single detail
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldAddTheRowsWithTheSameItemAndExpirationToASingleDetail() throws Exception {
+		String csv = "item 1 code,5,2030-01-01\nitem 1 code,3,2030-01-01\n";
+
+		service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+
+		ItemStock stock = getStock(4, 0);
+		Assert.assertEquals(8, stock.getQuantity());
+		Assert.assertEquals(1, stock.getDetails().size());
+		Assert.assertEquals(8, (int)Iterators.get(stock.getDetails().iterator(), 0).getQuantity());
+
+		// Each import is its own batch so importing the rows again adds another detail
+		service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+
+		stock = getStock(4, 0);
+		Assert.assertEquals(16, stock.getQuantity());
+		Assert.assertEquals(2, stock.getDetails().size());
+
+		// Stockroom 0 already has a detail for item 0 for another batch so a new detail is added
+		service.importStock(stockroomDataService.getById(0), new StringReader(csv), ImportFormat.CSV, null);
+
+		stock = getStock(0, 0);
+		Assert.assertEquals(12, stock.getQuantity());
+		Assert.assertEquals(2, stock.getDetails().size());
+	}
+
+	/**
+	 * @verifies update the item stock totals
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldUpdateTheItemStockTotals() throws Exception {
+		String csv = "item 1 code,5\nitem 1 code,3\n";
+
+		service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+		service.importStock(stockroomDataService.getById(0), new StringReader(csv), ImportFormat.CSV, null);
+
+		// Item 0 had 9 in stockrooms 0 and 1; the stock in stockroom 4 is new
+		ItemStockTotal total = service.getItemStockTotal(itemDataService.getById(0));
+		Assert.assertEquals(25, total.getQuantity());
+		Assert.assertEquals(3, total.getStockroomCount());
+	}
+
+	/**
+	 * @verifies record each chunk as a completed receipt operation with transactions
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldRecordEachChunkAsACompletedReceiptOperationWithTransactions() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+				new GlobalProperty(ModuleSettings.IMPORT_BATCH_SIZE_PROPERTY, "2"));
+		Stockroom stockroom = stockroomDataService.getById(4);
+
+		String csv = "item 1 code,5,2030-01-01\nitem 2 code,3\nitem 3 code,1\n";
+		service.importStock(stockroom, new StringReader(csv), ImportFormat.CSV, null);
+
+		StockOperation operation = Iterators.get(getStock(4, 0).getDetails().iterator(), 0).getBatchOperation();
+		Assert.assertNotNull(operation);
+		Assert.assertEquals(WellKnownOperationTypes.getReceipt(), operation.getInstanceType());
+		Assert.assertEquals(StockOperationStatus.COMPLETED, operation.getStatus());
+		Assert.assertEquals(stockroom, operation.getDestination());
+		Assert.assertEquals(2, operation.getItems().size());
+		Assert.assertEquals(2, operation.getTransactions().size());
+		for (StockOperationTransaction tx : operation.getTransactions()) {
+			Assert.assertEquals(stockroom, tx.getStockroom());
+			Assert.assertEquals(operation, tx.getBatchOperation());
+		}
+
+		// The rows after the first chunk are recorded by another operation
+		StockOperation operation2 = Iterators.get(getStock(4, 2).getDetails().iterator(), 0).getBatchOperation();
+		Assert.assertNotNull(operation2);
+		Assert.assertFalse(operation.equals(operation2));
+		Assert.assertFalse(operation.getOperationNumber().equals(operation2.getOperationNumber()));
+		Assert.assertEquals(1, operation2.getTransactions().size());
+	}
+
+	/**
+	 * @verifies import ndjson rows
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldImportNdjsonRows() throws Exception {
+		String json = "{\"itemCode\": \"item 2 code\", \"quantity\": 3}\n"
+				+ "\n"
+				+ "{\"code\": \"item 3 code\", \"quantity\": \"4\", \"expiration\": \"2030-06-01\"}\n";
+
+		ImportResult result = service.importStock(stockroomDataService.getById(4), new StringReader(json),
+				ImportFormat.NDJSON, null);
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertFalse(result.hasErrors());
+		Assert.assertEquals(2, result.getImported());
+		Assert.assertEquals(3, getStock(4, 1).getQuantity());
+
+		ItemStock stock = getStock(4, 2);
+		Assert.assertEquals(4, stock.getQuantity());
+		Assert.assertEquals(createDate(2030, Calendar.JUNE, 1).getTime(),
+				Iterators.get(stock.getDetails().iterator(), 0).getExpiration().getTime());
+	}
+
+	/**
+	 * @verifies report rows with an unknown item code or invalid values
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldReportRowsWithAnUnknownItemCodeOrInvalidValues() throws Exception {
+		String csv = "not a code,1\n"
+				+ "item 1 code,abc\n"
+				+ "item 1 code,1,2030-13-45\n"
+				+ "item 1 code,0\n"
+				+ ",1\n"
+				+ "item 2 code,2\n";
+
+		ImportResult result =
+				service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertEquals(6, result.getProcessed());
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(5, result.getErrors().size());
+		Assert.assertEquals(Arrays.asList(1, 2, 3, 4, 5), new ArrayList<Integer>(result.getErrors().keySet()));
+
+		Assert.assertNull(getStock(4, 0));
+		Assert.assertEquals(2, getStock(4, 1).getQuantity());
+	}
+
+	/**
+	 * @verifies report rows with an item code that is used by more than one item
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldReportRowsWithAnItemCodeThatIsUsedByMoreThanOneItem() throws Exception {
+		Item item = itemDataService.getById(1);
+		item.addCode("duplicate", "item 1 code");
+		itemDataService.save(item);
+		Context.flushSession();
+
+		String csv = "item 1 code,1\nitem 3 code,2\n";
+		ImportResult result =
+				service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(Arrays.asList(1), new ArrayList<Integer>(result.getErrors().keySet()));
+		Assert.assertNull(getStock(4, 0));
+		Assert.assertNull(getStock(4, 1));
+		Assert.assertEquals(2, getStock(4, 2).getQuantity());
+	}
+
+	/**
+	 * @verifies report rows without an expiration for an item that expires
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldReportRowsWithoutAnExpirationForAnItemThatExpires() throws Exception {
+		Item item = itemDataService.getById(0);
+		item.setHasExpiration(true);
+		itemDataService.save(item);
+		Context.flushSession();
+
+		String csv = "item 1 code,1\nitem 1 code,2,2030-01-01\n";
+		ImportResult result =
+				service.importStock(stockroomDataService.getById(4), new StringReader(csv), ImportFormat.CSV, null);
+
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(Arrays.asList(1), new ArrayList<Integer>(result.getErrors().keySet()));
+
+		ItemStock stock = getStock(4, 0);
+		Assert.assertEquals(2, stock.getQuantity());
+		Assert.assertNotNull(Iterators.get(stock.getDetails().iterator(), 0).getExpiration());
+	}
+
+	/**
+	 * @verifies write a stock change event for each changed item stock
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldWriteAStockChangeEventForEachChangedItemStock() throws Exception {
+		IStockChangeEventDataService eventService = Context.getService(IStockChangeEventDataService.class);
+		int existing = eventService.getEventsAfter(0, 100).size();
+
+		String csv = "item 1 code,5\nitem 1 code,3\nitem 2 code,2\n";
+		service.importStock(stockroomDataService.getById(0), new StringReader(csv), ImportFormat.CSV, null);
+
+		List<StockChangeEvent> events = eventService.getEventsAfter(0, 100);
+		Assert.assertEquals(existing + 2, events.size());
+
+		events = events.subList(existing, events.size());
+		Assert.assertNotNull(events.get(0).getOperation());
+		for (StockChangeEvent event : events) {
+			Assert.assertEquals(events.get(0).getOperation(), event.getOperation());
+			Assert.assertEquals(0, (int)event.getStockroom().getId());
+			if (event.getItem().getId() == 0) {
+				// Item 0 already had stock in stockroom 0
+				Assert.assertEquals(8, (int)event.getQuantity());
+				Assert.assertEquals(getStock(0, 0).getQuantity(), (int)event.getResultingQuantity());
+			} else {
+				Assert.assertEquals(1, (int)event.getItem().getId());
+				Assert.assertEquals(2, (int)event.getQuantity());
+				Assert.assertEquals(getStock(0, 1).getQuantity(), (int)event.getResultingQuantity());
+			}
+		}
+	}
+
+	/**
+	 * @verifies update the item stock level status
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldUpdateTheItemStockLevelStatus() throws Exception {
+		IItemStockLevelDataService levelService = Context.getService(IItemStockLevelDataService.class);
+		Stockroom stockroom = stockroomDataService.getById(4);
+		Item item = itemDataService.getById(0);
+
+		// Stockroom 4 has no stock for the item so the level starts below the minimum
+		ItemStockLevel level = new ItemStockLevel(stockroom, item, 5, 10);
+		level.updateStatus(0);
+		levelService.save(level);
+		Context.flushSession();
+
+		service.importStock(stockroom, new StringReader("item 1 code,8\n"), ImportFormat.CSV, null);
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, levelService.getLevel(stockroom, item).getStatus());
+
+		service.importStock(stockroom, new StringReader("item 1 code,8\n"), ImportFormat.CSV, null);
+		Assert.assertEquals(ItemStockLevelStatus.NORMAL, levelService.getLevel(stockroom, item).getStatus());
+	}
+
+	/**
+	 * @verifies not clear the session of a surrounding transaction
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldNotClearTheSessionOfASurroundingTransaction() throws Exception {
+		// The test runs in a transaction so the import joins it rather than committing each chunk
+		Item item = itemDataService.getById(2);
+
+		service.importStock(stockroomDataService.getById(4), new StringReader("item 1 code,1\n"), ImportFormat.CSV,
+				null);
+
+		Assert.assertSame(item, itemDataService.getById(2));
+	}
+
+	/**
+	 * @verifies save the rows in chunks and report progress
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test
+	public void importStock_shouldSaveTheRowsInChunksAndReportProgress() throws Exception {
+		Context.getAdministrationService().saveGlobalProperty(
+				new GlobalProperty(ModuleSettings.IMPORT_BATCH_SIZE_PROPERTY, "2"));
+
+		String csv = "item 1 code,1\nitem 2 code,1\nitem 3 code,1\nitem 1 code,1\nitem 2 code,1\n";
+		final List<Integer> progress = new ArrayList<Integer>();
+		ImportResult result = service.importStock(stockroomDataService.getById(4), new StringReader(csv),
+				ImportFormat.CSV, new Action1<ImportResult>() {
+			@Override
+			public void apply(ImportResult result) {
+				progress.add(result.getImported());
+			}
+		});
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertEquals(5, result.getImported());
+		Assert.assertEquals(Arrays.asList(2, 4, 5), progress);
+		Assert.assertEquals(2, getStock(4, 0).getQuantity());
+		Assert.assertEquals(2, getStock(4, 1).getQuantity());
+		Assert.assertEquals(1, getStock(4, 2).getQuantity());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the stockroom is null
+	 * @see IItemStockDataService#importStock(Stockroom, java.io.Reader, ImportFormat, Action1)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void importStock_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
+		service.importStock(null, new StringReader(""), ImportFormat.CSV, null);
+	}
+
+	/**
+	 * @verifies add the entries to the stockroom item stock
+	 * @see IItemStockDataService#importStock(Stockroom, java.util.List)
+	 */
+	@Test
+	public void importStock_shouldAddTheEntriesToTheStockroomItemStock() throws Exception {
+		ItemStockDetail entry = new ItemStockDetail();
+		entry.setItem(itemDataService.getById(2));
+		entry.setQuantity(7);
+
+		ImportResult result = service.importStock(stockroomDataService.getById(4), Collections.singletonList(entry));
+
+		Assert.assertTrue(result.isComplete());
+		Assert.assertEquals(1, result.getImported());
+		Assert.assertEquals(7, getStock(4, 2).getQuantity());
+	}
+
+	/**
+	 * @verifies report entries without an item or quantity
+	 * @see IItemStockDataService#importStock(Stockroom, java.util.List)
+	 */
+	@Test
+	public void importStock_shouldReportEntriesWithoutAnItemOrQuantity() throws Exception {
+		ItemStockDetail noItem = new ItemStockDetail();
+		noItem.setQuantity(1);
+		ItemStockDetail noQuantity = new ItemStockDetail();
+		noQuantity.setItem(itemDataService.getById(0));
+
+		ImportResult result =
+				service.importStock(stockroomDataService.getById(4), Arrays.asList(noItem, noQuantity));
+
+		Assert.assertEquals(0, result.getImported());
+		Assert.assertEquals(Arrays.asList(1, 2), new ArrayList<Integer>(result.getErrors().keySet()));
+		Assert.assertNull(getStock(4, 0));
+	}
+
+	/**
+	 * @verifies report entries without an expiration for an item that expires
+	 * @see IItemStockDataService#importStock(Stockroom, java.util.List)
+	 */
+	@Test
+	public void importStock_shouldReportEntriesWithoutAnExpirationForAnItemThatExpires() throws Exception {
+		Item item = itemDataService.getById(2);
+		item.setHasExpiration(true);
+
+		ItemStockDetail entry = new ItemStockDetail();
+		entry.setItem(item);
+		entry.setQuantity(7);
+
+		ImportResult result = service.importStock(stockroomDataService.getById(4), Collections.singletonList(entry));
+
+		Assert.assertEquals(0, result.getImported());
+		Assert.assertEquals(Arrays.asList(1), new ArrayList<Integer>(result.getErrors().keySet()));
+		Assert.assertNull(getStock(4, 2));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the entries are null
+	 * @see IItemStockDataService#importStock(Stockroom, java.util.List)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void importStock_shouldThrowIllegalArgumentExceptionIfTheEntriesAreNull() throws Exception {
+		service.importStock(stockroomDataService.getById(4), null);
+	}
+
+	private ItemStock getStock(int stockroomId, int itemId) {
+		List<ItemStock> stock = service.getItemStock(Collections.singletonList(stockroomDataService.getById(stockroomId)),
+				Collections.singletonList(itemDataService.getById(itemId)));
+
+		return stock.size() == 0 ? null : stock.get(0);
+	}
+
+	private Date createDate(int year, int month, int day) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, month, day);
+
+		return calendar.getTime();
+	}
+
+	/**
+	 * @verifies write the item stock details for the stockrooms
+	 * @see IItemStockDataService#exportStock(java.util.Collection, java.io.Writer, ImportFormat)
+	 */
+	@Test
+	public void exportStock_shouldWriteTheItemStockDetailsForTheStockrooms() throws Exception {
+		StringWriter writer = new StringWriter();
+		int rows = service.exportStock(Arrays.asList(stockroomDataService.getById(1), stockroomDataService.getById(0)),
+				writer, ImportFormat.CSV);
+
+		Assert.assertEquals(6, rows);
+		Assert.assertEquals("stockroom,itemCode,itemName,quantity,expiration,batch\n"
+				+ "Test Stock Room 1,item 1 code,test 1 item,4,,t101\n"
+				+ "Test Stock Room 1,item 2 code,test 2 item,5,,t101\n"
+				+ "Test Stock Room 1,item 3 code,test 3 item,8,2025-01-01,t101\n"
+				+ "Test Stock Room 2,item 1 code,test 1 item,5,,t101\n"
+				+ "Test Stock Room 2,item 2 code,test 2 item,5,,t101\n"
+				+ "Test Stock Room 2,item 3 code,test 3 item,1,2025-01-01,t101\n", writer.toString());
+	}
+
+	/**
+	 * @verifies write ndjson rows
+	 * @see IItemStockDataService#exportStock(java.util.Collection, java.io.Writer, ImportFormat)
+	 */
+	@Test
+	public void exportStock_shouldWriteNdjsonRows() throws Exception {
+		StringWriter writer = new StringWriter();
+		int rows = service.exportStock(Arrays.asList(stockroomDataService.getById(1)), writer, ImportFormat.NDJSON);
+
+		Assert.assertEquals(3, rows);
+		String[] lines = writer.toString().split("\n");
+		Assert.assertEquals(3, lines.length);
+		Assert.assertEquals("{\"stockroom\":\"Test Stock Room 2\",\"itemCode\":\"item 3 code\",\"itemName\":\"test 3 item\","
+				+ "\"quantity\":1,\"expiration\":\"2025-01-01\",\"batch\":\"t101\"}", lines[2]);
+	}
+
+	/**
+	 * @verifies write only the header when the stockrooms have no stock
+	 * @see IItemStockDataService#exportStock(java.util.Collection, java.io.Writer, ImportFormat)
+	 */
+	@Test
+	public void exportStock_shouldWriteOnlyTheHeaderWhenTheStockroomsHaveNoStock() throws Exception {
+		StringWriter writer = new StringWriter();
+		int rows = service.exportStock(Arrays.asList(stockroomDataService.getById(4)), writer, ImportFormat.CSV);
+
+		Assert.assertEquals(0, rows);
+		Assert.assertEquals("stockroom,itemCode,itemName,quantity,expiration,batch\n", writer.toString());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the stockrooms are null or empty
+	 * @see IItemStockDataService#exportStock(java.util.Collection, java.io.Writer, ImportFormat)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void exportStock_shouldThrowIllegalArgumentExceptionIfTheStockroomsAreNullOrEmpty() throws Exception {
+		service.exportStock(new ArrayList<Stockroom>(), new StringWriter(), ImportFormat.CSV);
+	}
+
+	/**
+	 * @verifies return the total for the item
+	 * @see IItemStockDataService#getItemStockTotal(Item)
+	 */
+	@Test
+	public void getItemStockTotal_shouldReturnTheTotalForTheItem() throws Exception {
+		ItemStockTotal total = service.getItemStockTotal(itemDataService.getById(1));
+
+		Assert.assertNotNull(total);
+		Assert.assertEquals(8, total.getQuantity());
+		Assert.assertEquals(0, total.getReservedQuantity());
+		Assert.assertEquals(2, total.getStockroomCount());
+	}
+
+	/**
+	 * @verifies return null if the item has no total
+	 * @see IItemStockDataService#getItemStockTotal(Item)
+	 */
+	@Test
+	public void getItemStockTotal_shouldReturnNullIfTheItemHasNoTotal() throws Exception {
+		Assert.assertNull(service.getItemStockTotal(itemDataService.getById(3)));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if item is null
+	 * @see IItemStockDataService#getItemStockTotal(Item)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemStockTotal_shouldThrowIllegalArgumentExceptionIfItemIsNull() throws Exception {
+		service.getItemStockTotal(null);
+	}
+
+	/**
+	 * @verifies add the changes to the existing total
+	 * @see IItemStockDataService#updateItemStockTotal(Item, int, int, int)
+	 */
+	@Test
+	public void updateItemStockTotal_shouldAddTheChangesToTheExistingTotal() throws Exception {
+		Item item = itemDataService.getById(0);
+
+		service.updateItemStockTotal(item, -3, 3, 0);
+		service.updateItemStockTotal(item, 10, -1, 1);
+
+		ItemStockTotal total = service.getItemStockTotal(item);
+		Assert.assertEquals(16, total.getQuantity());
+		Assert.assertEquals(2, total.getReservedQuantity());
+		Assert.assertEquals(3, total.getStockroomCount());
+	}
+
+	/**
+	 * @verifies create the total if the item does not have one
+	 * @see IItemStockDataService#updateItemStockTotal(Item, int, int, int)
+	 */
+	@Test
+	public void updateItemStockTotal_shouldCreateTheTotalIfTheItemDoesNotHaveOne() throws Exception {
+		Item item = itemDataService.getById(3);
+
+		service.updateItemStockTotal(item, 4, 0, 1);
+		service.updateItemStockTotal(item, 2, 0, 0);
+
+		ItemStockTotal total = service.getItemStockTotal(item);
+		Assert.assertNotNull(total);
+		Assert.assertEquals(6, total.getQuantity());
+		Assert.assertEquals(1, total.getStockroomCount());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if item is null
+	 * @see IItemStockDataService#updateItemStockTotal(Item, int, int, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void updateItemStockTotal_shouldThrowIllegalArgumentExceptionIfItemIsNull() throws Exception {
+		service.updateItemStockTotal(null, 1, 0, 0);
+	}
 }
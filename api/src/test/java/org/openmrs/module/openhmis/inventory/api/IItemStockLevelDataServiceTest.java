@@ -0,0 +1,219 @@
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevelStatus;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+public class IItemStockLevelDataServiceTest extends BaseModuleContextSensitiveTest {
+	private IItemStockLevelDataService service;
+	private IStockroomDataService stockroomService;
+	private IItemDataService itemService;
+
+	private Stockroom room0;
+	private Stockroom room1;
+	private ItemStockLevel reorder0;
+	private ItemStockLevel normal0;
+	private ItemStockLevel minimum1;
+	private ItemStockLevel reorder1;
+
+	@Before
+	public void before() throws Exception {
+		executeDataSet(TestConstants.CORE_DATASET);
+		executeDataSet(IItemDataServiceTest.ITEM_DATASET);
+		executeDataSet(IStockroomDataServiceTest.DATASET);
+
+		service = Context.getService(IItemStockLevelDataService.class);
+		stockroomService = Context.getService(IStockroomDataService.class);
+		itemService = Context.getService(IItemDataService.class);
+
+		room0 = stockroomService.getById(0);
+		room1 = stockroomService.getById(1);
+
+		// The stockroom 0 item stock quantities are 4, 5 and 8; the stockroom 1 quantities are 5, 3 and 1
+		reorder0 = service.save(new ItemStockLevel(room0, itemService.getById(0), 2, 5));
+		normal0 = service.save(new ItemStockLevel(room0, itemService.getById(1), 1, 2));
+		minimum1 = service.save(new ItemStockLevel(room1, itemService.getById(2), 2, 3));
+		reorder1 = service.save(new ItemStockLevel(room1, itemService.getById(0), null, 5));
+		Context.flushSession();
+	}
+
+	/**
+	 * @verifies calculate the status from the current item stock quantity
+	 * @see IItemStockLevelDataService#save(ItemStockLevel)
+	 */
+	@Test
+	public void save_shouldCalculateTheStatusFromTheCurrentItemStockQuantity() throws Exception {
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, reorder0.getStatus());
+		Assert.assertEquals(ItemStockLevelStatus.NORMAL, normal0.getStatus());
+		Assert.assertEquals(ItemStockLevelStatus.BELOW_MINIMUM, minimum1.getStatus());
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, reorder1.getStatus());
+
+		// Stockroom 4 has no item stock so any minimum is breached
+		ItemStockLevel level = service.save(new ItemStockLevel(stockroomService.getById(4), itemService.getById(0), 1, 1));
+		Assert.assertEquals(ItemStockLevelStatus.BELOW_MINIMUM, level.getStatus());
+
+		// Changing the levels recalculates the status
+		normal0.setReorderQuantity(5);
+		service.save(normal0);
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, normal0.getStatus());
+	}
+
+	/**
+	 * @verifies throw APIException if the reorder quantity is less than the minimum quantity
+	 * @see IItemStockLevelDataService#save(ItemStockLevel)
+	 */
+	@Test(expected = APIException.class)
+	public void save_shouldThrowAPIExceptionIfTheReorderQuantityIsLessThanTheMinimumQuantity() throws Exception {
+		service.save(new ItemStockLevel(room0, itemService.getById(2), 5, 4));
+	}
+
+	/**
+	 * @verifies return the level for the stockroom and item
+	 * @see IItemStockLevelDataService#getLevel(Stockroom, Item)
+	 */
+	@Test
+	public void getLevel_shouldReturnTheLevelForTheStockroomAndItem() throws Exception {
+		Assert.assertEquals(reorder1, service.getLevel(room1, itemService.getById(0)));
+	}
+
+	/**
+	 * @verifies return null if there is no level for the stockroom and item
+	 * @see IItemStockLevelDataService#getLevel(Stockroom, Item)
+	 */
+	@Test
+	public void getLevel_shouldReturnNullIfThereIsNoLevelForTheStockroomAndItem() throws Exception {
+		Assert.assertNull(service.getLevel(room1, itemService.getById(1)));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if stockroom is null
+	 * @see IItemStockLevelDataService#getLevel(Stockroom, Item)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getLevel_shouldThrowIllegalArgumentExceptionIfStockroomIsNull() throws Exception {
+		service.getLevel(null, itemService.getById(0));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if item is null
+	 * @see IItemStockLevelDataService#getLevel(Stockroom, Item)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getLevel_shouldThrowIllegalArgumentExceptionIfItemIsNull() throws Exception {
+		service.getLevel(room0, null);
+	}
+
+	/**
+	 * @verifies return the levels for the specified items and stockrooms
+	 * @see IItemStockLevelDataService#getLevels(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getLevels_shouldReturnTheLevelsForTheSpecifiedItemsAndStockrooms() throws Exception {
+		List<ItemStockLevel> results = service.getLevels(Arrays.asList(room0, room1), Arrays.asList(itemService.getById(0)));
+
+		Assert.assertEquals(2, results.size());
+		Assert.assertTrue(results.contains(reorder0));
+		Assert.assertTrue(results.contains(reorder1));
+	}
+
+	/**
+	 * @verifies return an empty list if stockrooms or items is empty
+	 * @see IItemStockLevelDataService#getLevels(java.util.Collection, java.util.Collection)
+	 */
+	@Test
+	public void getLevels_shouldReturnAnEmptyListIfStockroomsOrItemsIsEmpty() throws Exception {
+		Assert.assertEquals(0, service.getLevels(new ArrayList<Stockroom>(), Arrays.asList(itemService.getById(0))).size());
+		Assert.assertEquals(0, service.getLevels(Arrays.asList(room0), new ArrayList<Item>()).size());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if stockrooms is null
+	 * @see IItemStockLevelDataService#getLevels(java.util.Collection, java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getLevels_shouldThrowIllegalArgumentExceptionIfStockroomsIsNull() throws Exception {
+		service.getLevels(null, new ArrayList<Item>());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if items is null
+	 * @see IItemStockLevelDataService#getLevels(java.util.Collection, java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getLevels_shouldThrowIllegalArgumentExceptionIfItemsIsNull() throws Exception {
+		service.getLevels(new ArrayList<Stockroom>(), null);
+	}
+
+	/**
+	 * @verifies return the breached levels for the stockroom
+	 * @see IItemStockLevelDataService#getAlerts(Stockroom, ItemStockLevelStatus, PagingInfo)
+	 */
+	@Test
+	public void getAlerts_shouldReturnTheBreachedLevelsForTheStockroom() throws Exception {
+		List<ItemStockLevel> results = service.getAlerts(room1, null, null);
+
+		Assert.assertEquals(2, results.size());
+		Assert.assertTrue(results.contains(minimum1));
+		Assert.assertTrue(results.contains(reorder1));
+	}
+
+	/**
+	 * @verifies return the breached levels for all stockrooms if stockroom is null
+	 * @see IItemStockLevelDataService#getAlerts(Stockroom, ItemStockLevelStatus, PagingInfo)
+	 */
+	@Test
+	public void getAlerts_shouldReturnTheBreachedLevelsForAllStockroomsIfStockroomIsNull() throws Exception {
+		List<ItemStockLevel> results = service.getAlerts(null, null, null);
+
+		Assert.assertEquals(3, results.size());
+		Assert.assertTrue(results.contains(reorder0));
+		Assert.assertTrue(results.contains(minimum1));
+		Assert.assertTrue(results.contains(reorder1));
+	}
+
+	/**
+	 * @verifies return only the levels with the specified status
+	 * @see IItemStockLevelDataService#getAlerts(Stockroom, ItemStockLevelStatus, PagingInfo)
+	 */
+	@Test
+	public void getAlerts_shouldReturnOnlyTheLevelsWithTheSpecifiedStatus() throws Exception {
+		List<ItemStockLevel> results = service.getAlerts(null, ItemStockLevelStatus.BELOW_MINIMUM, null);
+
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(minimum1, results.get(0));
+	}
+
+	/**
+	 * @verifies not return levels with the normal status
+	 * @see IItemStockLevelDataService#getAlerts(Stockroom, ItemStockLevelStatus, PagingInfo)
+	 */
+	@Test
+	public void getAlerts_shouldNotReturnLevelsWithTheNormalStatus() throws Exception {
+		Assert.assertFalse(service.getAlerts(room0, null, null).contains(normal0));
+	}
+
+	/**
+	 * @verifies return paged levels if paging is specified
+	 * @see IItemStockLevelDataService#getAlerts(Stockroom, ItemStockLevelStatus, PagingInfo)
+	 */
+	@Test
+	public void getAlerts_shouldReturnPagedLevelsIfPagingIsSpecified() throws Exception {
+		PagingInfo paging = new PagingInfo(1, 2);
+		List<ItemStockLevel> results = service.getAlerts(null, null, paging);
+
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(3, (long)paging.getTotalRecordCount());
+	}
+}
@@ -0,0 +1,239 @@
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEventConsumer;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+public class IStockChangeEventDataServiceTest extends BaseModuleContextSensitiveTest {
+	private IStockChangeEventDataService service;
+	private IStockroomDataService stockroomService;
+	private IItemDataService itemService;
+	private IStockOperationDataService operationService;
+
+	private List<StockChangeEvent> events;
+
+	@Before
+	public void before() throws Exception {
+		executeDataSet(TestConstants.CORE_DATASET);
+		executeDataSet(IItemDataServiceTest.ITEM_DATASET);
+		executeDataSet(IStockroomDataServiceTest.DATASET);
+
+		service = Context.getService(IStockChangeEventDataService.class);
+		stockroomService = Context.getService(IStockroomDataService.class);
+		itemService = Context.getService(IItemDataService.class);
+		operationService = Context.getService(IStockOperationDataService.class);
+
+		events = new ArrayList<StockChangeEvent>();
+		for (int i = 0; i < 5; i++) {
+			events.add(service.save(new StockChangeEvent(stockroomService.getById(0), itemService.getById(0),
+					operationService.getById(0), i + 1, 10 + i)));
+		}
+		Context.flushSession();
+	}
+
+	/**
+	 * @verifies return the events after the specified event ordered by id
+	 * @see IStockChangeEventDataService#getEventsAfter(int, int)
+	 */
+	@Test
+	public void getEventsAfter_shouldReturnTheEventsAfterTheSpecifiedEventOrderedById() throws Exception {
+		List<StockChangeEvent> results = service.getEventsAfter(events.get(1).getId(), 10);
+
+		Assert.assertEquals(3, results.size());
+		Assert.assertEquals(events.get(2).getId(), results.get(0).getId());
+		Assert.assertEquals(events.get(3).getId(), results.get(1).getId());
+		Assert.assertEquals(events.get(4).getId(), results.get(2).getId());
+	}
+
+	/**
+	 * @verifies return the events from the first event if the last event id is zero
+	 * @see IStockChangeEventDataService#getEventsAfter(int, int)
+	 */
+	@Test
+	public void getEventsAfter_shouldReturnTheEventsFromTheFirstEventIfTheLastEventIdIsZero() throws Exception {
+		List<StockChangeEvent> results = service.getEventsAfter(0, 10);
+
+		Assert.assertEquals(5, results.size());
+		Assert.assertEquals(events.get(0).getId(), results.get(0).getId());
+		Assert.assertEquals(events.get(4).getId(), results.get(4).getId());
+	}
+
+	/**
+	 * @verifies return no more than the maximum number of events
+	 * @see IStockChangeEventDataService#getEventsAfter(int, int)
+	 */
+	@Test
+	public void getEventsAfter_shouldReturnNoMoreThanTheMaximumNumberOfEvents() throws Exception {
+		List<StockChangeEvent> results = service.getEventsAfter(0, 2);
+
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(events.get(0).getId(), results.get(0).getId());
+		Assert.assertEquals(events.get(1).getId(), results.get(1).getId());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if max results is not positive
+	 * @see IStockChangeEventDataService#getEventsAfter(int, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getEventsAfter_shouldThrowIllegalArgumentExceptionIfMaxResultsIsNotPositive() throws Exception {
+		service.getEventsAfter(0, 0);
+	}
+
+	/**
+	 * @verifies return the existing consumer
+	 * @see IStockChangeEventDataService#registerConsumer(String)
+	 */
+	@Test
+	public void registerConsumer_shouldReturnTheExistingConsumer() throws Exception {
+		StockChangeEventConsumer consumer = service.registerConsumer("test");
+		StockChangeEvent event = saveEvent();
+		service.advanceConsumer("test", event.getId());
+		Context.flushSession();
+		Context.clearSession();
+
+		StockChangeEventConsumer existing = service.registerConsumer("test");
+
+		Assert.assertEquals(consumer.getId(), existing.getId());
+		Assert.assertEquals(event.getId(), existing.getLastEventId());
+	}
+
+	/**
+	 * @verifies register a new consumer after the last event
+	 * @see IStockChangeEventDataService#registerConsumer(String)
+	 */
+	@Test
+	public void registerConsumer_shouldRegisterANewConsumerAfterTheLastEvent() throws Exception {
+		StockChangeEventConsumer consumer = service.registerConsumer("test");
+
+		Assert.assertNotNull(consumer.getId());
+		Assert.assertEquals("test", consumer.getName());
+		Assert.assertEquals(events.get(4).getId(), consumer.getLastEventId());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the name is empty
+	 * @see IStockChangeEventDataService#registerConsumer(String)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void registerConsumer_shouldThrowIllegalArgumentExceptionIfTheNameIsEmpty() throws Exception {
+		service.registerConsumer("");
+	}
+
+	/**
+	 * @verifies update the last event id of the consumer
+	 * @see IStockChangeEventDataService#advanceConsumer(String, int)
+	 */
+	@Test
+	public void advanceConsumer_shouldUpdateTheLastEventIdOfTheConsumer() throws Exception {
+		service.registerConsumer("test");
+		StockChangeEvent event = saveEvent();
+
+		service.advanceConsumer("test", event.getId());
+		Context.flushSession();
+		Context.clearSession();
+
+		Assert.assertEquals(event.getId(), service.registerConsumer("test").getLastEventId());
+	}
+
+	/**
+	 * @verifies not move the consumer position backwards
+	 * @see IStockChangeEventDataService#advanceConsumer(String, int)
+	 */
+	@Test
+	public void advanceConsumer_shouldNotMoveTheConsumerPositionBackwards() throws Exception {
+		service.registerConsumer("test");
+
+		service.advanceConsumer("test", events.get(1).getId());
+		Context.flushSession();
+		Context.clearSession();
+
+		Assert.assertEquals(events.get(4).getId(), service.registerConsumer("test").getLastEventId());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the consumer is not registered
+	 * @see IStockChangeEventDataService#advanceConsumer(String, int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void advanceConsumer_shouldThrowIllegalArgumentExceptionIfTheConsumerIsNotRegistered() throws Exception {
+		service.advanceConsumer("test", 1);
+	}
+
+	/**
+	 * @verifies remove the consumer
+	 * @see IStockChangeEventDataService#removeConsumer(String)
+	 */
+	@Test
+	public void removeConsumer_shouldRemoveTheConsumer() throws Exception {
+		service.registerConsumer("test");
+		saveEvent();
+
+		service.removeConsumer("test");
+		Context.flushSession();
+
+		// The consumer had not processed the last event so it would have been kept if the consumer was not removed
+		Assert.assertEquals(6, service.purgeConsumedEvents());
+	}
+
+	/**
+	 * @verifies do nothing if the consumer is not registered
+	 * @see IStockChangeEventDataService#removeConsumer(String)
+	 */
+	@Test
+	public void removeConsumer_shouldDoNothingIfTheConsumerIsNotRegistered() throws Exception {
+		service.removeConsumer("test");
+	}
+
+	/**
+	 * @verifies delete the events that every consumer has processed
+	 * @see IStockChangeEventDataService#purgeConsumedEvents()
+	 */
+	@Test
+	public void purgeConsumedEvents_shouldDeleteTheEventsThatEveryConsumerHasProcessed() throws Exception {
+		service.registerConsumer("test");
+		service.registerConsumer("test2");
+		StockChangeEvent event = saveEvent();
+		StockChangeEvent event2 = saveEvent();
+		StockChangeEvent event3 = saveEvent();
+
+		service.advanceConsumer("test", event3.getId());
+		service.advanceConsumer("test2", event.getId());
+		Context.flushSession();
+
+		Assert.assertEquals(6, service.purgeConsumedEvents());
+		Context.clearSession();
+
+		List<StockChangeEvent> results = service.getEventsAfter(0, 10);
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(event2.getId(), results.get(0).getId());
+		Assert.assertEquals(event3.getId(), results.get(1).getId());
+	}
+
+	/**
+	 * @verifies delete all the events if there are no consumers
+	 * @see IStockChangeEventDataService#purgeConsumedEvents()
+	 */
+	@Test
+	public void purgeConsumedEvents_shouldDeleteAllTheEventsIfThereAreNoConsumers() throws Exception {
+		Assert.assertEquals(5, service.purgeConsumedEvents());
+		Context.clearSession();
+
+		Assert.assertEquals(0, service.getEventsAfter(0, 10).size());
+	}
+
+	private StockChangeEvent saveEvent() {
+		StockChangeEvent event = service.save(new StockChangeEvent(stockroomService.getById(0), itemService.getById(0),
+				operationService.getById(0), 1, 20));
+		Context.flushSession();
+
+		return event;
+	}
+}
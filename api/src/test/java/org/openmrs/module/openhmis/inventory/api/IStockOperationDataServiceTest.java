@@ -339,6 +339,110 @@ public class IStockOperationDataServiceTest extends IMetadataDataServiceTest<ISt
 		service.getOperationByNumber(StringUtils.repeat("A", 256));
 	}
 	
+	/**
+	 * @verifies return null if key is not found
+	 * @see IStockOperationDataService#getOperationByIdempotencyKey(String)
+	 */
+	@Test
+	public void getOperationByIdempotencyKey_shouldReturnNullIfKeyIsNotFound() throws Exception {
+		StockOperation result = service.getOperationByIdempotencyKey("Not a valid key");
+		
+		Assert.assertNull(result);
+	}
+	
+	/**
+	 * @verifies return operation with the specified key
+	 * @see IStockOperationDataService#getOperationByIdempotencyKey(String)
+	 */
+	@Test
+	public void getOperationByIdempotencyKey_shouldReturnOperationWithTheSpecifiedKey() throws Exception {
+		StockOperation operation = service.getById(0);
+		operation.addSubmission("test-key");
+		service.save(operation);
+		Context.flushSession();
+		
+		StockOperation result = service.getOperationByIdempotencyKey("test-key");
+		
+		Assert.assertNotNull(result);
+		assertEntity(operation, result);
+	}
+	
+	/**
+	 * @verifies not return operations with unsaved submissions with the specified key
+	 * @see IStockOperationDataService#getOperationByIdempotencyKey(String)
+	 */
+	@Test
+	public void getOperationByIdempotencyKey_shouldNotReturnOperationsWithUnsavedSubmissionsWithTheSpecifiedKey()
+			throws Exception {
+		StockOperation operation = service.getById(0);
+		operation.addSubmission("test-key");
+		
+		StockOperation result = service.getOperationByIdempotencyKey("test-key");
+		
+		Assert.assertNull(result);
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if key is null
+	 * @see IStockOperationDataService#getOperationByIdempotencyKey(String)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getOperationByIdempotencyKey_shouldThrowIllegalArgumentExceptionIfKeyIsNull() throws Exception {
+		service.getOperationByIdempotencyKey(null);
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if key is empty
+	 * @see IStockOperationDataService#getOperationByIdempotencyKey(String)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getOperationByIdempotencyKey_shouldThrowIllegalArgumentExceptionIfKeyIsEmpty() throws Exception {
+		service.getOperationByIdempotencyKey("");
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if key is longer than 64 characters
+	 * @see IStockOperationDataService#getOperationByIdempotencyKey(String)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getOperationByIdempotencyKey_shouldThrowIllegalArgumentExceptionIfKeyIsLongerThan64Characters()
+			throws Exception {
+		service.getOperationByIdempotencyKey(StringUtils.repeat("A", 65));
+	}
+
+	/**
+	 * @verifies return the saved status rather than the changed status
+	 * @see IStockOperationDataService#getSavedStatus(StockOperation)
+	 */
+	@Test
+	public void getSavedStatus_shouldReturnTheSavedStatusRatherThanTheChangedStatus() throws Exception {
+		StockOperation operation = service.getById(0);
+		StockOperationStatus saved = operation.getStatus();
+
+		operation.setStatus(saved == StockOperationStatus.CANCELLED ? StockOperationStatus.COMPLETED :
+				StockOperationStatus.CANCELLED);
+
+		Assert.assertEquals(saved, service.getSavedStatus(operation));
+	}
+
+	/**
+	 * @verifies return null if the operation has not been saved
+	 * @see IStockOperationDataService#getSavedStatus(StockOperation)
+	 */
+	@Test
+	public void getSavedStatus_shouldReturnNullIfTheOperationHasNotBeenSaved() throws Exception {
+		Assert.assertNull(service.getSavedStatus(createEntity(true)));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the operation is null
+	 * @see IStockOperationDataService#getSavedStatus(StockOperation)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getSavedStatus_shouldThrowIllegalArgumentExceptionIfTheOperationIsNull() throws Exception {
+		service.getSavedStatus(null);
+	}
+	
 	/**
 	 * @verifies return operations for specified room
 	 * @see IStockOperationDataService#getOperationsByRoom(Stockroom, PagingInfo)
@@ -1,6 +1,7 @@
 package org.openmrs.module.openhmis.inventory.api;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -10,13 +11,20 @@ import org.junit.Test;
 import org.openmrs.Patient;
 import org.openmrs.api.APIException;
 import org.openmrs.api.context.Context;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.openhmis.inventory.api.impl.StockOperationSubmissionQueue;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
 import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevelStatus;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
 import org.openmrs.module.openhmis.inventory.api.model.ReservedTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationItem;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationSubmissionResult;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
@@ -29,6 +37,7 @@ public class IStockOperationServiceTest extends BaseModuleContextSensitiveTest {
 	IItemDataService itemService;
 	IStockOperationDataService operationService;
 	IStockOperationService service;
+	IStockChangeEventDataService eventService;
 	
 	IItemDataServiceTest itemTest;
 	IStockOperationDataServiceTest operationTest;
@@ -44,6 +53,7 @@ public class IStockOperationServiceTest extends BaseModuleContextSensitiveTest {
 		itemService = Context.getService(IItemDataService.class);
 		operationService = Context.getService(IStockOperationDataService.class);
 		service = Context.getService(IStockOperationService.class);
+		eventService = Context.getService(IStockChangeEventDataService.class);
 		
 		itemTest = new IItemDataServiceTest();
 		operationTest = new IStockOperationDataServiceTest();
@@ -632,6 +642,51 @@ public class IStockOperationServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertNull(detail);
 	}
 	
+	/**
+	 * @verifies apply the transactions to the current item stock if it was changed since it was loaded
+	 * @see IStockOperationService#applyTransactions(java.util.Collection)
+	 */
+	@Test
+	public void applyTransactions_shouldApplyTheTransactionsToTheCurrentItemStockIfItWasChangedSinceItWasLoaded()
+			throws Exception {
+		Item item = itemService.getById(0);
+		Stockroom stockroom = stockroomService.getById(0);
+		StockOperation batchOperation = operationService.getById(0);
+
+		// Load the item stock into the session and then update it in the database, as another server would
+		ItemStock stock = stockroomService.getItem(stockroom, item);
+		Assert.assertEquals(4, stock.getQuantity());
+		updateItemStock(0, 0, 10);
+
+		// Create a new empty operation
+		StockOperation operation = operationTest.createEntity(true);
+		if (operation.getTransactions() != null)
+			operation.getTransactions().clear();
+		if (operation.getReserved() != null)
+			operation.getReserved().clear();
+		operation.setInstanceType(WellKnownOperationTypes.getReceipt());
+		operation.setStatus(StockOperationStatus.COMPLETED);
+		operation.setDestination(stockroom);
+
+		StockOperationTransaction tx = new StockOperationTransaction();
+		tx.setItem(item);
+		tx.setStockroom(stockroom);
+		tx.setQuantity(5);
+		tx.setBatchOperation(batchOperation);
+		tx.setOperation(operation);
+		operation.addTransaction(tx);
+
+		operationService.save(operation);
+		service.applyTransactions(tx);
+		Context.flushSession();
+
+		// Check that the transaction was added to the updated quantities rather than the ones originally loaded
+		stock = stockroomService.getItem(stockroom, item);
+		Assert.assertEquals(15, stock.getQuantity());
+		ItemStockDetail detail = Iterators.getOnlyElement(stock.getDetails().iterator());
+		Assert.assertEquals(15, (int)detail.getQuantity());
+	}
+
 	@Test
 	public void applyTransactions_testMixedExpirableItemTransactions() throws Exception {
 		Item item0 = itemService.getById(0);
@@ -1299,6 +1354,42 @@ public class IStockOperationServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertTrue(transactions.size() > 0);
 	}
 	
+	/**
+	 * @verifies recalculate the reservations if the source stock was changed since it was loaded
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldRecalculateTheReservationsIfTheSourceStockWasChangedSinceItWasLoaded()
+			throws Exception {
+		Stockroom source = stockroomService.getById(0);
+		Stockroom dest = stockroomService.getById(2);
+		Item item = itemService.getById(0);
+
+		// Load the item stock into the session and then update it in the database, as another server would
+		ItemStock stock = stockroomService.getItem(source, item);
+		Assert.assertEquals(4, stock.getQuantity());
+		StockOperation batchOperation = Iterators.getOnlyElement(stock.getDetails().iterator()).getBatchOperation();
+		updateItemStock(0, 0, 10);
+
+		// Create an operation that needs more stock than was originally loaded
+		StockOperation operation = operationTest.createEntity(true);
+		operation.getReserved().clear();
+		operation.setInstanceType(WellKnownOperationTypes.getTransfer());
+		operation.setSource(source);
+		operation.setDestination(dest);
+		operation.addItem(item, 6);
+
+		service.submitOperation(operation);
+		Context.flushSession();
+
+		// The stale stock would have split the reservation into a batch and an unknown (null batch) transaction
+		ReservedTransaction tx = Iterators.getOnlyElement(operation.getReserved().iterator());
+		Assert.assertEquals(6, (int)tx.getQuantity());
+		Assert.assertEquals(batchOperation, tx.getBatchOperation());
+
+		Assert.assertEquals(4, stockroomService.getItem(source, item).getQuantity());
+	}
+
 	/**
 	 * @verifies throw an IllegalArgumentException if the operation is null
 	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
@@ -1483,4 +1574,612 @@ public class IStockOperationServiceTest extends BaseModuleContextSensitiveTest {
 		Assert.assertEquals(receiptOperation, detail.getBatchOperation());
 		Assert.assertEquals(exp, detail.getExpiration());
 	}
+
+	/**
+	 * @verifies write a stock change event for each operation that changed the item stock
+	 * @see IStockOperationService#applyTransactions(java.util.Collection)
+	 */
+	@Test
+	public void applyTransactions_shouldWriteAStockChangeEventForEachOperationThatChangedTheItemStock()
+			throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		Item item2 = itemService.getById(1);
+		Assert.assertEquals(0, eventService.getEventsAfter(0, 100).size());
+
+		StockOperation operation = createTransferOperation(item, 1);
+		StockOperation operation2 = createTransferOperation(item, 2);
+		StockOperation operation3 = createTransferOperation(item2, 3);
+
+		service.submitOperations(Arrays.asList(operation, operation2, operation3));
+		Context.flushSession();
+
+		List<StockChangeEvent> events = eventService.getEventsAfter(0, 100);
+		Assert.assertEquals(3, events.size());
+		for (StockChangeEvent event : events) {
+			Assert.assertEquals(stockroom, event.getStockroom());
+			if (event.getOperation() == operation) {
+				Assert.assertEquals(item, event.getItem());
+				Assert.assertEquals(-1, (int)event.getQuantity());
+			} else if (event.getOperation() == operation2) {
+				Assert.assertEquals(item, event.getItem());
+				Assert.assertEquals(-2, (int)event.getQuantity());
+			} else {
+				Assert.assertSame(operation3, event.getOperation());
+				Assert.assertEquals(item2, event.getItem());
+				Assert.assertEquals(-3, (int)event.getQuantity());
+			}
+		}
+	}
+
+	/**
+	 * @verifies write the resulting quantity of each change to the stock change event
+	 * @see IStockOperationService#applyTransactions(java.util.Collection)
+	 */
+	@Test
+	public void applyTransactions_shouldWriteTheResultingQuantityOfEachChangeToTheStockChangeEvent() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		int quantity = stockroomService.getItem(stockroom, item).getQuantity();
+		Assert.assertEquals(0, eventService.getEventsAfter(0, 100).size());
+
+		StockOperation operation = createTransferOperation(item, 1);
+		StockOperation operation2 = createTransferOperation(item, 2);
+
+		service.submitOperations(Arrays.asList(operation, operation2));
+		Context.flushSession();
+
+		// The events are written in the order that the operation transactions were applied
+		List<StockChangeEvent> events = eventService.getEventsAfter(0, 100);
+		Assert.assertEquals(2, events.size());
+		Assert.assertSame(operation, events.get(0).getOperation());
+		Assert.assertEquals(quantity - 1, (int)events.get(0).getResultingQuantity());
+		Assert.assertSame(operation2, events.get(1).getOperation());
+		Assert.assertEquals(quantity - 3, (int)events.get(1).getResultingQuantity());
+		Assert.assertEquals(quantity - 3, stockroomService.getItem(stockroom, item).getQuantity());
+	}
+
+	/**
+	 * @verifies throw APIException if an operation has not been saved
+	 * @see IStockOperationService#applyTransactions(java.util.Collection)
+	 */
+	@Test(expected = APIException.class)
+	public void applyTransactions_shouldThrowAPIExceptionIfAnOperationHasNotBeenSaved() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		StockOperation operation = createTransferOperation();
+
+		StockOperationTransaction tx = new StockOperationTransaction();
+		tx.setItem(itemService.getById(0));
+		tx.setStockroom(stockroom);
+		tx.setQuantity(-1);
+		tx.setOperation(operation);
+
+		service.applyTransactions(tx);
+	}
+
+	/**
+	 * @verifies update the item stock level status when the quantity crosses a level
+	 * @see IStockOperationService#applyTransactions(java.util.Collection)
+	 */
+	@Test
+	public void applyTransactions_shouldUpdateTheItemStockLevelStatusWhenTheQuantityCrossesALevel() throws Exception {
+		IItemStockLevelDataService levelService = Context.getService(IItemStockLevelDataService.class);
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		Assert.assertEquals(4, stockroomService.getItem(stockroom, item).getQuantity());
+
+		ItemStockLevel level = levelService.save(new ItemStockLevel(stockroom, item, 1, 3));
+		Context.flushSession();
+		Assert.assertEquals(ItemStockLevelStatus.NORMAL, level.getStatus());
+
+		service.submitOperation(createTransferOperation(item, 2));
+		Context.flushSession();
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, levelService.getLevel(stockroom, item).getStatus());
+
+		// The level is kept when the item stock is removed
+		service.submitOperation(createTransferOperation(item, 2));
+		Context.flushSession();
+		Assert.assertNull(stockroomService.getItem(stockroom, item));
+		Assert.assertEquals(ItemStockLevelStatus.BELOW_MINIMUM, levelService.getLevel(stockroom, item).getStatus());
+		Assert.assertEquals(1, levelService.getAlerts(stockroom, null, null).size());
+	}
+
+	/**
+	 * @verifies update the item stock totals
+	 * @see IStockOperationService#applyTransactions(java.util.Collection)
+	 */
+	@Test
+	public void applyTransactions_shouldUpdateTheItemStockTotals() throws Exception {
+		IItemStockDataService itemStockService = Context.getService(IItemStockDataService.class);
+		Item item = itemService.getById(0);
+		ItemStockTotal total = itemStockService.getItemStockTotal(item);
+		Assert.assertEquals(9, total.getQuantity());
+		Assert.assertEquals(0, total.getReservedQuantity());
+		Assert.assertEquals(2, total.getStockroomCount());
+
+		// The pending transfer removes the stock from the source stockroom and reserves it
+		StockOperation operation = createTransferOperation(item, 2);
+		service.submitOperation(operation);
+		Context.flushSession();
+
+		total = itemStockService.getItemStockTotal(item);
+		Assert.assertEquals(7, total.getQuantity());
+		Assert.assertEquals(2, total.getReservedQuantity());
+		Assert.assertEquals(2, total.getStockroomCount());
+
+		// Completing the transfer adds the stock to the destination stockroom and releases the reservation
+		operation.setStatus(StockOperationStatus.COMPLETED);
+		service.submitOperation(operation);
+		Context.flushSession();
+
+		total = itemStockService.getItemStockTotal(item);
+		Assert.assertEquals(9, total.getQuantity());
+		Assert.assertEquals(0, total.getReservedQuantity());
+		Assert.assertEquals(3, total.getStockroomCount());
+	}
+
+	/**
+	 * @verifies only update the reserved totals when the operation status changes
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldOnlyUpdateTheReservedTotalsWhenTheOperationStatusChanges() throws Exception {
+		IItemStockDataService itemStockService = Context.getService(IItemStockDataService.class);
+		Item item = itemService.getById(0);
+
+		StockOperation operation = createTransferOperation(item, 2);
+		service.submitOperation(operation);
+		Context.flushSession();
+		Assert.assertEquals(2, itemStockService.getItemStockTotal(item).getReservedQuantity());
+
+		// Submitting the pending operation again does not reserve the stock again
+		service.submitOperation(operation);
+		Context.flushSession();
+		Assert.assertEquals(2, itemStockService.getItemStockTotal(item).getReservedQuantity());
+
+		operation.setStatus(StockOperationStatus.CANCELLED);
+		service.submitOperation(operation);
+		Context.flushSession();
+		Assert.assertEquals(0, itemStockService.getItemStockTotal(item).getReservedQuantity());
+	}
+
+	/**
+	 * @verifies return the already submitted operation when retried with the same idempotency key
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldReturnTheAlreadySubmittedOperationWhenRetriedWithTheSameIdempotencyKey()
+			throws Exception {
+		StockOperation operation = createTransferOperation();
+		operation.setIdempotencyKey("retry-key");
+		StockOperation submitted = service.submitOperation(operation);
+		Context.flushSession();
+
+		StockOperation retry = createTransferOperation();
+		retry.setIdempotencyKey("retry-key");
+		StockOperation result = service.submitOperation(retry);
+
+		Assert.assertSame(submitted, result);
+		Assert.assertNull(retry.getId());
+		Assert.assertEquals(StockOperationStatus.NEW, retry.getStatus());
+	}
+
+	/**
+	 * @verifies not apply the transactions again when retried with the same idempotency key
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldNotApplyTheTransactionsAgainWhenRetriedWithTheSameIdempotencyKey()
+			throws Exception {
+		Stockroom source = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		int quantity = stockroomService.getItem(source, item).getQuantity();
+
+		StockOperation operation = createTransferOperation(item, 1);
+		operation.setIdempotencyKey("retry-key");
+		service.submitOperation(operation);
+		Context.flushSession();
+
+		StockOperation retry = createTransferOperation(item, 1);
+		retry.setIdempotencyKey("retry-key");
+		service.submitOperation(retry);
+		Context.flushSession();
+
+		Assert.assertEquals(quantity - 1, stockroomService.getItem(source, item).getQuantity());
+	}
+
+	/**
+	 * @verifies save the idempotency key with the operation
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldSaveTheIdempotencyKeyWithTheOperation() throws Exception {
+		StockOperation operation = createTransferOperation();
+		operation.setIdempotencyKey("new-key");
+		Assert.assertNull(operationService.getOperationByIdempotencyKey("new-key"));
+
+		service.submitOperation(operation);
+		Context.flushSession();
+		Context.clearSession();
+
+		StockOperation result = operationService.getOperationByIdempotencyKey("new-key");
+		Assert.assertNotNull(result);
+		Assert.assertEquals(operation.getId(), result.getId());
+	}
+
+	/**
+	 * @verifies not process a status change again when retried with the same idempotency key
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldNotProcessAStatusChangeAgainWhenRetriedWithTheSameIdempotencyKey()
+			throws Exception {
+		Stockroom destination = stockroomService.getById(2);
+		Item item = itemService.getById(0);
+
+		StockOperation operation = createTransferOperation(item, 1);
+		operation.setIdempotencyKey("create-key");
+		service.submitOperation(operation);
+		Context.flushSession();
+
+		operation.setStatus(StockOperationStatus.COMPLETED);
+		operation.setIdempotencyKey("complete-key");
+		service.submitOperation(operation);
+		Context.flushSession();
+
+		ItemStock stock = stockroomService.getItem(destination, item);
+		Assert.assertNotNull(stock);
+		int quantity = stock.getQuantity();
+
+		operation.setIdempotencyKey("complete-key");
+		StockOperation result = service.submitOperation(operation);
+		Context.flushSession();
+
+		Assert.assertSame(operation, result);
+		Assert.assertEquals(quantity, stockroomService.getItem(destination, item).getQuantity());
+		Assert.assertEquals(2, operation.getSubmissions().size());
+		Assert.assertSame(operation, operationService.getOperationByIdempotencyKey("create-key"));
+		Assert.assertSame(operation, operationService.getOperationByIdempotencyKey("complete-key"));
+	}
+
+	/**
+	 * @verifies set the operation status to queued
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void queueOperation_shouldSetTheOperationStatusToQueued() throws Exception {
+		StockOperation operation = createTransferOperation();
+
+		StockOperationSubmissionQueue.setDaemonToken(new DaemonToken("test"));
+		try {
+			StockOperation result = service.queueOperation(operation);
+			Context.flushSession();
+
+			Assert.assertNotNull(result.getId());
+			Assert.assertEquals(StockOperationStatus.QUEUED, result.getStatus());
+			Assert.assertEquals(StockOperationStatus.QUEUED, operationService.getById(result.getId()).getStatus());
+		} finally {
+			StockOperationSubmissionQueue.setDaemonToken(null);
+		}
+	}
+
+	/**
+	 * @verifies clear the submission error
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void queueOperation_shouldClearTheSubmissionError() throws Exception {
+		StockOperation operation = createTransferOperation();
+		operation.setSubmissionError("The previous submission failed.");
+
+		StockOperationSubmissionQueue.setDaemonToken(new DaemonToken("test"));
+		try {
+			StockOperation result = service.queueOperation(operation);
+			Context.flushSession();
+
+			Assert.assertNull(result.getSubmissionError());
+		} finally {
+			StockOperationSubmissionQueue.setDaemonToken(null);
+		}
+	}
+
+	/**
+	 * @verifies clear the submission error of a new operation
+	 * @see IStockOperationService#submitOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void submitOperation_shouldClearTheSubmissionErrorOfANewOperation() throws Exception {
+		StockOperation operation = createTransferOperation();
+		operation.setSubmissionError("The previous submission failed.");
+
+		StockOperation result = service.submitOperation(operation);
+		Context.flushSession();
+
+		Assert.assertEquals(StockOperationStatus.PENDING, result.getStatus());
+		Assert.assertNull(result.getSubmissionError());
+	}
+
+	/**
+	 * @verifies not create the operation reservations
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void queueOperation_shouldNotCreateTheOperationReservations() throws Exception {
+		StockOperation operation = createTransferOperation();
+		int quantity = stockroomService.getItem(operation.getSource(), itemService.getById(0)).getQuantity();
+
+		StockOperationSubmissionQueue.setDaemonToken(new DaemonToken("test"));
+		try {
+			service.queueOperation(operation);
+			Context.flushSession();
+
+			Assert.assertEquals(0, operation.getReserved().size());
+			Assert.assertEquals(quantity,
+					stockroomService.getItem(operation.getSource(), itemService.getById(0)).getQuantity());
+		} finally {
+			StockOperationSubmissionQueue.setDaemonToken(null);
+		}
+	}
+
+	/**
+	 * @verifies submit the operation immediately if the queue is not available
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void queueOperation_shouldSubmitTheOperationImmediatelyIfTheQueueIsNotAvailable() throws Exception {
+		StockOperation operation = createTransferOperation();
+
+		Assert.assertFalse(StockOperationSubmissionQueue.isAvailable());
+		StockOperation result = service.queueOperation(operation);
+		Context.flushSession();
+
+		Assert.assertEquals(StockOperationStatus.PENDING, result.getStatus());
+		Assert.assertEquals(1, result.getReserved().size());
+	}
+
+	/**
+	 * @verifies return the already queued operation when retried with the same idempotency key
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void queueOperation_shouldReturnTheAlreadyQueuedOperationWhenRetriedWithTheSameIdempotencyKey()
+			throws Exception {
+		StockOperation operation = createTransferOperation();
+		operation.setIdempotencyKey("queue-key");
+
+		StockOperationSubmissionQueue.setDaemonToken(new DaemonToken("test"));
+		try {
+			StockOperation queued = service.queueOperation(operation);
+			Context.flushSession();
+
+			StockOperation retry = createTransferOperation();
+			retry.setIdempotencyKey("queue-key");
+
+			Assert.assertSame(queued, service.queueOperation(retry));
+			Assert.assertNull(retry.getId());
+		} finally {
+			StockOperationSubmissionQueue.setDaemonToken(null);
+		}
+	}
+
+	/**
+	 * @verifies throw an APIException if the operation status is not new
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test(expected = APIException.class)
+	public void queueOperation_shouldThrowAnAPIExceptionIfTheOperationStatusIsNotNew() throws Exception {
+		StockOperation operation = createTransferOperation();
+		operation.setStatus(StockOperationStatus.PENDING);
+
+		service.queueOperation(operation);
+	}
+
+	/**
+	 * @verifies throw an APIException if the operation has no operation items
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test(expected = APIException.class)
+	public void queueOperation_shouldThrowAnAPIExceptionIfTheOperationHasNoOperationItems() throws Exception {
+		StockOperation operation = operationTest.createEntity(true);
+		operation.getReserved().clear();
+
+		service.queueOperation(operation);
+	}
+
+	/**
+	 * @verifies throw an IllegalArgumentException if the operation is null
+	 * @see IStockOperationService#queueOperation(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void queueOperation_shouldThrowAnIllegalArgumentExceptionIfTheOperationIsNull() throws Exception {
+		service.queueOperation(null);
+	}
+
+	/**
+	 * @verifies submit all the operations
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test
+	public void submitOperations_shouldSubmitAllTheOperations() throws Exception {
+		StockOperation operation = createTransferOperation(itemService.getById(0), 1);
+		StockOperation operation2 = createTransferOperation(itemService.getById(1), 2);
+
+		StockOperationSubmissionResult result = service.submitOperations(Arrays.asList(operation, operation2));
+		Context.flushSession();
+
+		Assert.assertFalse(result.hasFailures());
+		Assert.assertEquals(2, result.getSubmitted().size());
+		for (StockOperation submitted : result.getSubmitted()) {
+			Assert.assertNotNull(submitted.getId());
+			Assert.assertEquals(StockOperationStatus.PENDING, submitted.getStatus());
+			Assert.assertEquals(1, submitted.getReserved().size());
+		}
+	}
+
+	/**
+	 * @verifies report operations that are not valid without submitting them
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test
+	public void submitOperations_shouldReportOperationsThatAreNotValidWithoutSubmittingThem() throws Exception {
+		StockOperation invalid = operationTest.createEntity(true);
+		invalid.getReserved().clear();
+		StockOperation operation = createTransferOperation(itemService.getById(0), 1);
+
+		StockOperationSubmissionResult result = service.submitOperations(Arrays.asList(invalid, operation));
+		Context.flushSession();
+
+		Assert.assertTrue(result.hasFailures());
+		Assert.assertEquals(1, result.getFailures().size());
+		Assert.assertTrue(result.getFailures().get(invalid) instanceof APIException);
+		Assert.assertNull(invalid.getId());
+
+		Assert.assertEquals(1, result.getSubmitted().size());
+		Assert.assertSame(operation, result.getSubmitted().get(0));
+	}
+
+	/**
+	 * @verifies return the already submitted operation for operations with a used idempotency key
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test
+	public void submitOperations_shouldReturnTheAlreadySubmittedOperationForOperationsWithAUsedIdempotencyKey()
+			throws Exception {
+		StockOperation operation = createTransferOperation(itemService.getById(0), 1);
+		operation.setIdempotencyKey("batch-key");
+		StockOperation submitted = service.submitOperation(operation);
+		Context.flushSession();
+
+		StockOperation retry = createTransferOperation(itemService.getById(0), 1);
+		retry.setIdempotencyKey("batch-key");
+		StockOperation operation2 = createTransferOperation(itemService.getById(1), 2);
+
+		StockOperationSubmissionResult result = service.submitOperations(Arrays.asList(retry, operation2));
+		Context.flushSession();
+
+		Assert.assertFalse(result.hasFailures());
+		Assert.assertEquals(2, result.getSubmitted().size());
+		Assert.assertSame(submitted, result.getSubmitted().get(0));
+		Assert.assertSame(operation2, result.getSubmitted().get(1));
+		Assert.assertNull(retry.getId());
+	}
+
+	/**
+	 * @verifies calculate the reservations for operations with the same source from the shared stock
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test
+	public void submitOperations_shouldCalculateTheReservationsForOperationsWithTheSameSourceFromTheSharedStock()
+			throws Exception {
+		Item item = itemService.getById(0);
+		Assert.assertEquals(4, stockroomService.getItem(stockroomService.getById(0), item).getQuantity());
+
+		StockOperation operation = createTransferOperation(item, 3);
+		StockOperation operation2 = createTransferOperation(item, 3);
+
+		StockOperationSubmissionResult result = service.submitOperations(Arrays.asList(operation, operation2));
+		Context.flushSession();
+
+		Assert.assertFalse(result.hasFailures());
+
+		// The first operation takes three of the four items in the batch so the second operation can only take the one
+		//  remaining item from the batch and the rest is taken from unknown stock
+		Assert.assertEquals(1, operation.getReserved().size());
+		Assert.assertEquals(2, operation2.getReserved().size());
+		for (ReservedTransaction tx : operation2.getReserved()) {
+			if (tx.getBatchOperation() == null) {
+				Assert.assertEquals(2, (int)tx.getQuantity());
+			} else {
+				Assert.assertEquals(1, (int)tx.getQuantity());
+			}
+		}
+	}
+
+	/**
+	 * @verifies not take the stock reserved by an operation that fails from the later operations
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test
+	public void submitOperations_shouldNotTakeTheStockReservedByAnOperationThatFailsFromTheLaterOperations()
+			throws Exception {
+		Item item = itemService.getById(0);
+		Assert.assertEquals(4, stockroomService.getItem(stockroomService.getById(0), item).getQuantity());
+
+		// The first item is reserved from the stock before the expirable item causes the operation to fail
+		Item expirable = itemService.getById(1);
+		expirable.setHasExpiration(true);
+		StockOperation invalid = createTransferOperation(item, 3);
+		invalid.addItem(expirable, 1).setCalculatedExpiration(false);
+
+		StockOperation operation = createTransferOperation(item, 3);
+
+		StockOperationSubmissionResult result = service.submitOperations(Arrays.asList(invalid, operation));
+		Context.flushSession();
+
+		Assert.assertEquals(1, result.getFailures().size());
+		Assert.assertTrue(result.getFailures().get(invalid) instanceof APIException);
+
+		// The failed operation stock was not taken so the operation is fulfilled from the batch
+		Assert.assertEquals(1, operation.getReserved().size());
+		ReservedTransaction tx = operation.getReserved().iterator().next();
+		Assert.assertNotNull(tx.getBatchOperation());
+		Assert.assertEquals(3, (int)tx.getQuantity());
+	}
+
+	/**
+	 * @verifies apply the transactions for all the operations
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test
+	public void submitOperations_shouldApplyTheTransactionsForAllTheOperations() throws Exception {
+		Stockroom source = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		Item item2 = itemService.getById(1);
+		int quantity = stockroomService.getItem(source, item).getQuantity();
+		int quantity2 = stockroomService.getItem(source, item2).getQuantity();
+
+		StockOperation operation = createTransferOperation(item, 1);
+		StockOperation operation2 = createTransferOperation(item, 2);
+		StockOperation operation3 = createTransferOperation(item2, 3);
+
+		StockOperationSubmissionResult result =
+				service.submitOperations(Arrays.asList(operation, operation2, operation3));
+		Context.flushSession();
+
+		Assert.assertFalse(result.hasFailures());
+		Assert.assertEquals(quantity - 3, stockroomService.getItem(source, item).getQuantity());
+		Assert.assertEquals(quantity2 - 3, stockroomService.getItem(source, item2).getQuantity());
+	}
+
+	/**
+	 * @verifies throw an IllegalArgumentException if operations is null
+	 * @see IStockOperationService#submitOperations(java.util.List)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void submitOperations_shouldThrowAnIllegalArgumentExceptionIfOperationsIsNull() throws Exception {
+		service.submitOperations(null);
+	}
+
+	private StockOperation createTransferOperation() {
+		return createTransferOperation(itemService.getById(0), 2);
+	}
+
+	private StockOperation createTransferOperation(Item item, int quantity) {
+		StockOperation operation = operationTest.createEntity(true);
+		operation.getReserved().clear();
+		operation.setInstanceType(WellKnownOperationTypes.getTransfer());
+		operation.setStatus(StockOperationStatus.NEW);
+		operation.setSource(stockroomService.getById(0));
+		operation.setDestination(stockroomService.getById(2));
+		operation.addItem(item, quantity);
+
+		return operation;
+	}
+
+	private void updateItemStock(int itemStockId, int itemStockDetailId, int quantity) {
+		Context.getAdministrationService().executeSQL("update inv_item_stock set quantity = " + quantity +
+				", version = version + 1 where item_stock_id = " + itemStockId, false);
+		Context.getAdministrationService().executeSQL("update inv_item_stock_detail set quantity = " + quantity +
+				", version = version + 1 where item_stock_detail_id = " + itemStockDetailId, false);
+	}
 }
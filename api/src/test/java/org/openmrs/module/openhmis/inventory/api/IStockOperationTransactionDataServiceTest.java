@@ -0,0 +1,143 @@
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+public class IStockOperationTransactionDataServiceTest extends BaseModuleContextSensitiveTest {
+	private IStockOperationTransactionDataService service;
+	private IStockroomDataService stockroomService;
+
+	@Before
+	public void before() throws Exception {
+		executeDataSet(TestConstants.CORE_DATASET);
+		executeDataSet(IDepartmentDataServiceTest.DEPARTMENT_DATASET);
+		executeDataSet(ICategoryDataServiceTest.CATEGORY_DATASET);
+		executeDataSet(IItemDataServiceTest.ITEM_DATASET);
+		executeDataSet(IStockroomDataServiceTest.DATASET);
+
+		service = Context.getService(IStockOperationTransactionDataService.class);
+		stockroomService = Context.getService(IStockroomDataService.class);
+	}
+
+	/**
+	 * @verifies add the transactions before the horizon to monthly rollups
+	 * @see IStockOperationTransactionDataService#compactTransactions(java.util.Date)
+	 */
+	@Test
+	public void compactTransactions_shouldAddTheTransactionsBeforeTheHorizonToMonthlyRollups() throws Exception {
+		int compacted = service.compactTransactions(createDate(2013, Calendar.JANUARY, 1, 0));
+		Context.flushSession();
+		Context.clearSession();
+
+		Assert.assertEquals(9, compacted);
+
+		// Stockroom 0 has two transactions for each of its three items
+		List<StockOperationTransaction> results = stockroomService.getTransactionsByRoom(stockroomService.getById(0), null);
+		Assert.assertEquals(3, results.size());
+
+		StockOperationTransaction rollup = findByItem(results, 0);
+		Assert.assertNull(rollup.getId());
+		Assert.assertEquals(4, (int)rollup.getQuantity());
+		Assert.assertEquals(0, (int)rollup.getBatchOperation().getId());
+		Assert.assertEquals(createDate(2012, Calendar.JANUARY, 1, 0), rollup.getDateCreated());
+		Assert.assertEquals(6, (int)findByItem(results, 1).getQuantity());
+		Assert.assertEquals(8, (int)findByItem(results, 2).getQuantity());
+	}
+
+	/**
+	 * @verifies add to existing rollups for the same month
+	 * @see IStockOperationTransactionDataService#compactTransactions(java.util.Date)
+	 */
+	@Test
+	public void compactTransactions_shouldAddToExistingRollupsForTheSameMonth() throws Exception {
+		Assert.assertEquals(4, service.compactTransactions(createDate(2012, Calendar.JANUARY, 1, 5)));
+		Context.flushSession();
+
+		Assert.assertEquals(3, service.compactTransactions(createDate(2012, Calendar.JANUARY, 1, 35)));
+		Context.flushSession();
+		Context.clearSession();
+
+		// Transactions 4 and 5 remain, followed by a single rollup for each item
+		List<StockOperationTransaction> results = stockroomService.getTransactionsByRoom(stockroomService.getById(0), null);
+		Assert.assertEquals(5, results.size());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+		Assert.assertEquals(5, (int)results.get(1).getId());
+		Assert.assertEquals(4, (int)findByItem(results.subList(2, 5), 0).getQuantity());
+		Assert.assertEquals(11, (int)findByItem(results.subList(2, 5), 1).getQuantity());
+		Assert.assertEquals(12, (int)findByItem(results.subList(2, 5), 2).getQuantity());
+	}
+
+	/**
+	 * @verifies move the compacted transactions to the archive
+	 * @see IStockOperationTransactionDataService#compactTransactions(java.util.Date)
+	 */
+	@Test
+	public void compactTransactions_shouldMoveTheCompactedTransactionsToTheArchive() throws Exception {
+		service.compactTransactions(createDate(2012, Calendar.JANUARY, 1, 5));
+		Context.flushSession();
+		Context.clearSession();
+
+		Assert.assertNull(service.getById(0));
+		Assert.assertNull(service.getById(6));
+		Assert.assertNotNull(service.getById(1));
+
+		List<List<Object>> rows = Context.getAdministrationService().executeSQL(
+				"select transaction_id from inv_transaction_archive order by transaction_id", true);
+		Assert.assertEquals(4, rows.size());
+		Assert.assertEquals(0, ((Number)rows.get(0).get(0)).intValue());
+		Assert.assertEquals(8, ((Number)rows.get(3).get(0)).intValue());
+	}
+
+	/**
+	 * @verifies not compact transactions on or after the horizon
+	 * @see IStockOperationTransactionDataService#compactTransactions(java.util.Date)
+	 */
+	@Test
+	public void compactTransactions_shouldNotCompactTransactionsOnOrAfterTheHorizon() throws Exception {
+		Assert.assertEquals(0, service.compactTransactions(createDate(2012, Calendar.JANUARY, 1, 0)));
+
+		// Transaction 1 was created exactly at the horizon
+		Assert.assertEquals(4, service.compactTransactions(createDate(2012, Calendar.JANUARY, 1, 10)));
+		Context.flushSession();
+		Context.clearSession();
+
+		Assert.assertNotNull(service.getById(1));
+		Assert.assertNotNull(service.getById(2));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the horizon is null
+	 * @see IStockOperationTransactionDataService#compactTransactions(java.util.Date)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void compactTransactions_shouldThrowIllegalArgumentExceptionIfTheHorizonIsNull() throws Exception {
+		service.compactTransactions(null);
+	}
+
+	private StockOperationTransaction findByItem(List<StockOperationTransaction> transactions, int itemId) {
+		for (StockOperationTransaction tx : transactions) {
+			if (tx.getItem().getId() == itemId) {
+				return tx;
+			}
+		}
+
+		Assert.fail("Could not find the transaction for item " + itemId + ".");
+		return null;
+	}
+
+	private Date createDate(int year, int month, int day, int seconds) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, month, day, 0, 0, seconds);
+
+		return calendar.getTime();
+	}
+}
@@ -1,6 +1,9 @@
 package org.openmrs.module.openhmis.inventory.api;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Iterator;
@@ -22,9 +25,11 @@ import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetailBase;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.api.search.StockOperationSearch;
+import org.openmrs.module.openhmis.inventory.api.util.KeysetPagingInfo;
 
 import com.google.common.collect.Iterators;
 
@@ -455,6 +460,103 @@ public class IStockroomDataServiceTest extends IMetadataDataServiceTest<IStockro
 		service.getItem(room, null);
 	}
 	
+	/**
+	 * @verifies return the stockroom item stock for all the specified items
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test
+	public void getItems_shouldReturnTheStockroomItemStockForAllTheSpecifiedItems() throws Exception {
+		Stockroom room = service.getById(0);
+		Item item0 = itemService.getById(0);
+		Item item2 = itemService.getById(2);
+
+		List<ItemStock> results = service.getItems(room, Arrays.asList(item0, item2));
+		Assert.assertNotNull(results);
+		Assert.assertEquals(2, results.size());
+
+		for (ItemStock stock : results) {
+			assertItemStock(service.getItem(room, stock.getItem()), stock);
+		}
+	}
+
+	/**
+	 * @verifies not return items from other stockrooms
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test
+	public void getItems_shouldNotReturnItemsFromOtherStockrooms() throws Exception {
+		Stockroom room = service.getById(1);
+		Item item = itemService.getById(2);
+
+		List<ItemStock> results = service.getItems(room, Arrays.asList(item));
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(room, results.get(0).getStockroom());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+	}
+
+	/**
+	 * @verifies not return item stock for items that are not specified
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test
+	public void getItems_shouldNotReturnItemStockForItemsThatAreNotSpecified() throws Exception {
+		Stockroom room = service.getById(0);
+		Item item = itemService.getById(1);
+
+		List<ItemStock> results = service.getItems(room, Arrays.asList(item));
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(item, results.get(0).getItem());
+	}
+
+	/**
+	 * @verifies return an empty list when items is empty
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test
+	public void getItems_shouldReturnAnEmptyListWhenItemsIsEmpty() throws Exception {
+		List<ItemStock> results = service.getItems(service.getById(0), new ArrayList<Item>());
+
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+	}
+
+	/**
+	 * @verifies load the item stock details
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test
+	public void getItems_shouldLoadTheItemStockDetails() throws Exception {
+		Stockroom room = service.getById(1);
+		Item item = itemService.getById(0);
+
+		List<ItemStock> results = service.getItems(room, Arrays.asList(item));
+		Assert.assertEquals(1, results.size());
+
+		// Item stock 3 has two details in the test dataset
+		Assert.assertNotNull(results.get(0).getDetails());
+		Assert.assertEquals(2, results.get(0).getDetails().size());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when stockroom is null
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItems_shouldThrowIllegalArgumentExceptionWhenStockroomIsNull() throws Exception {
+		service.getItems(null, Arrays.asList(itemService.getById(0)));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException when items is null
+	 * @see IStockroomDataService#getItems(org.openmrs.module.openhmis.inventory.api.model.Stockroom, java.util.Collection)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItems_shouldThrowIllegalArgumentExceptionWhenItemsIsNull() throws Exception {
+		service.getItems(service.getById(0), (Collection<Item>)null);
+	}
+
 	/**
 	 * @verifies return all the items in the stockroom ordered by item name
 	 * @see IStockroomDataService#getItemsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
@@ -763,6 +865,130 @@ public class IStockroomDataServiceTest extends IMetadataDataServiceTest<IStockro
 		service.getStockroomItemDetail(stockroom, null, new Date(), batchOperation);
 	}
 	
+	/**
+	 * @verifies return the details that expire before the date ordered by expiration
+	 * @see IStockroomDataService#getExpiringDetails(java.util.Date, java.util.Collection,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getExpiringDetails_shouldReturnTheDetailsThatExpireBeforeTheDateOrderedByExpiration() throws Exception {
+		// Move the stockroom 1 detail to expire before the stockroom 0 detail
+		ItemStockDetail detail = service.getStockroomItemDetail(service.getById(1), itemService.getById(2),
+		        createDate(2025, Calendar.JANUARY, 1), operationService.getById(0));
+		detail.setExpiration(createDate(2024, Calendar.JUNE, 1));
+		Context.flushSession();
+		
+		List<ItemStockDetail> results = service.getExpiringDetails(createDate(2025, Calendar.FEBRUARY, 1), null, null);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+		Assert.assertEquals(2, (int)results.get(1).getId());
+	}
+	
+	/**
+	 * @verifies not return details that expire on or after the date
+	 * @see IStockroomDataService#getExpiringDetails(java.util.Date, java.util.Collection,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getExpiringDetails_shouldNotReturnDetailsThatExpireOnOrAfterTheDate() throws Exception {
+		List<ItemStockDetail> results = service.getExpiringDetails(createDate(2025, Calendar.JANUARY, 1), null, null);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+		
+		results = service.getExpiringDetails(createDate(2025, Calendar.JANUARY, 2), null, null);
+		Assert.assertEquals(2, results.size());
+	}
+	
+	/**
+	 * @verifies only return details for the specified stockrooms
+	 * @see IStockroomDataService#getExpiringDetails(java.util.Date, java.util.Collection,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getExpiringDetails_shouldOnlyReturnDetailsForTheSpecifiedStockrooms() throws Exception {
+		Stockroom stockroom = service.getById(1);
+		
+		List<ItemStockDetail> results = service.getExpiringDetails(createDate(2025, Calendar.FEBRUARY, 1),
+		        Arrays.asList(stockroom), null);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(stockroom, results.get(0).getStockroom());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+		
+		results = service.getExpiringDetails(createDate(2025, Calendar.FEBRUARY, 1),
+		        Arrays.asList(service.getById(4)), null);
+		Assert.assertEquals(0, results.size());
+	}
+	
+	/**
+	 * @verifies return details for all stockrooms when stockrooms is empty
+	 * @see IStockroomDataService#getExpiringDetails(java.util.Date, java.util.Collection,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getExpiringDetails_shouldReturnDetailsForAllStockroomsWhenStockroomsIsEmpty() throws Exception {
+		List<ItemStockDetail> results = service.getExpiringDetails(createDate(2025, Calendar.FEBRUARY, 1),
+		        new ArrayList<Stockroom>(), null);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(2, results.size());
+	}
+	
+	/**
+	 * @verifies return paged details if paging is specified
+	 * @see IStockroomDataService#getExpiringDetails(java.util.Date, java.util.Collection,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getExpiringDetails_shouldReturnPagedDetailsIfPagingIsSpecified() throws Exception {
+		PagingInfo paging = new PagingInfo(1, 1);
+		
+		List<ItemStockDetail> results = service.getExpiringDetails(createDate(2025, Calendar.FEBRUARY, 1), null, paging);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(2, (int)results.get(0).getId());
+		Assert.assertEquals(2, (long)paging.getTotalRecordCount());
+		
+		paging.setPage(2);
+		results = service.getExpiringDetails(createDate(2025, Calendar.FEBRUARY, 1), null, paging);
+		
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException when before is null
+	 * @see IStockroomDataService#getExpiringDetails(java.util.Date, java.util.Collection,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getExpiringDetails_shouldThrowIllegalArgumentExceptionWhenBeforeIsNull() throws Exception {
+		service.getExpiringDetails(null, null, null);
+	}
+	
+	private Date createDate(int year, int month, int day) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(year, month, day);
+		
+		return calendar.getTime();
+	}
+	
+	private void compactTransactions() {
+		// Compact transactions 0, 1, and 2
+		Calendar calendar = Calendar.getInstance();
+		calendar.clear();
+		calendar.set(2012, Calendar.JANUARY, 1, 0, 0, 25);
+		Context.getService(IStockOperationTransactionDataService.class).compactTransactions(calendar.getTime());
+		Context.flushSession();
+		Context.clearSession();
+	}
+	
 	/**
 	 * @verifies return item stock sorted by item name
 	 * @see IStockroomDataService#getItemsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
@@ -984,6 +1210,31 @@ public class IStockroomDataServiceTest extends IMetadataDataServiceTest<IStockro
 		Assert.assertEquals(6, (long)pagingInfo.getTotalRecordCount());
 	}
 	
+	/**
+	 * @verifies not return the compacted transactions
+	 * @see IStockroomDataService#getTransactionsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getTransactionsByRoom_shouldNotReturnTheCompactedTransactions() throws Exception {
+		compactTransactions();
+		
+		Stockroom stockroom = service.getById(0);
+		List<StockOperationTransaction> results = service.getTransactionsByRoom(stockroom, null);
+		
+		Assert.assertEquals(3, results.size());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+		Assert.assertEquals(5, (int)results.get(1).getId());
+		Assert.assertEquals(3, (int)results.get(2).getId());
+		
+		PagingInfo pagingInfo = new PagingInfo(2, 2);
+		results = service.getTransactionsByRoom(stockroom, pagingInfo);
+		
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(3, (int)results.get(0).getId());
+		Assert.assertEquals(3, (long)pagingInfo.getTotalRecordCount());
+	}
+	
 	/**
 	 * @verifies throw IllegalArgumentException if the stockroom is null
 	 * @see IStockroomDataService#getTransactionsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
@@ -993,6 +1244,169 @@ public class IStockroomDataServiceTest extends IMetadataDataServiceTest<IStockro
 	public void getTransactionsByRoom_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
 		service.getTransactionsByRoom(null, null);
 	}
+
+	/**
+	 * @verifies return the rollups in the stockroom ordered by month
+	 * @see IStockroomDataService#getTransactionRollupsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getTransactionRollupsByRoom_shouldReturnTheRollupsInTheStockroomOrderedByMonth() throws Exception {
+		compactTransactions();
+		
+		Stockroom stockroom = service.getById(0);
+		List<StockOperationTransactionRollup> results = service.getTransactionRollupsByRoom(stockroom, null);
+		
+		Assert.assertEquals(3, results.size());
+		StockOperationTransactionRollup previous = null;
+		for (StockOperationTransactionRollup rollup : results) {
+			Assert.assertNotNull(rollup.getId());
+			Assert.assertEquals(stockroom.getId(), rollup.getStockroom().getId());
+			if (previous != null) {
+				Assert.assertFalse(rollup.getMonth().after(previous.getMonth()));
+			}
+			
+			previous = rollup;
+		}
+	}
+	
+	/**
+	 * @verifies return an empty list if no transactions have been compacted
+	 * @see IStockroomDataService#getTransactionRollupsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getTransactionRollupsByRoom_shouldReturnAnEmptyListIfNoTransactionsHaveBeenCompacted() throws Exception {
+		List<StockOperationTransactionRollup> results = service.getTransactionRollupsByRoom(service.getById(0), null);
+		
+		Assert.assertNotNull(results);
+		Assert.assertEquals(0, results.size());
+	}
+	
+	/**
+	 * @verifies return paged rollups if paging is specified
+	 * @see IStockroomDataService#getTransactionRollupsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test
+	public void getTransactionRollupsByRoom_shouldReturnPagedRollupsIfPagingIsSpecified() throws Exception {
+		compactTransactions();
+		
+		Stockroom stockroom = service.getById(0);
+		List<StockOperationTransactionRollup> all = service.getTransactionRollupsByRoom(stockroom, null);
+		
+		PagingInfo pagingInfo = new PagingInfo(2, 2);
+		List<StockOperationTransactionRollup> results = service.getTransactionRollupsByRoom(stockroom, pagingInfo);
+		
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(all.get(2).getId(), results.get(0).getId());
+		Assert.assertEquals(3, (long)pagingInfo.getTotalRecordCount());
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if the stockroom is null
+	 * @see IStockroomDataService#getTransactionRollupsByRoom(org.openmrs.module.openhmis.inventory.api.model.Stockroom,
+	 *      org.openmrs.module.openhmis.commons.api.PagingInfo)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getTransactionRollupsByRoom_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
+		service.getTransactionRollupsByRoom(null, null);
+	}
+	
+	/**
+	 * @verifies return the transactions in the same order as the offset paged transactions
+	 * @see IStockroomDataService#seekTransactionsByRoom(Stockroom, KeysetPagingInfo)
+	 */
+	@Test
+	public void seekTransactionsByRoom_shouldReturnTheTransactionsInTheSameOrderAsTheOffsetPagedTransactions()
+	        throws Exception {
+		Stockroom stockroom = service.getById(0);
+		
+		KeysetPagingInfo paging = new KeysetPagingInfo(10, null);
+		List<StockOperationTransaction> results = service.seekTransactionsByRoom(stockroom, paging);
+		
+		Assert.assertEquals(service.getTransactionsByRoom(stockroom, null), results);
+	}
+	
+	/**
+	 * @verifies continue from the last transaction of the previous page
+	 * @see IStockroomDataService#seekTransactionsByRoom(Stockroom, KeysetPagingInfo)
+	 */
+	@Test
+	public void seekTransactionsByRoom_shouldContinueFromTheLastTransactionOfThePreviousPage() throws Exception {
+		Stockroom stockroom = service.getById(0);
+		
+		KeysetPagingInfo paging = new KeysetPagingInfo(4, "");
+		List<StockOperationTransaction> results = service.seekTransactionsByRoom(stockroom, paging);
+		
+		Assert.assertEquals(4, results.size());
+		Assert.assertEquals(4, (int)results.get(0).getId());
+		Assert.assertEquals(2, (int)results.get(3).getId());
+		Assert.assertTrue(paging.hasMoreResults());
+		
+		paging.setContinuation(paging.getNextContinuation());
+		results = service.seekTransactionsByRoom(stockroom, paging);
+		
+		Assert.assertEquals(2, results.size());
+		Assert.assertEquals(1, (int)results.get(0).getId());
+		Assert.assertEquals(0, (int)results.get(1).getId());
+	}
+	
+	/**
+	 * @verifies not return the compacted transactions
+	 * @see IStockroomDataService#seekTransactionsByRoom(Stockroom, KeysetPagingInfo)
+	 */
+	@Test
+	public void seekTransactionsByRoom_shouldNotReturnTheCompactedTransactions() throws Exception {
+		compactTransactions();
+		
+		Stockroom stockroom = service.getById(0);
+		
+		KeysetPagingInfo paging = new KeysetPagingInfo(2, null);
+		List<StockOperationTransaction> results = service.seekTransactionsByRoom(stockroom, paging);
+		Assert.assertEquals(2, results.size());
+		Assert.assertTrue(paging.hasMoreResults());
+		
+		paging.setContinuation(paging.getNextContinuation());
+		results = service.seekTransactionsByRoom(stockroom, paging);
+		
+		Assert.assertEquals(1, results.size());
+		Assert.assertEquals(3, (int)results.get(0).getId());
+		Assert.assertFalse(paging.hasMoreResults());
+	}
+	
+	/**
+	 * @verifies not set the next continuation on the last page
+	 * @see IStockroomDataService#seekTransactionsByRoom(Stockroom, KeysetPagingInfo)
+	 */
+	@Test
+	public void seekTransactionsByRoom_shouldNotSetTheNextContinuationOnTheLastPage() throws Exception {
+		KeysetPagingInfo paging = new KeysetPagingInfo(6, null);
+		List<StockOperationTransaction> results = service.seekTransactionsByRoom(service.getById(0), paging);
+		
+		Assert.assertEquals(6, results.size());
+		Assert.assertFalse(paging.hasMoreResults());
+		Assert.assertNull(paging.getNextContinuation());
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if the continuation is not valid
+	 * @see IStockroomDataService#seekTransactionsByRoom(Stockroom, KeysetPagingInfo)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void seekTransactionsByRoom_shouldThrowIllegalArgumentExceptionIfTheContinuationIsNotValid()
+	        throws Exception {
+		service.seekTransactionsByRoom(service.getById(0), new KeysetPagingInfo(5, "x.abc.1"));
+	}
+	
+	/**
+	 * @verifies throw IllegalArgumentException if the stockroom is null
+	 * @see IStockroomDataService#seekTransactionsByRoom(Stockroom, KeysetPagingInfo)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void seekTransactionsByRoom_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
+		service.seekTransactionsByRoom(null, new KeysetPagingInfo(5, null));
+	}
 	
 	/**
 	 * @verifies return operations filtered by template and stockroom
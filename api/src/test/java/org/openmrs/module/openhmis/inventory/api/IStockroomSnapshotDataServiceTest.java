@@ -0,0 +1,343 @@
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.io.StringReader;
+import java.util.Calendar;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockSnapshot;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.model.StockroomSnapshot;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+public class IStockroomSnapshotDataServiceTest extends BaseModuleContextSensitiveTest {
+	private IStockroomSnapshotDataService service;
+	private IStockroomDataService stockroomService;
+	private IItemDataService itemService;
+	private IStockOperationDataService operationService;
+	private IStockOperationService stockOperationService;
+
+	private IStockOperationDataServiceTest operationTest;
+
+	@Before
+	public void before() throws Exception {
+		executeDataSet(TestConstants.CORE_DATASET);
+		executeDataSet(IItemDataServiceTest.ITEM_DATASET);
+		executeDataSet(IStockroomDataServiceTest.DATASET);
+
+		service = Context.getService(IStockroomSnapshotDataService.class);
+		stockroomService = Context.getService(IStockroomDataService.class);
+		itemService = Context.getService(IItemDataService.class);
+		operationService = Context.getService(IStockOperationDataService.class);
+		stockOperationService = Context.getService(IStockOperationService.class);
+
+		operationTest = new IStockOperationDataServiceTest();
+	}
+
+	/**
+	 * @verifies create a snapshot of the current item stock details
+	 * @see IStockroomSnapshotDataService#createSnapshot(Stockroom)
+	 */
+	@Test
+	public void createSnapshot_shouldCreateASnapshotOfTheCurrentItemStockDetails() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+
+		StockroomSnapshot snapshot = service.createSnapshot(stockroom);
+		Context.flushSession();
+		Context.clearSession();
+
+		snapshot = service.getById(snapshot.getId());
+		Assert.assertNotNull(snapshot);
+		Assert.assertEquals(stockroom.getId(), snapshot.getStockroom().getId());
+		Assert.assertNotNull(snapshot.getSnapshotDate());
+
+		int total = 0;
+		for (ItemStock stock : stockroomService.getById(0).getItems()) {
+			total += stock.getQuantity();
+		}
+		int snapshotTotal = 0;
+		for (ItemStockSnapshot item : snapshot.getItems()) {
+			snapshotTotal += item.getQuantity();
+		}
+		Assert.assertTrue(snapshot.getItems().size() > 0);
+		Assert.assertEquals(total, snapshotTotal);
+	}
+
+	/**
+	 * @verifies create an empty snapshot if the stockroom has no item stock
+	 * @see IStockroomSnapshotDataService#createSnapshot(Stockroom)
+	 */
+	@Test
+	public void createSnapshot_shouldCreateAnEmptySnapshotIfTheStockroomHasNoItemStock() throws Exception {
+		StockroomSnapshot snapshot = service.createSnapshot(stockroomService.getById(4));
+
+		Assert.assertNotNull(snapshot.getId());
+		Assert.assertTrue(snapshot.getItems() == null || snapshot.getItems().size() == 0);
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the stockroom is null
+	 * @see IStockroomSnapshotDataService#createSnapshot(Stockroom)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void createSnapshot_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
+		service.createSnapshot(null);
+	}
+
+	/**
+	 * @verifies return the most recent snapshot at or before the date
+	 * @see IStockroomSnapshotDataService#getSnapshot(Stockroom, java.util.Date)
+	 */
+	@Test
+	public void getSnapshot_shouldReturnTheMostRecentSnapshotAtOrBeforeTheDate() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		StockroomSnapshot older = createSnapshot(stockroom, addDays(-10));
+		StockroomSnapshot newer = createSnapshot(stockroom, addDays(-5));
+		createSnapshot(stockroom, addDays(-1));
+
+		Assert.assertEquals(newer, service.getSnapshot(stockroom, addDays(-2)));
+		Assert.assertEquals(older, service.getSnapshot(stockroom, addDays(-6)));
+		Assert.assertEquals(newer, service.getSnapshot(stockroom, newer.getSnapshotDate()));
+	}
+
+	/**
+	 * @verifies return null if there is no snapshot at or before the date
+	 * @see IStockroomSnapshotDataService#getSnapshot(Stockroom, java.util.Date)
+	 */
+	@Test
+	public void getSnapshot_shouldReturnNullIfThereIsNoSnapshotAtOrBeforeTheDate() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		createSnapshot(stockroom, addDays(-1));
+
+		Assert.assertNull(service.getSnapshot(stockroom, addDays(-2)));
+		Assert.assertNull(service.getSnapshot(stockroomService.getById(1), new Date()));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the stockroom is null
+	 * @see IStockroomSnapshotDataService#getSnapshot(Stockroom, java.util.Date)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getSnapshot_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
+		service.getSnapshot(null, new Date());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the date is null
+	 * @see IStockroomSnapshotDataService#getSnapshot(Stockroom, java.util.Date)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getSnapshot_shouldThrowIllegalArgumentExceptionIfTheDateIsNull() throws Exception {
+		service.getSnapshot(stockroomService.getById(0), null);
+	}
+
+	/**
+	 * @verifies replay the transactions after the snapshot up to the date
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test
+	public void getItemQuantity_shouldReplayTheTransactionsAfterTheSnapshotUpToTheDate() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		Assert.assertEquals(4, stockroomService.getItem(stockroom, item).getQuantity());
+
+		createSnapshot(stockroom, addDays(-10));
+		applyTransaction(stockroom, item, 5, addDays(-5));
+
+		Assert.assertEquals(4, service.getItemQuantity(stockroom, item, addDays(-6)));
+		Assert.assertEquals(9, service.getItemQuantity(stockroom, item, addDays(-4)));
+	}
+
+	/**
+	 * @verifies not include transactions created after the date
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test
+	public void getItemQuantity_shouldNotIncludeTransactionsCreatedAfterTheDate() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+
+		createSnapshot(stockroom, addDays(-10));
+		applyTransaction(stockroom, item, 5, addDays(-5));
+		applyTransaction(stockroom, item, -2, addDays(-2));
+
+		Assert.assertEquals(7, stockroomService.getItem(stockroom, item).getQuantity());
+		Assert.assertEquals(9, service.getItemQuantity(stockroom, item, addDays(-3)));
+	}
+
+	/**
+	 * @verifies reverse the transactions after the date from the current stock if there is no snapshot
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test
+	public void getItemQuantity_shouldReverseTheTransactionsAfterTheDateFromTheCurrentStockIfThereIsNoSnapshot()
+			throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+
+		applyTransaction(stockroom, item, 5, addDays(-5));
+
+		Assert.assertEquals(9, stockroomService.getItem(stockroom, item).getQuantity());
+		Assert.assertEquals(4, service.getItemQuantity(stockroom, item, addDays(-6)));
+		Assert.assertEquals(9, service.getItemQuantity(stockroom, item, addDays(-4)));
+	}
+
+	/**
+	 * @verifies not include stock imported after the date
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test
+	public void getItemQuantity_shouldNotIncludeStockImportedAfterTheDate() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+		Date before = addDays(-1);
+
+		Context.getService(IItemStockDataService.class).importStock(stockroom,
+				new StringReader("code,quantity\nitem 1 code,10\n"), ImportFormat.CSV, null);
+		Context.flushSession();
+
+		Assert.assertEquals(14, stockroomService.getItem(stockroom, item).getQuantity());
+		Assert.assertEquals(4, service.getItemQuantity(stockroom, item, before));
+		Assert.assertEquals(14, service.getItemQuantity(stockroom, item, new Date()));
+	}
+
+	/**
+	 * @verifies include the part of a compacted month up to the date
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test
+	public void getItemQuantity_shouldIncludeThePartOfACompactedMonthUpToTheDate() throws Exception {
+		Stockroom stockroom = stockroomService.getById(0);
+		Item item = itemService.getById(0);
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.MONTH, -3);
+		calendar.set(Calendar.DAY_OF_MONTH, 1);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		Date month = calendar.getTime();
+
+		StockroomSnapshot snapshot = createSnapshot(stockroom, addDays(month, -1));
+		applyTransaction(stockroom, item, 5, addDays(month, 9));
+		applyTransaction(stockroom, item, 3, addDays(month, 19));
+
+		calendar.add(Calendar.MONTH, 1);
+		Date nextMonth = calendar.getTime();
+		Context.getService(IStockOperationTransactionDataService.class).compactTransactions(nextMonth);
+		Context.flushSession();
+		Context.clearSession();
+
+		stockroom = stockroomService.getById(0);
+		item = itemService.getById(0);
+		Assert.assertEquals(12, stockroomService.getItem(stockroom, item).getQuantity());
+
+		// Replayed from the snapshot before the compacted month
+		Assert.assertEquals(9, service.getItemQuantity(stockroom, item, addDays(month, 14)));
+		Assert.assertEquals(12, service.getItemQuantity(stockroom, item, addDays(nextMonth, 1)));
+
+		// Reversed from the current stock
+		service.purge(service.getById(snapshot.getId()));
+		Context.flushSession();
+
+		Assert.assertEquals(4, service.getItemQuantity(stockroom, item, addDays(month, -1)));
+		Assert.assertEquals(9, service.getItemQuantity(stockroom, item, addDays(month, 14)));
+	}
+
+	/**
+	 * @verifies return zero if the item was not in the stockroom
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test
+	public void getItemQuantity_shouldReturnZeroIfTheItemWasNotInTheStockroom() throws Exception {
+		Stockroom stockroom = stockroomService.getById(4);
+		Item item = itemService.getById(0);
+
+		Assert.assertEquals(0, service.getItemQuantity(stockroom, item, new Date()));
+
+		createSnapshot(stockroom, addDays(-1));
+		Assert.assertEquals(0, service.getItemQuantity(stockroom, item, new Date()));
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the stockroom is null
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemQuantity_shouldThrowIllegalArgumentExceptionIfTheStockroomIsNull() throws Exception {
+		service.getItemQuantity(null, itemService.getById(0), new Date());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the item is null
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemQuantity_shouldThrowIllegalArgumentExceptionIfTheItemIsNull() throws Exception {
+		service.getItemQuantity(stockroomService.getById(0), null, new Date());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if the date is null
+	 * @see IStockroomSnapshotDataService#getItemQuantity(Stockroom, Item, java.util.Date)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void getItemQuantity_shouldThrowIllegalArgumentExceptionIfTheDateIsNull() throws Exception {
+		service.getItemQuantity(stockroomService.getById(0), itemService.getById(0), null);
+	}
+
+	private StockroomSnapshot createSnapshot(Stockroom stockroom, Date date) {
+		StockroomSnapshot snapshot = service.createSnapshot(stockroom);
+		snapshot.setSnapshotDate(date);
+		service.save(snapshot);
+		Context.flushSession();
+
+		return snapshot;
+	}
+
+	private void applyTransaction(Stockroom stockroom, Item item, int quantity, Date date) {
+		StockOperation operation = operationTest.createEntity(true);
+		operation.getReserved().clear();
+		operation.setInstanceType(WellKnownOperationTypes.getReceipt());
+		operation.setStatus(StockOperationStatus.COMPLETED);
+		operation.setDestination(stockroom);
+
+		StockOperationTransaction tx = new StockOperationTransaction();
+		tx.setItem(item);
+		tx.setStockroom(stockroom);
+		tx.setQuantity(quantity);
+		tx.setBatchOperation(operationService.getById(0));
+		tx.setOperation(operation);
+		tx.setDateCreated(date);
+		operation.addTransaction(tx);
+
+		operationService.save(operation);
+		stockOperationService.applyTransactions(tx);
+		Context.flushSession();
+	}
+
+	private Date addDays(int days) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.DAY_OF_YEAR, days);
+
+		return calendar.getTime();
+	}
+
+	private Date addDays(Date date, int days) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		calendar.add(Calendar.DAY_OF_YEAR, days);
+
+		return calendar.getTime();
+	}
+}
@@ -0,0 +1,174 @@
+package org.openmrs.module.openhmis.inventory.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.model.AdjustmentOperationType;
+import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
+import org.openmrs.module.openhmis.inventory.api.model.TransferOperationType;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class StockOperationTypeCacheTest extends BaseModuleContextSensitiveTest {
+	private IStockOperationTypeDataService typeService;
+
+	@Before
+	public void before() throws Exception {
+		executeDataSet(TestConstants.CORE_DATASET);
+		executeDataSet(IStockroomDataServiceTest.DATASET);
+
+		typeService = Context.getService(IStockOperationTypeDataService.class);
+
+		StockOperationTypeCache.invalidate();
+	}
+
+	/**
+	 * @verifies return the type from the current session
+	 * @see StockOperationTypeCache#getByUuid(String)
+	 */
+	@Test
+	public void getByUuid_shouldReturnTheTypeFromTheCurrentSession() throws Exception {
+		IStockOperationType type = StockOperationTypeCache.getByUuid(WellKnownOperationTypes.TRANSFER_UUID);
+
+		Assert.assertNotNull(type);
+		Assert.assertTrue(type instanceof TransferOperationType);
+		Assert.assertSame(typeService.getByUuid(WellKnownOperationTypes.TRANSFER_UUID), type);
+		Assert.assertSame(type, WellKnownOperationTypes.getTransfer());
+	}
+
+	/**
+	 * @verifies return null when the type is not found
+	 * @see StockOperationTypeCache#getByUuid(String)
+	 */
+	@Test
+	public void getByUuid_shouldReturnNullWhenTheTypeIsNotFound() throws Exception {
+		Assert.assertNull(StockOperationTypeCache.getByUuid("not a valid uuid"));
+		Assert.assertNull(StockOperationTypeCache.getByUuid(null));
+	}
+
+	/**
+	 * @verifies not reload the snapshot when the type is not found
+	 * @see StockOperationTypeCache#getByUuid(String)
+	 */
+	@Test
+	public void getByUuid_shouldNotReloadTheSnapshotWhenTheTypeIsNotFound() throws Exception {
+		StockOperationTypeCache.Snapshot snapshot = StockOperationTypeCache.getSnapshot();
+
+		Assert.assertNull(StockOperationTypeCache.getByUuid("not a valid uuid"));
+
+		Assert.assertSame(snapshot, StockOperationTypeCache.getSnapshot());
+	}
+
+	/**
+	 * @verifies index the types by id and discriminator
+	 * @see StockOperationTypeCache#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldIndexTheTypesByIdAndDiscriminator() throws Exception {
+		StockOperationTypeCache.Snapshot snapshot = StockOperationTypeCache.getSnapshot();
+
+		Assert.assertEquals(8, snapshot.getTypes().size());
+		Assert.assertSame(snapshot.getByUuid(WellKnownOperationTypes.RECEIPT_UUID), snapshot.getById(3));
+
+		List<StockOperationTypeCache.TypeInfo> adjustments = snapshot.getByDiscriminator("adjustment");
+		Assert.assertEquals(2, adjustments.size());
+		for (StockOperationTypeCache.TypeInfo info : adjustments) {
+			Assert.assertTrue(typeService.getById(info.getId()) instanceof AdjustmentOperationType);
+		}
+
+		Assert.assertEquals(0, snapshot.getByDiscriminator("unknown").size());
+	}
+
+	/**
+	 * @verifies reuse the snapshot until it is invalidated
+	 * @see StockOperationTypeCache#getSnapshot()
+	 */
+	@Test
+	public void getSnapshot_shouldReuseTheSnapshotUntilItIsInvalidated() throws Exception {
+		StockOperationTypeCache.Snapshot snapshot = StockOperationTypeCache.getSnapshot();
+		Assert.assertSame(snapshot, StockOperationTypeCache.getSnapshot());
+
+		StockOperationTypeCache.invalidate();
+
+		StockOperationTypeCache.Snapshot reloaded = StockOperationTypeCache.getSnapshot();
+		Assert.assertNotSame(snapshot, reloaded);
+		Assert.assertTrue(reloaded.getVersion() > snapshot.getVersion());
+	}
+
+	/**
+	 * @verifies reload the snapshot when a type is saved
+	 * @see StockOperationTypeCache#invalidate()
+	 */
+	@Test
+	public void invalidate_shouldReloadTheSnapshotWhenATypeIsSaved() throws Exception {
+		StockOperationTypeCache.Snapshot snapshot = StockOperationTypeCache.getSnapshot();
+
+		IStockOperationType type = typeService.getByUuid(WellKnownOperationTypes.DISTRIBUTION_UUID);
+		type.setName("Updated Distribution");
+		typeService.save(type);
+		Context.flushSession();
+
+		StockOperationTypeCache.Snapshot reloaded = StockOperationTypeCache.getSnapshot();
+		Assert.assertNotSame(snapshot, reloaded);
+		Assert.assertEquals("Updated Distribution", reloaded.getByUuid(WellKnownOperationTypes.DISTRIBUTION_UUID).getName());
+	}
+
+	/**
+	 * @verifies reload the snapshot after the transaction is committed
+	 * @see StockOperationTypeCache#invalidate()
+	 */
+	@Test
+	public void invalidate_shouldReloadTheSnapshotAfterTheTransactionIsCommitted() throws Exception {
+		List<TransactionSynchronization> synchronizations = invalidateInTransaction();
+
+		// Another thread could load the snapshot before the transaction is committed
+		StockOperationTypeCache.Snapshot snapshot = StockOperationTypeCache.getSnapshot();
+		Assert.assertSame(snapshot, StockOperationTypeCache.getSnapshot());
+
+		for (TransactionSynchronization synchronization : synchronizations) {
+			synchronization.afterCommit();
+			synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+		}
+
+		Assert.assertNotSame(snapshot, StockOperationTypeCache.getSnapshot());
+	}
+
+	/**
+	 * @verifies reload the snapshot after the transaction is rolled back
+	 * @see StockOperationTypeCache#invalidate()
+	 */
+	@Test
+	public void invalidate_shouldReloadTheSnapshotAfterTheTransactionIsRolledBack() throws Exception {
+		List<TransactionSynchronization> synchronizations = invalidateInTransaction();
+
+		StockOperationTypeCache.Snapshot snapshot = StockOperationTypeCache.getSnapshot();
+
+		for (TransactionSynchronization synchronization : synchronizations) {
+			synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+		}
+
+		Assert.assertNotSame(snapshot, StockOperationTypeCache.getSnapshot());
+	}
+
+	/**
+	 * Invalidates the cache in the test transaction and returns the transaction synchronizations that it registered.
+	 */
+	private List<TransactionSynchronization> invalidateInTransaction() {
+		Assert.assertTrue(TransactionSynchronizationManager.isSynchronizationActive());
+
+		List<TransactionSynchronization> existing = TransactionSynchronizationManager.getSynchronizations();
+		StockOperationTypeCache.invalidate();
+
+		List<TransactionSynchronization> registered =
+				new ArrayList<TransactionSynchronization>(TransactionSynchronizationManager.getSynchronizations());
+		registered.removeAll(existing);
+		Assert.assertEquals(1, registered.size());
+
+		return registered;
+	}
+}
@@ -0,0 +1,166 @@
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.openhmis.inventory.api.IItemDataService;
+import org.openmrs.module.openhmis.inventory.api.IItemDataServiceTest;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockChangeEventListener;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataServiceTest;
+import org.openmrs.module.openhmis.inventory.api.TestConstants;
+import org.openmrs.module.openhmis.inventory.api.model.StockChangeEvent;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+
+public class StockChangeEventDispatcherTest extends BaseModuleContextSensitiveTest {
+	private IStockChangeEventDataService eventService;
+	private IStockroomDataService stockroomService;
+	private IItemDataService itemService;
+	private StockChangeEventDispatcher dispatcher;
+
+	@Before
+	public void before() throws Exception {
+		executeDataSet(TestConstants.CORE_DATASET);
+		executeDataSet(IItemDataServiceTest.ITEM_DATASET);
+		executeDataSet(IStockroomDataServiceTest.DATASET);
+
+		eventService = Context.getService(IStockChangeEventDataService.class);
+		stockroomService = Context.getService(IStockroomDataService.class);
+		itemService = Context.getService(IItemDataService.class);
+
+		dispatcher = new StockChangeEventDispatcher();
+		dispatcher.setStockChangeEventService(eventService);
+	}
+
+	/**
+	 * @verifies deliver the events to the listeners in id order
+	 * @see StockChangeEventDispatcher#poll()
+	 */
+	@Test
+	public void poll_shouldDeliverTheEventsToTheListenersInIdOrder() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		dispatcher.addListener(listener);
+		dispatcher.poll();
+
+		List<StockChangeEvent> sent = saveEvents(5);
+		dispatcher.poll();
+
+		Assert.assertEquals(5, listener.received.size());
+		for (int i = 0; i < sent.size(); i++) {
+			Assert.assertEquals(sent.get(i).getId(), listener.received.get(i));
+		}
+	}
+
+	/**
+	 * @verifies not deliver the events that a listener has already processed
+	 * @see StockChangeEventDispatcher#poll()
+	 */
+	@Test
+	public void poll_shouldNotDeliverTheEventsThatAListenerHasAlreadyProcessed() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		dispatcher.addListener(listener);
+		dispatcher.poll();
+
+		saveEvents(2);
+		dispatcher.poll();
+		List<StockChangeEvent> sent = saveEvents(1);
+		dispatcher.poll();
+
+		Assert.assertEquals(3, listener.received.size());
+		Assert.assertEquals(sent.get(0).getId(), listener.received.get(2));
+	}
+
+	/**
+	 * @verifies deliver the events again to a listener that failed
+	 * @see StockChangeEventDispatcher#poll()
+	 */
+	@Test
+	public void poll_shouldDeliverTheEventsAgainToAListenerThatFailed() throws Exception {
+		RecordingListener listener = new RecordingListener();
+		listener.fail = true;
+		dispatcher.addListener(listener);
+		dispatcher.poll();
+
+		List<StockChangeEvent> sent = saveEvents(2);
+		dispatcher.poll();
+		Assert.assertEquals(0, listener.received.size());
+
+		listener.fail = false;
+		dispatcher.poll();
+
+		Assert.assertEquals(2, listener.received.size());
+		Assert.assertEquals(sent.get(0).getId(), listener.received.get(0));
+		Assert.assertEquals(sent.get(1).getId(), listener.received.get(1));
+	}
+
+	/**
+	 * @verifies deliver the events to the other listeners when a listener fails
+	 * @see StockChangeEventDispatcher#poll()
+	 */
+	@Test
+	public void poll_shouldDeliverTheEventsToTheOtherListenersWhenAListenerFails() throws Exception {
+		dispatcher.addListener(new IStockChangeEventListener() {
+			@Override
+			public void onStockChanged(List<StockChangeEvent> events) {
+				throw new IllegalStateException("Test listener failure");
+			}
+		});
+		RecordingListener listener = new RecordingListener();
+		dispatcher.addListener(listener);
+		dispatcher.poll();
+
+		saveEvents(1);
+		dispatcher.poll();
+
+		Assert.assertEquals(1, listener.received.size());
+	}
+
+	/**
+	 * @verifies not deliver the events to removed listeners
+	 * @see StockChangeEventDispatcher#removeListener(IStockChangeEventListener)
+	 */
+	@Test
+	public void removeListener_shouldNotDeliverTheEventsToRemovedListeners() throws Exception {
+		RecordingListener removed = new RecordingListener();
+		dispatcher.addListener(removed);
+		dispatcher.poll();
+		dispatcher.removeListener(removed);
+
+		saveEvents(1);
+		dispatcher.poll();
+
+		Assert.assertEquals(0, removed.received.size());
+	}
+
+	private List<StockChangeEvent> saveEvents(int count) {
+		List<StockChangeEvent> events = new ArrayList<StockChangeEvent>();
+		for (int i = 0; i < count; i++) {
+			events.add(eventService.save(new StockChangeEvent(stockroomService.getById(0), itemService.getById(0), null,
+					i + 1, 10 + i)));
+		}
+		Context.flushSession();
+
+		return events;
+	}
+
+	private static class RecordingListener implements IStockChangeEventListener {
+		private final List<Integer> received = new ArrayList<Integer>();
+		private boolean fail;
+
+		@Override
+		public void onStockChanged(List<StockChangeEvent> events) {
+			if (fail) {
+				throw new IllegalStateException("Test listener failure");
+			}
+
+			for (StockChangeEvent event : events) {
+				received.add(event.getId());
+			}
+		}
+	}
+}
@@ -0,0 +1,245 @@
+package org.openmrs.module.openhmis.inventory.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.javatuples.Pair;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.openhmis.inventory.api.model.Item;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+
+public class StockLockManagerTest {
+	private StockLockManager manager;
+
+	@Before
+	public void before() {
+		manager = new StockLockManager(16);
+	}
+
+	/**
+	 * @verifies round the number of stripes up to a power of two
+	 * @see StockLockManager#StockLockManager(int)
+	 */
+	@Test
+	public void constructor_shouldRoundTheNumberOfStripesUpToAPowerOfTwo() throws Exception {
+		Assert.assertEquals(16, new StockLockManager(16).getStripeCount());
+		Assert.assertEquals(32, new StockLockManager(17).getStripeCount());
+		Assert.assertEquals(1, new StockLockManager(1).getStripeCount());
+	}
+
+	/**
+	 * @verifies throw IllegalArgumentException if stripes is not positive
+	 * @see StockLockManager#StockLockManager(int)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_shouldThrowIllegalArgumentExceptionIfStripesIsNotPositive() throws Exception {
+		new StockLockManager(0);
+	}
+
+	/**
+	 * @verifies return the same stripe for the same stockroom and item
+	 * @see StockLockManager#getStripe(Stockroom, Item)
+	 */
+	@Test
+	public void getStripe_shouldReturnTheSameStripeForTheSameStockroomAndItem() throws Exception {
+		Stockroom room = createStockroom(1);
+		Item item = createItem(2);
+
+		Assert.assertEquals(manager.getStripe(room, item), manager.getStripe(createStockroom(1), createItem(2)));
+	}
+
+	/**
+	 * @verifies allow the same thread to reacquire held locks
+	 * @see StockLockManager#lock(java.util.Collection)
+	 */
+	@Test
+	public void lock_shouldAllowTheSameThreadToReacquireHeldLocks() throws Exception {
+		List<Pair<Stockroom, Item>> keys = createKeys(1, 10);
+
+		StockLockManager.StockLock outer = manager.lock(keys);
+		StockLockManager.StockLock inner = manager.lock(keys);
+
+		inner.release();
+		outer.release();
+
+		// Releasing again should not throw
+		outer.release();
+	}
+
+	/**
+	 * @verifies block other threads locking the same stock
+	 * @see StockLockManager#lock(java.util.Collection)
+	 */
+	@Test
+	public void lock_shouldBlockOtherThreadsLockingTheSameStock() throws Exception {
+		final List<Pair<Stockroom, Item>> keys = createKeys(1, 1);
+		final CountDownLatch acquired = new CountDownLatch(1);
+		final AtomicBoolean entered = new AtomicBoolean(false);
+
+		StockLockManager.StockLock lock = manager.lock(keys);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				StockLockManager.StockLock other = manager.lock(keys);
+				entered.set(true);
+				other.release();
+				acquired.countDown();
+			}
+		});
+		thread.start();
+
+		Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+		Assert.assertFalse(entered.get());
+
+		lock.release();
+
+		Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		Assert.assertTrue(entered.get());
+	}
+
+	/**
+	 * @verifies not block other threads locking disjoint stock
+	 * @see StockLockManager#lock(java.util.Collection)
+	 */
+	@Test
+	public void lock_shouldNotBlockOtherThreadsLockingDisjointStock() throws Exception {
+		Stockroom room = createStockroom(1);
+		Item item = createItem(1);
+		final List<Pair<Stockroom, Item>> otherKeys = new ArrayList<Pair<Stockroom, Item>>();
+
+		// Find an item that maps to a different stripe
+		int itemId = 2;
+		while (otherKeys.size() == 0) {
+			Item other = createItem(itemId++);
+			if (manager.getStripe(room, other) != manager.getStripe(room, item)) {
+				otherKeys.add(Pair.with(room, other));
+			}
+		}
+
+		final CountDownLatch acquired = new CountDownLatch(1);
+		StockLockManager.StockLock lock = manager.lock(Collections.singletonList(Pair.with(room, item)));
+		try {
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					StockLockManager.StockLock other = manager.lock(otherKeys);
+					other.release();
+					acquired.countDown();
+				}
+			}).start();
+
+			Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+		} finally {
+			lock.release();
+		}
+	}
+
+	/**
+	 * @verifies not deadlock when overlapping keys are locked in different orders
+	 * @see StockLockManager#lock(java.util.Collection)
+	 */
+	@Test
+	public void lock_shouldNotDeadlockWhenOverlappingKeysAreLockedInDifferentOrders() throws Exception {
+		final List<Pair<Stockroom, Item>> keys = createKeys(1, 8);
+		final List<Pair<Stockroom, Item>> reversed = new ArrayList<Pair<Stockroom, Item>>(keys);
+		Collections.reverse(reversed);
+
+		int threads = 8;
+		final int iterations = 500;
+		final CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			final List<Pair<Stockroom, Item>> threadKeys = i % 2 == 0 ? keys : reversed;
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < iterations; j++) {
+						manager.lock(threadKeys).release();
+					}
+					done.countDown();
+				}
+			}).start();
+		}
+
+		Assert.assertTrue(done.await(30, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * @verifies block other threads locking any stock until released
+	 * @see StockLockManager#lockAll()
+	 */
+	@Test
+	public void lockAll_shouldBlockOtherThreadsLockingAnyStockUntilReleased() throws Exception {
+		final List<Pair<Stockroom, Item>> keys = createKeys(3, 1);
+		final CountDownLatch acquired = new CountDownLatch(1);
+
+		StockLockManager.StockLock lock = manager.lockAll();
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				manager.lock(keys).release();
+				acquired.countDown();
+			}
+		}).start();
+
+		Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+
+		lock.release();
+
+		Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * @verifies wait for the threads that hold a lock
+	 * @see StockLockManager#lockAll()
+	 */
+	@Test
+	public void lockAll_shouldWaitForTheThreadsThatHoldALock() throws Exception {
+		final CountDownLatch acquired = new CountDownLatch(1);
+
+		StockLockManager.StockLock lock = manager.lock(createKeys(3, 1));
+		new Thread(new Runnable() {
+			@Override
+			public void run() {
+				manager.lockAll().release();
+				acquired.countDown();
+			}
+		}).start();
+
+		Assert.assertFalse(acquired.await(200, TimeUnit.MILLISECONDS));
+
+		lock.release();
+
+		Assert.assertTrue(acquired.await(5, TimeUnit.SECONDS));
+	}
+
+	private List<Pair<Stockroom, Item>> createKeys(int stockroomId, int itemCount) {
+		Stockroom room = createStockroom(stockroomId);
+
+		List<Pair<Stockroom, Item>> keys = new ArrayList<Pair<Stockroom, Item>>();
+		for (int i = 0; i < itemCount; i++) {
+			keys.add(Pair.with(room, createItem(i)));
+		}
+
+		return keys;
+	}
+
+	private Stockroom createStockroom(int id) {
+		Stockroom room = new Stockroom();
+		room.setId(id);
+
+		return room;
+	}
+
+	private Item createItem(int id) {
+		Item item = new Item();
+		item.setId(id);
+
+		return item;
+	}
+}
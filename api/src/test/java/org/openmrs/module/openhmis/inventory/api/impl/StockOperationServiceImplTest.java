@@ -1042,4 +1042,53 @@ public class StockOperationServiceImplTest extends BaseModuleContextSensitiveTes
 		Assert.assertEquals(newItem, tx.getItem());
 		Assert.assertEquals(operation, tx.getBatchOperation());
 	}
+
+	/**
+	 * @verifies use details without a batch operation after details with a batch operation
+	 * @see StockOperationServiceImpl#calculateReservations(org.openmrs.module.openhmis.inventory.api.model.StockOperation)
+	 */
+	@Test
+	public void calculateReservations_shouldUseDetailsWithoutABatchOperationAfterDetailsWithABatchOperation()
+	        throws Exception {
+		Stockroom sourceRoom = stockroomDataService.getById(0);
+		Stockroom destRoom = stockroomDataService.getById(1);
+		
+		Item item0 = itemDataService.getById(0);
+		
+		// Add a detail with no batch operation to the existing item stock
+		ItemStockDetail detail = new ItemStockDetail();
+		detail.setItem(item0);
+		detail.setStockroom(sourceRoom);
+		detail.setQuantity(10);
+		detail.setCalculatedBatch(true);
+		detail.setCalculatedExpiration(false);
+		
+		ItemStock stock = stockroomDataService.getItem(sourceRoom, item0);
+		stock.addDetail(detail);
+		
+		itemStockDataService.save(stock);
+		Context.flushSession();
+		
+		// Create the stock operation
+		StockOperation operation = new StockOperation();
+		operation.setInstanceType(WellKnownOperationTypes.getTransfer());
+		operation.setStatus(StockOperationStatus.PENDING);
+		operation.setSource(sourceRoom);
+		operation.setDestination(destRoom);
+		operation.setOperationNumber("A123");
+		operation.setOperationDate(new Date());
+		ReservedTransaction tx = operation.addReserved(item0, 3);
+		tx.setCalculatedBatch(true);
+		tx.setCalculatedExpiration(true);
+		
+		service.calculateReservations(operation);
+		
+		// Ensure that no new transactions were created and that the detail with the batch was used
+		Assert.assertEquals(1, operation.getReserved().size());
+		
+		tx = Iterators.get(operation.getReserved().iterator(), 0);
+		Assert.assertEquals(item0, tx.getItem());
+		Assert.assertNotNull(tx.getBatchOperation());
+		Assert.assertEquals(0, (int)tx.getBatchOperation().getId());
+	}
 }
@@ -0,0 +1,85 @@
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ItemStockLevelTest {
+	/**
+	 * @verifies return below minimum if the quantity is less than the minimum quantity
+	 * @see ItemStockLevel#calculateStatus(int)
+	 */
+	@Test
+	public void calculateStatus_shouldReturnBelowMinimumIfTheQuantityIsLessThanTheMinimumQuantity() throws Exception {
+		ItemStockLevel level = new ItemStockLevel(null, null, 5, 10);
+
+		Assert.assertEquals(ItemStockLevelStatus.BELOW_MINIMUM, level.calculateStatus(4));
+		Assert.assertEquals(ItemStockLevelStatus.BELOW_MINIMUM, level.calculateStatus(-1));
+	}
+
+	/**
+	 * @verifies return reorder if the quantity is at or below the reorder quantity
+	 * @see ItemStockLevel#calculateStatus(int)
+	 */
+	@Test
+	public void calculateStatus_shouldReturnReorderIfTheQuantityIsAtOrBelowTheReorderQuantity() throws Exception {
+		ItemStockLevel level = new ItemStockLevel(null, null, 5, 10);
+
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, level.calculateStatus(10));
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, level.calculateStatus(5));
+	}
+
+	/**
+	 * @verifies return normal if the quantity is above the levels
+	 * @see ItemStockLevel#calculateStatus(int)
+	 */
+	@Test
+	public void calculateStatus_shouldReturnNormalIfTheQuantityIsAboveTheLevels() throws Exception {
+		ItemStockLevel level = new ItemStockLevel(null, null, 5, 10);
+
+		Assert.assertEquals(ItemStockLevelStatus.NORMAL, level.calculateStatus(11));
+	}
+
+	/**
+	 * @verifies ignore levels that are not defined
+	 * @see ItemStockLevel#calculateStatus(int)
+	 */
+	@Test
+	public void calculateStatus_shouldIgnoreLevelsThatAreNotDefined() throws Exception {
+		Assert.assertEquals(ItemStockLevelStatus.NORMAL, new ItemStockLevel(null, null, null, null).calculateStatus(0));
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, new ItemStockLevel(null, null, null, 10).calculateStatus(0));
+		Assert.assertEquals(ItemStockLevelStatus.NORMAL, new ItemStockLevel(null, null, 5, null).calculateStatus(5));
+	}
+
+	/**
+	 * @verifies change the status and status date when a level is crossed
+	 * @see ItemStockLevel#updateStatus(int)
+	 */
+	@Test
+	public void updateStatus_shouldChangeTheStatusAndStatusDateWhenALevelIsCrossed() throws Exception {
+		ItemStockLevel level = new ItemStockLevel(null, null, 5, 10);
+		Date date = new Date(0);
+		level.setStatusDate(date);
+
+		Assert.assertTrue(level.updateStatus(8));
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, level.getStatus());
+		Assert.assertNotSame(date, level.getStatusDate());
+	}
+
+	/**
+	 * @verifies not change the status date when no level is crossed
+	 * @see ItemStockLevel#updateStatus(int)
+	 */
+	@Test
+	public void updateStatus_shouldNotChangeTheStatusDateWhenNoLevelIsCrossed() throws Exception {
+		ItemStockLevel level = new ItemStockLevel(null, null, 5, 10);
+		level.updateStatus(8);
+		Date date = new Date(0);
+		level.setStatusDate(date);
+
+		Assert.assertFalse(level.updateStatus(6));
+		Assert.assertEquals(ItemStockLevelStatus.REORDER, level.getStatus());
+		Assert.assertSame(date, level.getStatusDate());
+	}
+}
@@ -0,0 +1,178 @@
+package org.openmrs.module.openhmis.inventory.api.model;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ItemStockTest {
+	private ItemStock stock;
+	private StockOperation oldBatch;
+	private StockOperation newBatch;
+
+	@Before
+	public void before() {
+		stock = new ItemStock();
+
+		oldBatch = new StockOperation();
+		oldBatch.setOperationDate(addDays(-10));
+
+		newBatch = new StockOperation();
+		newBatch.setOperationDate(addDays(-1));
+	}
+
+	/**
+	 * @verifies return the detail with the closest expiration
+	 * @see ItemStock#getFirstExpiringDetail()
+	 */
+	@Test
+	public void getFirstExpiringDetail_shouldReturnTheDetailWithTheClosestExpiration() throws Exception {
+		stock.addDetail(createDetail(addDays(30), oldBatch));
+		ItemStockDetail expected = stock.addDetail(createDetail(addDays(5), newBatch));
+		stock.addDetail(createDetail(addDays(10), oldBatch));
+
+		Assert.assertSame(expected, stock.getFirstExpiringDetail());
+	}
+
+	/**
+	 * @verifies return the oldest batch when expirations are the same
+	 * @see ItemStock#getFirstExpiringDetail()
+	 */
+	@Test
+	public void getFirstExpiringDetail_shouldReturnTheOldestBatchWhenExpirationsAreTheSame() throws Exception {
+		Date expiration = addDays(5);
+		stock.addDetail(createDetail(expiration, newBatch));
+		ItemStockDetail expected = stock.addDetail(createDetail(new Date(expiration.getTime()), oldBatch));
+
+		Assert.assertSame(expected, stock.getFirstExpiringDetail());
+	}
+
+	/**
+	 * @verifies order details without an expiration as expiring now
+	 * @see ItemStock#getDetailsByExpiration()
+	 */
+	@Test
+	public void getDetailsByExpiration_shouldOrderDetailsWithoutAnExpirationAsExpiringNow() throws Exception {
+		ItemStockDetail noExpiration = stock.addDetail(createDetail(null, oldBatch));
+		ItemStockDetail expiring = stock.addDetail(createDetail(addDays(100), newBatch));
+		ItemStockDetail expired = stock.addDetail(createDetail(addDays(-5), newBatch));
+
+		Iterator<ItemStockDetail> iterator = stock.getDetailsByExpiration().iterator();
+		Assert.assertSame(expired, iterator.next());
+		Assert.assertSame(noExpiration, iterator.next());
+		Assert.assertSame(expiring, iterator.next());
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 * @verifies use the current detail expiration and batch
+	 * @see ItemStock#getFirstExpiringDetail()
+	 */
+	@Test
+	public void getFirstExpiringDetail_shouldUseTheCurrentDetailExpirationAndBatch() throws Exception {
+		ItemStockDetail first = stock.addDetail(createDetail(addDays(5), oldBatch));
+		ItemStockDetail second = stock.addDetail(createDetail(addDays(10), oldBatch));
+		Assert.assertSame(first, stock.getFirstExpiringDetail());
+
+		first.setExpiration(addDays(20));
+		Assert.assertSame(second, stock.getFirstExpiringDetail());
+
+		first.setExpiration(second.getExpiration());
+		second.setBatchOperation(newBatch);
+		Assert.assertSame(first, stock.getFirstExpiringDetail());
+	}
+
+	/**
+	 * @verifies return the current first detail when details are added and removed
+	 * @see ItemStock#getFirstExpiringDetail()
+	 */
+	@Test
+	public void getFirstExpiringDetail_shouldReturnTheCurrentFirstDetailWhenDetailsAreAddedAndRemoved()
+			throws Exception {
+		ItemStockDetail later = stock.addDetail(createDetail(addDays(30), oldBatch));
+		Assert.assertSame(later, stock.getFirstExpiringDetail());
+
+		ItemStockDetail sooner = stock.addDetail(createDetail(addDays(1), oldBatch));
+		Assert.assertSame(sooner, stock.getFirstExpiringDetail());
+
+		stock.removeDetail(sooner);
+		Assert.assertSame(later, stock.getFirstExpiringDetail());
+
+		stock.removeDetail(later);
+		Assert.assertNull(stock.getFirstExpiringDetail());
+
+		// A remove and add pair leaves the number of details unchanged
+		ItemStockDetail replaced = stock.addDetail(createDetail(addDays(30), oldBatch));
+		Assert.assertSame(replaced, stock.getFirstExpiringDetail());
+		stock.getDetails().remove(replaced);
+		ItemStockDetail replacement = stock.addDetail(createDetail(addDays(3), oldBatch));
+		Assert.assertSame(replacement, stock.getFirstExpiringDetail());
+	}
+
+	/**
+	 * @verifies use the replaced details
+	 * @see ItemStock#getFirstExpiringDetail()
+	 */
+	@Test
+	public void getFirstExpiringDetail_shouldUseTheReplacedDetails() throws Exception {
+		stock.addDetail(createDetail(addDays(30), oldBatch));
+		Assert.assertNotNull(stock.getFirstExpiringDetail());
+
+		ItemStockDetail detail = createDetail(addDays(2), newBatch);
+		HashSet<ItemStockDetail> details = new HashSet<ItemStockDetail>();
+		details.add(detail);
+		stock.setDetails(details);
+
+		Assert.assertSame(detail, stock.getFirstExpiringDetail());
+	}
+
+	/**
+	 * @verifies reorder a detail when its expiration is changed
+	 * @see ItemStock#getDetailsByExpiration()
+	 */
+	@Test
+	public void getDetailsByExpiration_shouldReorderADetailWhenItsExpirationIsChanged() throws Exception {
+		ItemStockDetail first = stock.addDetail(createDetail(addDays(5), oldBatch));
+		ItemStockDetail second = stock.addDetail(createDetail(addDays(10), oldBatch));
+		ItemStockDetail noExpiration = stock.addDetail(createDetail(null, oldBatch));
+		Assert.assertSame(noExpiration, stock.getDetailsByExpiration().get(0));
+
+		first.setExpiration(addDays(20));
+		noExpiration.setExpiration(addDays(30));
+
+		Iterator<ItemStockDetail> iterator = stock.getDetailsByExpiration().iterator();
+		Assert.assertSame(second, iterator.next());
+		Assert.assertSame(first, iterator.next());
+		Assert.assertSame(noExpiration, iterator.next());
+		Assert.assertFalse(iterator.hasNext());
+	}
+
+	/**
+	 * @verifies return null when there are no details
+	 * @see ItemStock#getFirstExpiringDetail()
+	 */
+	@Test
+	public void getFirstExpiringDetail_shouldReturnNullWhenThereAreNoDetails() throws Exception {
+		Assert.assertNull(stock.getFirstExpiringDetail());
+	}
+
+	private ItemStockDetail createDetail(Date expiration, StockOperation batch) {
+		ItemStockDetail detail = new ItemStockDetail();
+		detail.setExpiration(expiration);
+		detail.setBatchOperation(batch);
+		detail.setQuantity(1);
+
+		return detail;
+	}
+
+	private Date addDays(int days) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.DAY_OF_YEAR, days);
+
+		return calendar.getTime();
+	}
+}
@@ -0,0 +1,61 @@
+package org.openmrs.module.openhmis.inventory.api.util;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+
+public class ExportWriterTest {
+	/**
+	 * @verifies write the csv header before the first row
+	 * @see ExportWriter#write(Object...)
+	 */
+	@Test
+	public void write_shouldWriteTheCsvHeaderBeforeTheFirstRow() throws Exception {
+		StringWriter text = new StringWriter();
+		ExportWriter writer = new ExportWriter(text, ImportFormat.CSV, "code", "quantity");
+
+		writer.write("A1", 10);
+		writer.write("B2", null);
+		writer.flush();
+
+		Assert.assertEquals("code,quantity\nA1,10\nB2,\n", text.toString());
+		Assert.assertEquals(2, writer.getRows());
+	}
+
+	/**
+	 * @verifies quote csv values that contain separators or quotes
+	 * @see ExportWriter#write(Object...)
+	 */
+	@Test
+	public void write_shouldQuoteCsvValuesThatContainSeparatorsOrQuotes() throws Exception {
+		StringWriter text = new StringWriter();
+		ExportWriter writer = new ExportWriter(text, ImportFormat.CSV, "code", "name");
+
+		writer.write("A, \"1\"", "plain");
+
+		Assert.assertEquals("code,name\n\"A, \"\"1\"\"\",plain\n", text.toString());
+
+		// The quoted values can be read back
+		ImportReader reader = new ImportReader(new StringReader(text.toString()), ImportFormat.CSV, "code", "name");
+		Assert.assertEquals("A, \"1\"", reader.next().get("code"));
+	}
+
+	/**
+	 * @verifies write ndjson rows
+	 * @see ExportWriter#write(Object...)
+	 */
+	@Test
+	public void write_shouldWriteNdjsonRows() throws Exception {
+		StringWriter text = new StringWriter();
+		ExportWriter writer = new ExportWriter(text, ImportFormat.NDJSON, "code", "quantity", "expiration");
+
+		writer.write("A1", 10, null);
+		writer.write("B\"2", 5, "2030-01-01");
+
+		Assert.assertEquals("{\"code\":\"A1\",\"quantity\":10,\"expiration\":null}\n"
+				+ "{\"code\":\"B\\\"2\",\"quantity\":5,\"expiration\":\"2030-01-01\"}\n", text.toString());
+	}
+}
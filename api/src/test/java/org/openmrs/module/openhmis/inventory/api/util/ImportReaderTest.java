@@ -0,0 +1,126 @@
+package org.openmrs.module.openhmis.inventory.api.util;
+
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+
+public class ImportReaderTest {
+	/**
+	 * @verifies read csv rows using the default columns
+	 * @see ImportReader#next()
+	 */
+	@Test
+	public void next_shouldReadCsvRowsUsingTheDefaultColumns() throws Exception {
+		ImportReader reader = createReader("A1, 10 ,2030-01-01\nB2,5\n", ImportFormat.CSV);
+
+		ImportReader.Row row = reader.next();
+		Assert.assertEquals(1, row.getLine());
+		Assert.assertEquals("A1", row.get("itemCode"));
+		Assert.assertEquals("10", row.get("quantity"));
+		Assert.assertEquals("2030-01-01", row.get("expiration"));
+
+		row = reader.next();
+		Assert.assertEquals(2, row.getLine());
+		Assert.assertEquals("B2", row.get("itemCode"));
+		Assert.assertEquals("5", row.get("quantity"));
+		Assert.assertNull(row.get("expiration"));
+
+		Assert.assertNull(reader.next());
+	}
+
+	/**
+	 * @verifies read csv rows using the header columns
+	 * @see ImportReader#next()
+	 */
+	@Test
+	public void next_shouldReadCsvRowsUsingTheHeaderColumns() throws Exception {
+		ImportReader reader = createReader("Quantity,Item_Code,Other\n3,A1,x\n", ImportFormat.CSV);
+
+		ImportReader.Row row = reader.next();
+		Assert.assertEquals(2, row.getLine());
+		Assert.assertEquals("A1", row.get("itemCode"));
+		Assert.assertEquals("3", row.get("quantity"));
+		Assert.assertEquals("x", row.get("other"));
+		Assert.assertNull(row.get("expiration"));
+		Assert.assertNull(reader.next());
+	}
+
+	/**
+	 * @verifies skip blank lines
+	 * @see ImportReader#next()
+	 */
+	@Test
+	public void next_shouldSkipBlankLines() throws Exception {
+		ImportReader reader = createReader("itemCode,quantity\n\n  \nA1,1\n", ImportFormat.CSV);
+
+		ImportReader.Row row = reader.next();
+		Assert.assertEquals(4, row.getLine());
+		Assert.assertEquals("A1", row.get("itemCode"));
+		Assert.assertNull(reader.next());
+	}
+
+	/**
+	 * @verifies read quoted csv values
+	 * @see ImportReader#next()
+	 */
+	@Test
+	public void next_shouldReadQuotedCsvValues() throws Exception {
+		ImportReader reader = createReader("\"A, \"\"1\"\"\",\"3\"\n", ImportFormat.CSV);
+
+		ImportReader.Row row = reader.next();
+		Assert.assertEquals("A, \"1\"", row.get("itemCode"));
+		Assert.assertEquals("3", row.get("quantity"));
+	}
+
+	/**
+	 * @verifies read ndjson rows
+	 * @see ImportReader#next()
+	 */
+	@Test
+	public void next_shouldReadNdjsonRows() throws Exception {
+		ImportReader reader = createReader("{\"itemCode\": \"A1\", \"quantity\": 10, \"expiration\": null}\n"
+				+ "{\"item_code\": \"B2\", \"quantity\": \"5\", \"expiration\": \"2030-01-01\"}\n", ImportFormat.NDJSON);
+
+		ImportReader.Row row = reader.next();
+		Assert.assertEquals("A1", row.get("itemCode"));
+		Assert.assertEquals("10", row.get("quantity"));
+		Assert.assertNull(row.get("expiration"));
+		Assert.assertNull(row.getError());
+
+		row = reader.next();
+		Assert.assertEquals("B2", row.get("itemCode"));
+		Assert.assertEquals("5", row.get("quantity"));
+		Assert.assertEquals("2030-01-01", row.get("expiration"));
+
+		Assert.assertNull(reader.next());
+	}
+
+	/**
+	 * @verifies return a row with an error for malformed ndjson
+	 * @see ImportReader#next()
+	 */
+	@Test
+	public void next_shouldReturnARowWithAnErrorForMalformedNdjson() throws Exception {
+		ImportReader reader = createReader("{\"itemCode\": \n[1, 2]\n{\"itemCode\": \"A1\", \"quantity\": 1}\n",
+				ImportFormat.NDJSON);
+
+		ImportReader.Row row = reader.next();
+		Assert.assertEquals(1, row.getLine());
+		Assert.assertNotNull(row.getError());
+
+		row = reader.next();
+		Assert.assertEquals(2, row.getLine());
+		Assert.assertNotNull(row.getError());
+
+		row = reader.next();
+		Assert.assertEquals(3, row.getLine());
+		Assert.assertNull(row.getError());
+		Assert.assertEquals("A1", row.get("itemCode"));
+	}
+
+	private ImportReader createReader(String text, ImportFormat format) {
+		return new ImportReader(new StringReader(text), format, "itemCode", "quantity", "expiration");
+	}
+}
@@ -1,7 +1,18 @@
 package org.openmrs.module.openhmis.inventory.model;
 
 import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetailBase;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 
 public class ItemStockEntry extends ItemStockDetailBase {
 	public static final long serialVersionUID = 0L;
+
+	private Stockroom stockroom;
+
+	public Stockroom getStockroom() {
+		return stockroom;
+	}
+
+	public void setStockroom(Stockroom stockroom) {
+		this.stockroom = stockroom;
+	}
 }
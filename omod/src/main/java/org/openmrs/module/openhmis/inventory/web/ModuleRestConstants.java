@@ -23,6 +23,7 @@ public class ModuleRestConstants extends ModuleWebConstants {
 	public static final String ITEM_CODE_RESOURCE = MODULE_REST_ROOT + "itemCode";
 	public static final String ITEM_CONCEPT_SUGGESTION_RESOURCE = MODULE_REST_ROOT + "itemConceptSuggestion";
 	public static final String ITEM_CONCEPT_SUGGESTION_LIST_RESOURCE = MODULE_REST_ROOT + "itemConceptSuggestionList";
+	public static final String ITEM_IMPORT = MODULE_REST_ROOT + "itemImport";
 
 	public static final String DEPARTMENT_RESOURCE = MODULE_REST_ROOT + "department";
 	public static final String CATEGORY_RESOURCE = MODULE_REST_ROOT + "category";
@@ -32,6 +33,9 @@ public class ModuleRestConstants extends ModuleWebConstants {
 	public static final String ITEM_STOCK_RESOURCE = MODULE_REST_ROOT + "itemStock";
 	public static final String ITEM_STOCK_DETAIL_RESOURCE = MODULE_REST_ROOT + "itemStockDetail";
 	public static final String ITEM_STOCK_ENTRY_RESOURCE = MODULE_REST_ROOT + "itemStockEntry";
+	public static final String ITEM_STOCK_IMPORT = MODULE_REST_ROOT + "itemStockImport";
+	public static final String ITEM_STOCK_EXPORT = MODULE_REST_ROOT + "itemStockExport";
+	public static final String ITEM_STOCK_LEVEL_RESOURCE = MODULE_REST_ROOT + "itemStockLevel";
 
 	public static final String OPERATION_RESOURCE = MODULE_REST_ROOT + "stockOperation";
 	public static final String OPERATION_TYPE_RESOURCE = MODULE_REST_ROOT + "stockOperationType";
@@ -39,6 +43,7 @@ public class ModuleRestConstants extends ModuleWebConstants {
 	public static final String OPERATION_ATTRIBUTE_RESOURCE = MODULE_REST_ROOT + "stockOperationAttribute";
 	public static final String OPERATION_ATTRIBUTE_TYPE_RESOURCE = MODULE_REST_ROOT + "stockOperationAttributeType";
 	public static final String OPERATION_TRANSACTION_RESOURCE = MODULE_REST_ROOT + "stockOperationTransaction";
+	public static final String OPERATION_TRANSACTION_ROLLUP_RESOURCE = MODULE_REST_ROOT + "stockOperationTransactionRollup";
 
 	public static final String RESERVATION_TRANSACTION_RESOURCE = MODULE_REST_ROOT + "reservationTransaction";
 
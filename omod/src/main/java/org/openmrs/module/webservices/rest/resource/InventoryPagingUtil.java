@@ -0,0 +1,74 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.webservices.rest.resource;
+
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.inventory.api.util.InventoryPagingInfo;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
+
+/**
+ * Creates paging information that honours the optional count request parameter. The count parameter can be "exact"
+ * (the default), "probe" to skip the total count and only return whether there are more results, or "cached" to use a
+ * recently cached total count.
+ */
+public class InventoryPagingUtil {
+	public static final String COUNT_PARAMETER = "count";
+
+	protected InventoryPagingUtil() {}
+
+	/**
+	 * Gets the paging information for the request.
+	 * @param context The request context.
+	 * @return The paging information.
+	 */
+	public static PagingInfo getPagingInfoFromContext(RequestContext context) {
+		PagingInfo pagingInfo = PagingUtil.getPagingInfoFromContext(context);
+
+		String count = context.getParameter(COUNT_PARAMETER);
+		if (pagingInfo == null || StringUtils.isEmpty(count)) {
+			return pagingInfo;
+		}
+
+		InventoryPagingInfo.CountMode countMode;
+		try {
+			countMode = InventoryPagingInfo.CountMode.valueOf(count.trim().toUpperCase());
+		} catch (IllegalArgumentException iae) {
+			throw new IllegalArgumentException("The count mode '" + count + "' is not supported.");
+		}
+
+		return new InventoryPagingInfo(pagingInfo.getPage(), pagingInfo.getPageSize(), countMode);
+	}
+
+	/**
+	 * Creates the pageable result for a page of results. The total count is only included when it was loaded.
+	 * @param context The request context.
+	 * @param results The page of results.
+	 * @param pagingInfo The paging information used to load the results.
+	 * @param <T> The result type.
+	 * @return The pageable result.
+	 */
+	public static <T> PageableResult createResult(RequestContext context, List<T> results, PagingInfo pagingInfo) {
+		if (InventoryPagingInfo.getCountMode(pagingInfo) == InventoryPagingInfo.CountMode.PROBE) {
+			return new AlreadyPaged<T>(context, results, pagingInfo.hasMoreResults());
+		}
+
+		return new AlreadyPagedWithLength<T>(context, results, pagingInfo.hasMoreResults(),
+				pagingInfo.getTotalRecordCount());
+	}
+}
@@ -33,8 +33,11 @@ import org.openmrs.module.openhmis.inventory.api.IItemDataService;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.ItemCode;
 import org.openmrs.module.openhmis.inventory.api.model.ItemPrice;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockTotal;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.SimpleObject;
 import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.annotation.PropertyGetter;
 import org.openmrs.module.webservices.rest.web.annotation.PropertySetter;
 import org.openmrs.module.webservices.rest.web.annotation.Resource;
 import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
@@ -76,11 +79,26 @@ public class ItemResource extends BaseRestMetadataResource<Item> {
 	        description.addProperty("hasExpiration");
 	        description.addProperty("defaultExpirationPeriod");
 	        description.addProperty("hasPhysicalInventory");
+	        description.addProperty("stockTotal");
         }
 
         return description;
     }
 
+    @PropertyGetter(value="stockTotal")
+    public SimpleObject getStockTotal(Item instance) {
+        // The facility-wide totals are read from the maintained item stock total rather than the stock in each stockroom.
+        //  The totals for all the items being returned are loaded together when the first total is read.
+        ItemStockTotal total = instance.getId() == null ? null : instance.getStockTotal();
+
+        SimpleObject result = new SimpleObject();
+        result.add("quantity", total == null ? 0 : total.getQuantity());
+        result.add("reservedQuantity", total == null ? 0 : total.getReservedQuantity());
+        result.add("stockroomCount", total == null ? 0 : total.getStockroomCount());
+
+        return result;
+    }
+
     @PropertySetter(value="codes")
     public void setItemCodes(Item instance, Set<ItemCode> codes) {
         if (instance.getCodes() == null) {
@@ -1,19 +1,47 @@
 package org.openmrs.module.webservices.rest.resource;
 
+import java.util.Collections;
+
+import org.openmrs.api.APIException;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.inventory.api.IItemStockDataService;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
 import org.openmrs.module.openhmis.inventory.model.ItemStockEntry;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
 import org.openmrs.module.webservices.rest.web.annotation.Resource;
-import sun.reflect.generics.reflectiveObjects.NotImplementedException;
+import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
 
 @Resource(name = ModuleRestConstants.ITEM_STOCK_ENTRY_RESOURCE, supportedClass=ItemStockEntry.class,
 		supportedOpenmrsVersions={"1.9.*", "1.10.*"})
 public class ItemStockEntryResource extends ItemStockDetailBaseResource<ItemStockEntry> {
+	@Override
+	public DelegatingResourceDescription getRepresentationDescription(Representation rep) {
+		DelegatingResourceDescription description =  super.getRepresentationDescription(rep);
+		if (!(rep instanceof RefRepresentation)) {
+			description.addProperty("stockroom", Representation.REF);
+		}
+
+		return description;
+	}
+
 	@Override
 	public ItemStockEntry save(ItemStockEntry item) {
-		// Parse the item stock and create the required item stock and item stock detail objects
+		// Add the entry to the item stock and item stock details for the stockroom. Large numbers of entries should be
+		//  loaded through the item stock import instead.
+		if (item.getStockroom() == null) {
+			throw new APIException("The stockroom for the item stock entry must be defined.");
+		}
+
+		ImportResult result = Context.getService(IItemStockDataService.class).importStock(item.getStockroom(),
+				Collections.singletonList(item));
+		if (result.hasErrors()) {
+			throw new APIException(result.getErrors().values().iterator().next());
+		}
 
-		throw new NotImplementedException();
+		return item;
 	}
 
 	@Override
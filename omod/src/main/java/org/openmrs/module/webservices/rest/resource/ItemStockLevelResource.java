@@ -0,0 +1,49 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.webservices.rest.resource;
+
+import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.inventory.api.IItemStockLevelDataService;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.web.annotation.Resource;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
+
+@Resource(name = ModuleRestConstants.ITEM_STOCK_LEVEL_RESOURCE, supportedClass=ItemStockLevel.class,
+		supportedOpenmrsVersions={"1.9.*", "1.10.*"})
+public class ItemStockLevelResource extends BaseRestObjectResource<ItemStockLevel> {
+	@Override
+	public ItemStockLevel newDelegate() {
+		return new ItemStockLevel();
+	}
+
+	@Override
+	public Class<? extends IObjectDataService<ItemStockLevel>> getServiceClass() {
+		return IItemStockLevelDataService.class;
+	}
+
+	@Override
+	public DelegatingResourceDescription getRepresentationDescription(Representation rep) {
+		DelegatingResourceDescription description = super.getRepresentationDescription(rep);
+		description.addProperty("stockroom", Representation.REF);
+		description.addProperty("item", Representation.REF);
+		description.addProperty("minimumQuantity", Representation.DEFAULT);
+		description.addProperty("reorderQuantity", Representation.DEFAULT);
+		description.addProperty("status", Representation.DEFAULT);
+		description.addProperty("statusDate", Representation.DEFAULT);
+
+		return description;
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.webservices.rest.resource;
+
+import java.util.List;
+
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.Converter;
+import org.openmrs.module.webservices.rest.web.resource.impl.AlreadyPaged;
+import org.openmrs.module.webservices.rest.web.response.ResponseException;
+
+/**
+ * A page of results that was loaded with keyset paging. Instead of a next link with a start index, the result includes
+ * the continuation that is used to request the next page when there are more results.
+ * @param <T> The result type.
+ */
+public class KeysetPaged<T> extends AlreadyPaged<T> {
+	private final String continuation;
+
+	public KeysetPaged(RequestContext context, List<T> results, String continuation) {
+		super(context, results, false);
+
+		this.continuation = continuation;
+	}
+
+	@Override
+	public SimpleObject toSimpleObject(Converter preferredConverter) throws ResponseException {
+		SimpleObject result = super.toSimpleObject(preferredConverter);
+		if (continuation != null) {
+			result.add("continuation", continuation);
+		}
+
+		return result;
+	}
+}
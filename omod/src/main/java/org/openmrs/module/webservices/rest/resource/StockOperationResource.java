@@ -22,10 +22,10 @@ import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.commons.api.entity.IMetadataDataService;
 import org.openmrs.module.openhmis.commons.api.f.Action2;
-import org.openmrs.module.openhmis.commons.api.util.IdgenUtil;
 import org.openmrs.module.openhmis.inventory.ModuleSettings;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationDataService;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationService;
+import org.openmrs.module.openhmis.inventory.api.impl.OperationNumberPool;
 import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperation;
@@ -82,6 +82,7 @@ public class StockOperationResource
 	public DelegatingResourceDescription getRepresentationDescription(Representation rep) {
 		DelegatingResourceDescription description = super.getRepresentationDescription(rep);
 		description.addProperty("status", Representation.DEFAULT);
+		description.addProperty("submissionError", Representation.DEFAULT);
 		description.addProperty("operationNumber", Representation.DEFAULT);
 		description.addProperty("dateCreated", Representation.DEFAULT);
 
@@ -93,6 +94,7 @@ public class StockOperationResource
 			description.addProperty("destination", Representation.REF);
 			description.addProperty("patient", Representation.REF);
 			description.addProperty("institution", Representation.REF);
+			description.addProperty("idempotencyKey");
 
 			description.addProperty("canProcess", findMethod("canUserProcess"));
 		}
@@ -119,9 +121,14 @@ public class StockOperationResource
 			}
 		}
 
-		// If the status has changed, submit the operation
+		// If the status has changed, submit the operation. New operations can be queued so that the request does not
+		//  wait for the operation to be processed; the caller can then poll the operation status.
 		if (submitRequired) {
-			result = operationService.submitOperation(operation);
+			if (operation.getStatus() == StockOperationStatus.NEW && ModuleSettings.submitOperationsAsynchronously()) {
+				result = operationService.queueOperation(operation);
+			} else {
+				result = operationService.submitOperation(operation);
+			}
 		} else {
 			result = super.save(operation);
 		}
@@ -134,7 +141,7 @@ public class StockOperationResource
 		if (StringUtils.isEmpty(instance.getOperationNumber())) {
 			if (ModuleSettings.generateOperationNumber()) {
 				try {
-					operationNumber = IdgenUtil.generateId(ModuleSettings.OPERATION_NUMBER_IDENTIFIER_SOURCE_ID_PROPERTY);
+					operationNumber = OperationNumberPool.next();
 
 					instance.setOperationNumber(operationNumber);
 				} catch (Exception ex) {
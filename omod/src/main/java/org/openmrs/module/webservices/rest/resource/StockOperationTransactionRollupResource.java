@@ -0,0 +1,51 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.webservices.rest.resource;
+
+import org.openmrs.module.openhmis.commons.api.entity.IObjectDataService;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.web.annotation.Resource;
+import org.openmrs.module.webservices.rest.web.representation.RefRepresentation;
+import org.openmrs.module.webservices.rest.web.representation.Representation;
+import org.openmrs.module.webservices.rest.web.resource.impl.DelegatingResourceDescription;
+
+@Resource(name = ModuleRestConstants.OPERATION_TRANSACTION_ROLLUP_RESOURCE,
+		supportedClass=StockOperationTransactionRollup.class, supportedOpenmrsVersions={"1.9.*", "1.10.*"})
+public class StockOperationTransactionRollupResource extends BaseRestObjectResource<StockOperationTransactionRollup> {
+	@Override
+	public StockOperationTransactionRollup newDelegate() {
+		return new StockOperationTransactionRollup();
+	}
+
+	@Override
+	public Class<? extends IObjectDataService<StockOperationTransactionRollup>> getServiceClass() {
+		return null;
+	}
+
+	@Override
+	public DelegatingResourceDescription getRepresentationDescription(Representation rep) {
+		DelegatingResourceDescription description = super.getRepresentationDescription(rep);
+		description.addProperty("month", Representation.DEFAULT);
+		description.addProperty("item", Representation.REF);
+		description.addProperty("batchOperation", Representation.REF);
+		description.addProperty("quantity", Representation.DEFAULT);
+		description.addProperty("transactionCount", Representation.DEFAULT);
+		if (!(rep instanceof RefRepresentation)) {
+			description.addProperty("stockroom", Representation.REF);
+		}
+
+		return description;
+	}
+}
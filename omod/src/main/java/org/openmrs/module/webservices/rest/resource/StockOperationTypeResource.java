@@ -13,11 +13,13 @@
  */
 package org.openmrs.module.webservices.rest.resource;
 
+import org.apache.commons.lang.StringUtils;
 import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.openhmis.commons.api.entity.IMetadataDataService;
 import org.openmrs.module.openhmis.inventory.api.IStockOperationTypeDataService;
+import org.openmrs.module.openhmis.inventory.api.StockOperationTypeCache;
 import org.openmrs.module.openhmis.inventory.api.model.*;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
 import org.openmrs.module.webservices.rest.web.annotation.PropertySetter;
@@ -42,6 +44,12 @@ public class StockOperationTypeResource
 		return IStockOperationTypeDataService.class;
 	}
 
+	@Override
+	public IStockOperationType getByUniqueId(String uniqueId) {
+		// Resolve the type through the cache so that each submitted operation does not search for its type
+		return StringUtils.isEmpty(uniqueId) ? null : StockOperationTypeCache.getByUuid(uniqueId);
+	}
+
 	@Override
 	public DelegatingResourceDescription getRepresentationDescription(Representation rep) {
 		DelegatingResourceDescription description = super.getRepresentationDescription(rep);
@@ -73,20 +81,32 @@ public class StockOperationTypeResource
 
 		User currentUser = Context.getAuthenticatedUser();
 
-		Role role = operationType.getRole();
-		User user = operationType.getUser();
+		// Use the cached restrictions so that the role and user are not loaded for each request
+		String roleName;
+		Integer userId;
+		StockOperationTypeCache.TypeInfo info =
+				StockOperationTypeCache.getSnapshot().getByUuid(operationType.getUuid());
+		if (info != null) {
+			roleName = info.getRoleName();
+			userId = info.getUserId();
+		} else {
+			Role role = operationType.getRole();
+			User user = operationType.getUser();
+			roleName = role == null ? null : role.getRole();
+			userId = user == null ? null : user.getUserId();
+		}
 
 		// If operation type has role restriction
-		if (role != null) {
-			if (!currentUser.hasRole(role.getRole())) {
+		if (roleName != null) {
+			if (!currentUser.hasRole(roleName)) {
 				canProcess = false;
 			}
 		}
 
 		// If there is a user restriction and either the role test did not pass or if there is no role test
-		if (((role != null && !canProcess) || (role == null))
-				&& user != null) {
-			if (currentUser.getUserId().equals(user.getUserId())) {
+		if (((roleName != null && !canProcess) || (roleName == null))
+				&& userId != null) {
+			if (currentUser.getUserId().equals(userId)) {
 				canProcess = true;
 			}
 		}
@@ -27,8 +27,7 @@ import org.openmrs.module.openhmis.inventory.api.model.Department;
 import org.openmrs.module.openhmis.inventory.api.model.Item;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
-import org.openmrs.module.webservices.rest.resource.AlreadyPagedWithLength;
-import org.openmrs.module.webservices.rest.resource.PagingUtil;
+import org.openmrs.module.webservices.rest.resource.InventoryPagingUtil;
 import org.openmrs.module.webservices.rest.resource.search.BaseSearchHandler;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
@@ -42,13 +41,18 @@ import org.springframework.stereotype.Component;
 public class ItemSearchHandler
 		extends BaseSearchHandler
 		implements SearchHandler {
+	private static final String TYPEAHEAD_PARAMETER = "typeahead";
+
 	private final SearchConfig searchConfig =
 			new SearchConfig("default", ModuleRestConstants.ITEM_RESOURCE, Arrays.asList("*"),
 					Arrays.asList(
 							new SearchQuery.Builder(
-									"Find an item by its name or code, optionally filtering by category and department")
+									"Find an item by its name or code, optionally filtering by category and department. "
+											+ "When typeahead is true and no filters are specified the code and name are "
+											+ "matched in a single query with the code matches first.")
 									.withRequiredParameters("q")
-									.withOptionalParameters("department_uuid", "category_uuid", "has_physical_inventory")
+									.withOptionalParameters("department_uuid", "category_uuid", "has_physical_inventory",
+											TYPEAHEAD_PARAMETER, InventoryPagingUtil.COUNT_PARAMETER)
 									.build()
 					)
 			);
@@ -80,18 +84,23 @@ public class ItemSearchHandler
 		Category category = getOptionalEntityByUuid(categoryService, context.getParameter("category_uuid"));
 
 		List<Item> items = null;
-		PagingInfo pagingInfo = PagingUtil.getPagingInfoFromContext(context);
+		PagingInfo pagingInfo = InventoryPagingUtil.getPagingInfoFromContext(context);
 
 		// If no parameters are specified first attempt a search by code (an exact match), then by name
 		if (department == null && category == null && hasPhysicalInventory == null) {
-			if (query != null) {
-				// Try searching by code
-				items = service.getItemsByCode(query, context.getIncludeAll(), pagingInfo);
-			}
-
-			if (items == null || items.size() == 0) {
-				// If no items are found, search by name
-				items = service.getByNameFragment(query, context.getIncludeAll(), pagingInfo);
+			if (query != null && Boolean.parseBoolean(context.getParameter(TYPEAHEAD_PARAMETER))) {
+				// Search by code and name in a single query, with the code matches first
+				items = service.getItemsByCodeOrName(query, context.getIncludeAll(), pagingInfo);
+			} else {
+				if (query != null) {
+					// Try searching by code
+					items = service.getItemsByCode(query, context.getIncludeAll(), pagingInfo);
+				}
+
+				if (items == null || items.size() == 0) {
+					// If no items are found, search by name
+					items = service.getByNameFragment(query, context.getIncludeAll(), pagingInfo);
+				}
 			}
 		} else {
 			// Create the item search template with the specified parameters
@@ -100,8 +109,7 @@ public class ItemSearchHandler
 			items = service.getItemsByItemSearch(search, pagingInfo);
 		}
 
-		return new AlreadyPagedWithLength<Item>(context, items, pagingInfo.hasMoreResults(),
-				pagingInfo.getTotalRecordCount());
+		return InventoryPagingUtil.createResult(context, items, pagingInfo);
 	}
 
 	private ItemSearch createSearchTemplate(RequestContext context, String name, Department department,Category category,
@@ -0,0 +1,122 @@
+package org.openmrs.module.webservices.rest.search;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockDetail;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.resource.InventoryPagingUtil;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ItemStockDetailSearchHandler implements SearchHandler {
+	private static final Log LOG = LogFactory.getLog(ItemStockDetailSearchHandler.class);
+	private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+	// The details are a sub-resource of the item stock so the search is on the item stock resource
+	private final SearchConfig searchConfig = new SearchConfig("expiring", ModuleRestConstants.ITEM_STOCK_RESOURCE,
+			Arrays.asList("*"),
+			Arrays.asList(
+					new SearchQuery.Builder("Find the item stock details that expire before the specified date (yyyy-MM-dd), "
+							+ "optionally filtering by a comma separated list of stockroom uuids.")
+							.withRequiredParameters("expires_before")
+							.withOptionalParameters("stockroom_uuid", InventoryPagingUtil.COUNT_PARAMETER)
+							.build(),
+					new SearchQuery.Builder("Find the item stock details that expire within the specified number of days, "
+							+ "optionally filtering by a comma separated list of stockroom uuids.")
+							.withRequiredParameters("days")
+							.withOptionalParameters("stockroom_uuid", InventoryPagingUtil.COUNT_PARAMETER)
+							.build()
+			)
+	);
+
+	private IStockroomDataService stockroomDataService;
+
+	@Autowired
+	public ItemStockDetailSearchHandler(IStockroomDataService stockroomDataService) {
+		this.stockroomDataService = stockroomDataService;
+	}
+
+	@Override
+	public SearchConfig getSearchConfig() {
+		return searchConfig;
+	}
+
+	@Override
+	public PageableResult search(RequestContext context) {
+		Date before = getExpiresBefore(context);
+
+		List<Stockroom> stockrooms = new ArrayList<Stockroom>();
+		String stockroomUuids = context.getParameter("stockroom_uuid");
+		if (StringUtils.isNotEmpty(stockroomUuids)) {
+			for (String stockroomUuid : StringUtils.split(stockroomUuids, ',')) {
+				Stockroom stockroom = stockroomDataService.getByUuid(stockroomUuid.trim());
+				if (stockroom == null) {
+					LOG.warn("Could not find stockroom '" + stockroomUuid + "'");
+				} else {
+					stockrooms.add(stockroom);
+				}
+			}
+
+			if (stockrooms.size() == 0) {
+				return new EmptySearchResult();
+			}
+		}
+
+		PagingInfo pagingInfo = InventoryPagingUtil.getPagingInfoFromContext(context);
+		List<ItemStockDetail> details = stockroomDataService.getExpiringDetails(before, stockrooms, pagingInfo);
+		if (details == null || details.size() == 0) {
+			return new EmptySearchResult();
+		}
+
+		return InventoryPagingUtil.createResult(context, details, pagingInfo);
+	}
+
+	private Date getExpiresBefore(RequestContext context) {
+		String beforeText = context.getParameter("expires_before");
+		if (StringUtils.isNotEmpty(beforeText)) {
+			try {
+				return new SimpleDateFormat(DATE_FORMAT).parse(beforeText);
+			} catch (ParseException pe) {
+				throw new IllegalArgumentException("The expiration date '" + beforeText + "' must be in the "
+						+ DATE_FORMAT + " format.");
+			}
+		}
+
+		String daysText = context.getParameter("days");
+		int days;
+		try {
+			days = Integer.parseInt(daysText);
+		} catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("The number of days '" + daysText + "' is not a valid number.");
+		}
+
+		// Details that expire at any time on the last day are included
+		Calendar calendar = Calendar.getInstance();
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		calendar.add(Calendar.DAY_OF_YEAR, days + 1);
+
+		return calendar.getTime();
+	}
+}
@@ -0,0 +1,86 @@
+package org.openmrs.module.webservices.rest.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.inventory.api.IItemStockLevelDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevel;
+import org.openmrs.module.openhmis.inventory.api.model.ItemStockLevelStatus;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.resource.InventoryPagingUtil;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ItemStockLevelSearchHandler implements SearchHandler {
+	private static final Log LOG = LogFactory.getLog(ItemStockLevelSearchHandler.class);
+
+	private final SearchConfig searchConfig = new SearchConfig("alerts", ModuleRestConstants.ITEM_STOCK_LEVEL_RESOURCE,
+			Arrays.asList("*"),
+			Arrays.asList(
+					new SearchQuery.Builder("Find the item stock levels that are at or below the reorder or minimum "
+							+ "quantity, optionally filtering by stockroom and status (REORDER or BELOW_MINIMUM).")
+							.withOptionalParameters("stockroom_uuid", "status", InventoryPagingUtil.COUNT_PARAMETER)
+							.build()
+			)
+	);
+
+	private IItemStockLevelDataService levelDataService;
+	private IStockroomDataService stockroomDataService;
+
+	@Autowired
+	public ItemStockLevelSearchHandler(IItemStockLevelDataService levelDataService,
+			IStockroomDataService stockroomDataService) {
+		this.levelDataService = levelDataService;
+		this.stockroomDataService = stockroomDataService;
+	}
+
+	@Override
+	public SearchConfig getSearchConfig() {
+		return searchConfig;
+	}
+
+	@Override
+	public PageableResult search(RequestContext context) {
+		Stockroom stockroom = null;
+		String stockroomUuid = context.getParameter("stockroom_uuid");
+		if (StringUtils.isNotEmpty(stockroomUuid)) {
+			stockroom = stockroomDataService.getByUuid(stockroomUuid);
+			if (stockroom == null) {
+				LOG.warn("Could not find stockroom '" + stockroomUuid + "'");
+
+				return new EmptySearchResult();
+			}
+		}
+
+		ItemStockLevelStatus status = null;
+		String statusText = context.getParameter("status");
+		if (StringUtils.isNotEmpty(statusText)) {
+			try {
+				status = ItemStockLevelStatus.valueOf(statusText.toUpperCase());
+			} catch (IllegalArgumentException iae) {
+				throw new IllegalArgumentException("The status '" + statusText + "' is not a valid item stock level status.");
+			}
+		}
+
+		PagingInfo pagingInfo = InventoryPagingUtil.getPagingInfoFromContext(context);
+		List<ItemStockLevel> levels = levelDataService.getAlerts(stockroom, status, pagingInfo);
+		if (levels == null || levels.size() == 0) {
+			return new EmptySearchResult();
+		}
+
+		return InventoryPagingUtil.createResult(context, levels, pagingInfo);
+	}
+}
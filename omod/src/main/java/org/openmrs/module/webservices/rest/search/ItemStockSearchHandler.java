@@ -30,8 +30,7 @@ import org.openmrs.module.openhmis.inventory.api.model.ItemStock;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.search.ItemSearch;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
-import org.openmrs.module.webservices.rest.resource.AlreadyPagedWithLength;
-import org.openmrs.module.webservices.rest.resource.PagingUtil;
+import org.openmrs.module.webservices.rest.resource.InventoryPagingUtil;
 import org.openmrs.module.webservices.rest.resource.search.BaseSearchHandler;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
@@ -53,7 +52,7 @@ public class ItemStockSearchHandler
 			Arrays.asList("*"),
 			Arrays.asList(
 					new SearchQuery.Builder("Find item stock by stockroom and an optional name fragment.")
-							.withOptionalParameters("q", "item_uuid", "stockroom_uuid")
+							.withOptionalParameters("q", "item_uuid", "stockroom_uuid", InventoryPagingUtil.COUNT_PARAMETER)
 							.build()
 			)
 	);
@@ -81,7 +80,7 @@ public class ItemStockSearchHandler
 		Stockroom stockroom = getOptionalEntityByUuid(stockroomDataService, context.getParameter("stockroom_uuid"));
 
 		List<ItemStock> items = null;
-		PagingInfo pagingInfo = PagingUtil.getPagingInfoFromContext(context);
+		PagingInfo pagingInfo = InventoryPagingUtil.getPagingInfoFromContext(context);
 
 		if (!StringUtils.isEmpty(query)) {
 			// Search for items starting with the specified query
@@ -126,8 +125,7 @@ public class ItemStockSearchHandler
 			return new AlreadyPaged<ItemStock>(context, items, false);
 		}
 		
-		return new AlreadyPagedWithLength<ItemStock>(context, items, pagingInfo.hasMoreResults(),
-			pagingInfo.getTotalRecordCount());
+		return InventoryPagingUtil.createResult(context, items, pagingInfo);
 	}
 }
 
@@ -27,8 +27,7 @@ import org.openmrs.module.openhmis.inventory.api.model.StockOperationStatus;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
 import org.openmrs.module.openhmis.inventory.api.search.StockOperationSearch;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
-import org.openmrs.module.webservices.rest.resource.AlreadyPagedWithLength;
-import org.openmrs.module.webservices.rest.resource.PagingUtil;
+import org.openmrs.module.webservices.rest.resource.InventoryPagingUtil;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
 import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
@@ -46,7 +45,7 @@ public class StockOperationSearchHandler implements SearchHandler {
 			Arrays.asList("*"),
 			Arrays.asList(
 					new SearchQuery.Builder("Finds stock operations with an optional status and/or stockroom.")
-							.withOptionalParameters("status", "stockroom_uuid")
+							.withOptionalParameters("status", "stockroom_uuid", InventoryPagingUtil.COUNT_PARAMETER)
 							.build()
 
 			)
@@ -97,7 +96,7 @@ public class StockOperationSearchHandler implements SearchHandler {
 			search.getTemplate().setStatus(status);
 		}
 
-		PagingInfo pagingInfo = PagingUtil.getPagingInfoFromContext(context);
+		PagingInfo pagingInfo = InventoryPagingUtil.getPagingInfoFromContext(context);
 		List<StockOperation> operations;
 		if (stockroom == null) {
 			if (search == null) {
@@ -115,8 +114,7 @@ public class StockOperationSearchHandler implements SearchHandler {
 		if (operations == null || operations.size() == 0) {
 			return new EmptySearchResult();
 		} else {
-			return new AlreadyPagedWithLength<StockOperation>(context, operations, pagingInfo.hasMoreResults(),
-					pagingInfo.getTotalRecordCount());
+			return InventoryPagingUtil.createResult(context, operations, pagingInfo);
 		}
 	}
 }
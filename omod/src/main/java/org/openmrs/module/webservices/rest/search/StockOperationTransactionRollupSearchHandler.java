@@ -0,0 +1,68 @@
+package org.openmrs.module.webservices.rest.search;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.openhmis.commons.api.PagingInfo;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransactionRollup;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.resource.InventoryPagingUtil;
+import org.openmrs.module.webservices.rest.web.RequestContext;
+import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchConfig;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchHandler;
+import org.openmrs.module.webservices.rest.web.resource.api.SearchQuery;
+import org.openmrs.module.webservices.rest.web.resource.impl.EmptySearchResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StockOperationTransactionRollupSearchHandler implements SearchHandler {
+	private static final Log LOG = LogFactory.getLog(StockOperationTransactionRollupSearchHandler.class);
+
+	private final SearchConfig searchConfig = new SearchConfig("default",
+			ModuleRestConstants.OPERATION_TRANSACTION_ROLLUP_RESOURCE,
+			Arrays.asList("*"),
+			Arrays.asList(
+					new SearchQuery.Builder("Find the monthly totals of the compacted transactions by stockroom.")
+							.withRequiredParameters("stockroom_uuid")
+							.withOptionalParameters(InventoryPagingUtil.COUNT_PARAMETER).build()
+			)
+	);
+
+	private IStockroomDataService stockroomDataService;
+
+	@Autowired
+	public StockOperationTransactionRollupSearchHandler(IStockroomDataService stockroomDataService) {
+		this.stockroomDataService = stockroomDataService;
+	}
+
+	@Override
+	public SearchConfig getSearchConfig() {
+		return searchConfig;
+	}
+
+	@Override
+	public PageableResult search(RequestContext context) {
+		String stockroomUuid = context.getParameter("stockroom_uuid");
+		Stockroom stockroom = stockroomDataService.getByUuid(stockroomUuid);
+		if (stockroom == null) {
+			LOG.warn("Could not find stockroom '" + stockroomUuid + "'");
+
+			return new EmptySearchResult();
+		}
+
+		PagingInfo pagingInfo = InventoryPagingUtil.getPagingInfoFromContext(context);
+		List<StockOperationTransactionRollup> rollups =
+				stockroomDataService.getTransactionRollupsByRoom(stockroom, pagingInfo);
+		if (rollups == null || rollups.size() == 0) {
+			return new EmptySearchResult();
+		}
+
+		return InventoryPagingUtil.createResult(context, rollups, pagingInfo);
+	}
+}
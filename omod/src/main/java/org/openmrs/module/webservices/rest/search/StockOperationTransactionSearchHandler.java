@@ -9,8 +9,10 @@ import org.openmrs.module.openhmis.commons.api.PagingInfo;
 import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
 import org.openmrs.module.openhmis.inventory.api.model.StockOperationTransaction;
 import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.api.util.KeysetPagingInfo;
 import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
 import org.openmrs.module.webservices.rest.resource.AlreadyPagedWithLength;
+import org.openmrs.module.webservices.rest.resource.KeysetPaged;
 import org.openmrs.module.webservices.rest.resource.PagingUtil;
 import org.openmrs.module.webservices.rest.web.RequestContext;
 import org.openmrs.module.webservices.rest.web.resource.api.PageableResult;
@@ -28,8 +30,11 @@ public class StockOperationTransactionSearchHandler implements SearchHandler {
 	private final SearchConfig searchConfig = new SearchConfig("default", ModuleRestConstants.OPERATION_TRANSACTION_RESOURCE,
 			Arrays.asList("*"),
 			Arrays.asList(
-					new SearchQuery.Builder("Find all transactions by stockroom.")
-							.withRequiredParameters("stockroom_uuid").build()
+					new SearchQuery.Builder("Find all transactions by stockroom. If a continuation is specified (use an empty "
+							+ "continuation for the first page) the transactions are keyset paged and the continuation for the "
+							+ "next page is returned with the results.")
+							.withRequiredParameters("stockroom_uuid")
+							.withOptionalParameters("continuation").build()
 			)
 	);
 
@@ -60,6 +65,17 @@ public class StockOperationTransactionSearchHandler implements SearchHandler {
 			return new EmptySearchResult();
 		}
 
+		String continuation = context.getParameter("continuation");
+		if (continuation != null) {
+			KeysetPagingInfo keysetPaging = new KeysetPagingInfo(context.getLimit(), continuation);
+			List<StockOperationTransaction> transactions = service.seekTransactionsByRoom(stockroom, keysetPaging);
+			if (transactions.size() == 0) {
+				return new EmptySearchResult();
+			}
+
+			return new KeysetPaged<StockOperationTransaction>(context, transactions, keysetPaging.getNextContinuation());
+		}
+
 		PagingInfo pagingInfo = PagingUtil.getPagingInfoFromContext(context);
 		List<StockOperationTransaction> transactions = service.getTransactionsByRoom(stockroom, pagingInfo);
 		if (transactions == null || transactions.size() == 0) {
@@ -0,0 +1,89 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.webservices.rest.web.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.openmrs.module.openhmis.inventory.api.IItemStockDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Streams the item stock for one or more stockrooms to the response as CSV or NDJSON. The stockrooms are specified by
+ * uuid, either as repeated stockroom parameters or as a comma separated list.
+ */
+@Controller
+public class InventoryExportController {
+	private IItemStockDataService itemStockService;
+	private IStockroomDataService stockroomService;
+
+	@Autowired
+	public InventoryExportController(IItemStockDataService itemStockService, IStockroomDataService stockroomService) {
+		this.itemStockService = itemStockService;
+		this.stockroomService = stockroomService;
+	}
+
+	@RequestMapping(value = "/rest/" + ModuleRestConstants.ITEM_STOCK_EXPORT, method = RequestMethod.GET)
+	public void exportStock(@RequestParam("stockroom") String[] stockroomUuids,
+			@RequestParam(value = "format", required = false) String format, HttpServletResponse response)
+			throws IOException {
+		List<Stockroom> stockrooms = new ArrayList<Stockroom>();
+		for (String uuids : stockroomUuids) {
+			for (String uuid : StringUtils.split(uuids, ',')) {
+				Stockroom stockroom = stockroomService.getByUuid(uuid.trim());
+				if (stockroom == null) {
+					throw new IllegalArgumentException("Could not find stockroom '" + uuid + "'.");
+				}
+
+				stockrooms.add(stockroom);
+			}
+		}
+
+		ImportFormat exportFormat = getFormat(format);
+		response.setCharacterEncoding("UTF-8");
+		if (exportFormat == ImportFormat.NDJSON) {
+			response.setContentType("application/x-ndjson");
+			response.setHeader("Content-Disposition", "attachment; filename=\"itemStock.ndjson\"");
+		} else {
+			response.setContentType("text/csv");
+			response.setHeader("Content-Disposition", "attachment; filename=\"itemStock.csv\"");
+		}
+
+		itemStockService.exportStock(stockrooms, response.getWriter(), exportFormat);
+	}
+
+	private ImportFormat getFormat(String format) {
+		if (StringUtils.isEmpty(format)) {
+			return ImportFormat.CSV;
+		}
+
+		try {
+			return ImportFormat.valueOf(format.trim().toUpperCase());
+		} catch (IllegalArgumentException iae) {
+			throw new IllegalArgumentException("The export format '" + format + "' is not supported.");
+		}
+	}
+}
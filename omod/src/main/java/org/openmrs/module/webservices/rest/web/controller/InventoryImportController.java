@@ -0,0 +1,137 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.webservices.rest.web.controller;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.openhmis.commons.api.f.Action1;
+import org.openmrs.module.openhmis.inventory.api.IItemDataService;
+import org.openmrs.module.openhmis.inventory.api.IItemStockDataService;
+import org.openmrs.module.openhmis.inventory.api.IStockroomDataService;
+import org.openmrs.module.openhmis.inventory.api.model.ImportFormat;
+import org.openmrs.module.openhmis.inventory.api.model.ImportResult;
+import org.openmrs.module.openhmis.inventory.api.model.Stockroom;
+import org.openmrs.module.openhmis.inventory.web.ModuleRestConstants;
+import org.openmrs.module.webservices.rest.SimpleObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Streams a CSV or NDJSON request body into the item catalog or the item stock for a stockroom. The format is taken
+ * from the format parameter or, if that is not set, from the request content type.
+ */
+@Controller
+public class InventoryImportController {
+	private static final Log LOG = LogFactory.getLog(InventoryImportController.class);
+
+	private IItemDataService itemService;
+	private IItemStockDataService itemStockService;
+	private IStockroomDataService stockroomService;
+
+	@Autowired
+	public InventoryImportController(IItemDataService itemService, IItemStockDataService itemStockService,
+			IStockroomDataService stockroomService) {
+		this.itemService = itemService;
+		this.itemStockService = itemStockService;
+		this.stockroomService = stockroomService;
+	}
+
+	@RequestMapping(value = "/rest/" + ModuleRestConstants.ITEM_IMPORT, method = RequestMethod.POST)
+	@ResponseBody
+	public SimpleObject importItems(@RequestParam(value = "format", required = false) String format,
+			HttpServletRequest request) throws IOException {
+		ImportResult result = itemService.importItems(request.getReader(), getFormat(format, request.getContentType()),
+				new Action1<ImportResult>() {
+			@Override
+			public void apply(ImportResult progress) {
+				LOG.info("Imported " + progress.getImported() + " of " + progress.getProcessed() + " item row(s).");
+			}
+		});
+
+		return convertResult(result);
+	}
+
+	@RequestMapping(value = "/rest/" + ModuleRestConstants.ITEM_STOCK_IMPORT, method = RequestMethod.POST)
+	@ResponseBody
+	public SimpleObject importStock(@RequestParam("stockroom") String stockroomUuid,
+			@RequestParam(value = "format", required = false) String format, HttpServletRequest request)
+			throws IOException {
+		final Stockroom stockroom = stockroomService.getByUuid(stockroomUuid);
+		if (stockroom == null) {
+			throw new IllegalArgumentException("Could not find stockroom '" + stockroomUuid + "'.");
+		}
+
+		ImportResult result = itemStockService.importStock(stockroom, request.getReader(),
+				getFormat(format, request.getContentType()), new Action1<ImportResult>() {
+			@Override
+			public void apply(ImportResult progress) {
+				LOG.info("Imported " + progress.getImported() + " of " + progress.getProcessed() + " item stock row(s) "
+						+ "into stockroom '" + stockroom.getName() + "'.");
+			}
+		});
+
+		return convertResult(result);
+	}
+
+	/**
+	 * Returns a bad request status when the stockroom or format parameters are not valid, rather than a server error.
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public void handleIllegalArgument(IllegalArgumentException ex, HttpServletResponse response) throws IOException {
+		response.sendError(HttpServletResponse.SC_BAD_REQUEST, ex.getMessage());
+	}
+
+	private SimpleObject convertResult(ImportResult result) {
+		List<SimpleObject> errors = new ArrayList<SimpleObject>(result.getErrors().size());
+		for (Map.Entry<Integer, String> error : result.getErrors().entrySet()) {
+			errors.add(new SimpleObject().add("line", error.getKey()).add("message", error.getValue()));
+		}
+
+		return new SimpleObject()
+				.add("processed", result.getProcessed())
+				.add("imported", result.getImported())
+				.add("complete", result.isComplete())
+				.add("errors", errors);
+	}
+
+	private ImportFormat getFormat(String format, String contentType) {
+		if (!StringUtils.isEmpty(format)) {
+			try {
+				return ImportFormat.valueOf(format.trim().toUpperCase());
+			} catch (IllegalArgumentException iae) {
+				throw new IllegalArgumentException("The import format '" + format + "' is not supported.");
+			}
+		}
+
+		if (contentType != null && (contentType.contains("ndjson") || contentType.contains("json"))) {
+			return ImportFormat.NDJSON;
+		}
+
+		return ImportFormat.CSV;
+	}
+}
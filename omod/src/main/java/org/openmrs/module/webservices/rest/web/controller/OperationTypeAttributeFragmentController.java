@@ -2,9 +2,8 @@ package org.openmrs.module.webservices.rest.web.controller;
 
 import org.apache.commons.lang.StringUtils;
 import org.openmrs.module.openhmis.commons.api.entity.model.IInstanceAttributeType;
-import org.openmrs.module.openhmis.inventory.api.IStockOperationTypeDataService;
+import org.openmrs.module.openhmis.inventory.api.StockOperationTypeCache;
 import org.openmrs.module.openhmis.inventory.api.model.IStockOperationType;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 
@@ -17,13 +16,6 @@ public class OperationTypeAttributeFragmentController extends AttributeFragmentC
 	public static final String REQUEST_MAPPING_PATH = AttributeFragmentControllerBase.REQUEST_MAPPING_PATH_BASE +
 			"OperationType";
 
-	private IStockOperationTypeDataService service;
-
-	@Autowired
-	public OperationTypeAttributeFragmentController(IStockOperationTypeDataService service) {
-		this.service = service;
-	}
-
 	@Override
 	protected List<? extends IInstanceAttributeType<?>> getAttributeTypes(HttpServletRequest request) {
 		String uuid = request.getParameter("uuid");
@@ -31,7 +23,7 @@ public class OperationTypeAttributeFragmentController extends AttributeFragmentC
 			throw new IllegalArgumentException("The uuid for the operation type must be defined.");
 		}
 
-		IStockOperationType type = service.getByUuid(uuid);
+		IStockOperationType type = StockOperationTypeCache.getByUuid(uuid);
 		if (type == null) {
 			throw new IllegalArgumentException("Could not find operation type '" + uuid + "'.");
 		}
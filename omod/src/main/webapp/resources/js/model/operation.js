@@ -192,6 +192,37 @@ define(
 		    }
 	    });
 
+	    openhmis.TransactionRollup = openhmis.GenericModel.extend({
+		    meta: {
+			    name: __("Monthly Transaction Total"),
+			    namePlural: __("Monthly Transaction Totals"),
+			    openmrsType: 'metadata',
+			    restUrl: openhmis.url.inventoryModelBase + 'stockOperationTransactionRollup'
+		    },
+
+		    schema: {
+			    month: { type: 'Date', format: openhmis.dateFormatLocale },
+			    item: { type: 'NestedModel', model: openhmis.Item, objRef: true },
+			    batchOperation: { type: 'NestedModel', model: openhmis.Operation, objRef: true },
+			    quantity: { type: 'BasicNumber' },
+			    transactionCount: { type: 'BasicNumber' }
+		    },
+
+		    parse: function(resp) {
+			    if (resp) {
+				    if (resp.item && _.isObject(resp.item)) {
+					    resp.item = new openhmis.Item(resp.item);
+				    }
+
+				    if (resp.batchOperation && _.isObject(resp.batchOperation)) {
+					    resp.batchOperation = new openhmis.Operation(resp.batchOperation);
+				    }
+			    }
+
+			    return resp;
+		    }
+	    });
+
         openhmis.NewOperation = openhmis.GenericModel.extend({
             meta: {
                 name: __("Operation"),
@@ -204,6 +235,7 @@ define(
 
             OperationStatus: {
                 NEW:        "NEW",
+                QUEUED:     "QUEUED",
                 PENDING:	"PENDING",
                 CANCELLED:	"CANCELLED",
                 COMPLETED:	"COMPLETED"
@@ -261,10 +293,26 @@ define(
                 this.schema.attributes = {
                     hidden: true
                 };
+                this.schema.idempotencyKey = {
+                    hidden: true
+                };
 
                 if (!this.get("status")) {
                     this.set("status", this.OperationStatus.NEW);
                 }
+
+                // Each submission of the operation is sent with its own key and the same key is sent each time a
+                // submission is retried so that the server does not process the submission twice. Once a submission
+                // has been saved the next submission gets a new key.
+                if (!this.get("idempotencyKey")) {
+                    this.newIdempotencyKey();
+                }
+                this.on("sync", this.newIdempotencyKey, this);
+            },
+
+            newIdempotencyKey: function() {
+                this.set("idempotencyKey", new Date().getTime().toString(36) + "-" +
+                    Math.random().toString(36).substr(2), { silent: true });
             },
 
             parse: function(resp) {
@@ -92,6 +92,9 @@ define(
 					for (var filter in this.searchFilter)
 						options.queryString = openhmis.addQueryStringParameter(
 							options.queryString, filter + "=" + encodeURIComponent(this.searchFilter[filter]));
+					// Search by code and name in a single request when only the identifier or name is entered
+					if (this.searchFilter.q && !this.searchFilter.department_uuid && !this.searchFilter.category_uuid)
+						options.queryString = openhmis.addQueryStringParameter(options.queryString, "typeahead=true");
 				}
 				return options;
 			},
@@ -61,9 +61,20 @@ define(
 			        listFields: ['dateCreated', 'operation', 'item', 'batchOperation',  'expiration', 'quantity']
 		        });
 
+		        // Transactions older than the compaction period are only available as monthly totals
+		        this.rollupsView = new openhmis.StockroomDetailList({
+			        model: new openhmis.GenericCollection([], {
+				        model: openhmis.TransactionRollup
+			        }),
+			        showRetiredOption: false,
+			        showRetired: true,
+			        listFields: ['month', 'item', 'batchOperation', 'quantity', 'transactionCount']
+		        });
+
 		        this.itemsView.on("fetch", this.fetch);
 		        this.operationsView.on("fetch", this.fetch);
 		        this.transactionsView.on("fetch", this.fetch);
+		        this.rollupsView.on("fetch", this.fetch);
 	        },
 
 	        render: function() {
@@ -87,6 +98,7 @@ define(
 			        this.itemsView.fetch(null);
 			        this.operationsView.fetch(null);
 			        this.transactionsView.fetch(null);
+			        this.rollupsView.fetch(null);
 
 			        var items = $("#items");
 			        items.append(this.itemsView.el);
@@ -94,6 +106,8 @@ define(
 			        operations.append(this.operationsView.el);
 			        var transactions = $("#transactions");
 			        transactions.append(this.transactionsView.el);
+			        var rollups = $("#rollups");
+			        rollups.append(this.rollupsView.el);
 			    } else {
 			        tabs.hide();
 		        }